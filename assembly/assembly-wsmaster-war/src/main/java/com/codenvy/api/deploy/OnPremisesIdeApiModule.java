@@ -290,6 +290,8 @@ public class OnPremisesIdeApiModule extends AbstractModule {
         bindConstant().annotatedWith(Names.named("auth.sso.access_cookie_path")).to("/api/internal/sso/server");
         bindConstant().annotatedWith(Names.named("auth.sso.access_ticket_lifetime_seconds")).to(259200);
         bindConstant().annotatedWith(Names.named("auth.sso.bearer_ticket_lifetime_seconds")).to(3600);
+        bindConstant().annotatedWith(Names.named("auth.sso.logout_notification.pool_size")).to(10);
+        bindConstant().annotatedWith(Names.named("auth.sso.logout_notification.max_attempts")).to(3);
         bindConstant().annotatedWith(Names.named("auth.sso.create_workspace_page_url")).to("/site/auth/create");
         bindConstant().annotatedWith(Names.named("auth.sso.login_page_url")).to("/site/login");
         bindConstant().annotatedWith(Names.named("che.auth.access_denied_error_page")).to("/site/login");
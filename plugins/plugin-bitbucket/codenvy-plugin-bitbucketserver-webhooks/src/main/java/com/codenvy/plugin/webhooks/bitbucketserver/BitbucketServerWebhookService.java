@@ -14,9 +14,11 @@
  */
 package com.codenvy.plugin.webhooks.bitbucketserver;
 
-import com.codenvy.plugin.webhooks.AuthConnection;
 import com.codenvy.plugin.webhooks.FactoryConnection;
+import com.codenvy.plugin.webhooks.ServiceAccountTokenHolder;
 import com.codenvy.plugin.webhooks.BaseWebhookService;
+import com.codenvy.plugin.webhooks.WebhookEvent;
+import com.codenvy.plugin.webhooks.WebhookEventQueue;
 import com.codenvy.plugin.webhooks.bitbucketserver.shared.Changeset;
 import com.codenvy.plugin.webhooks.bitbucketserver.shared.Project;
 import com.codenvy.plugin.webhooks.bitbucketserver.shared.PushEvent;
@@ -28,6 +30,7 @@ import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.rest.shared.dto.Link;
 import org.eclipse.che.api.factory.shared.dto.FactoryDto;
 import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.lang.IoUtil;
 import org.eclipse.che.dto.server.DtoFactory;
 import org.eclipse.che.inject.ConfigurationProperties;
 import org.slf4j.Logger;
@@ -35,6 +38,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Singleton;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -43,35 +47,32 @@ import javax.ws.rs.Path;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
 
-import static java.util.stream.Collectors.toSet;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 @Path("/bitbucketserver-webhook")
+@Singleton
 public class BitbucketServerWebhookService extends BaseWebhookService {
 
     private static final Logger LOG = LoggerFactory.getLogger(BitbucketServerWebhookService.class);
 
+    private static final String BITBUCKET_REQUEST_ID_HEADER       = "X-Request-Id";
+    private static final String BITBUCKET_EVENT_SOURCE            = "bitbucketserver";
+    private static final String PUSH_EVENT_TYPE                   = "push";
     private static final String WEBHOOK_PROPERTY_PATTERN          = "env.CODENVY_BITBUCKET_SERVER_WEBHOOK_.+";
-    private static final String WEBHOOK_REPOSITORY_URL_SUFFIX     = "_REPOSITORY_URL";
-    private static final String WEBHOOK_FACTORY_ID_SUFFIX_PATTERN = "_FACTORY.+_ID";
 
-    private final ConfigurationProperties configurationProperties;
-    private final String                  bitbucketEndpoint;
+    private final String bitbucketEndpoint;
 
     @Inject
-    public BitbucketServerWebhookService(final AuthConnection authConnection,
+    public BitbucketServerWebhookService(final ServiceAccountTokenHolder tokenHolder,
                                          final FactoryConnection factoryConnection,
                                          ConfigurationProperties configurationProperties,
-                                         @Named("integration.factory.owner.username") String username,
-                                         @Named("integration.factory.owner.password") String password,
-                                         @Named("bitbucket.endpoint") String bitbucketEndpoint) {
-        super(authConnection, factoryConnection, configurationProperties, username, password);
-        this.configurationProperties = configurationProperties;
+                                         @Named("bitbucket.endpoint") String bitbucketEndpoint,
+                                         WebhookEventQueue eventQueue) {
+        super(tokenHolder, factoryConnection, configurationProperties, eventQueue, BITBUCKET_EVENT_SOURCE, WEBHOOK_PROPERTY_PATTERN);
         this.bitbucketEndpoint = bitbucketEndpoint.endsWith("/") ? bitbucketEndpoint.substring(0, bitbucketEndpoint.length() - 1)
                                                                  : bitbucketEndpoint;
     }
@@ -79,33 +80,17 @@ public class BitbucketServerWebhookService extends BaseWebhookService {
     @POST
     @Consumes(APPLICATION_JSON)
     public Response handleWebhookEvent(@Context HttpServletRequest request) throws ServerException {
-        EnvironmentContext.getCurrent().setSubject(new TokenSubject());
         Response response = Response.noContent().build();
         try (ServletInputStream inputStream = request.getInputStream()) {
             if (inputStream == null) {
                 return response;
             }
-            final PushEvent event = DtoFactory.getInstance().createDtoFromJson(inputStream, PushEvent.class);
-            LOG.debug("{}", event);
-            for (RefChange refChange : event.getRefChanges()) {
-                Optional<Changeset> changeset = event.getChangesets()
-                                                     .getValues()
-                                                     .stream()
-                                                     .filter(changeSet -> changeSet.getToCommit().getId().equals(refChange.getToHash()))
-                                                     .findFirst();
-                if (!changeset.isPresent()) {
-                    continue;
-                }
-                String commitMessage = changeset.get().getToCommit().getMessage();
-                if (commitMessage.startsWith("Merge pull request #")) {
-                    handleMergeEvent(event, commitMessage);
-                    continue;
-                }
-                String eventType = refChange.getType().toLowerCase();
-                if ("update".equals(eventType) || "add".equals(eventType)) {
-                    handlePushEvent(event, refChange.getRefId().substring(11));
-                }
-            }
+            final String payload = IoUtil.readAndCloseQuietly(inputStream);
+            final Repository repository = DtoFactory.getInstance().createDtoFromJson(payload, PushEvent.class).getRepository();
+            enqueueEvent(request.getHeader(BITBUCKET_REQUEST_ID_HEADER),
+                         repository.getProject().getKey() + "/" + repository.getName(),
+                         PUSH_EVENT_TYPE,
+                         payload);
         } catch (IOException e) {
             LOG.error(e.getLocalizedMessage());
             throw new ServerException(e.getLocalizedMessage());
@@ -114,20 +99,48 @@ public class BitbucketServerWebhookService extends BaseWebhookService {
         return response;
     }
 
+    @Override
+    protected void processEvent(WebhookEvent webhookEvent) throws ServerException {
+        EnvironmentContext.getCurrent().setSubject(new TokenSubject());
+        final PushEvent event = DtoFactory.getInstance().createDtoFromJson(webhookEvent.getPayload(), PushEvent.class);
+        LOG.debug("{}", event);
+        for (RefChange refChange : event.getRefChanges()) {
+            Optional<Changeset> changeset = event.getChangesets()
+                                                 .getValues()
+                                                 .stream()
+                                                 .filter(changeSet -> changeSet.getToCommit().getId().equals(refChange.getToHash()))
+                                                 .findFirst();
+            if (!changeset.isPresent()) {
+                continue;
+            }
+            String commitMessage = changeset.get().getToCommit().getMessage();
+            if (commitMessage.startsWith("Merge pull request #")) {
+                handleMergeEvent(event, commitMessage);
+                continue;
+            }
+            String eventType = refChange.getType().toLowerCase();
+            if ("update".equals(eventType) || "add".equals(eventType)) {
+                handlePushEvent(event, refChange.getRefId().substring(11));
+            }
+        }
+    }
+
     @VisibleForTesting
     void handlePushEvent(PushEvent event, String branch) throws ServerException {
         Repository repository = event.getRepository();
         Project project = repository.getProject();
         String cloneUrl = computeCloneUrl(project.getOwner().getName(), project.getKey(), repository.getName());
 
-        for (FactoryDto factory : getFactoriesForRepositoryAndBranch(getFactoriesIDs(cloneUrl), cloneUrl, branch)) {
+        Map<String, String> factoriesLinks = new LinkedHashMap<>();
+        for (FactoryDto factory : getFactoriesForRepositoryAndBranch(getWebhookConfiguredFactoriesIDs(cloneUrl), cloneUrl, branch)) {
             Link factoryLink = factory.getLink(FACTORY_URL_REL);
             if (factoryLink == null) {
                 LOG.warn("Factory " + factory.getId() + " do not contain mandatory \'" + FACTORY_URL_REL + "\' link");
                 continue;
             }
-            getConnectors(factory.getId()).forEach(connector -> connector.addFactoryLink(factoryLink.getHref()));
+            factoriesLinks.put(factory.getId(), factoryLink.getHref());
         }
+        addFactoryLinks(factoriesLinks);
     }
 
     @VisibleForTesting
@@ -143,7 +156,7 @@ public class BitbucketServerWebhookService extends BaseWebhookService {
                                                               : baseRepositoryName);
         String baseUrl = computeCloneUrl(project.getOwner().getName(), project.getKey(), baseRepositoryName);
 
-        for (FactoryDto factory : getFactoriesForRepositoryAndBranch(getFactoriesIDs(headUrl), headUrl, branch)) {
+        for (FactoryDto factory : getFactoriesForRepositoryAndBranch(getWebhookConfiguredFactoriesIDs(headUrl), headUrl, branch)) {
             updateFactory(updateProjectInFactory(factory, headUrl, branch, baseUrl, commitId));
         }
     }
@@ -162,26 +175,4 @@ public class BitbucketServerWebhookService extends BaseWebhookService {
 
         return sb.toString().toLowerCase();
     }
-
-    private Set<String> getFactoriesIDs(final String repositoryUrl) throws ServerException {
-        Map<String, String> properties = configurationProperties.getProperties(WEBHOOK_PROPERTY_PATTERN);
-
-        Set<String> webhooks = properties.entrySet()
-                                         .stream()
-                                         .filter(entry -> repositoryUrl.equals(entry.getValue()))
-                                         .map(entry -> entry.getKey()
-                                                            .substring(0, entry.getKey().lastIndexOf(WEBHOOK_REPOSITORY_URL_SUFFIX)))
-                                         .collect(toSet());
-
-        if (webhooks.isEmpty()) {
-            LOG.warn("No BitBucket Server webhooks were registered for repository {}", repositoryUrl);
-        }
-
-        return properties.entrySet()
-                         .stream()
-                         .filter(entry -> webhooks.stream()
-                                                  .anyMatch(webhook -> entry.getKey().matches(webhook + WEBHOOK_FACTORY_ID_SUFFIX_PATTERN)))
-                         .map(Entry::getValue)
-                         .collect(toSet());
-    }
 }
@@ -14,8 +14,11 @@
  */
 package com.codenvy.plugin.webhooks.bitbucketserver;
 
-import com.codenvy.plugin.webhooks.AuthConnection;
 import com.codenvy.plugin.webhooks.FactoryConnection;
+import com.codenvy.plugin.webhooks.ServiceAccountTokenHolder;
+import com.codenvy.plugin.webhooks.WebhookEvent;
+import com.codenvy.plugin.webhooks.WebhookEventProcessor;
+import com.codenvy.plugin.webhooks.WebhookEventQueue;
 import com.codenvy.plugin.webhooks.bitbucketserver.shared.Changeset;
 import com.codenvy.plugin.webhooks.bitbucketserver.shared.Changesets;
 import com.codenvy.plugin.webhooks.bitbucketserver.shared.Commit;
@@ -33,6 +36,8 @@ import org.eclipse.che.api.workspace.shared.dto.WorkspaceConfigDto;
 import org.eclipse.che.commons.test.servlet.MockServletInputStream;
 import org.eclipse.che.dto.server.DtoFactory;
 import org.eclipse.che.inject.ConfigurationProperties;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
@@ -45,11 +50,14 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static java.util.Collections.singletonList;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -58,41 +66,50 @@ import static org.testng.Assert.assertFalse;
 @Listeners(value = MockitoTestNGListener.class)
 public class BitbucketServerWebhookServiceTest {
 
-    private BitbucketServerWebhookService service;
+    @Mock
+    private WebhookEventQueue eventQueue;
+    @Mock
+    private FactoryConnection factoryConnection;
 
-    private final Map<String, String> parameters = new HashMap<>();
+    private BitbucketServerWebhookService service;
+    private WebhookEventProcessor         eventProcessor;
 
     @BeforeMethod
     public void setup() throws Exception {
-        FactoryConnection factoryConnection = mock(FactoryConnection.class);
-        FactoryDto factory = mock(FactoryDto.class);
-        WorkspaceConfigDto workspace = mock(WorkspaceConfigDto.class);
-        ProjectConfigDto project = mock(ProjectConfigDto.class);
-        SourceStorageDto source = mock(SourceStorageDto.class);
+        String repositoryUrl = "http://owner@bitbucketserver.host/scm/projectkey/repository.git";
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("branch", "testBranch");
+        FactoryDto factory =
+                DtoFactory.newDto(FactoryDto.class)
+                          .withId("factoryId")
+                          .withLinks(singletonList(DtoFactory.newDto(Link.class)
+                                                             .withRel("accept-named")
+                                                             .withHref("http://codenvy.host/f?id=factoryId")))
+                          .withWorkspace(DtoFactory.newDto(WorkspaceConfigDto.class)
+                                                   .withProjects(singletonList(
+                                                           DtoFactory.newDto(ProjectConfigDto.class)
+                                                                     .withSource(DtoFactory.newDto(SourceStorageDto.class)
+                                                                                           .withType("type")
+                                                                                           .withLocation(repositoryUrl)
+                                                                                           .withParameters(parameters)))));
         ConfigurationProperties configurationProperties = mock(ConfigurationProperties.class);
         Map<String, String> properties = new HashMap<>();
-        properties.put("env.CODENVY_BITBUCKET_SERVER_WEBHOOK_WEBHOOK1_REPOSITORY_URL",
-                       "http://owner@bitbucketserver.host/scm/projectkey/repository.git");
+        properties.put("env.CODENVY_BITBUCKET_SERVER_WEBHOOK_WEBHOOK1_REPOSITORY_URL", repositoryUrl);
         properties.put("env.CODENVY_BITBUCKET_SERVER_WEBHOOK_WEBHOOK1_FACTORY1_ID", "factoryId");
         when(configurationProperties.getProperties(eq("env.CODENVY_BITBUCKET_SERVER_WEBHOOK_.+"))).thenReturn(properties);
-        when(factory.getWorkspace()).thenReturn(workspace);
-        when(factory.getLink(anyString())).thenReturn(mock(Link.class));
-        when(factory.getId()).thenReturn("factoryId");
-        when(factoryConnection.getFactory("factoryId")).thenReturn(factory);
-        when(factoryConnection.updateFactory(factory)).thenReturn(factory);
-        when(workspace.getProjects()).thenReturn(singletonList(project));
-        when(project.getSource()).thenReturn(source);
-        when(source.getType()).thenReturn("type");
-        when(source.getLocation()).thenReturn("http://owner@bitbucketserver.host/scm/projectkey/repository.git");
-        parameters.put("branch", "testBranch");
-        when(source.getParameters()).thenReturn(parameters);
+        when(factoryConnection.getFactory("factoryId")).thenAnswer(inv -> DtoFactory.cloneDto(factory));
+        when(factoryConnection.updateFactory(any())).thenAnswer(inv -> inv.getArguments()[0]);
 
-        service = spy(new BitbucketServerWebhookService(mock(AuthConnection.class),
+        service = spy(new BitbucketServerWebhookService(mock(ServiceAccountTokenHolder.class),
                                                         factoryConnection,
                                                         configurationProperties,
-                                                        "username",
-                                                        "password",
-                                                        "http://bitbucketserver.host/"));
+                                                        "http://bitbucketserver.host/",
+                                                        eventQueue));
+        when(eventQueue.enqueue(any(WebhookEvent.class))).thenReturn(true);
+        service.registerEventProcessor();
+        ArgumentCaptor<WebhookEventProcessor> processorCaptor = ArgumentCaptor.forClass(WebhookEventProcessor.class);
+        verify(eventQueue).register(eq("bitbucketserver"), processorCaptor.capture());
+        eventProcessor = processorCaptor.getValue();
     }
 
     @Test
@@ -102,6 +119,7 @@ public class BitbucketServerWebhookServiceTest {
 
         //when
         service.handleWebhookEvent(prepareRequest(pushEvent));
+        eventProcessor.process(getEnqueuedEvent());
 
         //then
         verify(service).handlePushEvent(anyObject(), anyString());
@@ -114,13 +132,41 @@ public class BitbucketServerWebhookServiceTest {
 
         //when
         service.handleWebhookEvent(prepareRequest(pushEvent));
+        eventProcessor.process(getEnqueuedEvent());
 
         //then
         verify(service).handleMergeEvent(anyObject(), anyString());
+        // the factory is fetched again right before the modification
+        verify(factoryConnection, times(2)).getFactory("factoryId");
+        ArgumentCaptor<FactoryDto> factoryCaptor = ArgumentCaptor.forClass(FactoryDto.class);
+        verify(factoryConnection).updateFactory(factoryCaptor.capture());
+        Map<String, String> parameters = factoryCaptor.getValue().getWorkspace().getProjects().get(0).getSource().getParameters();
         assertFalse(parameters.containsKey("branch"));
         assertEquals(parameters.get("commitId"), "hash commit");
     }
 
+    @Test
+    public void shouldEnqueueEventOfRepositoryWithRequestId() throws Exception {
+        //given
+        HttpServletRequest request = prepareRequest(createPushEvent("commit"));
+        when(request.getHeader("X-Request-Id")).thenReturn("requestId");
+
+        //when
+        service.handleWebhookEvent(request);
+
+        //then
+        WebhookEvent event = getEnqueuedEvent();
+        assertEquals(event.getDeliveryId(), "requestId");
+        assertEquals(event.getRepository(), "projectkey/repository");
+        verify(service, never()).handlePushEvent(anyObject(), anyString());
+    }
+
+    private WebhookEvent getEnqueuedEvent() throws Exception {
+        ArgumentCaptor<WebhookEvent> eventCaptor = ArgumentCaptor.forClass(WebhookEvent.class);
+        verify(eventQueue).enqueue(eventCaptor.capture());
+        return eventCaptor.getValue();
+    }
+
     private HttpServletRequest prepareRequest(PushEvent event) throws Exception {
         HttpServletRequest mockRequest = mock(HttpServletRequest.class);
 
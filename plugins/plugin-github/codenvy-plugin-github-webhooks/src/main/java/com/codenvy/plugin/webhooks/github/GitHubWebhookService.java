@@ -20,10 +20,12 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
-import com.codenvy.plugin.webhooks.AuthConnection;
 import com.codenvy.plugin.webhooks.FactoryConnection;
+import com.codenvy.plugin.webhooks.ServiceAccountTokenHolder;
+import com.codenvy.plugin.webhooks.UnprocessableWebhookEventException;
 import com.codenvy.plugin.webhooks.BaseWebhookService;
-import com.codenvy.plugin.webhooks.connectors.Connector;
+import com.codenvy.plugin.webhooks.WebhookEvent;
+import com.codenvy.plugin.webhooks.WebhookEventQueue;
 import com.codenvy.plugin.webhooks.github.shared.PullRequestEvent;
 import com.codenvy.plugin.webhooks.github.shared.PushEvent;
 
@@ -31,13 +33,14 @@ import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.rest.shared.dto.Link;
 import org.eclipse.che.api.factory.shared.dto.FactoryDto;
 import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.lang.IoUtil;
 import org.eclipse.che.dto.server.DtoFactory;
 import org.eclipse.che.inject.ConfigurationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
-import javax.inject.Named;
+import javax.inject.Singleton;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -47,13 +50,12 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
-import static java.util.stream.Collectors.toSet;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 @Api(
@@ -61,25 +63,22 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
         description = "GitHub webhooks handler"
 )
 @Path("/github-webhook")
+@Singleton
 public class GitHubWebhookService extends BaseWebhookService {
 
     private static final Logger LOG = LoggerFactory.getLogger(GitHubWebhookService.class);
 
     private static final String GITHUB_REQUEST_HEADER             = "X-GitHub-Event";
+    private static final String GITHUB_DELIVERY_HEADER            = "X-GitHub-Delivery";
+    private static final String GITHUB_EVENT_SOURCE               = "github";
     private static final String WEBHOOK_PROPERTY_PATTERN          = "env.CODENVY_GITHUB_WEBHOOK_.+";
-    private static final String WEBHOOK_REPOSITORY_URL_SUFFIX     = "_REPOSITORY_URL";
-    private static final String WEBHOOK_FACTORY_ID_SUFFIX_PATTERN = "_FACTORY.+_ID";
-
-    private final ConfigurationProperties configurationProperties;
 
     @Inject
-    public GitHubWebhookService(final AuthConnection authConnection,
+    public GitHubWebhookService(final ServiceAccountTokenHolder tokenHolder,
                                 final FactoryConnection factoryConnection,
                                 final ConfigurationProperties configurationProperties,
-                                @Named("integration.factory.owner.username") String username,
-                                @Named("integration.factory.owner.password") String password) {
-        super(authConnection, factoryConnection, configurationProperties, username, password);
-        this.configurationProperties = configurationProperties;
+                                final WebhookEventQueue eventQueue) {
+        super(tokenHolder, factoryConnection, configurationProperties, eventQueue, GITHUB_EVENT_SOURCE, WEBHOOK_PROPERTY_PATTERN);
     }
 
     @ApiOperation(value = "Handle GitHub webhook events",
@@ -100,15 +99,26 @@ public class GitHubWebhookService extends BaseWebhookService {
             if (inputStream != null) {
                 String githubHeader = request.getHeader(GITHUB_REQUEST_HEADER);
                 if (!isNullOrEmpty(githubHeader)) {
+                    final String payload = IoUtil.readAndCloseQuietly(inputStream);
+                    final String deliveryId = request.getHeader(GITHUB_DELIVERY_HEADER);
                     switch (githubHeader) {
                         case "push":
-                            final PushEvent pushEvent = DtoFactory.getInstance().createDtoFromJson(inputStream, PushEvent.class);
-                            handlePushEvent(pushEvent);
+                            final PushEvent pushEvent = DtoFactory.getInstance().createDtoFromJson(payload, PushEvent.class);
+                            enqueueEvent(deliveryId, pushEvent.getRepository().getHtmlUrl(), githubHeader, payload);
                             break;
                         case "pull_request":
                             final PullRequestEvent PRevent =
-                                    DtoFactory.getInstance().createDtoFromJson(inputStream, PullRequestEvent.class);
-                            handlePullRequestEvent(PRevent);
+                                    DtoFactory.getInstance().createDtoFromJson(payload, PullRequestEvent.class);
+                            // Only successful merging is handled, there is no reason to queue other actions
+                            if (!"closed".equals(PRevent.getAction()) || !PRevent.getPullRequest().getMerged()) {
+                                response = Response.accepted(new GenericEntity<>(
+                                        "GitHub pull request action \'" + PRevent.getAction() + "\' received. " +
+                                        "Only merged pull requests are processed.", String.class))
+                                                   .build();
+                                break;
+                            }
+                            final String baseRepositoryHtmlUrl = PRevent.getPullRequest().getBase().getRepo().getHtmlUrl();
+                            enqueueEvent(deliveryId, baseRepositoryHtmlUrl, githubHeader, payload);
                             break;
                         default:
                             response = Response.accepted(new GenericEntity<>(
@@ -126,6 +136,22 @@ public class GitHubWebhookService extends BaseWebhookService {
         return response;
     }
 
+    @Override
+    protected void processEvent(WebhookEvent event) throws ServerException {
+        switch (event.getType()) {
+            case "push":
+                handlePushEvent(DtoFactory.getInstance().createDtoFromJson(event.getPayload(), PushEvent.class));
+                break;
+            case "pull_request":
+                handlePullRequestEvent(DtoFactory.getInstance().createDtoFromJson(event.getPayload(),
+                                                                                  PullRequestEvent.class));
+                break;
+            default:
+                LOG.warn("GitHub event {} of type {} isn't intended to be processed", event.getId(), event.getType());
+                break;
+        }
+    }
+
     /**
      * Handle GitHub {@link PushEvent}
      *
@@ -152,22 +178,21 @@ public class GitHubWebhookService extends BaseWebhookService {
         // Get factories that contain a project for given repository and branch
         final List<FactoryDto> factories = getFactoriesForRepositoryAndBranch(factoriesIDs, contribRepositoryHtmlUrl, contribBranch);
         if (factories.isEmpty()) {
-            throw new ServerException("No factory found for repository " + contribRepositoryHtmlUrl + " and branch " + contribBranch);
+            throw new UnprocessableWebhookEventException("No factory found for repository " + contribRepositoryHtmlUrl + " and branch " + contribBranch);
         }
 
+        final Map<String, String> factoriesLinks = new LinkedHashMap<>();
         for (FactoryDto f : factories) {
             // Get 'open factory' URL
             final Link factoryLink = f.getLink(FACTORY_URL_REL);
             if (factoryLink == null) {
-                throw new ServerException("Factory " + f.getId() + " do not contain mandatory \'" + FACTORY_URL_REL + "\' link");
+                throw new UnprocessableWebhookEventException("Factory " + f.getId() + " do not contain mandatory \'" + FACTORY_URL_REL + "\' link");
             }
-
-            // Get connectors configured for the factory
-            final List<Connector> connectors = getConnectors(f.getId());
-
-            // Add factory link within third-party services
-            connectors.forEach(connector -> connector.addFactoryLink(factoryLink.getHref()));
+            factoriesLinks.put(f.getId(), factoryLink.getHref());
         }
+
+        // Add factory links within third-party services, links of the same connector are added at once
+        addFactoryLinks(factoriesLinks);
     }
 
     /**
@@ -188,12 +213,12 @@ public class GitHubWebhookService extends BaseWebhookService {
         // Check that event indicates a successful merging
         final String action = prEvent.getAction();
         if (!"closed".equals(action)) {
-            throw new ServerException(
+            throw new UnprocessableWebhookEventException(
                     "PullRequest Event action is " + action + ". " + this.getClass().getSimpleName() + " do not handle this one.");
         }
         final boolean isMerged = prEvent.getPullRequest().getMerged();
         if (!isMerged) {
-            throw new ServerException("Pull Request was closed with unmerged commits !");
+            throw new UnprocessableWebhookEventException("Pull Request was closed with unmerged commits !");
         }
 
         // Get head repository data
@@ -210,7 +235,7 @@ public class GitHubWebhookService extends BaseWebhookService {
         // Get factories that contain a project for given repository and branch
         final List<FactoryDto> factories = getFactoriesForRepositoryAndBranch(factoriesIDs, prHeadRepositoryHtmlUrl, prHeadBranch);
         if (factories.isEmpty()) {
-            throw new ServerException("No factory found for branch " + prHeadBranch);
+            throw new UnprocessableWebhookEventException("No factory found for branch " + prHeadBranch);
         }
 
         for (FactoryDto f : factories) {
@@ -224,34 +249,4 @@ public class GitHubWebhookService extends BaseWebhookService {
             // TODO Remove factory id from webhook
         }
     }
-
-    /**
-     * Get factories configured in a webhook for given base repository
-     * and contain a project for given head repository and head branch
-     *
-     * @param baseRepositoryHtmlUrl
-     *         the URL of the repository for which a webhook is configured
-     * @return the factories configured in a webhook and that contain a project that matches given repo and branch
-     */
-    private Set<String> getWebhookConfiguredFactoriesIDs(final String baseRepositoryHtmlUrl) {
-        Map<String, String> properties = configurationProperties.getProperties(WEBHOOK_PROPERTY_PATTERN);
-
-        Set<String> webhooks = properties.entrySet()
-                                         .stream()
-                                         .filter(entry -> baseRepositoryHtmlUrl.equals(entry.getValue()))
-                                         .map(entry -> entry.getKey()
-                                                            .substring(0, entry.getKey().lastIndexOf(WEBHOOK_REPOSITORY_URL_SUFFIX)))
-                                         .collect(toSet());
-
-        if (webhooks.isEmpty()) {
-            LOG.warn("No GitHub webhooks were registered for repository {}", baseRepositoryHtmlUrl);
-        }
-
-        return properties.entrySet()
-                         .stream()
-                         .filter(entry -> webhooks.stream()
-                                                  .anyMatch(webhook -> entry.getKey().matches(webhook + WEBHOOK_FACTORY_ID_SUFFIX_PATTERN)))
-                         .map(Entry::getValue)
-                         .collect(toSet());
-    }
 }
@@ -26,6 +26,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.servlet.ServletInputStream;
@@ -40,8 +41,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static javax.ws.rs.core.Response.Status.OK;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -52,15 +55,18 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class TestGitHubWebhookService {
 
-    private final static String REQUEST_HEADER_GITHUB_EVENT = "X-GitHub-Event";
-    private final static String FAKE_USER_ID                = "TEST_USER_ID";
+    private final static String REQUEST_HEADER_GITHUB_EVENT    = "X-GitHub-Event";
+    private final static String REQUEST_HEADER_GITHUB_DELIVERY = "X-GitHub-Delivery";
+    private final static String FAKE_USER_ID                   = "TEST_USER_ID";
 
     private enum Service {
         GITHUB,
         VSTS
     }
 
-    private GitHubWebhookService fakeGitHubWebhookService;
+    private GitHubWebhookService  fakeGitHubWebhookService;
+    private WebhookEventQueue     mockEventQueue;
+    private WebhookEventProcessor eventProcessor;
 
     @Before
     public void setUp() throws Exception {
@@ -71,10 +77,10 @@ public class TestGitHubWebhookService {
         properties.put("env.CODENVY_GITHUB_WEBHOOK_WEBHOOK1_FACTORY1_ID", "fakeFactoryId");
         when(configurationProperties.getProperties(eq("env.CODENVY_GITHUB_WEBHOOK_.+"))).thenReturn(properties);
 
-        // Prepare authConnection
+        // Prepare tokenHolder
         Token fakeToken = DtoFactory.newDto(Token.class).withValue("fakeToken");
-        AuthConnection mockAuthConnection = mock(AuthConnection.class);
-        when(mockAuthConnection.authenticateUser("somebody@somemail.com", "somepwd")).thenReturn(fakeToken);
+        ServiceAccountTokenHolder mockTokenHolder = mock(ServiceAccountTokenHolder.class);
+        when(mockTokenHolder.getToken()).thenReturn(fakeToken);
 
         // Prepare userConnection
         UserConnection mockUserConnection = mock(UserConnection.class);
@@ -89,12 +95,19 @@ public class TestGitHubWebhookService {
         when(mockFactoryConnection.getFactory("fakeFactoryId")).thenReturn(gitHubfakeFactory);
         when(mockFactoryConnection.updateFactory(gitHubfakeFactory)).thenReturn(gitHubfakeFactory);
 
+        // Prepare eventQueue
+        mockEventQueue = mock(WebhookEventQueue.class);
+        when(mockEventQueue.enqueue(any(WebhookEvent.class))).thenReturn(true);
+
         // Prepare GitHubWebhookService
-        fakeGitHubWebhookService = new GitHubWebhookService(mockAuthConnection,
+        fakeGitHubWebhookService = new GitHubWebhookService(mockTokenHolder,
                                                             mockFactoryConnection,
                                                             configurationProperties,
-                                                            "username",
-                                                            "password");
+                                                            mockEventQueue);
+        fakeGitHubWebhookService.registerEventProcessor();
+        ArgumentCaptor<WebhookEventProcessor> processorCaptor = ArgumentCaptor.forClass(WebhookEventProcessor.class);
+        verify(mockEventQueue).register(eq("github"), processorCaptor.capture());
+        eventProcessor = processorCaptor.getValue();
     }
 
     @Test
@@ -102,6 +115,12 @@ public class TestGitHubWebhookService {
         HttpServletRequest mockRequest = prepareRequest(Service.GITHUB, "push");
         Response response = fakeGitHubWebhookService.handleGithubWebhookEvent(mockRequest);
         Assert.assertTrue(response.getStatus() == OK.getStatusCode());
+
+        WebhookEvent event = getEnqueuedEvent();
+        Assert.assertEquals("push", event.getType());
+        Assert.assertEquals("fakeDeliveryId", event.getDeliveryId());
+        Assert.assertEquals("https://github.com/codenvy-demos/dashboard", event.getRepository());
+        eventProcessor.process(event);
     }
 
     @Test
@@ -109,6 +128,17 @@ public class TestGitHubWebhookService {
         HttpServletRequest mockRequest = prepareRequest(Service.GITHUB, "pull_request");
         Response response = fakeGitHubWebhookService.handleGithubWebhookEvent(mockRequest);
         Assert.assertTrue(response.getStatus() == OK.getStatusCode());
+
+        WebhookEvent event = getEnqueuedEvent();
+        Assert.assertEquals("pull_request", event.getType());
+        Assert.assertEquals("https://github.com/codenvy-demos/dashboard", event.getRepository());
+        eventProcessor.process(event);
+    }
+
+    private WebhookEvent getEnqueuedEvent() throws Exception {
+        ArgumentCaptor<WebhookEvent> eventCaptor = ArgumentCaptor.forClass(WebhookEvent.class);
+        verify(mockEventQueue).enqueue(eventCaptor.capture());
+        return eventCaptor.getValue();
     }
 
     protected HttpServletRequest prepareRequest(Service service, String eventType) throws Exception {
@@ -135,6 +165,7 @@ public class TestGitHubWebhookService {
         }
         if (service == Service.GITHUB) {
             when(mockRequest.getHeader(REQUEST_HEADER_GITHUB_EVENT)).thenReturn(eventType);
+            when(mockRequest.getHeader(REQUEST_HEADER_GITHUB_DELIVERY)).thenReturn("fakeDeliveryId");
         }
         when(mockRequest.getInputStream()).thenReturn(fakeInputStream);
 
@@ -15,8 +15,15 @@
 package com.codenvy.swarm.client;
 
 import com.codenvy.swarm.client.model.DockerNode;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
 import org.eclipse.che.plugin.docker.client.DockerApiVersionPathPrefixProvider;
 import org.eclipse.che.plugin.docker.client.DockerConnector;
 import org.eclipse.che.plugin.docker.client.DockerConnectorConfiguration;
@@ -29,7 +36,9 @@ import org.eclipse.che.plugin.docker.client.json.SystemInfo;
 import org.eclipse.che.plugin.docker.client.params.BuildImageParams;
 import org.eclipse.che.plugin.docker.client.params.CreateContainerParams;
 import org.eclipse.che.plugin.docker.client.params.PullParams;
+import org.eclipse.che.plugin.docker.client.params.RemoveContainerParams;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -37,6 +46,10 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
@@ -45,6 +58,11 @@ import static com.google.common.primitives.Ints.tryParse;
 /**
  * Swarm implementation of {@link DockerConnector} that can be used on distributed system
  *
+ * <p>Swarm system info is requested by each workspace start and each image pull,
+ * so it is cached together with parsed nodes. Cached state is reloaded in the background
+ * when it becomes older than refresh period, concurrent reloads are merged into a single request.
+ * Cached state is dropped when container is created or removed, because it changes memory reserved on nodes.
+ *
  * @author Eugene Voevodin
  * @author Alexander Garagatyi
  */
@@ -55,19 +73,55 @@ public class SwarmDockerConnector extends DockerConnector {
     //TODO should it be done in other way?
     private final String                  nodeDaemonScheme;
     private final int                     nodeDescriptionLength;
+    private final ExecutorService         clusterStateReloader;
+
+    private final LoadingCache<String, ClusterState> clusterStateCache;
 
     private static final Pattern IMAGE_NOT_FOUND_BY_SWARM_ERROR_MESSAGE = Pattern.compile("^Error: image .* not found.*", Pattern.DOTALL);
 
+    private static final String CLUSTER_STATE_KEY = "cluster";
+
     @Inject
     public SwarmDockerConnector(DockerConnectorConfiguration connectorConfiguration,
                                 DockerConnectionFactory connectionFactory,
                                 DockerRegistryAuthResolver authManager,
                                 @Named("swarm.client.node_description_length") int nodeDescriptionLength,
+                                @Named("swarm.client.system_info_refresh_period_s") long systemInfoRefreshPeriodSec,
                                 DockerApiVersionPathPrefixProvider dockerApiVersionPathPrefixProvider) {
         super(connectorConfiguration, connectionFactory, authManager, dockerApiVersionPathPrefixProvider);
         this.nodeDescriptionLength = nodeDescriptionLength;
         this.strategy = new RandomNodeSelectionStrategy();
         this.nodeDaemonScheme = "http";
+        this.clusterStateReloader = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("SwarmClusterStateReloader-%d")
+                                          .setUncaughtExceptionHandler(LoggingUncaughtExceptionHandler.getInstance())
+                                          .setDaemon(true)
+                                          .build());
+        this.clusterStateCache = CacheBuilder.newBuilder()
+                                             .refreshAfterWrite(systemInfoRefreshPeriodSec, TimeUnit.SECONDS)
+                                             // state which wasn't requested for a long time is not used as stale value
+                                             .expireAfterWrite(systemInfoRefreshPeriodSec * 3, TimeUnit.SECONDS)
+                                             .build(CacheLoader.asyncReloading(new CacheLoader<String, ClusterState>() {
+                                                 @Override
+                                                 public ClusterState load(String key) throws Exception {
+                                                     return new ClusterState(fetchSystemInfo());
+                                                 }
+                                             }, clusterStateReloader));
+    }
+
+    @PreDestroy
+    public void shutdownClusterStateReloader() {
+        clusterStateReloader.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Returns cached system info, see {@link SwarmDockerConnector}.
+     */
+    @Override
+    public SystemInfo getSystemInfo() throws IOException {
+        return getClusterState().systemInfo;
     }
 
     /**
@@ -109,9 +163,31 @@ public class SwarmDockerConnector extends DockerConnector {
                 }
             }
             throw decorateMessage(e);
+        } finally {
+            invalidateClusterState();
+        }
+    }
+
+    @Override
+    public void removeContainer(RemoveContainerParams params) throws IOException {
+        try {
+            super.removeContainer(params);
+        } finally {
+            invalidateClusterState();
         }
     }
 
+    /** Requests system info from swarm bypassing the cache. */
+    @VisibleForTesting
+    SystemInfo fetchSystemInfo() throws IOException {
+        return super.getSystemInfo();
+    }
+
+    /** Drops cached cluster state, so it will be requested from swarm on next access. */
+    public void invalidateClusterState() {
+        clusterStateCache.invalidateAll();
+    }
+
     private DockerException decorateMessage(DockerException e) {
         if (e.getOriginError() != null && e.getOriginError().contains("no resources available to schedule container")) {
             e = new DockerException("The system is out of resources. Please contact your system admin.",
@@ -150,11 +226,31 @@ public class SwarmDockerConnector extends DockerConnector {
      * </pre>
      */
     public List<DockerNode> getAvailableNodes() throws IOException {
-        SystemInfo systemInfo = getSystemInfo();
+        final ClusterState clusterState = getClusterState();
+        if (clusterState.nodes == null) {
+            throw new DockerException("Can't find available docker nodes. DriverStatus, SystemStatus fields missing or malformed.", 500);
+        }
+        return new ArrayList<>(clusterState.nodes);
+    }
+
+    private ClusterState getClusterState() throws IOException {
+        try {
+            return clusterStateCache.get(CLUSTER_STATE_KEY);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /** Returns nodes described in given system info or null when system info doesn't contain description of nodes. */
+    private List<DockerNode> parseNodes(SystemInfo systemInfo) {
         final String[][] systemDescription = systemInfo.getSystemStatus() != null ? systemInfo.getSystemStatus()
                                                                                   : systemInfo.getDriverStatus();
         if (systemDescription == null) {
-            throw new DockerException("Can't find available docker nodes. DriverStatus, SystemStatus fields missing.", 500);
+            return null;
         }
         int count = 0;
         int startsFrom = 0;
@@ -173,6 +269,24 @@ public class SwarmDockerConnector extends DockerConnector {
         return nodes;
     }
 
+    /** System info of swarm cluster with nodes parsed from it. */
+    private class ClusterState {
+        final SystemInfo       systemInfo;
+        final List<DockerNode> nodes;
+
+        ClusterState(SystemInfo systemInfo) {
+            this.systemInfo = systemInfo;
+            List<DockerNode> parsed;
+            try {
+                parsed = parseNodes(systemInfo);
+            } catch (RuntimeException e) {
+                // unexpected format of nodes description must not break fetching of system info
+                parsed = null;
+            }
+            this.nodes = parsed;
+        }
+    }
+
     //TODO find better solution
     private URI addrToUri(String addr) {
         return URI.create(nodeDaemonScheme + "://" + addr);
@@ -0,0 +1,151 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.swarm.client;
+
+import com.codenvy.swarm.client.model.DockerNode;
+
+import org.eclipse.che.plugin.docker.client.DockerApiVersionPathPrefixProvider;
+import org.eclipse.che.plugin.docker.client.DockerConnectorConfiguration;
+import org.eclipse.che.plugin.docker.client.DockerRegistryAuthResolver;
+import org.eclipse.che.plugin.docker.client.connection.DockerConnectionFactory;
+import org.eclipse.che.plugin.docker.client.json.SystemInfo;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Tests for {@link SwarmDockerConnector}.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class SwarmDockerConnectorTest {
+
+    @Mock
+    private DockerConnectorConfiguration       connectorConfiguration;
+    @Mock
+    private DockerConnectionFactory            connectionFactory;
+    @Mock
+    private DockerRegistryAuthResolver         authResolver;
+    @Mock
+    private DockerApiVersionPathPrefixProvider apiVersionPathPrefixProvider;
+    @Mock
+    private SystemInfo                         systemInfo;
+
+    private AtomicInteger        fetches;
+    private CountDownLatch       fetchLatch;
+    private SwarmDockerConnector connector;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        when(systemInfo.getSystemStatus()).thenReturn(new String[][] {{"Nodes", "2"},
+                                                                      {" node1", "192.168.1.1:2375"},
+                                                                      {"  └ Reserved Memory", "1 GiB / 3 GiB"},
+                                                                      {" node2", "192.168.1.2:2375"},
+                                                                      {"  └ Reserved Memory", "0 B / 3 GiB"}});
+        fetches = new AtomicInteger();
+        fetchLatch = new CountDownLatch(0);
+        connector = new SwarmDockerConnector(connectorConfiguration,
+                                             connectionFactory,
+                                             authResolver,
+                                             2,
+                                             60,
+                                             apiVersionPathPrefixProvider) {
+            @Override
+            SystemInfo fetchSystemInfo() throws IOException {
+                fetches.incrementAndGet();
+                try {
+                    fetchLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return systemInfo;
+            }
+        };
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        connector.shutdownClusterStateReloader();
+    }
+
+    @Test
+    public void shouldRequestSystemInfoFromSwarmOnlyOnceForSystemInfoAndNodes() throws Exception {
+        assertSame(connector.getSystemInfo(), systemInfo);
+        assertSame(connector.getSystemInfo(), systemInfo);
+        connector.getAvailableNodes();
+
+        assertEquals(fetches.get(), 1);
+    }
+
+    @Test
+    public void shouldParseNodesFromSystemInfo() throws Exception {
+        final List<DockerNode> nodes = connector.getAvailableNodes();
+
+        assertEquals(nodes.size(), 2);
+        assertEquals(nodes.get(0).getHostname(), " node1");
+        assertEquals(nodes.get(0).getAddr(), "192.168.1.1:2375");
+        assertEquals(nodes.get(1).getHostname(), " node2");
+        assertEquals(nodes.get(1).getAddr(), "192.168.1.2:2375");
+    }
+
+    @Test
+    public void shouldRequestSystemInfoFromSwarmAgainAfterInvalidation() throws Exception {
+        connector.getSystemInfo();
+
+        connector.invalidateClusterState();
+        connector.getSystemInfo();
+
+        assertEquals(fetches.get(), 2);
+    }
+
+    @Test(timeOut = 3000)
+    public void shouldMergeConcurrentRequestsOfSystemInfo() throws Exception {
+        fetchLatch = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            final List<Future<SystemInfo>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(connector::getSystemInfo));
+            }
+            while (fetches.get() == 0) {
+                Thread.sleep(10);
+            }
+            fetchLatch.countDown();
+
+            for (Future<SystemInfo> result : results) {
+                assertSame(result.get(1, TimeUnit.SECONDS), systemInfo);
+            }
+            assertEquals(fetches.get(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
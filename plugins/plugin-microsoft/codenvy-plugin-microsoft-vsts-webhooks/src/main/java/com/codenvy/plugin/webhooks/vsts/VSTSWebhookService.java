@@ -20,11 +20,14 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
-import com.codenvy.plugin.webhooks.AuthConnection;
 import com.codenvy.plugin.webhooks.FactoryConnection;
+import com.codenvy.plugin.webhooks.ServiceAccountTokenHolder;
 import com.codenvy.plugin.webhooks.FactoryType;
+import com.codenvy.plugin.webhooks.UnprocessableWebhookEventException;
 import com.codenvy.plugin.webhooks.UserConnection;
 import com.codenvy.plugin.webhooks.BaseWebhookService;
+import com.codenvy.plugin.webhooks.WebhookEvent;
+import com.codenvy.plugin.webhooks.WebhookEventQueue;
 import com.codenvy.plugin.webhooks.vsts.shared.GenericEvent;
 import com.codenvy.plugin.webhooks.vsts.shared.PullRequestUpdatedEvent;
 import com.codenvy.plugin.webhooks.vsts.shared.WorkItemCreationEvent;
@@ -43,7 +46,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
-import javax.inject.Named;
+import javax.inject.Singleton;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -73,24 +76,27 @@ import static com.codenvy.plugin.webhooks.vsts.VSTSWebhookType.WORK_ITEM_CREATED
         description = "VSTS webhooks handler"
 )
 @Path("/vsts-webhook")
+@Singleton
 public class VSTSWebhookService extends BaseWebhookService {
 
     private static final Logger LOG                               = LoggerFactory.getLogger(VSTSWebhookService.class);
     private static final String VSTS_WEBHOOKS_PROPERTIES_FILENAME = "vsts-webhooks.properties";
+    private static final String VSTS_EVENT_SOURCE                 = "vsts";
+    // All the events update the same webhooks properties file, so they are processed one by one
+    private static final String VSTS_EVENTS_REPOSITORY            = "vsts-webhooks";
 
     private final FactoryConnection factoryConnection;
     private final UserConnection    userConnection;
     private final VSTSConnection    vstsConnection;
 
     @Inject
-    public VSTSWebhookService(final AuthConnection authConnection,
+    public VSTSWebhookService(final ServiceAccountTokenHolder tokenHolder,
                               final FactoryConnection factoryConnection,
                               final UserConnection userConnection,
                               final VSTSConnection vstsConnection,
                               final ConfigurationProperties configurationProperties,
-                              @Named("integration.factory.owner.username") String username,
-                              @Named("integration.factory.owner.password") String password) {
-        super(authConnection, factoryConnection, configurationProperties, username, password);
+                              final WebhookEventQueue eventQueue) {
+        super(tokenHolder, factoryConnection, configurationProperties, eventQueue, VSTS_EVENT_SOURCE, null);
 
         this.factoryConnection = factoryConnection;
         this.userConnection = userConnection;
@@ -119,16 +125,8 @@ public class VSTSWebhookService extends BaseWebhookService {
             if (!isNullOrEmpty(eventType)) {
                 switch (eventType) {
                     case "workitem.created":
-                        // Create {@link WorkItemCreationEvent} from JSON
-                        final WorkItemCreationEvent wicEvent =
-                                DtoFactory.getInstance().createDtoFromJson(requestInputString, WorkItemCreationEvent.class);
-                        handleWorkItemCreationEvent(wicEvent);
-                        break;
                     case "git.pullrequest.updated":
-                        // Create {@link PullRequestUpdatedEvent} from JSON
-                        final PullRequestUpdatedEvent pruEvent =
-                                DtoFactory.getInstance().createDtoFromJson(requestInputString, PullRequestUpdatedEvent.class);
-                        handlePullRequestUpdatedEvent(pruEvent);
+                        enqueueEvent(genericEvent.getId(), VSTS_EVENTS_REPOSITORY, eventType, requestInputString);
                         break;
                     default:
                         response = Response.accepted(
@@ -145,6 +143,27 @@ public class VSTSWebhookService extends BaseWebhookService {
         return response;
     }
 
+    @Override
+    protected void processEvent(WebhookEvent event) throws ServerException {
+        switch (event.getType()) {
+            case "workitem.created":
+                // Create {@link WorkItemCreationEvent} from JSON
+                final WorkItemCreationEvent wicEvent =
+                        DtoFactory.getInstance().createDtoFromJson(event.getPayload(), WorkItemCreationEvent.class);
+                handleWorkItemCreationEvent(wicEvent);
+                break;
+            case "git.pullrequest.updated":
+                // Create {@link PullRequestUpdatedEvent} from JSON
+                final PullRequestUpdatedEvent pruEvent =
+                        DtoFactory.getInstance().createDtoFromJson(event.getPayload(), PullRequestUpdatedEvent.class);
+                handlePullRequestUpdatedEvent(pruEvent);
+                break;
+            default:
+                LOG.warn("VSTS event {} of type {} isn't intended to be processed", event.getId(), event.getType());
+                break;
+        }
+    }
+
     /**
      * Handle VSTS {@link WorkItemCreationEvent}
      *
@@ -175,8 +194,7 @@ public class VSTSWebhookService extends BaseWebhookService {
         final List<FactoryDto> parentFactories = factoryConnection.findFactory(projectName, userId);
 
         if (parentFactories.isEmpty()) {
-            LOG.error("No parent factory with name {} found", projectName);
-            throw new ServerException("No parent factory with name " + projectName + " found");
+            throw new UnprocessableWebhookEventException("No parent factory with name " + projectName + " found");
         }
 
         final FactoryDto parentFactory = parentFactories.get(0);
@@ -204,7 +222,7 @@ public class VSTSWebhookService extends BaseWebhookService {
         Optional<WorkItemCreatedWebhook> webhook = getWorkItemCreatedWebhook(host, account, collection);
 
         WorkItemCreatedWebhook w = webhook.orElseThrow(
-                () -> new ServerException("No 'work item created' webhook configured for collection URL " + collectionUrl));
+                () -> new UnprocessableWebhookEventException("No 'work item created' webhook configured for collection URL " + collectionUrl));
 
         // Prepare data to store in VSTS project settings
         final String apiVersion = w.getApiVersion();
@@ -280,7 +298,7 @@ public class VSTSWebhookService extends BaseWebhookService {
             // Get VSTS 'pull request merged' webhook configured for given host, account and collection
             final Optional<PullRequestUpdatedWebhook> webhook = getPullRequestUpdatedWebhook(host, account, collection);
 
-            final PullRequestUpdatedWebhook w = webhook.orElseThrow(() -> new ServerException(
+            final PullRequestUpdatedWebhook w = webhook.orElseThrow(() -> new UnprocessableWebhookEventException(
                     "No 'pull request updated' webhook configured for host " + host + ", account " + account + " and collection " +
                     collection));
 
@@ -295,8 +313,7 @@ public class VSTSWebhookService extends BaseWebhookService {
             // Get factories that contain a project for given repository and branch
             final List<FactoryDto> factories = getFactoriesForRepositoryAndBranch(factoryIDs, repositoryNameUrl, sourceBranch);
             if (factories.isEmpty()) {
-                LOG.error("No factory found for branch {}", sourceBranch);
-                throw new ServerException("No factory found for branch " + sourceBranch);
+                throw new UnprocessableWebhookEventException("No factory found for branch " + sourceBranch);
             }
 
             for (FactoryDto f : factories) {
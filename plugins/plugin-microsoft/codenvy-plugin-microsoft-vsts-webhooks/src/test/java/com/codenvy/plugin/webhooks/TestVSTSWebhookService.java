@@ -28,6 +28,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.servlet.ServletInputStream;
@@ -40,8 +41,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import static javax.ws.rs.core.Response.Status.OK;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -55,13 +58,14 @@ public class TestVSTSWebhookService {
     private final static String FAKE_USER_ID = "TEST_USER_ID";
 
     private VSTSWebhookService fakeVSTSWebhookService;
+    private WebhookEventQueue  mockEventQueue;
 
     @Before
     public void setUp() throws Exception {
-        // Prepare authConnection
+        // Prepare tokenHolder
         Token fakeToken = DtoFactory.newDto(Token.class).withValue("fakeToken");
-        AuthConnection mockAuthConnection = mock(AuthConnection.class);
-        when(mockAuthConnection.authenticateUser("somebody@somemail.com", "somepwd")).thenReturn(fakeToken);
+        ServiceAccountTokenHolder mockTokenHolder = mock(ServiceAccountTokenHolder.class);
+        when(mockTokenHolder.getToken()).thenReturn(fakeToken);
 
         // Prepare userConnection
         UserConnection mockUserConnection = mock(UserConnection.class);
@@ -82,14 +86,17 @@ public class TestVSTSWebhookService {
         when(mockVSTSConnection.getRepositoryNameUrl("https://fabrikam-fiber-inc.visualstudio.com/DefaultCollection/_apis/git/repositories/278d5cd2-584d-4b63-824a-2ba458937249", "2.2-preview.1",
                                                      org.eclipse.che.commons.lang.Pair.of("username", "password"))).thenReturn("https://fabrikam-fiber-inc.visualstudio.com/DefaultCollection/test-project");
 
+        // Prepare eventQueue
+        mockEventQueue = mock(WebhookEventQueue.class);
+        when(mockEventQueue.enqueue(any(WebhookEvent.class))).thenReturn(true);
+
         // Prepare VSTSWebhookService
         fakeVSTSWebhookService =
-                new VSTSWebhookService(mockAuthConnection,
+                new VSTSWebhookService(mockTokenHolder,
                                        mockFactoryConnection,
                                        mockUserConnection,
                                        mockVSTSConnection, mock(ConfigurationProperties.class),
-                                       "username",
-                                       "password");
+                                       mockEventQueue);
     }
 
     @Test
@@ -97,6 +104,10 @@ public class TestVSTSWebhookService {
         HttpServletRequest mockRequest = prepareRequest("work_item_created");
         Response response = fakeVSTSWebhookService.handleVSTSWebhookEvent(mockRequest);
         Assert.assertTrue(response.getStatus() == OK.getStatusCode());
+
+        WebhookEvent event = getEnqueuedEvent();
+        Assert.assertEquals("workitem.created", event.getType());
+        Assert.assertEquals("f0905c60-6557-45e2-aac4-2a1fe9d7a8c0", event.getDeliveryId());
     }
 
     @Test
@@ -104,6 +115,16 @@ public class TestVSTSWebhookService {
         HttpServletRequest mockRequest = prepareRequest("pull_request_updated");
         Response response = fakeVSTSWebhookService.handleVSTSWebhookEvent(mockRequest);
         Assert.assertTrue(response.getStatus() == OK.getStatusCode());
+
+        WebhookEvent event = getEnqueuedEvent();
+        Assert.assertEquals("git.pullrequest.updated", event.getType());
+        Assert.assertEquals("8f717fd3-f969-4f4f-acef-79e8d6747fbb", event.getDeliveryId());
+    }
+
+    private WebhookEvent getEnqueuedEvent() throws Exception {
+        ArgumentCaptor<WebhookEvent> eventCaptor = ArgumentCaptor.forClass(WebhookEvent.class);
+        verify(mockEventQueue).enqueue(eventCaptor.capture());
+        return eventCaptor.getValue();
     }
 
     protected HttpServletRequest prepareRequest(String eventType) throws Exception {
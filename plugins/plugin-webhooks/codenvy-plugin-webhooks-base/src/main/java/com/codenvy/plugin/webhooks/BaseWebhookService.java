@@ -15,7 +15,8 @@
 package com.codenvy.plugin.webhooks;
 
 import com.codenvy.plugin.webhooks.connectors.Connector;
-import com.codenvy.plugin.webhooks.connectors.JenkinsConnector;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import org.eclipse.che.api.auth.shared.dto.Token;
 import org.eclipse.che.api.core.ForbiddenException;
@@ -24,23 +25,27 @@ import org.eclipse.che.api.core.rest.Service;
 import org.eclipse.che.api.factory.shared.dto.FactoryDto;
 import org.eclipse.che.api.workspace.shared.dto.ProjectConfigDto;
 import org.eclipse.che.api.workspace.shared.dto.SourceStorageDto;
+import org.eclipse.che.commons.annotation.Nullable;
 import org.eclipse.che.commons.subject.Subject;
+import org.eclipse.che.dto.server.DtoFactory;
 import org.eclipse.che.inject.ConfigurationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
@@ -54,31 +59,82 @@ public abstract class BaseWebhookService extends Service {
 
     private static final Logger LOG = LoggerFactory.getLogger(BaseWebhookService.class);
 
-    private static final String JENKINS_CONNECTOR_PREFIX_PATTERN    = "env.CODENVY_JENKINS_CONNECTOR_.+";
-    private static final String JENKINS_CONNECTOR_URL_SUFFIX        = "_URL";
-    private static final String JENKINS_CONNECTOR_FACTORY_ID_SUFFIX = "_FACTORY_ID";
-    private static final String JENKINS_CONNECTOR_JOB_NAME_SUFFIX   = "_JOB_NAME";
+    private static final int  FACTORIES_CACHE_SIZE           = 1000;
+    private static final long FACTORIES_CACHE_EXPIRE_MINUTES = 5;
 
     protected static final String FACTORY_URL_REL = "accept-named";
 
-    private final AuthConnection          authConnection;
-    private final FactoryConnection       factoryConnection;
-    private final ConfigurationProperties configurationProperties;
-    private final String                  username;
-    private final String                  password;
+    private final ServiceAccountTokenHolder tokenHolder;
+    private final FactoryConnection         factoryConnection;
+    private final WebhookEventQueue         eventQueue;
+    private final String                    eventSource;
+    private final WebhookRoutingIndex       routingIndex;
+    private final Cache<String, FactoryDto> factoriesCache;
 
-    public BaseWebhookService(final AuthConnection authConnection,
+    /**
+     * @param webhookPropertyPattern
+     *         the pattern of the properties which configure webhooks of the service,
+     *         or null if the service doesn't configure webhooks with properties
+     */
+    public BaseWebhookService(final ServiceAccountTokenHolder tokenHolder,
                               final FactoryConnection factoryConnection,
                               ConfigurationProperties configurationProperties,
-                              String username,
-                              String password) {
-        this.authConnection = authConnection;
+                              WebhookEventQueue eventQueue,
+                              String eventSource,
+                              @Nullable String webhookPropertyPattern) {
+        this.tokenHolder = tokenHolder;
         this.factoryConnection = factoryConnection;
-        this.configurationProperties = configurationProperties;
-        this.username = username;
-        this.password = password;
+        this.eventQueue = eventQueue;
+        this.eventSource = eventSource;
+        // configuration doesn't change while the service is running
+        this.routingIndex = WebhookRoutingIndex.build(configurationProperties, webhookPropertyPattern);
+        this.factoriesCache = CacheBuilder.newBuilder()
+                                          .maximumSize(FACTORIES_CACHE_SIZE)
+                                          .expireAfterWrite(FACTORIES_CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+                                          .build();
+    }
+
+    /**
+     * Registers this service as the processor of its events in {@link WebhookEventQueue}.
+     * Done after the construction as stored events may be processed right after the registration.
+     */
+    @PostConstruct
+    public void registerEventProcessor() {
+        eventQueue.register(eventSource, this::processEvent);
+    }
+
+    /**
+     * Stores the webhook event to be processed asynchronously by {@link #processEvent(WebhookEvent)}.
+     * Events which were already received with the same delivery id are ignored.
+     *
+     * @param deliveryId
+     *         the id of the delivery assigned by the third-party service, or null if it is not provided
+     * @param repository
+     *         the repository the event belongs to, events of the same repository are processed in order
+     * @param type
+     *         the type of the event
+     * @param payload
+     *         the raw body of the webhook request
+     * @throws ServerException
+     *         when the event can't be stored
+     */
+    protected void enqueueEvent(final String deliveryId, final String repository, final String type, final String payload)
+            throws ServerException {
+        if (!eventQueue.enqueue(new WebhookEvent(eventSource, deliveryId, repository, type, payload))) {
+            LOG.debug("Skipping redelivered {} webhook event {}", eventSource, deliveryId);
+        }
     }
 
+    /**
+     * Process webhook event taken from the queue
+     *
+     * @param event
+     *         the event previously stored by {@link #enqueueEvent(String, String, String, String)}
+     * @throws ServerException
+     *         when the event processing failed and should be retried
+     */
+    protected abstract void processEvent(WebhookEvent event) throws ServerException;
+
     /**
      * Get factories that contain a project for given repository and branch
      *
@@ -94,7 +150,7 @@ public abstract class BaseWebhookService extends Service {
                                                                   final String headBranch) throws ServerException {
         List<FactoryDto> factories = new ArrayList<>();
         for (String factoryID : factoryIDs) {
-            factories.add(factoryConnection.getFactory(factoryID));
+            factories.add(getFactory(factoryID));
         }
 
         return factories.stream()
@@ -106,7 +162,9 @@ public abstract class BaseWebhookService extends Service {
     }
 
     /**
-     * Update project matching given predicate in given factory
+     * Update project matching given predicate in given factory.
+     * The latest version of the factory is fetched from the factory API and updated,
+     * so the changes made to the factory after it was read by the caller are not overwritten.
      *
      * @param factory
      *         the factory to search for projects
@@ -126,8 +184,15 @@ public abstract class BaseWebhookService extends Service {
                                                 final String headBranch,
                                                 final String baseRepositoryUrl,
                                                 final String headCommitId) throws ServerException {
+        // Cached factory may be stale, fetch the latest one before the modification
+        factoriesCache.invalidate(factory.getId());
+        final FactoryDto latest = factoryConnection.getFactory(factory.getId());
+        if (latest == null) {
+            throw new ServerException(format("Factory with id %s and name %s doesn't exist", factory.getId(), factory.getName()));
+        }
+
         // Get projects in factory
-        final List<ProjectConfigDto> factoryProjects = factory.getWorkspace().getProjects();
+        final List<ProjectConfigDto> factoryProjects = latest.getWorkspace().getProjects();
 
         factoryProjects.stream()
                        .filter(project -> isProjectMatching(project, headRepositoryUrl, headBranch))
@@ -144,7 +209,7 @@ public abstract class BaseWebhookService extends Service {
                            source.setParameters(projectParams);
                        });
 
-        return factory;
+        return latest;
     }
 
     /**
@@ -167,12 +232,21 @@ public abstract class BaseWebhookService extends Service {
     }
 
     protected void updateFactory(final FactoryDto factory) throws ServerException {
-        final FactoryDto persistedFactory = factoryConnection.updateFactory(factory);
+        final FactoryDto persistedFactory;
+        try {
+            persistedFactory = factoryConnection.updateFactory(factory);
+        } catch (ServerException e) {
+            // the factory may be updated or not, so the cached version can't be trusted
+            factoriesCache.invalidate(factory.getId());
+            throw e;
+        }
 
         if (persistedFactory == null) {
+            factoriesCache.invalidate(factory.getId());
             throw new ServerException(
                     format("Error during update of factory with id %s and name %s", factory.getId(), factory.getName()));
         }
+        factoriesCache.put(persistedFactory.getId(), persistedFactory);
 
         LOG.debug("Factory with id {} and name {} successfully updated", persistedFactory.getId(), persistedFactory.getName());
     }
@@ -184,35 +258,59 @@ public abstract class BaseWebhookService extends Service {
      * @return the list of all configured connectors
      */
     protected List<Connector> getConnectors(String factoryId) throws ServerException {
-
-        Map<String, String> properties = configurationProperties.getProperties(JENKINS_CONNECTOR_PREFIX_PATTERN);
-
-        Set<String> connectors = properties.entrySet()
-                                           .stream()
-                                           .filter(entry -> entry.getValue().equals(factoryId))
-                                           .map(entry -> entry.getKey()
-                                                              .substring(0,
-                                                                         entry.getKey().lastIndexOf(JENKINS_CONNECTOR_FACTORY_ID_SUFFIX)))
-                                           .collect(Collectors.toSet());
-
+        final List<Connector> connectors = routingIndex.getConnectors(factoryId);
         if (connectors.isEmpty()) {
             LOG.error("No connectors was registered for factory {}", factoryId);
         }
-
-        return connectors.stream()
-                         .map(connector -> createJenkinsConnector(properties, connector))
-                         .collect(toList());
+        return connectors;
     }
 
-    private JenkinsConnector createJenkinsConnector(Map<String, String> properties, String connector) {
-        String url = properties.get(connector + JENKINS_CONNECTOR_URL_SUFFIX);
-        String jobName = properties.get(connector + JENKINS_CONNECTOR_JOB_NAME_SUFFIX);
+    /**
+     * Add links of given factories to the connectors configured for them,
+     * all the links of the same connector are added at once
+     *
+     * @param factoriesLinks
+     *         the 'open factory' URLs mapped by factory id
+     */
+    protected void addFactoryLinks(final Map<String, String> factoriesLinks) throws ServerException {
+        final Map<Connector, Set<String>> connectorsLinks = new LinkedHashMap<>();
+        for (Map.Entry<String, String> factoryLink : factoriesLinks.entrySet()) {
+            for (Connector connector : getConnectors(factoryLink.getKey())) {
+                connectorsLinks.computeIfAbsent(connector, c -> new LinkedHashSet<>()).add(factoryLink.getValue());
+            }
+        }
+        connectorsLinks.forEach(Connector::addFactoryLinks);
+    }
 
-        checkArgument(!isNullOrEmpty(url) && !isNullOrEmpty(jobName),
-                      format("No repository url or job name was not registered for jenkins connector '%s'", connector));
+    /**
+     * Get factories configured in a webhook for given repository
+     *
+     * @param repositoryUrl
+     *         the URL of the repository for which a webhook is configured
+     * @return the ids of factories configured in webhooks of the repository
+     */
+    protected Set<String> getWebhookConfiguredFactoriesIDs(final String repositoryUrl) {
+        final Set<String> factoriesIDs = routingIndex.getFactoriesIds(repositoryUrl);
+        if (factoriesIDs.isEmpty()) {
+            LOG.warn("No {} webhooks were registered for repository {}", eventSource, repositoryUrl);
+        }
+        return factoriesIDs;
+    }
 
-        return new JenkinsConnector(properties.get(connector + JENKINS_CONNECTOR_URL_SUFFIX),
-                                    properties.get(connector + JENKINS_CONNECTOR_JOB_NAME_SUFFIX));
+    /**
+     * Get factory from the cache or from the factory API if it is not cached.
+     * Returned factory is a copy of the cached one, so it can be safely modified by the caller.
+     */
+    private FactoryDto getFactory(final String factoryId) throws ServerException {
+        FactoryDto factory = factoriesCache.getIfPresent(factoryId);
+        if (factory == null) {
+            factory = factoryConnection.getFactory(factoryId);
+            if (factory == null) {
+                return null;
+            }
+            factoriesCache.put(factoryId, factory);
+        }
+        return DtoFactory.cloneDto(factory);
     }
 
     /**
@@ -302,14 +400,19 @@ public abstract class BaseWebhookService extends Service {
     }
 
     /**
-     * A user that only provides a token based on configured credentials
+     * A user that only provides a token of the configured service account
      */
     protected class TokenSubject implements Subject {
 
-        private final Token token;
+        private volatile Token token;
 
         public TokenSubject() throws ServerException {
-            token = authConnection.authenticateUser(username, password);
+            token = tokenHolder.getToken();
+        }
+
+        /** Replaces the token of this subject which is rejected by the API. */
+        void refreshToken() throws ServerException {
+            token = tokenHolder.refreshToken(token);
         }
 
         @Override
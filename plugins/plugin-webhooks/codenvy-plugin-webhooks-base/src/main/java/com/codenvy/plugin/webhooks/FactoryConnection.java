@@ -15,12 +15,16 @@
 package com.codenvy.plugin.webhooks;
 
 import org.eclipse.che.api.core.ApiException;
+import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.UnauthorizedException;
 import org.eclipse.che.api.core.rest.HttpJsonRequest;
 import org.eclipse.che.api.core.rest.HttpJsonRequestFactory;
 import org.eclipse.che.api.core.rest.HttpJsonResponse;
 import org.eclipse.che.api.factory.server.FactoryService;
 import org.eclipse.che.api.factory.shared.dto.FactoryDto;
+import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.subject.Subject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,7 +68,7 @@ public class FactoryConnection {
         HttpJsonRequest httpJsonRequest = httpJsonRequestFactory.fromUrl(url)
                                                                 .useGetMethod();
         try {
-            HttpJsonResponse response = httpJsonRequest.request();
+            HttpJsonResponse response = request(httpJsonRequest);
             factory = response.asDto(FactoryDto.class);
 
         } catch (IOException | ApiException e) {
@@ -93,7 +97,7 @@ public class FactoryConnection {
                                       .addQueryParam("name", factoryName)
                                       .addQueryParam("creator.userId", userId);
         try {
-            HttpJsonResponse response = httpJsonRequest.request();
+            HttpJsonResponse response = request(httpJsonRequest);
             factories = response.asList(FactoryDto.class);
 
         } catch (IOException | ApiException e) {
@@ -121,7 +125,7 @@ public class FactoryConnection {
                                                                 .usePutMethod()
                                                                 .setBody(factory);
         try {
-            HttpJsonResponse response = httpJsonRequest.request();
+            HttpJsonResponse response = request(httpJsonRequest);
             newFactory = response.asDto(FactoryDto.class);
 
         } catch (IOException | ApiException e) {
@@ -146,7 +150,7 @@ public class FactoryConnection {
                                                                 .usePostMethod()
                                                                 .setBody(factory);
         try {
-            HttpJsonResponse response = httpJsonRequest.request();
+            HttpJsonResponse response = request(httpJsonRequest);
             newFactory = response.asDto(FactoryDto.class);
 
         } catch (IOException | ApiException e) {
@@ -155,4 +159,22 @@ public class FactoryConnection {
         }
         return newFactory;
     }
+
+    /**
+     * Performs the request, when the token of the webhooks service account is rejected
+     * the token is replaced with the new one and the request is repeated once.
+     */
+    private HttpJsonResponse request(HttpJsonRequest httpJsonRequest) throws IOException, ApiException {
+        try {
+            return httpJsonRequest.request();
+        } catch (UnauthorizedException | ForbiddenException e) {
+            final Subject subject = EnvironmentContext.getCurrent().getSubject();
+            if (!(subject instanceof BaseWebhookService.TokenSubject)) {
+                throw e;
+            }
+            LOG.debug("Token of webhooks service account is rejected, retrying with the new one. Error: {}", e.getMessage());
+            ((BaseWebhookService.TokenSubject)subject).refreshToken();
+            return httpJsonRequest.setAuthorizationHeader(subject.getToken()).request();
+        }
+    }
 }
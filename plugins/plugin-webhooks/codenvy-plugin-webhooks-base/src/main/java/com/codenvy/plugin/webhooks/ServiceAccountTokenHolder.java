@@ -0,0 +1,178 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.auth.shared.dto.Token;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the token of the account which is configured to manage factories of the webhooks.
+ *
+ * <p>The token is obtained once and shared by all the webhook events until it expires,
+ * so events don't log in the account one by one. Token which has lived more than
+ * {@value #REFRESH_AFTER_PERCENT}% of its lifetime is still returned while the new one
+ * is obtained in background, so processing of events is not delayed by the login.
+ * Only one login is performed at a time. Token which is rejected by the API before
+ * its expiration is replaced with the new one by {@link #refreshToken(Token)}.
+ */
+@Singleton
+public class ServiceAccountTokenHolder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceAccountTokenHolder.class);
+
+    private static final int REFRESH_AFTER_PERCENT = 80;
+
+    private final AuthConnection  authConnection;
+    private final String          username;
+    private final String          password;
+    private final long            tokenLifetimeMs;
+    private final ExecutorService refreshExecutor;
+    private final AtomicBoolean   refreshScheduled;
+    private final Object          refreshLock;
+
+    private volatile IssuedToken current;
+
+    @Inject
+    public ServiceAccountTokenHolder(AuthConnection authConnection,
+                                     @Named("integration.factory.owner.username") String username,
+                                     @Named("integration.factory.owner.password") String password,
+                                     @Named("auth.sso.access_ticket_lifetime_seconds") long tokenLifetimeSeconds) {
+        this.authConnection = authConnection;
+        this.username = username;
+        this.password = password;
+        this.tokenLifetimeMs = TimeUnit.SECONDS.toMillis(tokenLifetimeSeconds);
+        this.refreshScheduled = new AtomicBoolean();
+        this.refreshLock = new Object();
+        this.refreshExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("ServiceAccountTokenRefresher")
+                                          .setUncaughtExceptionHandler(LoggingUncaughtExceptionHandler.getInstance())
+                                          .setDaemon(true)
+                                          .build());
+    }
+
+    /**
+     * Returns the token of the service account, logs in the account if there is no valid token.
+     *
+     * @throws ServerException
+     *         when the account can't be authenticated
+     */
+    public Token getToken() throws ServerException {
+        final IssuedToken issued = current;
+        final long now = currentTimeMillis();
+        if (issued != null && now < issued.expiresAt) {
+            if (now >= issued.refreshAt) {
+                scheduleRefresh(issued);
+            }
+            return issued.token;
+        }
+        return refresh(issued).token;
+    }
+
+    /**
+     * Logs in the service account again as the given token is rejected by the API,
+     * returns the token which has already replaced the rejected one if there is such.
+     *
+     * @param rejected
+     *         the token which is rejected with 401 or 403 response
+     * @throws ServerException
+     *         when the account can't be authenticated
+     */
+    public Token refreshToken(Token rejected) throws ServerException {
+        final IssuedToken issued = current;
+        if (issued != null && issued.token != rejected) {
+            return getToken();
+        }
+        return refresh(issued).token;
+    }
+
+    /** Stops the background refresh of the token. */
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    @VisibleForTesting
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private void scheduleRefresh(IssuedToken stale) {
+        if (!refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(stale);
+                } catch (ServerException e) {
+                    // token is still valid, so next events will trigger another attempt
+                    LOG.warn("Unable to refresh token of webhooks service account '{}'. Error: {}", username, e.getMessage());
+                } finally {
+                    refreshScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshScheduled.set(false);
+        }
+    }
+
+    /**
+     * Logs in the service account unless the token which is being replaced
+     * was already replaced by another refresh while waiting for the lock.
+     */
+    private IssuedToken refresh(IssuedToken stale) throws ServerException {
+        synchronized (refreshLock) {
+            final IssuedToken issued = current;
+            if (issued != stale && issued != null && currentTimeMillis() < issued.refreshAt) {
+                return issued;
+            }
+            final long issuedAt = currentTimeMillis();
+            final Token token = authConnection.authenticateUser(username, password);
+            if (token == null) {
+                throw new ServerException("Unable to authenticate webhooks service account " + username);
+            }
+            current = new IssuedToken(token, issuedAt, tokenLifetimeMs);
+            return current;
+        }
+    }
+
+    private static class IssuedToken {
+        final Token token;
+        final long  refreshAt;
+        final long  expiresAt;
+
+        IssuedToken(Token token, long issuedAt, long lifetimeMs) {
+            this.token = token;
+            this.refreshAt = issuedAt + lifetimeMs * REFRESH_AFTER_PERCENT / 100;
+            this.expiresAt = issuedAt + lifetimeMs;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import org.eclipse.che.api.core.ServerException;
+
+/**
+ * Thrown by {@link WebhookEventProcessor} when the event can't be processed
+ * and retrying won't change that, e.g. there is no factory configured for the event repository.
+ * Such events are not retried by {@link WebhookEventQueue} and are considered completed.
+ */
+public class UnprocessableWebhookEventException extends ServerException {
+
+    public UnprocessableWebhookEventException(String message) {
+        super(message);
+    }
+}
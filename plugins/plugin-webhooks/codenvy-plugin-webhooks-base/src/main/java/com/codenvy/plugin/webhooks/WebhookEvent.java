@@ -0,0 +1,163 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import org.eclipse.che.commons.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Webhook event received from a third-party service and waiting for its processing in {@link WebhookEventQueue}.
+ *
+ * <p>Event keeps the raw payload of the webhook request, so it can be stored as is
+ * and parsed by the service which registered processor for the event {@link #getSource() source}.
+ */
+public class WebhookEvent {
+
+    private static final String ID          = "id";
+    private static final String SOURCE      = "source";
+    private static final String DELIVERY_ID = "deliveryId";
+    private static final String REPOSITORY  = "repository";
+    private static final String TYPE        = "type";
+    private static final String PAYLOAD     = "payload";
+
+    private final String id;
+    private final String source;
+    private final String deliveryId;
+    private final String repository;
+    private final String type;
+    private final String payload;
+
+    private int attempts;
+
+    public WebhookEvent(String source, @Nullable String deliveryId, String repository, String type, String payload) {
+        this(null, source, deliveryId, repository, type, payload);
+    }
+
+    WebhookEvent(String id, String source, String deliveryId, String repository, String type, String payload) {
+        this.id = id;
+        this.source = requireNonNull(source, "Required non-null event source");
+        this.deliveryId = deliveryId;
+        this.repository = requireNonNull(repository, "Required non-null event repository");
+        this.type = requireNonNull(type, "Required non-null event type");
+        this.payload = requireNonNull(payload, "Required non-null event payload");
+    }
+
+    /** Returns the id assigned to the event by the queue, or null if event is not queued yet. */
+    public String getId() {
+        return id;
+    }
+
+    /** Returns the name of the service which received the event e.g. 'github'. */
+    public String getSource() {
+        return source;
+    }
+
+    /** Returns the id of the delivery assigned by the third-party service, or null if service doesn't provide it. */
+    @Nullable
+    public String getDeliveryId() {
+        return deliveryId;
+    }
+
+    /** Returns the repository the event belongs to, events of the same repository are processed one by one. */
+    public String getRepository() {
+        return repository;
+    }
+
+    /** Returns the type of the event e.g. 'push'. */
+    public String getType() {
+        return type;
+    }
+
+    /** Returns the raw body of the webhook request. */
+    public String getPayload() {
+        return payload;
+    }
+
+    /** Returns the number of failed processing attempts. */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    WebhookEvent withId(String id) {
+        return new WebhookEvent(id, source, deliveryId, repository, type, payload);
+    }
+
+    int incrementAttempts() {
+        return ++attempts;
+    }
+
+    /** Writes the event to the given file. */
+    void store(Path file) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(ID, id);
+        properties.setProperty(SOURCE, source);
+        if (deliveryId != null) {
+            properties.setProperty(DELIVERY_ID, deliveryId);
+        }
+        properties.setProperty(REPOSITORY, repository);
+        properties.setProperty(TYPE, type);
+        properties.setProperty(PAYLOAD, payload);
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE);
+             OutputStream out = Channels.newOutputStream(channel)) {
+            properties.store(out, null);
+            // the event must be on the disk before it is acknowledged
+            channel.force(true);
+        }
+    }
+
+    /** Reads the event previously written by {@link #store(Path)}. */
+    static WebhookEvent load(Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        try {
+            return new WebhookEvent(properties.getProperty(ID),
+                                    properties.getProperty(SOURCE),
+                                    properties.getProperty(DELIVERY_ID),
+                                    properties.getProperty(REPOSITORY),
+                                    properties.getProperty(TYPE),
+                                    properties.getProperty(PAYLOAD));
+        } catch (NullPointerException e) {
+            throw new IOException(format("Webhook event file '%s' is corrupted: %s", file, e.getMessage()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WebhookEvent{" +
+               "id='" + id + '\'' +
+               ", source='" + source + '\'' +
+               ", deliveryId='" + deliveryId + '\'' +
+               ", repository='" + repository + '\'' +
+               ", type='" + type + '\'' +
+               ", attempts=" + attempts +
+               '}';
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import org.eclipse.che.api.core.ServerException;
+
+/**
+ * Processes events of a single source taken from {@link WebhookEventQueue}.
+ */
+@FunctionalInterface
+public interface WebhookEventProcessor {
+
+    /**
+     * Processes the given event.
+     *
+     * @param event
+     *         event to process
+     * @throws UnprocessableWebhookEventException
+     *         when event can't be processed and should not be retried
+     * @throws ServerException
+     *         when event processing failed and should be retried
+     */
+    void process(WebhookEvent event) throws ServerException;
+}
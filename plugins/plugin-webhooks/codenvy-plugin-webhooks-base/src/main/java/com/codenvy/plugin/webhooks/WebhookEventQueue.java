@@ -0,0 +1,412 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import com.codahale.metrics.annotation.Gauge;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Durable queue of webhook events which decouples receiving of the webhook request from its processing.
+ *
+ * <p>Each enqueued event is written to the queue directory before {@link #enqueue(WebhookEvent)} returns,
+ * so the webhook service can acknowledge the request immediately and events which weren't processed
+ * before the shutdown are processed once their source {@link #register(String, WebhookEventProcessor) registers}
+ * its processor again.
+ *
+ * <p>Events are processed by the pool of {@code integration.webhooks.queue.workers} threads,
+ * events of the same repository are processed one by one in the order they were received.
+ * Event which failed to be processed is retried with growing delay, retries block the following events
+ * of the same repository, after {@code integration.webhooks.queue.max_attempts} attempts the event
+ * is moved to the {@code failed} subdirectory of the queue directory. Events which are rejected
+ * with {@link UnprocessableWebhookEventException} are not retried.
+ *
+ * <p>Third-party services redeliver the event when they don't get the response in time,
+ * such redeliveries are recognized by the delivery id and ignored.
+ */
+@Singleton
+public class WebhookEventQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookEventQueue.class);
+
+    private static final String EVENT_FILE_SUFFIX                 = ".event";
+    private static final String TEMP_FILE_SUFFIX                  = ".tmp";
+    private static final String FAILED_EVENTS_DIR                 = "failed";
+    private static final long   MIN_RETRY_DELAY_MS                = TimeUnit.SECONDS.toMillis(1);
+    private static final long   MAX_RETRY_DELAY_MS                = TimeUnit.MINUTES.toMillis(1);
+    private static final int    MAX_PROCESSED_DELIVERIES          = 10_000;
+    private static final long   PROCESSED_DELIVERIES_EXPIRE_HOURS = 1;
+
+    private final Path                               queueDir;
+    private final Path                               failedDir;
+    private final int                                maxAttempts;
+    private final ScheduledThreadPoolExecutor        executor;
+    private final Map<String, WebhookEventProcessor> processors;
+    private final Cache<String, Boolean>             processedDeliveries;
+    private final AtomicLong                         processed;
+    private final AtomicLong                         retried;
+    private final AtomicLong                         failed;
+    private final AtomicLong                         skipped;
+
+    // all the fields below are guarded by this
+    private final Map<String, Deque<WebhookEvent>> repositoriesEvents;
+    private final Set<String>                      queuedDeliveries;
+    private       long                             sequence;
+    private       int                              size;
+
+    @Inject
+    public WebhookEventQueue(@Named("integration.webhooks.queue.dir") String queueDir,
+                             @Named("integration.webhooks.queue.workers") int workers,
+                             @Named("integration.webhooks.queue.max_attempts") int maxAttempts) throws IOException {
+        this.queueDir = Files.createDirectories(Paths.get(queueDir));
+        this.failedDir = Files.createDirectories(this.queueDir.resolve(FAILED_EVENTS_DIR));
+        this.maxAttempts = maxAttempts;
+        this.processors = new ConcurrentHashMap<>();
+        this.processedDeliveries = CacheBuilder.newBuilder()
+                                               .maximumSize(MAX_PROCESSED_DELIVERIES)
+                                               .expireAfterWrite(PROCESSED_DELIVERIES_EXPIRE_HOURS, TimeUnit.HOURS)
+                                               .build();
+        this.processed = new AtomicLong();
+        this.retried = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.skipped = new AtomicLong();
+        this.repositoriesEvents = new HashMap<>();
+        this.queuedDeliveries = new HashSet<>();
+        this.executor = new ScheduledThreadPoolExecutor(workers,
+                                                        new ThreadFactoryBuilder().setNameFormat("WebhookEventQueue-%d")
+                                                                                  .setUncaughtExceptionHandler(
+                                                                                          LoggingUncaughtExceptionHandler.getInstance())
+                                                                                  .setDaemon(true)
+                                                                                  .build());
+    }
+
+    /**
+     * Removes temporary files of the events which were being stored when the queue was stopped,
+     * such events were not acknowledged so there is no need to process them.
+     */
+    @PostConstruct
+    public void removeIncompleteEvents() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(queueDir, "*" + TEMP_FILE_SUFFIX)) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOG.error(format("Failed to remove incomplete webhook events: %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Registers processor of the events of the given source and schedules processing
+     * of the events of this source which were stored but not processed before.
+     *
+     * @param source
+     *         name of the events source e.g. 'github'
+     * @param processor
+     *         processor of the events
+     * @throws IllegalStateException
+     *         when processor for the given source is already registered
+     */
+    public void register(String source, WebhookEventProcessor processor) {
+        if (processors.putIfAbsent(source, processor) != null) {
+            throw new IllegalStateException(format("Processor of '%s' webhook events is already registered", source));
+        }
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(queueDir, "*." + source + EVENT_FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            LOG.error(format("Failed to read stored '%s' webhook events: %s", source, e.getMessage()), e);
+            return;
+        }
+        // event ids are ordered the same way as the events were received
+        Collections.sort(files);
+        for (Path file : files) {
+            final WebhookEvent event;
+            try {
+                event = WebhookEvent.load(file);
+            } catch (IOException e) {
+                LOG.error(format("Failed to load webhook event from '%s': %s", file, e.getMessage()), e);
+                moveQuietly(file, failedDir.resolve(file.getFileName()));
+                continue;
+            }
+            final String deliveryKey = deliveryKey(event);
+            if (deliveryKey != null) {
+                synchronized (this) {
+                    queuedDeliveries.add(deliveryKey);
+                }
+            }
+            add(event);
+        }
+        if (!files.isEmpty()) {
+            LOG.info("{} stored '{}' webhook events are scheduled for processing", files.size(), source);
+        }
+    }
+
+    /**
+     * Stores the event and schedules its processing, returns as soon as the event is stored.
+     *
+     * @param event
+     *         event to enqueue
+     * @return true if event is enqueued, false if event with the same delivery id
+     * is already queued or was recently processed
+     * @throws ServerException
+     *         when there is no processor registered for the event source or event can't be stored
+     */
+    public boolean enqueue(WebhookEvent event) throws ServerException {
+        if (!processors.containsKey(event.getSource())) {
+            throw new ServerException(format("Processor of '%s' webhook events is not registered", event.getSource()));
+        }
+        final String deliveryKey = deliveryKey(event);
+        if (deliveryKey != null) {
+            synchronized (this) {
+                if (processedDeliveries.getIfPresent(deliveryKey) != null || !queuedDeliveries.add(deliveryKey)) {
+                    LOG.debug("Webhook event with delivery id '{}' is already received, skipping it", event.getDeliveryId());
+                    return false;
+                }
+            }
+        }
+        final WebhookEvent queued;
+        synchronized (this) {
+            queued = event.withId(format("%013d-%06d", System.currentTimeMillis(), sequence++ % 1_000_000));
+        }
+        // the event is stored outside of the lock so slow disk doesn't block the other requests,
+        // events which are received concurrently have no defined order anyway
+        try {
+            store(queued);
+        } catch (IOException e) {
+            if (deliveryKey != null) {
+                synchronized (this) {
+                    queuedDeliveries.remove(deliveryKey);
+                }
+            }
+            LOG.error(e.getLocalizedMessage(), e);
+            throw new ServerException(format("Failed to store webhook event %s: %s", event, e.getMessage()));
+        }
+        add(queued);
+        return true;
+    }
+
+    /** Returns the number of events which are waiting for processing, including the events which are being processed. */
+    @Gauge(name = "webhooks.queue.size")
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Returns the number of successfully processed events. */
+    @Gauge(name = "webhooks.events.processed")
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /** Returns the number of failed processing attempts which were retried. */
+    @Gauge(name = "webhooks.events.retried")
+    public long getRetriedCount() {
+        return retried.get();
+    }
+
+    /** Returns the number of events which were moved to the failed events directory. */
+    @Gauge(name = "webhooks.events.failed")
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /** Returns the number of events which were completed without processing as they can't be processed. */
+    @Gauge(name = "webhooks.events.skipped")
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    /** Stops processing of the events, the events which are not processed remain stored. */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            LOG.warn("Unable to terminate webhook events processing in 30 seconds");
+        }
+    }
+
+    @VisibleForTesting
+    Path getFailedDir() {
+        return failedDir;
+    }
+
+    private void add(WebhookEvent event) {
+        final boolean first;
+        synchronized (this) {
+            first = addLocked(event);
+        }
+        if (first) {
+            schedule(repositoryKey(event), 0);
+        }
+    }
+
+    /**
+     * Adds the event to the queue of its repository, must be called under the lock.
+     *
+     * @return true if the event is the first event of the repository and its processing
+     * must be scheduled, otherwise processing of the previous event schedules processing of this one
+     */
+    private boolean addLocked(WebhookEvent event) {
+        final Deque<WebhookEvent> events = repositoriesEvents.computeIfAbsent(repositoryKey(event), key -> new ArrayDeque<>());
+        events.add(event);
+        size++;
+        return events.size() == 1;
+    }
+
+    private void schedule(String repositoryKey, long delayMs) {
+        try {
+            executor.schedule(() -> processNext(repositoryKey), delayMs, MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Webhook events queue is shut down, events of '{}' will be processed after restart", repositoryKey);
+        }
+    }
+
+    private void processNext(String repositoryKey) {
+        final WebhookEvent event;
+        synchronized (this) {
+            event = repositoriesEvents.get(repositoryKey).peek();
+        }
+        if (!process(event)) {
+            schedule(repositoryKey, Math.min(MAX_RETRY_DELAY_MS, MIN_RETRY_DELAY_MS << (event.getAttempts() - 1)));
+            return;
+        }
+        final boolean hasNext;
+        synchronized (this) {
+            final Deque<WebhookEvent> events = repositoriesEvents.get(repositoryKey);
+            events.poll();
+            size--;
+            final String deliveryKey = deliveryKey(event);
+            if (deliveryKey != null) {
+                queuedDeliveries.remove(deliveryKey);
+            }
+            hasNext = !events.isEmpty();
+            if (!hasNext) {
+                repositoriesEvents.remove(repositoryKey);
+            }
+        }
+        if (hasNext) {
+            schedule(repositoryKey, 0);
+        }
+    }
+
+    /**
+     * Processes the event and removes its file when processing is finished.
+     *
+     * @return true if event is processed or attempts are exhausted, false if processing should be retried
+     */
+    private boolean process(WebhookEvent event) {
+        try {
+            processors.get(event.getSource()).process(event);
+            processed.incrementAndGet();
+            complete(event);
+            return true;
+        } catch (UnprocessableWebhookEventException e) {
+            skipped.incrementAndGet();
+            LOG.info("Webhook event {} can't be processed and is skipped. Reason: {}", event, e.getMessage());
+            complete(event);
+            return true;
+        } catch (ServerException | RuntimeException e) {
+            final int attempts = event.incrementAttempts();
+            if (attempts < maxAttempts) {
+                retried.incrementAndGet();
+                LOG.warn("Failed to process webhook event {}, attempt {} of {}. Error: {}", event, attempts, maxAttempts, e.getMessage());
+                return false;
+            }
+            failed.incrementAndGet();
+            LOG.error(format("Failed to process webhook event %s in %d attempts, moving it to '%s'", event, attempts, failedDir), e);
+            moveQuietly(eventFile(event), failedDir.resolve(eventFile(event).getFileName()));
+            return true;
+        } finally {
+            EnvironmentContext.reset();
+        }
+    }
+
+    /** Remembers the delivery of the completed event and removes its file. */
+    private void complete(WebhookEvent event) {
+        final String deliveryKey = deliveryKey(event);
+        if (deliveryKey != null) {
+            processedDeliveries.put(deliveryKey, Boolean.TRUE);
+        }
+        try {
+            Files.deleteIfExists(eventFile(event));
+        } catch (IOException e) {
+            LOG.error(format("Failed to remove processed webhook event %s: %s", event, e.getMessage()), e);
+        }
+    }
+
+    private void store(WebhookEvent event) throws IOException {
+        final Path file = eventFile(event);
+        final Path tempFile = file.resolveSibling(file.getFileName() + TEMP_FILE_SUFFIX);
+        event.store(tempFile);
+        Files.move(tempFile, file, ATOMIC_MOVE);
+    }
+
+    private void moveQuietly(Path source, Path target) {
+        try {
+            Files.move(source, target, REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.error(format("Failed to move webhook event file '%s' to '%s': %s", source, target, e.getMessage()), e);
+        }
+    }
+
+    private Path eventFile(WebhookEvent event) {
+        return queueDir.resolve(event.getId() + '.' + event.getSource() + EVENT_FILE_SUFFIX);
+    }
+
+    private static String repositoryKey(WebhookEvent event) {
+        return event.getSource() + ':' + event.getRepository();
+    }
+
+    private static String deliveryKey(WebhookEvent event) {
+        return event.getDeliveryId() == null ? null : event.getSource() + ':' + event.getDeliveryId();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import com.codenvy.plugin.webhooks.connectors.Connector;
+import com.codenvy.plugin.webhooks.connectors.JenkinsConnector;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.che.commons.annotation.Nullable;
+import org.eclipse.che.inject.ConfigurationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+/**
+ * Immutable index of the webhooks configuration, which is built once from the configuration properties,
+ * so routing of the webhook event to factories and connectors doesn't scan the whole configuration.
+ *
+ * <p>Repositories are indexed by normalized URL, so the URL with and without '.git'
+ * or trailing slash is routed to the same factories.
+ */
+public class WebhookRoutingIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookRoutingIndex.class);
+
+    private static final String WEBHOOK_REPOSITORY_URL_SUFFIX       = "_REPOSITORY_URL";
+    private static final String WEBHOOK_FACTORY_ID_SUFFIX_PATTERN   = "_FACTORY.+_ID";
+    private static final String JENKINS_CONNECTOR_PREFIX_PATTERN    = "env.CODENVY_JENKINS_CONNECTOR_.+";
+    private static final String JENKINS_CONNECTOR_URL_SUFFIX        = "_URL";
+    private static final String JENKINS_CONNECTOR_FACTORY_ID_SUFFIX = "_FACTORY_ID";
+    private static final String JENKINS_CONNECTOR_JOB_NAME_SUFFIX   = "_JOB_NAME";
+
+    private final Map<String, Set<String>>     repositoriesFactories;
+    private final Map<String, List<Connector>> factoriesConnectors;
+
+    private WebhookRoutingIndex(Map<String, Set<String>> repositoriesFactories, Map<String, List<Connector>> factoriesConnectors) {
+        this.repositoriesFactories = repositoriesFactories;
+        this.factoriesConnectors = factoriesConnectors;
+    }
+
+    /**
+     * Builds the index from the current configuration.
+     *
+     * @param configurationProperties
+     *         configuration to index
+     * @param webhookPropertyPattern
+     *         the pattern of the properties which configure webhooks e.g. 'env.CODENVY_GITHUB_WEBHOOK_.+',
+     *         or null if webhooks of the service are not configured with properties
+     */
+    public static WebhookRoutingIndex build(ConfigurationProperties configurationProperties, @Nullable String webhookPropertyPattern) {
+        final Map<String, Set<String>> repositoriesFactories;
+        if (webhookPropertyPattern == null) {
+            repositoriesFactories = Collections.emptyMap();
+        } else {
+            repositoriesFactories = indexWebhooks(configurationProperties.getProperties(webhookPropertyPattern));
+        }
+        return new WebhookRoutingIndex(repositoriesFactories,
+                                       indexConnectors(configurationProperties.getProperties(JENKINS_CONNECTOR_PREFIX_PATTERN)));
+    }
+
+    /**
+     * Get ids of factories configured in webhooks for given repository
+     *
+     * @param repositoryUrl
+     *         the URL of the repository for which webhooks are configured
+     * @return the set of factories ids, empty if there is no webhook configured for the repository
+     */
+    public Set<String> getFactoriesIds(String repositoryUrl) {
+        final Set<String> factoriesIds = repositoriesFactories.get(normalizeRepositoryUrl(repositoryUrl));
+        return factoriesIds == null ? Collections.emptySet() : factoriesIds;
+    }
+
+    /**
+     * Get connectors configured for given factory
+     *
+     * @param factoryId
+     *         the id of the factory
+     * @return the list of connectors, empty if there is no connector configured for the factory
+     */
+    public List<Connector> getConnectors(String factoryId) {
+        final List<Connector> connectors = factoriesConnectors.get(factoryId);
+        return connectors == null ? Collections.emptyList() : connectors;
+    }
+
+    /** Strips trailing slash and '.git' suffix from given repository URL. */
+    static String normalizeRepositoryUrl(String repositoryUrl) {
+        String normalized = repositoryUrl.trim();
+        if (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        if (normalized.endsWith(".git")) {
+            normalized = normalized.substring(0, normalized.length() - 4);
+        }
+        return normalized;
+    }
+
+    private static Map<String, Set<String>> indexWebhooks(Map<String, String> properties) {
+        final Map<String, ImmutableSet.Builder<String>> builders = new HashMap<>();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            final String key = entry.getKey();
+            if (!key.endsWith(WEBHOOK_REPOSITORY_URL_SUFFIX) || isNullOrEmpty(entry.getValue())) {
+                continue;
+            }
+            final String webhook = key.substring(0, key.length() - WEBHOOK_REPOSITORY_URL_SUFFIX.length());
+            final Pattern factoryIdPattern = Pattern.compile(Pattern.quote(webhook) + WEBHOOK_FACTORY_ID_SUFFIX_PATTERN);
+            final ImmutableSet.Builder<String> factoriesIds =
+                    builders.computeIfAbsent(normalizeRepositoryUrl(entry.getValue()), url -> ImmutableSet.builder());
+            properties.forEach((name, value) -> {
+                if (factoryIdPattern.matcher(name).matches()) {
+                    factoriesIds.add(value);
+                }
+            });
+        }
+        final ImmutableMap.Builder<String, Set<String>> index = ImmutableMap.builder();
+        builders.forEach((url, factoriesIds) -> index.put(url, factoriesIds.build()));
+        return index.build();
+    }
+
+    private static Map<String, List<Connector>> indexConnectors(Map<String, String> properties) {
+        final Map<String, ImmutableList.Builder<Connector>> builders = new HashMap<>();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            final String key = entry.getKey();
+            if (!key.endsWith(JENKINS_CONNECTOR_FACTORY_ID_SUFFIX)) {
+                continue;
+            }
+            final String connector = key.substring(0, key.length() - JENKINS_CONNECTOR_FACTORY_ID_SUFFIX.length());
+            final String url = properties.get(connector + JENKINS_CONNECTOR_URL_SUFFIX);
+            final String jobName = properties.get(connector + JENKINS_CONNECTOR_JOB_NAME_SUFFIX);
+            if (isNullOrEmpty(url) || isNullOrEmpty(jobName)) {
+                LOG.error("No repository url or job name was not registered for jenkins connector '{}'", connector);
+                continue;
+            }
+            builders.computeIfAbsent(entry.getValue(), factoryId -> ImmutableList.builder())
+                    .add(new JenkinsConnector(url, jobName));
+        }
+        final ImmutableMap.Builder<String, List<Connector>> index = ImmutableMap.builder();
+        builders.forEach((factoryId, connectors) -> index.put(factoryId, connectors.build()));
+        return index.build();
+    }
+}
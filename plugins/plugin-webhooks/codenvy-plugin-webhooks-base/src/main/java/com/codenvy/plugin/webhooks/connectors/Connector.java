@@ -14,6 +14,10 @@
  */
 package com.codenvy.plugin.webhooks.connectors;
 
+import java.util.Collection;
+
+import static java.util.Collections.singletonList;
+
 /**
  * Connect to a third-party service in order to add Codenvy factory related data
  *
@@ -27,5 +31,15 @@ public interface Connector {
      * @param factoryUrl
      *         the factory URL to add
      */
-    void addFactoryLink(String factoryUrl);
+    default void addFactoryLink(String factoryUrl) {
+        addFactoryLinks(singletonList(factoryUrl));
+    }
+
+    /**
+     * Add factory links to the third-party service at once
+     *
+     * @param factoryUrls
+     *         the factory URLs to add
+     */
+    void addFactoryLinks(Collection<String> factoryUrls);
 }
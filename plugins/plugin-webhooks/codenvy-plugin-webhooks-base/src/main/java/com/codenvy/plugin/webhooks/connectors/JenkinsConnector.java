@@ -14,53 +14,78 @@
  */
 package com.codenvy.plugin.webhooks.connectors;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.Striped;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
 import javax.ws.rs.core.HttpHeaders;
-import javax.ws.rs.core.MediaType;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayInputStream;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML;
 
 /**
  * Jenkins implementation of {@link Connector}
  * One {@link JenkinsConnector} is configured for one Jenkins job
  *
+ * <p>Requests are sent with {@link HttpURLConnection} which keeps connections to the same
+ * Jenkins instance alive in the JVM wide connection pool, so connections are never
+ * disconnected explicitly and responses are always read till the end.
+ * All the links which are added at once are written to the job with a single
+ * read-modify-write of its configuration, updates of the same job are performed one by one.
+ *
  * @author Stephane Tournie
  */
 public class JenkinsConnector implements Connector {
 
     private static final Logger LOG = LoggerFactory.getLogger(JenkinsConnector.class);
 
+    private static final int           CONNECT_TIMEOUT_MS  = (int)TimeUnit.SECONDS.toMillis(10);
+    private static final int           READ_TIMEOUT_MS     = (int)TimeUnit.SECONDS.toMillis(30);
+    private static final String        DESCRIPTION_ELEMENT = "description";
+    private static final Striped<Lock> JOB_LOCKS           = Striped.lock(64);
+
+    private static final XMLInputFactory  XML_INPUT_FACTORY  = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final XMLEventFactory  XML_EVENT_FACTORY  = XMLEventFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
     // The name of the Jenkins job
     private final String jobName;
     // The URL of the XML configuration of the Jenkins job
     private final String jobConfigXmlUrl;
+    // The value of the 'Authorization' header, or null if the URL has no user info
+    private final String authorization;
 
     /**
      * Constructor
@@ -73,146 +98,176 @@ public class JenkinsConnector implements Connector {
     public JenkinsConnector(final String url, final String jobName) {
         this.jobName = jobName;
         this.jobConfigXmlUrl = url + "/job/" + jobName + "/config.xml";
+        this.authorization = basicAuthorization(jobConfigXmlUrl);
     }
 
     /**
-     * Add a factory link to configured Jenkins job
+     * Add factory links to configured Jenkins job, the job configuration is updated
+     * only if some of the links are not displayed in the job description yet
      *
-     * @param factoryUrl
-     *         the factory URL to add
+     * @param factoryUrls
+     *         the factory URLs to add
      */
     @Override
-    public void addFactoryLink(String factoryUrl) {
-        Optional<String> jobConfigXml = getCurrentJenkinsJobConfiguration();
-        jobConfigXml.ifPresent(xml -> {
-            Optional<Document> configDocument = xmlToDocument(xml);
-            configDocument.ifPresent(doc -> {
-                Element root = doc.getDocumentElement();
-                Node descriptionNode = root.getElementsByTagName("description").item(0);
-
-                if (!descriptionNode.getTextContent().contains(factoryUrl)) {
-                    updateJenkinsJobDescription(factoryUrl, doc, descriptionNode);
+    public void addFactoryLinks(Collection<String> factoryUrls) {
+        if (factoryUrls.isEmpty()) {
+            return;
+        }
+        final Lock lock = JOB_LOCKS.get(jobConfigXmlUrl);
+        lock.lock();
+        try {
+            getCurrentJenkinsJobConfiguration().ifPresent(xml -> {
+                final Optional<String> updatedXml = addLinksToDescription(xml, factoryUrls);
+                if (updatedXml.isPresent()) {
+                    updateJenkinsJobConfiguration(updatedXml.get());
                 } else {
-                    LOG.debug("factory link {} already displayed on description of Jenkins job {}", factoryUrl, jobName);
+                    LOG.debug("factory links {} already displayed on description of Jenkins job {}", factoryUrls, jobName);
                 }
             });
-        });
+        } finally {
+            lock.unlock();
+        }
     }
 
     protected Optional<String> getCurrentJenkinsJobConfiguration() {
         try {
-            URL url = new URL(jobConfigXmlUrl);
-            HttpURLConnection connection = (HttpURLConnection)url.openConnection();
-            try {
-                if (url.getUserInfo() != null) {
-                    String basicAuth = "Basic " + new String(Base64.getEncoder().encode(url.getUserInfo().getBytes()));
-                    connection.setRequestProperty("Authorization", basicAuth);
-                }
-                connection.setRequestMethod("GET");
-                connection.addRequestProperty(HttpHeaders.CONTENT_TYPE, APPLICATION_XML);
-                final int responseCode = connection.getResponseCode();
-                if ((responseCode / 100) != 2) {
-                    InputStream in = connection.getErrorStream();
-                    if (in == null) {
-                        in = connection.getInputStream();
-                    }
-                    final String str;
-                    try (Reader reader = new InputStreamReader(in)) {
-                        str = CharStreams.toString(reader);
-                    }
-                    throw new IOException(str);
-                }
-                try (Reader reader = new InputStreamReader(connection.getInputStream())) {
-                    return Optional.of(CharStreams.toString(reader));
-                }
-
-            } catch (IOException e) {
-                LOG.error("Can't get Jenkins job configuration", e);
-            } finally {
-                if (connection != null) {
-                    connection.disconnect();
-                }
+            final HttpURLConnection connection = openConnection("GET");
+            final int responseCode = connection.getResponseCode();
+            if ((responseCode / 100) != 2) {
+                LOG.error("Can't get Jenkins job configuration: {}", readError(connection));
+                return Optional.empty();
+            }
+            try (Reader reader = new InputStreamReader(connection.getInputStream(), UTF_8)) {
+                return Optional.of(CharStreams.toString(reader));
             }
-
         } catch (IOException e) {
             LOG.error("Can't get Jenkins job configuration", e);
         }
         return Optional.empty();
     }
 
-    protected void updateJenkinsJobDescription(String factoryUrl, Document configDocument, Node descriptionNode) {
-        String descriptionContent = descriptionNode.getTextContent();
-        descriptionNode.setTextContent(descriptionContent + "\n" + "<a href=\"" + factoryUrl + "\">" + factoryUrl + "</a>");
-        String updatedJobConfigXml = documentToXml(configDocument);
+    protected void updateJenkinsJobConfiguration(String jobConfigXml) {
         try {
-            URL url = new URL(jobConfigXmlUrl);
-            HttpURLConnection connection = (HttpURLConnection)url.openConnection();
-            try {
-                if (url.getUserInfo() != null) {
-                    String basicAuth = "Basic " + new String(Base64.getEncoder().encode(url.getUserInfo().getBytes()));
-                    connection.setRequestProperty("Authorization", basicAuth);
+            final HttpURLConnection connection = openConnection("POST");
+            connection.setDoOutput(true);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(jobConfigXml.getBytes(UTF_8));
+            }
+            final int responseCode = connection.getResponseCode();
+            if ((responseCode / 100) != 2) {
+                LOG.error(readError(connection));
+            } else {
+                try (InputStream in = connection.getInputStream()) {
+                    ByteStreams.exhaust(in);
                 }
-                connection.setRequestMethod("POST");
-                connection.addRequestProperty(HttpHeaders.CONTENT_TYPE, APPLICATION_XML);
-                connection.addRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
-                connection.setDoOutput(true);
+                LOG.debug("factory links successfully added on description of Jenkins job {}", jobName);
+            }
+        } catch (IOException e) {
+            LOG.error("Can't update Jenkins job configuration", e);
+        }
+    }
 
-                try (OutputStream output = connection.getOutputStream()) {
-                    output.write(updatedJobConfigXml.getBytes());
-                }
-                final int responseCode = connection.getResponseCode();
-                if ((responseCode / 100) != 2) {
-                    InputStream in = connection.getErrorStream();
-                    if (in == null) {
-                        in = connection.getInputStream();
-                    }
-                    final String str;
-                    try (Reader reader = new InputStreamReader(in)) {
-                        str = CharStreams.toString(reader);
+    /**
+     * Appends links which are not displayed yet to the 'description' element of the job configuration,
+     * all the other parts of the document are copied as is without building the document tree.
+     *
+     * @return updated configuration, or empty optional if there is nothing to add or configuration can't be parsed
+     */
+    @VisibleForTesting
+    static Optional<String> addLinksToDescription(String jobConfigXml, Collection<String> factoryUrls) {
+        final StringWriter result = new StringWriter(jobConfigXml.length() + factoryUrls.size() * 128);
+        boolean updated = false;
+        try {
+            final XMLEventReader reader = XML_INPUT_FACTORY.createXMLEventReader(new StringReader(jobConfigXml));
+            final XMLEventWriter writer = XML_OUTPUT_FACTORY.createXMLEventWriter(result);
+            int depth = 0;
+            boolean descriptionFound = false;
+            while (reader.hasNext()) {
+                final XMLEvent event = reader.nextEvent();
+                writer.add(event);
+                if (event.isEndElement()) {
+                    depth--;
+                } else if (event.isStartElement()) {
+                    depth++;
+                    // description of the job is the direct child of the root element
+                    if (depth == 2
+                        && !descriptionFound
+                        && DESCRIPTION_ELEMENT.equals(event.asStartElement().getName().getLocalPart())) {
+                        descriptionFound = true;
+                        final StringBuilder description = new StringBuilder();
+                        while (reader.peek() != null && reader.peek().isCharacters()) {
+                            description.append(reader.nextEvent().asCharacters().getData());
+                        }
+                        final int length = description.length();
+                        for (String factoryUrl : factoryUrls) {
+                            if (description.indexOf(factoryUrl) == -1) {
+                                description.append("\n<a href=\"").append(factoryUrl).append("\">").append(factoryUrl).append("</a>");
+                            }
+                        }
+                        updated = description.length() != length;
+                        if (description.length() > 0) {
+                            writer.add(XML_EVENT_FACTORY.createCharacters(description.toString()));
+                        }
                     }
-                    LOG.error(str);
-                } else {
-                    LOG.debug("factory link {} successfully added on description of Jenkins job ", factoryUrl, jobName);
-                }
-            } catch (IOException e) {
-                LOG.error("Can't get Jenkins job configuration", e);
-            } finally {
-                if (connection != null) {
-                    connection.disconnect();
                 }
             }
+            writer.flush();
+            writer.close();
+            reader.close();
+        } catch (XMLStreamException e) {
+            LOG.error("Can't parse Jenkins job configuration", e);
+            return Optional.empty();
+        }
+        return updated ? Optional.of(result.toString()) : Optional.empty();
+    }
 
-        } catch (IOException e) {
-            LOG.error("Can't get Jenkins job configuration", e);
+    private HttpURLConnection openConnection(String method) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection)new URL(jobConfigXmlUrl).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        if (authorization != null) {
+            connection.setRequestProperty(HttpHeaders.AUTHORIZATION, authorization);
         }
+        connection.setRequestMethod(method);
+        connection.addRequestProperty(HttpHeaders.CONTENT_TYPE, APPLICATION_XML);
+        return connection;
     }
 
-    protected String documentToXml(Document configDocument) {
-        DOMSource domSource = new DOMSource(configDocument);
-        StringWriter writer = new StringWriter();
-        StreamResult result = new StreamResult(writer);
-        TransformerFactory tf = TransformerFactory.newInstance();
-        Transformer transformer = null;
-        try {
-            transformer = tf.newTransformer();
-            transformer.transform(domSource, result);
-        } catch (TransformerException e) {
-            e.printStackTrace();
+    /** Reads the error response till the end, so the connection can be reused. */
+    private static String readError(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getErrorStream();
+        if (in == null) {
+            in = connection.getInputStream();
+        }
+        try (Reader reader = new InputStreamReader(in, UTF_8)) {
+            return CharStreams.toString(reader);
         }
-        return writer.toString();
     }
 
-    protected Optional<Document> xmlToDocument(String jobConfigXml) {
-        Document document = null;
+    private static String basicAuthorization(String url) {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            document = builder.parse(new ByteArrayInputStream(jobConfigXml.getBytes("utf-8")));
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            e.printStackTrace();
+            final String userInfo = new URL(url).getUserInfo();
+            return userInfo == null ? null : "Basic " + Base64.getEncoder().encodeToString(userInfo.getBytes(UTF_8));
+        } catch (MalformedURLException e) {
+            LOG.error("Malformed Jenkins job URL {}", url);
+            return null;
         }
-        return Optional.ofNullable(document);
     }
-}
 
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof JenkinsConnector)) {
+            return false;
+        }
+        final JenkinsConnector that = (JenkinsConnector)obj;
+        return Objects.equals(jobConfigXmlUrl, that.jobConfigXmlUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(jobConfigXmlUrl);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import org.eclipse.che.api.auth.shared.dto.Token;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.dto.server.DtoFactory;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests for {@link ServiceAccountTokenHolder}.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class ServiceAccountTokenHolderTest {
+
+    private static final long LIFETIME_SECONDS = 100;
+
+    @Mock
+    private AuthConnection authConnection;
+
+    private AtomicLong                clock;
+    private ServiceAccountTokenHolder tokenHolder;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        clock = new AtomicLong(1000);
+        when(authConnection.authenticateUser("username", "password")).thenReturn(token("first"), token("second"));
+        tokenHolder = new ServiceAccountTokenHolder(authConnection, "username", "password", LIFETIME_SECONDS) {
+            @Override
+            long currentTimeMillis() {
+                return clock.get();
+            }
+        };
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        tokenHolder.shutdown();
+    }
+
+    @Test
+    public void shouldReuseTokenUntilItShouldBeRefreshed() throws Exception {
+        assertEquals(tokenHolder.getToken().getValue(), "first");
+        clock.addAndGet(SECONDS.toMillis(LIFETIME_SECONDS) / 2);
+        assertEquals(tokenHolder.getToken().getValue(), "first");
+
+        verify(authConnection).authenticateUser("username", "password");
+    }
+
+    @Test
+    public void shouldReturnCurrentTokenAndRefreshItInBackgroundBeforeExpiration() throws Exception {
+        tokenHolder.getToken();
+        clock.addAndGet(SECONDS.toMillis(LIFETIME_SECONDS) * 9 / 10);
+
+        assertEquals(tokenHolder.getToken().getValue(), "first");
+
+        verify(authConnection, timeout(5000).times(2)).authenticateUser("username", "password");
+        assertEquals(tokenHolder.getToken().getValue(), "second");
+    }
+
+    @Test
+    public void shouldLogInAgainWhenTokenIsExpired() throws Exception {
+        tokenHolder.getToken();
+        clock.addAndGet(SECONDS.toMillis(LIFETIME_SECONDS) + 1);
+
+        assertEquals(tokenHolder.getToken().getValue(), "second");
+    }
+
+    @Test
+    public void shouldLogInOnceWhenTokenIsRequestedConcurrently() throws Exception {
+        when(authConnection.authenticateUser("username", "password")).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            return token("token");
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<Token>> tokens = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                tokens.add(executor.submit(tokenHolder::getToken));
+            }
+            for (Future<Token> token : tokens) {
+                assertEquals(token.get().getValue(), "token");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(authConnection, times(1)).authenticateUser("username", "password");
+    }
+
+    @Test
+    public void shouldLogInAgainWhenTokenIsRejected() throws Exception {
+        Token rejected = tokenHolder.getToken();
+
+        assertEquals(tokenHolder.refreshToken(rejected).getValue(), "second");
+        assertEquals(tokenHolder.getToken().getValue(), "second");
+    }
+
+    @Test
+    public void shouldNotLogInAgainWhenRejectedTokenIsAlreadyReplaced() throws Exception {
+        Token rejected = tokenHolder.getToken();
+        tokenHolder.refreshToken(rejected);
+
+        assertEquals(tokenHolder.refreshToken(rejected).getValue(), "second");
+
+        verify(authConnection, times(2)).authenticateUser("username", "password");
+    }
+
+    @Test(expectedExceptions = ServerException.class)
+    public void shouldThrowExceptionWhenAccountIsNotAuthenticated() throws Exception {
+        when(authConnection.authenticateUser("username", "password")).thenReturn(null);
+
+        tokenHolder.getToken();
+    }
+
+    private static Token token(String value) {
+        return DtoFactory.newDto(Token.class).withValue(value);
+    }
+}
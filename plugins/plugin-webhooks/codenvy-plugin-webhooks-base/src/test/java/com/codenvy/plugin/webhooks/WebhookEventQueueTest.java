@@ -0,0 +1,187 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import org.eclipse.che.api.core.ServerException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link WebhookEventQueue}.
+ */
+public class WebhookEventQueueTest {
+
+    private static final String SOURCE = "test";
+
+    private Path              queueDir;
+    private WebhookEventQueue queue;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        queueDir = Files.createTempDirectory("webhooks-queue");
+        queue = new WebhookEventQueue(queueDir.toString(), 2, 2);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        queue.shutdown();
+        Files.walk(queueDir)
+             .sorted(Comparator.reverseOrder())
+             .forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    public void shouldProcessEnqueuedEventAndRemoveItsFile() throws Exception {
+        List<WebhookEvent> processed = new CopyOnWriteArrayList<>();
+        queue.register(SOURCE, processed::add);
+
+        assertTrue(queue.enqueue(new WebhookEvent(SOURCE, "delivery", "repository", "push", "payload")));
+
+        waitUntil(() -> queue.size() == 0);
+        assertEquals(processed.size(), 1);
+        assertEquals(processed.get(0).getPayload(), "payload");
+        assertEquals(queue.getProcessedCount(), 1);
+        assertTrue(listEventFiles(queueDir).isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreEventWithAlreadyReceivedDeliveryId() throws Exception {
+        List<WebhookEvent> processed = new CopyOnWriteArrayList<>();
+        queue.register(SOURCE, processed::add);
+
+        assertTrue(queue.enqueue(new WebhookEvent(SOURCE, "delivery", "repository", "push", "payload")));
+        waitUntil(() -> queue.size() == 0);
+        assertFalse(queue.enqueue(new WebhookEvent(SOURCE, "delivery", "repository", "push", "payload")));
+
+        assertEquals(processed.size(), 1);
+    }
+
+    @Test
+    public void shouldProcessEventsOfTheSameRepositoryInOrder() throws Exception {
+        List<String> processed = new CopyOnWriteArrayList<>();
+        queue.register(SOURCE, event -> {
+            sleep(20);
+            processed.add(event.getPayload());
+        });
+
+        for (String payload : asList("first", "second", "third")) {
+            queue.enqueue(new WebhookEvent(SOURCE, null, "repository", "push", payload));
+        }
+
+        waitUntil(() -> processed.size() == 3);
+        assertEquals(processed, asList("first", "second", "third"));
+    }
+
+    @Test
+    public void shouldRetryFailedEventAndMoveItToFailedEventsWhenAttemptsAreExhausted() throws Exception {
+        queue.register(SOURCE, event -> {
+            throw new ServerException("failed");
+        });
+
+        queue.enqueue(new WebhookEvent(SOURCE, "delivery", "repository", "push", "payload"));
+
+        waitUntil(() -> queue.size() == 0);
+        assertEquals(queue.getRetriedCount(), 1);
+        assertEquals(queue.getFailedCount(), 1);
+        assertTrue(listEventFiles(queueDir).isEmpty());
+        assertEquals(listEventFiles(queue.getFailedDir()).size(), 1);
+    }
+
+    @Test
+    public void shouldNotRetryUnprocessableEvent() throws Exception {
+        queue.register(SOURCE, event -> {
+            throw new UnprocessableWebhookEventException("No factory found");
+        });
+
+        queue.enqueue(new WebhookEvent(SOURCE, "delivery", "repository", "push", "payload"));
+
+        waitUntil(() -> queue.size() == 0);
+        assertEquals(queue.getSkippedCount(), 1);
+        assertEquals(queue.getRetriedCount(), 0);
+        assertEquals(queue.getFailedCount(), 0);
+        assertTrue(listEventFiles(queueDir).isEmpty());
+        assertTrue(listEventFiles(queue.getFailedDir()).isEmpty());
+        assertFalse(queue.enqueue(new WebhookEvent(SOURCE, "delivery", "repository", "push", "payload")));
+    }
+
+    @Test
+    public void shouldProcessStoredEventsWhenProcessorIsRegistered() throws Exception {
+        new WebhookEvent(SOURCE, "delivery", "repository", "push", "payload").withId("0000000000001-000000")
+                                                                          .store(queueDir.resolve("0000000000001-000000.test.event"));
+        List<WebhookEvent> processed = new CopyOnWriteArrayList<>();
+
+        queue.register(SOURCE, processed::add);
+
+        waitUntil(() -> processed.size() == 1);
+        assertEquals(processed.get(0).getDeliveryId(), "delivery");
+        assertEquals(processed.get(0).getPayload(), "payload");
+    }
+
+    @Test
+    public void shouldRemoveTemporaryFilesOfIncompleteEvents() throws Exception {
+        final Path tempFile = queueDir.resolve("0000000000001-000000.test.event.tmp");
+        Files.write(tempFile, "incomplete".getBytes());
+
+        queue.removeIncompleteEvents();
+
+        assertFalse(Files.exists(tempFile));
+    }
+
+    @Test(expectedExceptions = ServerException.class)
+    public void shouldNotEnqueueEventOfSourceWithoutProcessor() throws Exception {
+        queue.enqueue(new WebhookEvent(SOURCE, "delivery", "repository", "push", "payload"));
+    }
+
+    private static List<Path> listEventFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.event")) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition is not met in 10 seconds");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.che.inject.ConfigurationProperties;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link WebhookRoutingIndex}.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class WebhookRoutingIndexTest {
+
+    private static final String WEBHOOK_PROPERTY_PATTERN = "env.CODENVY_GITHUB_WEBHOOK_.+";
+
+    @Mock
+    private ConfigurationProperties configurationProperties;
+
+    private WebhookRoutingIndex index;
+
+    @BeforeMethod
+    public void setUp() {
+        when(configurationProperties.getProperties(WEBHOOK_PROPERTY_PATTERN))
+                .thenReturn(ImmutableMap.of("env.CODENVY_GITHUB_WEBHOOK_WEBHOOK1_REPOSITORY_URL", "https://github.com/owner/repo.git",
+                                            "env.CODENVY_GITHUB_WEBHOOK_WEBHOOK1_FACTORY1_ID", "factory1",
+                                            "env.CODENVY_GITHUB_WEBHOOK_WEBHOOK1_FACTORY2_ID", "factory2",
+                                            "env.CODENVY_GITHUB_WEBHOOK_WEBHOOK2_REPOSITORY_URL", "https://github.com/owner/other",
+                                            "env.CODENVY_GITHUB_WEBHOOK_WEBHOOK2_FACTORY1_ID", "factory3"));
+        when(configurationProperties.getProperties("env.CODENVY_JENKINS_CONNECTOR_.+"))
+                .thenReturn(ImmutableMap.of("env.CODENVY_JENKINS_CONNECTOR_CONNECTOR1_URL", "http://jenkins",
+                                            "env.CODENVY_JENKINS_CONNECTOR_CONNECTOR1_JOB_NAME", "job",
+                                            "env.CODENVY_JENKINS_CONNECTOR_CONNECTOR1_FACTORY_ID", "factory1",
+                                            "env.CODENVY_JENKINS_CONNECTOR_CONNECTOR2_URL", "http://jenkins",
+                                            "env.CODENVY_JENKINS_CONNECTOR_CONNECTOR2_FACTORY_ID", "factory2"));
+        index = WebhookRoutingIndex.build(configurationProperties, WEBHOOK_PROPERTY_PATTERN);
+    }
+
+    @Test
+    public void shouldRouteRepositoryToFactoriesOfItsWebhooks() {
+        assertEquals(index.getFactoriesIds("https://github.com/owner/repo"), ImmutableSet.of("factory1", "factory2"));
+        assertEquals(index.getFactoriesIds("https://github.com/owner/other"), ImmutableSet.of("factory3"));
+    }
+
+    @Test
+    public void shouldRouteRepositoryUrlRegardlessOfGitSuffix() {
+        assertEquals(index.getFactoriesIds("https://github.com/owner/repo.git"), ImmutableSet.of("factory1", "factory2"));
+        assertEquals(index.getFactoriesIds("https://github.com/owner/other.git/"), ImmutableSet.of("factory3"));
+    }
+
+    @Test
+    public void shouldReturnEmptySetForUnknownRepository() {
+        assertTrue(index.getFactoriesIds("https://github.com/owner/unknown").isEmpty());
+    }
+
+    @Test
+    public void shouldRouteFactoryToConfiguredConnectorsAndSkipIncompleteOnes() {
+        assertEquals(index.getConnectors("factory1").size(), 1);
+        assertTrue(index.getConnectors("factory2").isEmpty());
+        assertTrue(index.getConnectors("factory3").isEmpty());
+    }
+}
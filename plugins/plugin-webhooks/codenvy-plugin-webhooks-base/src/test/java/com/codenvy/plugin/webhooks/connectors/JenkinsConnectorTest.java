@@ -0,0 +1,74 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.plugin.webhooks.connectors;
+
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link JenkinsConnector}.
+ */
+public class JenkinsConnectorTest {
+
+    private static final String CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                                         "<project><actions/><description>Build job</description>" +
+                                         "<builders><description>nested</description></builders></project>";
+
+    @Test
+    public void shouldAppendAllLinksToJobDescriptionAtOnce() {
+        Optional<String> updated = JenkinsConnector.addLinksToDescription(CONFIG, asList("http://factory/1", "http://factory/2"));
+
+        assertTrue(updated.isPresent());
+        assertTrue(updated.get().contains("<description>Build job\n" +
+                                          "&lt;a href=\"http://factory/1\"&gt;http://factory/1&lt;/a&gt;\n" +
+                                          "&lt;a href=\"http://factory/2\"&gt;http://factory/2&lt;/a&gt;</description>"));
+        assertTrue(updated.get().contains("<builders><description>nested</description></builders>"));
+    }
+
+    @Test
+    public void shouldNotUpdateConfigurationWhenAllLinksAreAlreadyDisplayed() {
+        String withLink = JenkinsConnector.addLinksToDescription(CONFIG, singletonList("http://factory/1")).get();
+
+        assertFalse(JenkinsConnector.addLinksToDescription(withLink, singletonList("http://factory/1")).isPresent());
+    }
+
+    @Test
+    public void shouldAddLinkToEmptyDescription() {
+        Optional<String> updated = JenkinsConnector.addLinksToDescription("<project><description/></project>",
+                                                                          singletonList("http://factory/1"));
+
+        assertTrue(updated.isPresent());
+        assertTrue(updated.get().contains("http://factory/1&lt;/a&gt;</description>"));
+    }
+
+    @Test
+    public void shouldNotUpdateMalformedConfiguration() {
+        assertFalse(JenkinsConnector.addLinksToDescription("<project><description>", singletonList("http://factory/1")).isPresent());
+    }
+
+    @Test
+    public void shouldConsiderConnectorsOfTheSameJobEqual() {
+        assertEquals(new JenkinsConnector("http://jenkins", "job"), new JenkinsConnector("http://jenkins", "job"));
+        assertNotEquals(new JenkinsConnector("http://jenkins", "job"), new JenkinsConnector("http://jenkins", "other"));
+    }
+}
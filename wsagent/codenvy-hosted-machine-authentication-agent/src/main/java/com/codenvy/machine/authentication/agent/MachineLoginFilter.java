@@ -15,15 +15,24 @@
 package com.codenvy.machine.authentication.agent;
 
 import com.codenvy.auth.sso.client.token.RequestTokenExtractor;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import org.eclipse.che.api.core.ApiException;
 import org.eclipse.che.api.core.NotFoundException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.core.rest.HttpJsonRequestFactory;
 import org.eclipse.che.api.user.shared.dto.UserDto;
+import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
 import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.subject.Subject;
 import org.eclipse.che.commons.subject.SubjectImpl;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -37,28 +46,68 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 /**
  * Protects user's machine from unauthorized access.
  *
+ * <p>Subjects resolved by machine tokens are cached, so the requests
+ * which come without http session (e.g. REST clients, terminal, language servers)
+ * are authenticated without round trip to the workspace master.
+ * Concurrent requests with the same token wait for a single master call.
+ * Cache is cleaned up when the workspace of this machine is stopped.
+ *
  * @author Anton Korneta
  */
 @Singleton
-public class MachineLoginFilter implements Filter {
+public class MachineLoginFilter implements Filter, EventSubscriber<WorkspaceStatusEvent> {
 
-    private final String                 tokenServiceEndpoint;
-    private final HttpJsonRequestFactory requestFactory;
-    private final RequestTokenExtractor  tokenExtractor;
+    private final String                        tokenServiceEndpoint;
+    private final String                        workspaceId;
+    private final HttpJsonRequestFactory        requestFactory;
+    private final RequestTokenExtractor         tokenExtractor;
+    private final EventService                  eventService;
+    private final LoadingCache<String, Subject> subjectsCache;
 
     @Inject
     public MachineLoginFilter(@Named("che.api") String apiEndpoint,
+                              @Named("env.CHE_WORKSPACE_ID") String workspaceId,
+                              @Named("machine.auth.token_cache_size") long cacheSize,
+                              @Named("machine.auth.token_cache_expire_time_s") long cacheExpireTime,
                               HttpJsonRequestFactory requestFactory,
-                              RequestTokenExtractor tokenExtractor) {
+                              RequestTokenExtractor tokenExtractor,
+                              EventService eventService) {
         this.tokenServiceEndpoint = apiEndpoint + "/machine/token";
+        this.workspaceId = workspaceId;
         this.requestFactory = requestFactory;
         this.tokenExtractor = tokenExtractor;
+        this.eventService = eventService;
+        this.subjectsCache = CacheBuilder.newBuilder()
+                                         .maximumSize(cacheSize)
+                                         .expireAfterWrite(cacheExpireTime, TimeUnit.SECONDS)
+                                         .build(new CacheLoader<String, Subject>() {
+                                             @Override
+                                             public Subject load(String token) throws Exception {
+                                                 return fetchSubject(token);
+                                             }
+                                         });
+    }
+
+    @PostConstruct
+    @VisibleForTesting
+    void subscribe() {
+        eventService.subscribe(this);
+    }
+
+    @Override
+    public void onEvent(WorkspaceStatusEvent event) {
+        if (WorkspaceStatusEvent.EventType.STOPPED.equals(event.getEventType())
+            && workspaceId.equals(event.getWorkspaceId())) {
+            subjectsCache.invalidateAll();
+        }
     }
 
     @Override
@@ -87,15 +136,7 @@ public class MachineLoginFilter implements Filter {
             return;
         }
         try {
-            final UserDto userDescriptor = requestFactory.fromUrl(tokenServiceEndpoint + "/user/" + machineToken)
-                                                                .useGetMethod()
-                                                                .setAuthorizationHeader(machineToken)
-                                                                .request()
-                                                                .asDto(UserDto.class);
-            final Subject machineUser = new SubjectImpl(userDescriptor.getName(),
-                                                        userDescriptor.getId(),
-                                                        machineToken,
-                                                        false);
+            final Subject machineUser = getSubject(machineToken);
             EnvironmentContext.getCurrent().setSubject(machineUser);
             final HttpSession httpSession = httpRequest.getSession(true);
             httpSession.setAttribute("principal", machineUser);
@@ -114,4 +155,31 @@ public class MachineLoginFilter implements Filter {
     public void destroy() {
 
     }
+
+    private Subject getSubject(String machineToken) throws ApiException, IOException {
+        try {
+            return subjectsCache.get(machineToken);
+        } catch (ExecutionException | UncheckedExecutionException x) {
+            final Throwable cause = x.getCause();
+            if (cause instanceof ApiException) {
+                throw (ApiException)cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private Subject fetchSubject(String machineToken) throws ApiException, IOException {
+        final UserDto userDescriptor = requestFactory.fromUrl(tokenServiceEndpoint + "/user/" + machineToken)
+                                                     .useGetMethod()
+                                                     .setAuthorizationHeader(machineToken)
+                                                     .request()
+                                                     .asDto(UserDto.class);
+        return new SubjectImpl(userDescriptor.getName(),
+                               userDescriptor.getId(),
+                               machineToken,
+                               false);
+    }
 }
@@ -19,10 +19,12 @@ import com.codenvy.auth.sso.client.token.RequestTokenExtractor;
 
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.core.rest.HttpJsonRequest;
 import org.eclipse.che.api.core.rest.HttpJsonRequestFactory;
 import org.eclipse.che.api.core.rest.HttpJsonResponse;
 import org.eclipse.che.api.user.shared.dto.UserDto;
+import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
 import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.subject.Subject;
 import org.eclipse.che.commons.subject.SubjectImpl;
@@ -43,6 +45,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -55,6 +58,7 @@ public class MachineLoginFilterTest {
     private static final String MACHINE_TOKEN = "machineToken";
     private static final String USERNAME      = "fakeName";
     private static final String USER_ID       = "12";
+    private static final String WORKSPACE_ID  = "workspace123";
 
     @Mock
     HttpJsonRequestFactory requestFactoryMock;
@@ -68,6 +72,8 @@ public class MachineLoginFilterTest {
     UserDto                userMock;
     @Mock
     HttpJsonResponse       jsonResponseMock;
+    @Mock
+    EventService           eventServiceMock;
 
     RequestTokenExtractor requestTokenExtractor;
     HttpJsonRequest       httpJsonRequestMock;
@@ -78,7 +84,13 @@ public class MachineLoginFilterTest {
     @BeforeMethod
     public void setUp() throws Exception {
         requestTokenExtractor = new ChainedTokenExtractor();
-        machineLoginFilter = new MachineLoginFilter(API_ENDPOINT, requestFactoryMock, requestTokenExtractor);
+        machineLoginFilter = new MachineLoginFilter(API_ENDPOINT,
+                                                    WORKSPACE_ID,
+                                                    100,
+                                                    60,
+                                                    requestFactoryMock,
+                                                    requestTokenExtractor,
+                                                    eventServiceMock);
         httpJsonRequestMock = mock(HttpJsonRequest.class, new SelfReturningAnswer());
         EnvironmentContext.reset();
         when(requestFactoryMock.fromUrl(anyString())).thenReturn(httpJsonRequestMock);
@@ -165,6 +177,41 @@ public class MachineLoginFilterTest {
                                               "Authentication on machine failed, token " + MACHINE_TOKEN + " is invalid");
     }
 
+    @Test
+    public void shouldNotRequestMasterWhenSubjectIsCachedForToken() throws Exception {
+        when(jsonResponseMock.asDto(UserDto.class)).thenReturn(userMock);
+
+        machineLoginFilter.doFilter(getRequestMock(null, MACHINE_TOKEN), servletResponseMock, chainMock);
+        machineLoginFilter.doFilter(getRequestMock(null, MACHINE_TOKEN), servletResponseMock, chainMock);
+
+        verify(httpJsonRequestMock).request();
+        verify(sessionMock, times(2)).setAttribute("principal", machineSubject);
+    }
+
+    @Test
+    public void shouldNotCacheInvalidToken() throws Exception {
+        when(httpJsonRequestMock.request()).thenThrow(new NotFoundException("User with token " + MACHINE_TOKEN + " Not found"));
+
+        machineLoginFilter.doFilter(getRequestMock(null, MACHINE_TOKEN), servletResponseMock, chainMock);
+        machineLoginFilter.doFilter(getRequestMock(null, MACHINE_TOKEN), servletResponseMock, chainMock);
+
+        verify(httpJsonRequestMock, times(2)).request();
+    }
+
+    @Test
+    public void shouldInvalidateCacheWhenWorkspaceIsStopped() throws Exception {
+        when(jsonResponseMock.asDto(UserDto.class)).thenReturn(userMock);
+        machineLoginFilter.doFilter(getRequestMock(null, MACHINE_TOKEN), servletResponseMock, chainMock);
+
+        final WorkspaceStatusEvent event = mock(WorkspaceStatusEvent.class);
+        when(event.getWorkspaceId()).thenReturn(WORKSPACE_ID);
+        when(event.getEventType()).thenReturn(WorkspaceStatusEvent.EventType.STOPPED);
+        machineLoginFilter.onEvent(event);
+        machineLoginFilter.doFilter(getRequestMock(null, MACHINE_TOKEN), servletResponseMock, chainMock);
+
+        verify(httpJsonRequestMock, times(2)).request();
+    }
+
     // if the session is null it means that there will be created new one
     private HttpServletRequest getRequestMock(HttpSession session, String token) {
         final HttpServletRequest request = mock(HttpServletRequest.class);
@@ -14,6 +14,8 @@
  */
 package com.codenvy.workspace;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import org.eclipse.che.api.core.rest.HttpJsonRequestFactory;
 import org.eclipse.che.commons.schedule.ScheduleRate;
 import org.slf4j.Logger;
@@ -22,10 +24,20 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.singletonMap;
 
 /**
- * Notifies master about activity in workspace, but not more often than once per minute.
+ * Notifies master about activity in workspace, but not more often than once per {@code threshold}.
+ *
+ * <p>Activity is only recorded on the caller's thread, the notification itself is
+ * performed by the scheduler which sends the latest recorded activity to the master,
+ * so concurrent activities are coalesced into a single notification and
+ * the request threads never wait for the master. The time of the latest activity
+ * is sent to the master's batch activity endpoint, so a delayed or retried
+ * notification does not prolong the workspace beyond its actual activity.
+ * Failed notifications are retried with exponential backoff limited by {@code threshold}.
  *
  * @author Mihail Kuznyetsov
  * @author Anton Korneta
@@ -34,15 +46,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class WorkspaceActivityNotifier {
     private static final Logger LOG = LoggerFactory.getLogger(WorkspaceActivityNotifier.class);
 
-    private final AtomicBoolean          activeDuringThreshold;
+    private static final long INITIAL_RETRY_DELAY_MS = 1000;
+
+    private final AtomicLong             lastActivityTime;
     private final HttpJsonRequestFactory httpJsonRequestFactory;
     private final String                 apiEndpoint;
     private final String                 wsId;
     private final long                   threshold;
     private final String                 token;
 
-    private long lastUpdateTime;
-
+    // accessed only by the scheduler which never runs the notification concurrently
+    private long lastNotifiedActivityTime;
+    private long nextNotificationTime;
+    private int  failedAttempts;
 
     @Inject
     public WorkspaceActivityNotifier(HttpJsonRequestFactory httpJsonRequestFactory,
@@ -53,44 +69,52 @@ public class WorkspaceActivityNotifier {
         this.httpJsonRequestFactory = httpJsonRequestFactory;
         this.apiEndpoint = apiEndpoint;
         this.wsId = wsId;
-        this.activeDuringThreshold = new AtomicBoolean(false);
+        this.lastActivityTime = new AtomicLong();
         this.threshold = threshold;
         this.token = token;
     }
 
     /**
-     * Notify workspace master about activity in this workspace.
+     * Records activity in this workspace.
      * <p/>
-     * After last notification, any consecutive activities that come within specific amount of time
-     * - {@code threshold}, will not notify immediately, but trigger notification in scheduler method
-     * {@link WorkspaceActivityNotifier#scheduleActivityNotification}
+     * The master is notified asynchronously by {@link WorkspaceActivityNotifier#scheduleActivityNotification},
+     * so this method is cheap and may be called on every request.
      */
     public void onActivity() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime < (lastUpdateTime + threshold)) {
-            activeDuringThreshold.set(true);
-        } else {
-            notifyActivity();
-            lastUpdateTime = currentTime;
-        }
+        onActivity(System.currentTimeMillis());
+    }
 
+    @VisibleForTesting
+    void onActivity(long activityTime) {
+        lastActivityTime.set(activityTime);
     }
 
+    @VisibleForTesting
     @ScheduleRate(periodParameterName = "workspace.activity.schedule_period_s")
-    private void scheduleActivityNotification() {
-        if (activeDuringThreshold.compareAndSet(true, false)) {
-            notifyActivity();
+    void scheduleActivityNotification() {
+        final long activityTime = lastActivityTime.get();
+        final long currentTime = System.currentTimeMillis();
+        if (activityTime <= lastNotifiedActivityTime || currentTime < nextNotificationTime) {
+            return;
         }
-    }
-
-    private void notifyActivity() {
         try {
-            httpJsonRequestFactory.fromUrl(apiEndpoint + "/activity/" + wsId)
-                                  .usePutMethod()
-                                  .setAuthorizationHeader(token)
-                                  .request();
+            notifyActivity(activityTime);
+            lastNotifiedActivityTime = activityTime;
+            nextNotificationTime = currentTime + threshold;
+            failedAttempts = 0;
         } catch (Exception e) {
-            LOG.error("Cannot notify master about workspace " + wsId + " activity", e);
+            final long retryDelay = Math.min(threshold, INITIAL_RETRY_DELAY_MS << Math.min(failedAttempts, 20));
+            nextNotificationTime = currentTime + retryDelay;
+            failedAttempts++;
+            LOG.error("Cannot notify master about workspace " + wsId + " activity, retry in " + retryDelay + "ms", e);
         }
     }
+
+    private void notifyActivity(long activityTime) throws Exception {
+        httpJsonRequestFactory.fromUrl(apiEndpoint + "/activity")
+                              .usePostMethod()
+                              .setBody(singletonMap(wsId, activityTime))
+                              .setAuthorizationHeader(token)
+                              .request();
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.workspace;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.rest.HttpJsonRequest;
+import org.eclipse.che.api.core.rest.HttpJsonRequestFactory;
+import org.eclipse.che.commons.test.mockito.answer.SelfReturningAnswer;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static java.util.Collections.singleton;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests for {@link WorkspaceActivityNotifier}.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class WorkspaceActivityNotifierTest {
+    private static final String API_ENDPOINT = "http://localhost:8080/api";
+    private static final String WS_ID        = "workspace123";
+
+    @Mock
+    private HttpJsonRequestFactory requestFactory;
+
+    private HttpJsonRequest           request;
+    private WorkspaceActivityNotifier notifier;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        request = mock(HttpJsonRequest.class, new SelfReturningAnswer());
+        when(requestFactory.fromUrl(anyString())).thenReturn(request);
+        notifier = new WorkspaceActivityNotifier(requestFactory, API_ENDPOINT, WS_ID, 60_000, "token");
+    }
+
+    @Test
+    public void shouldNotNotifyMasterOnActivity() throws Exception {
+        notifier.onActivity();
+
+        verify(requestFactory, never()).fromUrl(anyString());
+    }
+
+    @Test
+    public void shouldNotifyMasterOnceAboutCoalescedActivities() throws Exception {
+        notifier.onActivity();
+        notifier.onActivity();
+
+        notifier.scheduleActivityNotification();
+        notifier.scheduleActivityNotification();
+
+        verify(requestFactory).fromUrl(API_ENDPOINT + "/activity");
+        verify(request).usePostMethod();
+        final ArgumentCaptor<Map> bodyCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(request).setBody(bodyCaptor.capture());
+        assertEquals(bodyCaptor.getValue().keySet(), singleton(WS_ID));
+        verify(request).request();
+    }
+
+    @Test
+    public void shouldNotNotifyMasterWhenThereIsNoActivity() throws Exception {
+        notifier.scheduleActivityNotification();
+
+        verify(requestFactory, never()).fromUrl(anyString());
+    }
+
+    @Test
+    public void shouldNotNotifyMasterMoreOftenThanThreshold() throws Exception {
+        final long activityTime = System.currentTimeMillis();
+        notifier.onActivity(activityTime);
+        notifier.scheduleActivityNotification();
+        notifier.onActivity(activityTime + 1);
+
+        notifier.scheduleActivityNotification();
+
+        verify(request).request();
+    }
+
+    @Test
+    public void shouldRetryFailedNotification() throws Exception {
+        notifier = new WorkspaceActivityNotifier(requestFactory, API_ENDPOINT, WS_ID, 0, "token");
+        when(request.request()).thenThrow(new ServerException("error")).thenReturn(null);
+        notifier.onActivity();
+
+        notifier.scheduleActivityNotification();
+        notifier.scheduleActivityNotification();
+
+        verify(request, times(2)).request();
+    }
+}
@@ -99,6 +99,24 @@ public class JpaRecipePermissionsDao extends AbstractJpaPermissionsDao<RecipePer
         }
     }
 
+    @Override
+    @Transactional
+    public boolean existsForOtherUsers(String userId, String instanceId, String action) throws ServerException {
+        requireNonNull(userId, "User identifier required");
+        requireNonNull(instanceId, "Recipe identifier required");
+        requireNonNull(action, "Action name required");
+        try {
+            return managerProvider.get()
+                                  .createNamedQuery("RecipePermissions.getCountOfOtherUsersWithAction", Long.class)
+                                  .setParameter("recipeId", instanceId)
+                                  .setParameter("action", action)
+                                  .setParameter("userId", userId)
+                                  .getSingleResult() > 0;
+        } catch (RuntimeException e) {
+            throw new ServerException(e.getLocalizedMessage(), e);
+        }
+    }
+
     @Override
     protected RecipePermissionsImpl getEntity(String userId, String instanceId) throws NotFoundException {
         try {
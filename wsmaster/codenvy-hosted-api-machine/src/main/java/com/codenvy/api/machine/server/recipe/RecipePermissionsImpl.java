@@ -59,7 +59,13 @@ import java.util.List;
                             query = "SELECT recipePermission " +
                                     "FROM RecipePermissions recipePermission " +
                                     "WHERE recipePermission.recipeId = :recipeId " +
-                                    "AND recipePermission.userId IS NULL ")
+                                    "AND recipePermission.userId IS NULL "),
+                @NamedQuery(name = "RecipePermissions.getCountOfOtherUsersWithAction",
+                            query = "SELECT COUNT(recipePermission) " +
+                                    "FROM RecipePermissions recipePermission, IN(recipePermission.actions) permittedAction " +
+                                    "WHERE recipePermission.recipeId = :recipeId " +
+                                    "AND permittedAction = :action " +
+                                    "AND COALESCE(recipePermission.userId, '*') <> :userId ")
         }
 )
 @Table(name = "recipepermissions")
@@ -232,6 +232,30 @@ public class RecipePermissionsDaoTest {
         dao.exists("user", "instance", null);
     }
 
+    /* RecipePermissionsDao.existsForOtherUsers() tests */
+    @Test
+    public void shouldReturnTrueWhenAnotherUserHasPermissionWithAction() throws Exception {
+        assertTrue(dao.existsForOtherUsers("user2", "recipe2", "configure"));
+    }
+
+    @Test
+    public void shouldReturnFalseWhenOnlyGivenUserHasPermissionWithAction() throws Exception {
+        assertFalse(dao.existsForOtherUsers("user3", "recipe2", "configure"));
+    }
+
+    @Test
+    public void shouldConsiderPermissionsOfAnyUserAsPermissionsOfAnotherUser() throws Exception {
+        dao.store(new RecipePermissionsImpl("*", "recipe1", singletonList("delete")));
+
+        assertTrue(dao.existsForOtherUsers("user3", "recipe1", "delete"));
+        assertFalse(dao.existsForOtherUsers("*", "recipe1", "delete"));
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void shouldThrowExceptionWhenPermissionsExistsForOtherUsersInstanceIdArgumentIsNull() throws Exception {
+        dao.existsForOtherUsers("user", null, "action");
+    }
+
     public static class TestDomain extends AbstractPermissionsDomain<RecipePermissionsImpl> {
         public TestDomain() {
             super("recipe", asList("read", "write", "use"));
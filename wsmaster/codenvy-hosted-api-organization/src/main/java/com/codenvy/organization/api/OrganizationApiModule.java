@@ -19,12 +19,10 @@ import com.codenvy.organization.api.permissions.OrganizationCreatorPermissionsPr
 import com.codenvy.organization.api.permissions.OrganizationPermissionsFilter;
 import com.codenvy.organization.api.permissions.OrganizationResourceDistributionServicePermissionsFilter;
 import com.codenvy.organization.api.resource.DefaultOrganizationResourcesProvider;
-import com.codenvy.organization.api.resource.OrganizationResourceLockKeyProvider;
 import com.codenvy.organization.api.resource.OrganizationResourcesDistributionService;
 import com.codenvy.organization.api.resource.OrganizationResourcesPermissionsChecker;
 import com.codenvy.organization.api.resource.OrganizationResourcesReserveTracker;
 import com.codenvy.organization.api.resource.SuborganizationResourcesProvider;
-import com.codenvy.resource.api.ResourceLockKeyProvider;
 import com.codenvy.resource.api.ResourcesReserveTracker;
 import com.codenvy.resource.api.free.DefaultResourcesProvider;
 import com.codenvy.resource.api.license.ResourcesProvider;
@@ -58,9 +56,6 @@ public class OrganizationApiModule extends AbstractModule {
         Multibinder.newSetBinder(binder(), ResourcesReserveTracker.class)
                    .addBinding().to(OrganizationResourcesReserveTracker.class);
 
-        Multibinder.newSetBinder(binder(), ResourceLockKeyProvider.class)
-                   .addBinding().to(OrganizationResourceLockKeyProvider.class);
-
         Multibinder.newSetBinder(binder(), ResourcesPermissionsChecker.class)
                    .addBinding().to(OrganizationResourcesPermissionsChecker.class);
 
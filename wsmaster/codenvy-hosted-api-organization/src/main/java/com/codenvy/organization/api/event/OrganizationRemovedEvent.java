@@ -0,0 +1,38 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.organization.api.event;
+
+import com.codenvy.organization.spi.impl.OrganizationImpl;
+
+/**
+ * Published after {@link OrganizationImpl organization} removal is committed.
+ *
+ * <p>Note that when the organization is removed as a part of the removal
+ * of its parent organization the event is published before the removal
+ * of the parent organization is committed.
+ */
+public class OrganizationRemovedEvent {
+
+    private final OrganizationImpl organization;
+
+    public OrganizationRemovedEvent(OrganizationImpl organization) {
+        this.organization = organization;
+    }
+
+    /** Returns organization which was removed. */
+    public OrganizationImpl getOrganization() {
+        return organization;
+    }
+}
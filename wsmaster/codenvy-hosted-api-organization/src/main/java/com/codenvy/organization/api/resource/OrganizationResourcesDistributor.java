@@ -15,6 +15,9 @@
 package com.codenvy.organization.api.resource;
 
 import com.codenvy.organization.api.OrganizationManager;
+import com.codenvy.organization.api.event.BeforeOrganizationRemovedEvent;
+import com.codenvy.organization.api.event.OrganizationRemovedEvent;
+import com.codenvy.organization.shared.model.Organization;
 import com.codenvy.organization.shared.model.OrganizationDistributedResources;
 import com.codenvy.organization.spi.OrganizationDistributedResourcesDao;
 import com.codenvy.organization.spi.impl.OrganizationDistributedResourcesImpl;
@@ -23,19 +26,29 @@ import com.codenvy.resource.api.exception.NoEnoughResourcesException;
 import com.codenvy.resource.api.usage.ResourceUsageManager;
 import com.codenvy.resource.api.usage.ResourcesLocks;
 import com.codenvy.resource.model.Resource;
+import com.codenvy.resource.spi.impl.ResourceImpl;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.Page;
 import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.commons.lang.concurrent.Unlocker;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -46,27 +59,58 @@ import static java.util.Objects.requireNonNull;
 /**
  * Facade for organization resources distribution operations.
  *
+ * <p>Keeps in memory a rollup of resources which are distributed by each organization
+ * for its suborganizations, so the total can be looked up without paging through
+ * all the suborganizations. The rollup of an organization is loaded on first access
+ * and then kept up to date by {@link #distribute(String, List)} and {@link #reset(String)}
+ * which hold resources lock of the organization.
+ * It is dropped when any of its suborganizations is removed, both before the removal and after it is committed,
+ * so the rollup which was reloaded concurrently with the removal doesn't outlive it.
+ *
  * @author Sergii Leschenko
  */
 @Singleton
 public class OrganizationResourcesDistributor {
-    private final OrganizationDistributedResourcesDao organizationDistributedResourcesDao;
-    private final ResourcesLocks                      resourcesLocks;
-    private final ResourceUsageManager                usageManager;
-    private final ResourceAggregator                  resourceAggregator;
-    private final OrganizationManager                 organizationManager;
+    static final int ORGANIZATION_RESOURCES_PER_PAGE = 100;
+
+    private final OrganizationDistributedResourcesDao               organizationDistributedResourcesDao;
+    private final ResourcesLocks                                    resourcesLocks;
+    private final ResourceUsageManager                              usageManager;
+    private final ResourceAggregator                                resourceAggregator;
+    private final OrganizationManager                               organizationManager;
+    private final EventService                                      eventService;
+    private final EventSubscriber<BeforeOrganizationRemovedEvent>   removingOrganizationsSubscriber;
+    private final EventSubscriber<OrganizationRemovedEvent>         removedOrganizationsSubscriber;
+    private final ConcurrentMap<String, DistributedResourcesRollup> rollups;
 
     @Inject
     public OrganizationResourcesDistributor(OrganizationDistributedResourcesDao organizationDistributedResourcesDao,
                                             ResourcesLocks resourcesLocks,
                                             ResourceUsageManager usageManager,
                                             ResourceAggregator resourceAggregator,
-                                            OrganizationManager organizationManager) {
+                                            OrganizationManager organizationManager,
+                                            EventService eventService) {
         this.organizationDistributedResourcesDao = organizationDistributedResourcesDao;
         this.resourcesLocks = resourcesLocks;
         this.usageManager = usageManager;
         this.resourceAggregator = resourceAggregator;
         this.organizationManager = organizationManager;
+        this.eventService = eventService;
+        this.removingOrganizationsSubscriber = event -> dropRollups(event.getOrganization());
+        this.removedOrganizationsSubscriber = event -> dropRollups(event.getOrganization());
+        this.rollups = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        eventService.subscribe(removingOrganizationsSubscriber, BeforeOrganizationRemovedEvent.class);
+        eventService.subscribe(removedOrganizationsSubscriber, OrganizationRemovedEvent.class);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        eventService.unsubscribe(removingOrganizationsSubscriber, BeforeOrganizationRemovedEvent.class);
+        eventService.unsubscribe(removedOrganizationsSubscriber, OrganizationRemovedEvent.class);
     }
 
     /**
@@ -103,16 +147,17 @@ public class OrganizationResourcesDistributor {
         requireNonNull(resources, "Required non-null resources to distribute");
         checkArgument(!resources.isEmpty(), "Required at least one resource to distribute");
 
-        // locking resources by suborganization should lock resources whole organization tree
-        // so we can check resource availability for suborganization and parent organization
-        // TODO Rework it to using resourcesLocks.acquiresLock(suborganizationId, parentOrganizationId) when it will be implemented
-        try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquiresLock(suborganizationId)) {
+        final String parentOrganizationId = getDistributionOrganization(suborganizationId);
+        // resources of both suborganization and parent organization are locked
+        // so we can check resource availability for them
+        try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquireLock(suborganizationId, parentOrganizationId)) {
             checkResourcesAvailability(suborganizationId,
-                                       getDistributionOrganization(suborganizationId),
+                                       parentOrganizationId,
                                        getDistributedResources(suborganizationId),
                                        resources);
 
             organizationDistributedResourcesDao.store(new OrganizationDistributedResourcesImpl(suborganizationId, resources));
+            rollups.computeIfPresent(parentOrganizationId, (id, rollup) -> rollup.with(suborganizationId, resources));
         }
     }
 
@@ -151,6 +196,35 @@ public class OrganizationResourcesDistributor {
         return organizationDistributedResourcesDao.getByParent(organizationId, maxItems, skipCount);
     }
 
+    /**
+     * Returns sum of resources which are distributed by specified organization for its suborganizations.
+     *
+     * <p>Note that the sum is served from the in-memory rollup, so only the first call
+     * for an organization reads its suborganizations' distributed resources from the storage.
+     *
+     * @param organizationId
+     *         organization id
+     * @return sum of resources distributed for suborganizations of specified organization,
+     * or empty list when organization doesn't distribute any resources
+     * @throws NullPointerException
+     *         when either {@code organizationId} is null
+     * @throws ServerException
+     *         when any other error occurs
+     */
+    public List<? extends Resource> getDistributedTotal(String organizationId) throws ServerException {
+        requireNonNull(organizationId, "Required non-null organization id");
+
+        DistributedResourcesRollup rollup = rollups.get(organizationId);
+        if (rollup == null) {
+            try {
+                rollup = rollups.computeIfAbsent(organizationId, this::loadRollup);
+            } catch (RollupLoadingException e) {
+                throw e.getCause();
+            }
+        }
+        return rollup.getTotal();
+    }
+
     /**
      * Reset resources distribution.
      *
@@ -177,12 +251,14 @@ public class OrganizationResourcesDistributor {
                                                     ServerException {
         requireNonNull(organizationId, "Required non-null organization id");
 
-        try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquiresLock(organizationId)) {
+        final String parentOrganizationId = getDistributionOrganization(organizationId);
+        try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquireLock(organizationId, parentOrganizationId)) {
             checkResourcesAvailability(organizationId,
-                                       getDistributionOrganization(organizationId),
+                                       parentOrganizationId,
                                        getDistributedResources(organizationId),
                                        emptyList());
             organizationDistributedResourcesDao.remove(organizationId);
+            rollups.computeIfPresent(parentOrganizationId, (id, rollup) -> rollup.without(organizationId));
         }
     }
 
@@ -290,4 +366,99 @@ public class OrganizationResourcesDistributor {
             return emptyList();
         }
     }
+
+    /**
+     * Drops rollups which may contain resources of the removed organization.
+     *
+     * <p>Resources of removed organization are removed in the scope of organization removal transaction,
+     * so the rollup of its parent is reloaded from the storage on next access instead of being updated here.
+     * Rollup which is being loaded blocks the removal of its entry until it is loaded,
+     * so dropping rollups after the removal is committed guarantees that the next access sees the committed state.
+     */
+    private void dropRollups(Organization organization) {
+        final String parentOrganizationId = organization.getParent();
+        if (parentOrganizationId != null) {
+            rollups.remove(parentOrganizationId);
+        }
+        rollups.remove(organization.getId());
+    }
+
+    private DistributedResourcesRollup loadRollup(String organizationId) {
+        final Map<String, List<Resource>> suborganizationsResources = new HashMap<>();
+        try {
+            Page<? extends OrganizationDistributedResources> resourcesPage =
+                    organizationDistributedResourcesDao.getByParent(organizationId, ORGANIZATION_RESOURCES_PER_PAGE, 0);
+            while (true) {
+                for (OrganizationDistributedResources distributedResources : resourcesPage.getItems()) {
+                    suborganizationsResources.put(distributedResources.getOrganizationId(),
+                                                  copyOf(distributedResources.getResources()));
+                }
+                if (!resourcesPage.hasNextPage()) {
+                    break;
+                }
+                final Page.PageRef nextPageRef = resourcesPage.getNextPageRef();
+                resourcesPage = organizationDistributedResourcesDao.getByParent(organizationId,
+                                                                                nextPageRef.getPageSize(),
+                                                                                nextPageRef.getItemsBefore());
+            }
+        } catch (ServerException e) {
+            throw new RollupLoadingException(e);
+        }
+        return new DistributedResourcesRollup(suborganizationsResources);
+    }
+
+    private static List<Resource> copyOf(List<? extends Resource> resources) {
+        return resources.stream()
+                        .map(ResourceImpl::new)
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * Immutable snapshot of resources distributed by an organization
+     * with their sum precomputed on creation.
+     */
+    private class DistributedResourcesRollup {
+        private final Map<String, List<Resource>> suborganizationsResources;
+        private final List<Resource>              total;
+
+        private DistributedResourcesRollup(Map<String, List<Resource>> suborganizationsResources) {
+            this.suborganizationsResources = ImmutableMap.copyOf(suborganizationsResources);
+            this.total = ImmutableList.copyOf(resourceAggregator.aggregateByType(suborganizationsResources.values()
+                                                                                                            .stream()
+                                                                                                            .flatMap(List::stream)
+                                                                                                            .collect(Collectors.toList()))
+                                                                .values());
+        }
+
+        private List<Resource> getTotal() {
+            return total;
+        }
+
+        private DistributedResourcesRollup with(String suborganizationId, List<? extends Resource> resources) {
+            final Map<String, List<Resource>> updated = new HashMap<>(suborganizationsResources);
+            updated.put(suborganizationId, copyOf(resources));
+            return new DistributedResourcesRollup(updated);
+        }
+
+        private DistributedResourcesRollup without(String suborganizationId) {
+            if (!suborganizationsResources.containsKey(suborganizationId)) {
+                return this;
+            }
+            final Map<String, List<Resource>> updated = new HashMap<>(suborganizationsResources);
+            updated.remove(suborganizationId);
+            return new DistributedResourcesRollup(updated);
+        }
+    }
+
+    /** Carries checked exception out of the rollup loading function. */
+    private static class RollupLoadingException extends RuntimeException {
+        private RollupLoadingException(ServerException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ServerException getCause() {
+            return (ServerException)super.getCause();
+        }
+    }
 }
@@ -14,12 +14,9 @@
  */
 package com.codenvy.organization.api.resource;
 
-import com.codenvy.organization.shared.model.OrganizationDistributedResources;
-import com.codenvy.resource.api.ResourceAggregator;
 import com.codenvy.resource.api.ResourcesReserveTracker;
 import com.codenvy.resource.model.Resource;
 
-import org.eclipse.che.api.core.Page;
 import org.eclipse.che.api.core.ServerException;
 
 import javax.inject.Inject;
@@ -27,7 +24,6 @@ import javax.inject.Provider;
 import javax.inject.Singleton;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static com.codenvy.organization.spi.impl.OrganizationImpl.ORGANIZATIONAL_ACCOUNT;
 
@@ -38,51 +34,20 @@ import static com.codenvy.organization.spi.impl.OrganizationImpl.ORGANIZATIONAL_
  */
 @Singleton
 public class OrganizationResourcesReserveTracker implements ResourcesReserveTracker {
-    static final int ORGANIZATION_RESOURCES_PER_PAGE = 100;
-
     private final Provider<OrganizationResourcesDistributor> managerProvider;
-    private final ResourceAggregator                         resourceAggregator;
 
     @Inject
-    public OrganizationResourcesReserveTracker(Provider<OrganizationResourcesDistributor> managerProvider,
-                                               ResourceAggregator resourceAggregator) {
+    public OrganizationResourcesReserveTracker(Provider<OrganizationResourcesDistributor> managerProvider) {
         this.managerProvider = managerProvider;
-        this.resourceAggregator = resourceAggregator;
     }
 
     @Override
     public List<? extends Resource> getReservedResources(String accountId) throws ServerException {
-        Page<? extends OrganizationDistributedResources> resourcesPage = managerProvider.get()
-                                                                                        .getByParent(accountId,
-                                                                                                     ORGANIZATION_RESOURCES_PER_PAGE,
-                                                                                                     0);
-        List<Resource> resources = new ArrayList<>();
-        do {
-            resourcesPage.getItems()
-                         .stream()
-                         .flatMap(distributedResources -> distributedResources.getResources()
-                                                                              .stream())
-                         .collect(Collectors.toCollection(() -> resources));
-        } while ((resourcesPage = getNextPage(resourcesPage, accountId)) != null);
-
-        return new ArrayList<>(resourceAggregator.aggregateByType(resources)
-                                                 .values());
+        return new ArrayList<>(managerProvider.get().getDistributedTotal(accountId));
     }
 
     @Override
     public String getAccountType() {
         return ORGANIZATIONAL_ACCOUNT;
     }
-
-    private Page<? extends OrganizationDistributedResources> getNextPage(Page<? extends OrganizationDistributedResources> resourcesPage,
-                                                                         String organizationId) throws ServerException {
-        if (!resourcesPage.hasNextPage()) {
-            return null;
-        }
-
-        final Page.PageRef nextPageRef = resourcesPage.getNextPageRef();
-        return managerProvider.get().getByParent(organizationId,
-                                                 nextPageRef.getPageSize(),
-                                                 nextPageRef.getItemsBefore());
-    }
 }
@@ -59,7 +59,13 @@ import java.util.List;
                 @NamedQuery(name = "Member.getOrganizationsCount",
                             query = "SELECT COUNT(m) " +
                                     "FROM Member m " +
-                                    "WHERE m.userId = :userId ")
+                                    "WHERE m.userId = :userId "),
+                @NamedQuery(name = "Member.getCountOfOtherUsersWithAction",
+                            query = "SELECT COUNT(m) " +
+                                    "FROM Member m, IN(m.actions) permittedAction " +
+                                    "WHERE m.organizationId = :organizationId " +
+                                    "AND permittedAction = :action " +
+                                    "AND COALESCE(m.userId, '*') <> :userId ")
         }
 )
 @Table(name = "member")
@@ -78,6 +78,8 @@ public class JpaMemberDao extends AbstractJpaPermissionsDao<MemberImpl> implemen
             doRemove(organizationId, userId);
         } catch (RuntimeException e) {
             throw new ServerException(e.getLocalizedMessage(), e);
+        } finally {
+            invalidate(userId, organizationId);
         }
     }
 
@@ -116,6 +118,24 @@ public class JpaMemberDao extends AbstractJpaPermissionsDao<MemberImpl> implemen
         }
     }
 
+    @Override
+    @Transactional
+    public boolean existsForOtherUsers(String userId, String instanceId, String action) throws ServerException {
+        requireNonNull(userId, "Required non-null user id");
+        requireNonNull(instanceId, "Required non-null organization id");
+        requireNonNull(action, "Required non-null action");
+        try {
+            return managerProvider.get()
+                                  .createNamedQuery("Member.getCountOfOtherUsersWithAction", Long.class)
+                                  .setParameter("organizationId", instanceId)
+                                  .setParameter("action", action)
+                                  .setParameter("userId", userId)
+                                  .getSingleResult() > 0;
+        } catch (RuntimeException e) {
+            throw new ServerException(e.getLocalizedMessage(), e);
+        }
+    }
+
     @Override
     @Transactional
     public List<MemberImpl> getMemberships(String userId) throws ServerException {
@@ -15,6 +15,7 @@
 package com.codenvy.organization.spi.jpa;
 
 import com.codenvy.organization.api.event.BeforeOrganizationRemovedEvent;
+import com.codenvy.organization.api.event.OrganizationRemovedEvent;
 import com.codenvy.organization.api.event.PostOrganizationPersistedEvent;
 import com.codenvy.organization.spi.OrganizationDao;
 import com.codenvy.organization.spi.impl.OrganizationImpl;
@@ -86,11 +87,15 @@ public class JpaOrganizationDao implements OrganizationDao {
     @Override
     public void remove(String organizationId) throws ServerException {
         requireNonNull(organizationId, "Required non-null organization id");
+        final OrganizationImpl removed;
         try {
-            doRemove(organizationId);
+            removed = doRemove(organizationId);
         } catch (RuntimeException e) {
             throw new ServerException(e.getLocalizedMessage(), e);
         }
+        if (removed != null) {
+            eventService.publish(new OrganizationRemovedEvent(removed));
+        }
     }
 
     @Override
@@ -166,14 +171,17 @@ public class JpaOrganizationDao implements OrganizationDao {
     }
 
     @Transactional(rollbackOn = {RuntimeException.class, ServerException.class})
-    protected void doRemove(String organizationId) throws ServerException {
+    protected OrganizationImpl doRemove(String organizationId) throws ServerException {
         final EntityManager manager = managerProvider.get();
         final OrganizationImpl organization = manager.find(OrganizationImpl.class, organizationId);
-        if (organization != null) {
-            eventService.publish(new BeforeOrganizationRemovedEvent(new OrganizationImpl(organization))).propagateException();
-            manager.remove(organization);
-            manager.flush();
+        if (organization == null) {
+            return null;
         }
+        final OrganizationImpl removed = new OrganizationImpl(organization);
+        eventService.publish(new BeforeOrganizationRemovedEvent(removed)).propagateException();
+        manager.remove(organization);
+        manager.flush();
+        return removed;
     }
 
     @Singleton
@@ -15,6 +15,8 @@
 package com.codenvy.organization.api.resource;
 
 import com.codenvy.organization.api.OrganizationManager;
+import com.codenvy.organization.api.event.BeforeOrganizationRemovedEvent;
+import com.codenvy.organization.api.event.OrganizationRemovedEvent;
 import com.codenvy.organization.shared.model.OrganizationDistributedResources;
 import com.codenvy.organization.spi.OrganizationDistributedResourcesDao;
 import com.codenvy.organization.spi.impl.OrganizationDistributedResourcesImpl;
@@ -29,7 +31,12 @@ import com.codenvy.resource.spi.impl.ResourceImpl;
 import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.Page;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.commons.lang.concurrent.Unlocker;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -41,19 +48,28 @@ import org.testng.annotations.Test;
 import java.util.Collections;
 import java.util.List;
 
+import static com.codenvy.organization.api.resource.OrganizationResourcesDistributor.ORGANIZATION_RESOURCES_PER_PAGE;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Tests for {@link OrganizationResourcesDistributor}
@@ -77,6 +93,13 @@ public class OrganizationResourcesDistributorTest {
     private ResourceAggregator                  resourceAggregator;
     @Mock
     private OrganizationManager                 organizationManager;
+    @Mock
+    private EventService                        eventService;
+
+    @Captor
+    private ArgumentCaptor<EventSubscriber<BeforeOrganizationRemovedEvent>> subscriberCaptor;
+    @Captor
+    private ArgumentCaptor<EventSubscriber<OrganizationRemovedEvent>>       removedSubscriberCaptor;
 
     @Spy
     @InjectMocks
@@ -85,10 +108,21 @@ public class OrganizationResourcesDistributorTest {
     @BeforeMethod
     public void setUp() throws Exception {
         doNothing().when(manager).checkResourcesAvailability(anyString(), anyString(), any(), any());
-        when(resourcesLocks.acquiresLock(anyString())).thenReturn(lock);
+        when(resourcesLocks.acquireLock(anyString(), anyString())).thenReturn(lock);
 
         when(organizationManager.getById(ORG_ID)).thenReturn(new OrganizationImpl(ORG_ID, ORG_ID + "name", PARENT_ORG_ID));
         when(organizationManager.getById(PARENT_ORG_ID)).thenReturn(new OrganizationImpl(PARENT_ORG_ID, PARENT_ORG_ID + "name", null));
+
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            final List<? extends Resource> resources = (List<? extends Resource>)invocation.getArguments()[0];
+            if (resources.isEmpty()) {
+                return emptyMap();
+            }
+            return singletonMap("test", createTestResource(resources.stream()
+                                                                    .mapToLong(Resource::getAmount)
+                                                                    .sum()));
+        }).when(resourceAggregator).aggregateByType(any());
     }
 
     @Test
@@ -108,7 +142,7 @@ public class OrganizationResourcesDistributorTest {
                                                    toDistribute);
         verify(distributedResourcesDao).store(new OrganizationDistributedResourcesImpl(ORG_ID,
                                                                                        toDistribute));
-        verify(resourcesLocks).acquiresLock(ORG_ID);
+        verify(resourcesLocks).acquireLock(ORG_ID, PARENT_ORG_ID);
         verify(lock).close();
     }
 
@@ -130,7 +164,7 @@ public class OrganizationResourcesDistributorTest {
                                                    toDistribute);
         verify(distributedResourcesDao).store(new OrganizationDistributedResourcesImpl(ORG_ID,
                                                                                        toDistribute));
-        verify(resourcesLocks).acquiresLock(ORG_ID);
+        verify(resourcesLocks).acquireLock(ORG_ID, PARENT_ORG_ID);
         verify(lock).close();
     }
 
@@ -198,6 +232,149 @@ public class OrganizationResourcesDistributorTest {
         manager.getByParent(null, 1, 1);
     }
 
+    @Test
+    public void shouldLoadDistributedTotalOnlyOnce() throws Exception {
+        //given
+        doReturn(new Page<>(asList(new OrganizationDistributedResourcesImpl("suborg1", singletonList(createTestResource(300))),
+                                   new OrganizationDistributedResourcesImpl("suborg2", singletonList(createTestResource(200)))),
+                            0, ORGANIZATION_RESOURCES_PER_PAGE, 2))
+                .when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+
+        //when
+        manager.getDistributedTotal(PARENT_ORG_ID);
+        final List<? extends Resource> total = manager.getDistributedTotal(PARENT_ORG_ID);
+
+        //then
+        assertEquals(total, singletonList(createTestResource(500)));
+        verify(distributedResourcesDao).getByParent(PARENT_ORG_ID, ORGANIZATION_RESOURCES_PER_PAGE, 0);
+    }
+
+    @Test
+    public void shouldLoadDistributedTotalPageByPage() throws Exception {
+        //given
+        doReturn(new Page<>(singletonList(new OrganizationDistributedResourcesImpl("suborg1", singletonList(createTestResource(300)))),
+                            0, 1, 2))
+                .doReturn(new Page<>(singletonList(new OrganizationDistributedResourcesImpl("suborg2",
+                                                                                            singletonList(createTestResource(200)))),
+                                     1, 1, 2))
+                .when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+
+        //when
+        final List<? extends Resource> total = manager.getDistributedTotal(PARENT_ORG_ID);
+
+        //then
+        assertEquals(total, singletonList(createTestResource(500)));
+        verify(distributedResourcesDao).getByParent(PARENT_ORG_ID, ORGANIZATION_RESOURCES_PER_PAGE, 0);
+        verify(distributedResourcesDao).getByParent(PARENT_ORG_ID, 1, 1);
+    }
+
+    @Test
+    public void shouldReturnEmptyDistributedTotalWhenOrganizationDoesNotDistributeResources() throws Exception {
+        //given
+        doReturn(new Page<>(emptyList(), 0, ORGANIZATION_RESOURCES_PER_PAGE, 0))
+                .when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+
+        //when
+        final List<? extends Resource> total = manager.getDistributedTotal(PARENT_ORG_ID);
+
+        //then
+        assertTrue(total.isEmpty());
+    }
+
+    @Test(expectedExceptions = ServerException.class, expectedExceptionsMessageRegExp = "error")
+    public void shouldRethrowServerExceptionOnDistributedTotalLoading() throws Exception {
+        //given
+        doThrow(new ServerException("error")).when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+
+        //when
+        manager.getDistributedTotal(PARENT_ORG_ID);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void shouldThrowNpeOnGettingDistributedTotalByNullOrganizationId() throws Exception {
+        //when
+        manager.getDistributedTotal(null);
+    }
+
+    @Test
+    public void shouldUpdateDistributedTotalOnResourcesDistribution() throws Exception {
+        //given
+        doThrow(new NotFoundException("no distributed resources")).when(distributedResourcesDao).get(anyString());
+        doReturn(new Page<>(singletonList(new OrganizationDistributedResourcesImpl("suborg1", singletonList(createTestResource(300)))),
+                            0, ORGANIZATION_RESOURCES_PER_PAGE, 1))
+                .when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+        manager.getDistributedTotal(PARENT_ORG_ID);
+
+        //when
+        manager.distribute(ORG_ID, singletonList(createTestResource(1000)));
+
+        //then
+        assertEquals(manager.getDistributedTotal(PARENT_ORG_ID), singletonList(createTestResource(1300)));
+        verify(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void shouldUpdateDistributedTotalOnResourcesDistributionResetting() throws Exception {
+        //given
+        when(distributedResourcesDao.get(anyString())).thenReturn(createDistributedResources(300));
+        doReturn(new Page<>(asList(createDistributedResources(300),
+                                   new OrganizationDistributedResourcesImpl("suborg1", singletonList(createTestResource(200)))),
+                            0, ORGANIZATION_RESOURCES_PER_PAGE, 2))
+                .when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+        manager.getDistributedTotal(PARENT_ORG_ID);
+
+        //when
+        manager.reset(ORG_ID);
+
+        //then
+        assertEquals(manager.getDistributedTotal(PARENT_ORG_ID), singletonList(createTestResource(200)));
+        verify(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void shouldReloadDistributedTotalAfterSuborganizationRemoval() throws Exception {
+        //given
+        manager.subscribe();
+        verify(eventService).subscribe(subscriberCaptor.capture(), eq(BeforeOrganizationRemovedEvent.class));
+        doReturn(new Page<>(singletonList(createDistributedResources(300)), 0, ORGANIZATION_RESOURCES_PER_PAGE, 1))
+                .doReturn(new Page<>(emptyList(), 0, ORGANIZATION_RESOURCES_PER_PAGE, 0))
+                .when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+        manager.getDistributedTotal(PARENT_ORG_ID);
+
+        //when
+        subscriberCaptor.getValue().onEvent(new BeforeOrganizationRemovedEvent(new OrganizationImpl(ORG_ID,
+                                                                                                    ORG_ID + "name",
+                                                                                                    PARENT_ORG_ID)));
+
+        //then
+        assertTrue(manager.getDistributedTotal(PARENT_ORG_ID).isEmpty());
+        verify(distributedResourcesDao, times(2)).getByParent(PARENT_ORG_ID, ORGANIZATION_RESOURCES_PER_PAGE, 0);
+    }
+
+    @Test
+    public void shouldDropDistributedTotalReloadedDuringSuborganizationRemovalWhenRemovalIsCommitted() throws Exception {
+        //given
+        manager.subscribe();
+        verify(eventService).subscribe(subscriberCaptor.capture(), eq(BeforeOrganizationRemovedEvent.class));
+        verify(eventService).subscribe(removedSubscriberCaptor.capture(), eq(OrganizationRemovedEvent.class));
+        doReturn(new Page<>(singletonList(createDistributedResources(300)), 0, ORGANIZATION_RESOURCES_PER_PAGE, 1))
+                .doReturn(new Page<>(singletonList(createDistributedResources(300)), 0, ORGANIZATION_RESOURCES_PER_PAGE, 1))
+                .doReturn(new Page<>(emptyList(), 0, ORGANIZATION_RESOURCES_PER_PAGE, 0))
+                .when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+        final OrganizationImpl suborganization = new OrganizationImpl(ORG_ID, ORG_ID + "name", PARENT_ORG_ID);
+        manager.getDistributedTotal(PARENT_ORG_ID);
+        subscriberCaptor.getValue().onEvent(new BeforeOrganizationRemovedEvent(suborganization));
+        // reloaded before the removal is committed
+        assertFalse(manager.getDistributedTotal(PARENT_ORG_ID).isEmpty());
+
+        //when
+        removedSubscriberCaptor.getValue().onEvent(new OrganizationRemovedEvent(suborganization));
+
+        //then
+        assertTrue(manager.getDistributedTotal(PARENT_ORG_ID).isEmpty());
+        verify(distributedResourcesDao, times(3)).getByParent(PARENT_ORG_ID, ORGANIZATION_RESOURCES_PER_PAGE, 0);
+    }
+
     @Test
     public void shouldResetDistributedResources() throws Exception {
         //given
@@ -214,7 +391,7 @@ public class OrganizationResourcesDistributorTest {
                                                    distributedResources.getResources(),
                                                    emptyList());
         verify(distributedResourcesDao).remove(ORG_ID);
-        verify(resourcesLocks).acquiresLock(ORG_ID);
+        verify(resourcesLocks).acquireLock(ORG_ID, PARENT_ORG_ID);
         verify(lock).close();
     }
 
@@ -240,7 +417,7 @@ public class OrganizationResourcesDistributorTest {
                                                    emptyList(),
                                                    emptyList());
         verify(distributedResourcesDao).remove(ORG_ID);
-        verify(resourcesLocks).acquiresLock(ORG_ID);
+        verify(resourcesLocks).acquireLock(ORG_ID, PARENT_ORG_ID);
         verify(lock).close();
     }
 
@@ -0,0 +1,124 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.organization.api.resource;
+
+import com.codenvy.organization.api.OrganizationManager;
+import com.codenvy.organization.spi.OrganizationDistributedResourcesDao;
+import com.codenvy.organization.spi.impl.OrganizationDistributedResourcesImpl;
+import com.codenvy.resource.api.RamResourceType;
+import com.codenvy.resource.api.ResourceAggregator;
+import com.codenvy.resource.api.WorkspaceResourceType;
+import com.codenvy.resource.api.usage.ResourceUsageManager;
+import com.codenvy.resource.api.usage.ResourcesLocks;
+import com.codenvy.resource.model.Resource;
+import com.codenvy.resource.spi.impl.ResourceImpl;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.che.api.core.Page;
+import org.eclipse.che.api.core.notification.EventService;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.codenvy.organization.api.resource.OrganizationResourcesDistributor.ORGANIZATION_RESOURCES_PER_PAGE;
+import static java.util.Arrays.asList;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests lookup of resources reserved by an organization with 1000 suborganizations
+ * through the rollup of {@link OrganizationResourcesDistributor}.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class OrganizationResourcesRollupTest {
+
+    private static final String PARENT_ORG_ID    = "parentOrg";
+    private static final int    SUBORGANIZATIONS = 1000;
+    private static final int    LOOKUPS          = 10;
+
+    @Mock
+    private OrganizationDistributedResourcesDao distributedResourcesDao;
+    @Mock
+    private ResourcesLocks                      resourcesLocks;
+    @Mock
+    private ResourceUsageManager                usageManager;
+    @Mock
+    private OrganizationManager                 organizationManager;
+    @Mock
+    private EventService                        eventService;
+
+    private ResourceAggregator                  resourceAggregator;
+    private OrganizationResourcesReserveTracker reserveTracker;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        final List<OrganizationDistributedResourcesImpl> distributedResources = new ArrayList<>(SUBORGANIZATIONS);
+        for (int i = 0; i < SUBORGANIZATIONS; i++) {
+            distributedResources.add(new OrganizationDistributedResourcesImpl("suborg" + i,
+                                                                              asList(new ResourceImpl(RamResourceType.ID,
+                                                                                                      1024,
+                                                                                                      RamResourceType.UNIT),
+                                                                                     new ResourceImpl(WorkspaceResourceType.ID,
+                                                                                                      2,
+                                                                                                      WorkspaceResourceType.UNIT))));
+        }
+        doAnswer(invocation -> {
+            final int maxItems = (int)invocation.getArguments()[1];
+            final int skipCount = (int)(long)invocation.getArguments()[2];
+            return new Page<>(distributedResources.subList(skipCount, Math.min(skipCount + maxItems, distributedResources.size())),
+                              skipCount,
+                              maxItems,
+                              distributedResources.size());
+        }).when(distributedResourcesDao).getByParent(anyString(), anyInt(), anyLong());
+
+        resourceAggregator = new ResourceAggregator(ImmutableSet.of(new RamResourceType(), new WorkspaceResourceType()));
+        final OrganizationResourcesDistributor distributor = new OrganizationResourcesDistributor(distributedResourcesDao,
+                                                                                                  resourcesLocks,
+                                                                                                  usageManager,
+                                                                                                  resourceAggregator,
+                                                                                                  organizationManager,
+                                                                                                  eventService);
+        reserveTracker = new OrganizationResourcesReserveTracker(() -> distributor);
+    }
+
+    @Test
+    public void shouldLookupReservedResourcesOfOrganizationWith1000SuborganizationsFromRollup() throws Exception {
+        List<? extends Resource> reserved = null;
+        for (int i = 0; i < LOOKUPS; i++) {
+            reserved = reserveTracker.getReservedResources(PARENT_ORG_ID);
+        }
+
+        assertEquals(new HashSet<>(reserved), ImmutableSet.of(new ResourceImpl(RamResourceType.ID,
+                                                                               1024 * SUBORGANIZATIONS,
+                                                                               RamResourceType.UNIT),
+                                                              new ResourceImpl(WorkspaceResourceType.ID,
+                                                                               2 * SUBORGANIZATIONS,
+                                                                               WorkspaceResourceType.UNIT)));
+        // distributed resources are paged through only once, while the rollup is loaded
+        verify(distributedResourcesDao, times(SUBORGANIZATIONS / ORGANIZATION_RESOURCES_PER_PAGE))
+                .getByParent(anyString(), anyInt(), anyLong());
+    }
+}
@@ -14,16 +14,11 @@
  */
 package com.codenvy.organization.api.resource;
 
-import com.codenvy.organization.api.OrganizationManager;
-import com.codenvy.organization.shared.model.Organization;
 import com.codenvy.organization.spi.impl.OrganizationDistributedResourcesImpl;
-import com.codenvy.organization.spi.impl.OrganizationImpl;
 import com.codenvy.resource.model.ProvidedResources;
 import com.codenvy.resource.spi.impl.ProvidedResourcesImpl;
 import com.codenvy.resource.spi.impl.ResourceImpl;
 
-import org.eclipse.che.account.api.AccountManager;
-import org.eclipse.che.account.shared.model.Account;
 import org.eclipse.che.api.core.NotFoundException;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -49,15 +44,6 @@ import static org.testng.Assert.assertTrue;
  */
 @Listeners(MockitoTestNGListener.class)
 public class SuborganizationResourcesProviderTest {
-    @Mock
-    private Account      account;
-    @Mock
-    private Organization organization;
-
-    @Mock
-    private AccountManager                             accountManager;
-    @Mock
-    private OrganizationManager                        organizationManager;
     @Mock
     private OrganizationResourcesDistributor           resourcesDistributor;
     @Mock
@@ -68,45 +54,12 @@ public class SuborganizationResourcesProviderTest {
 
     @BeforeMethod
     public void setUp() throws Exception {
-        when(accountManager.getById(any())).thenReturn(account);
-        when(organizationManager.getById(any())).thenReturn(organization);
-
         when(distributorProvider.get()).thenReturn(resourcesDistributor);
     }
 
-    @Test
-    public void shouldNotProvideResourcesForNonOrganizationalAccounts() throws Exception {
-        //given
-        when(account.getType()).thenReturn("test");
-
-        //when
-        final List<ProvidedResources> providedResources = suborganizationResourcesProvider.getResources("account123");
-
-        //then
-        assertTrue(providedResources.isEmpty());
-        verify(accountManager).getById("account123");
-    }
-
-    @Test
-    public void shouldNotProvideResourcesForRootOrganizationalAccount() throws Exception {
-        //given
-        when(account.getType()).thenReturn(OrganizationImpl.ORGANIZATIONAL_ACCOUNT);
-        when(organization.getParent()).thenReturn(null);
-
-        //when
-        final List<ProvidedResources> providedResources = suborganizationResourcesProvider.getResources("organization123");
-
-        //then
-        assertTrue(providedResources.isEmpty());
-        verify(accountManager).getById("organization123");
-        verify(organizationManager).getById("organization123");
-    }
-
     @Test
     public void shouldProvideResourcesForOrganizationalAccount() throws Exception {
         //given
-        when(account.getType()).thenReturn(OrganizationImpl.ORGANIZATIONAL_ACCOUNT);
-        when(organization.getParent()).thenReturn("parentOrg");
         final ResourceImpl resourceToProvide = new ResourceImpl("test",
                                                                 1234,
                                                                 "unit");
@@ -126,25 +79,19 @@ public class SuborganizationResourcesProviderTest {
                                                                          -1L,
                                                                          -1L,
                                                                          singletonList(resourceToProvide)));
-        verify(accountManager).getById("organization123");
-        verify(organizationManager).getById("organization123");
         verify(resourcesDistributor).get("organization123");
     }
 
     @Test
-    public void shouldNotProvideResourcesForOrganizationalAccountIfItDoesNotHaveDistributedResources() throws Exception {
+    public void shouldNotProvideResourcesForAccountIfItDoesNotHaveDistributedResources() throws Exception {
         //given
-        when(account.getType()).thenReturn(OrganizationImpl.ORGANIZATIONAL_ACCOUNT);
-        when(organization.getParent()).thenReturn("parentOrg");
         when(resourcesDistributor.get(any())).thenThrow(new NotFoundException(""));
 
         //when
-        final List<ProvidedResources> providedResources = suborganizationResourcesProvider.getResources("organization123");
+        final List<ProvidedResources> providedResources = suborganizationResourcesProvider.getResources("account123");
 
         //then
         assertTrue(providedResources.isEmpty());
-        verify(accountManager).getById("organization123");
-        verify(organizationManager).getById("organization123");
-        verify(resourcesDistributor).get("organization123");
+        verify(resourcesDistributor).get("account123");
     }
 }
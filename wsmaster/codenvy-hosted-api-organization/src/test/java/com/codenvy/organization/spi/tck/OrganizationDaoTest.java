@@ -15,6 +15,7 @@
 package com.codenvy.organization.spi.tck;
 
 import com.codenvy.organization.api.event.BeforeOrganizationRemovedEvent;
+import com.codenvy.organization.api.event.OrganizationRemovedEvent;
 import com.codenvy.organization.api.event.PostOrganizationPersistedEvent;
 import com.codenvy.organization.spi.OrganizationDao;
 import com.codenvy.organization.spi.impl.OrganizationImpl;
@@ -24,6 +25,7 @@ import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.Page;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.commons.lang.NameGenerator;
 import org.eclipse.che.commons.test.tck.TckListener;
 import org.eclipse.che.commons.test.tck.repository.TckRepository;
@@ -36,9 +38,12 @@ import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doThrow;
@@ -207,6 +212,30 @@ public class OrganizationDaoTest {
         eventService.unsubscribe(subscriber, BeforeOrganizationRemovedEvent.class);
     }
 
+    @Test(dependsOnMethods = "shouldRemoveOrganization")
+    public void shouldPublishOrganizationRemovedEventAfterOrganizationIsRemoved() throws Exception {
+        final OrganizationImpl organization = organizations[0];
+        final List<OrganizationImpl> removed = new ArrayList<>();
+        final EventSubscriber<OrganizationRemovedEvent> subscriber = event -> {
+            // the organization must be already removed when the event is published
+            try {
+                organizationDao.getById(event.getOrganization().getId());
+            } catch (NotFoundException x) {
+                removed.add(event.getOrganization());
+            } catch (ServerException ignored) {
+            }
+        };
+        eventService.subscribe(subscriber, OrganizationRemovedEvent.class);
+
+        try {
+            organizationDao.remove(organization.getId());
+        } finally {
+            eventService.unsubscribe(subscriber, OrganizationRemovedEvent.class);
+        }
+
+        assertEquals(removed, singletonList(organization));
+    }
+
     @Test
     public void shouldNotThrowAnyExceptionOnRemovingNonExistingOrganization() throws Exception {
         organizationDao.remove("non-existing-org");
@@ -0,0 +1,56 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.permission.shared.dto;
+
+import org.eclipse.che.dto.shared.DTO;
+
+import java.util.List;
+
+/**
+ * Describes changes of permissions which are recorded after some revision.
+ */
+@DTO
+public interface PermissionsChangesDto {
+    /** Returns identifier of the journal which the revision belongs to. */
+    String getJournalId();
+
+    void setJournalId(String journalId);
+
+    PermissionsChangesDto withJournalId(String journalId);
+
+    /** Returns the latest revision of the journal. */
+    long getRevision();
+
+    void setRevision(long revision);
+
+    PermissionsChangesDto withRevision(long revision);
+
+    /** Returns true when all the known permissions must be discarded. */
+    boolean isReset();
+
+    void setReset(boolean reset);
+
+    PermissionsChangesDto withReset(boolean reset);
+
+    /**
+     * Returns the changed permissions, only domain and instance
+     * are specified for each of them, users and actions are omitted.
+     */
+    List<PermissionsDto> getChanges();
+
+    void setChanges(List<PermissionsDto> changes);
+
+    PermissionsChangesDto withChanges(List<PermissionsDto> changes);
+}
@@ -0,0 +1,141 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.permission.server;
+
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps the latest changes of permissions, so clients which cache permissions,
+ * e.g. {@code HttpPermissionCheckerImpl}, can evict only changed entries instead of
+ * expiring the whole cache.
+ *
+ * <p>Each change is identified by the revision of the journal. Journal keeps
+ * limited number of changes in memory, clients which request changes that were already
+ * discarded or changes of another journal (e.g. before restart of the server)
+ * are asked to reset their caches.
+ */
+@Singleton
+public class PermissionsChangesJournal {
+
+    private static final int MAX_CHANGES = 10_000;
+
+    private final String                     id;
+    private final ArrayDeque<InstanceChange> changes;
+    private       long                       revision;
+
+    public PermissionsChangesJournal() {
+        this.id = UUID.randomUUID().toString();
+        this.changes = new ArrayDeque<>();
+    }
+
+    /** Returns identifier of this journal, it is different for each server run. */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Records change of permissions related to the instance of the domain.
+     *
+     * @param domainId
+     *         domain of changed permissions
+     * @param instanceId
+     *         instance of changed permissions, may be {@code null} for domains which don't require instance
+     */
+    public synchronized void record(String domainId, String instanceId) {
+        changes.addLast(new InstanceChange(++revision, domainId, instanceId));
+        if (changes.size() > MAX_CHANGES) {
+            changes.removeFirst();
+        }
+    }
+
+    /**
+     * Returns changes recorded after the given revision.
+     *
+     * @param journalId
+     *         identifier of the journal which the revision belongs to, may be {@code null}
+     * @param sinceRevision
+     *         the latest revision known by client
+     * @return changes recorded after the given revision, the result requires reset
+     * when the given revision belongs to another journal or changes after it were already discarded
+     */
+    public synchronized Changes getChanges(String journalId, long sinceRevision) {
+        if (!id.equals(journalId)
+            || sinceRevision > revision
+            || (!changes.isEmpty() && changes.getFirst().revision > sinceRevision + 1)) {
+            return new Changes(revision, true, new ArrayList<>());
+        }
+        final List<InstanceChange> result = new ArrayList<>();
+        final Iterator<InstanceChange> it = changes.descendingIterator();
+        InstanceChange change;
+        while (it.hasNext() && (change = it.next()).revision > sinceRevision) {
+            result.add(change);
+        }
+        return new Changes(revision, false, result);
+    }
+
+    /** Changes of permissions which are recorded after some revision. */
+    public static class Changes {
+        private final long                 revision;
+        private final boolean              reset;
+        private final List<InstanceChange> instanceChanges;
+
+        private Changes(long revision, boolean reset, List<InstanceChange> instanceChanges) {
+            this.revision = revision;
+            this.reset = reset;
+            this.instanceChanges = instanceChanges;
+        }
+
+        /** Returns the latest revision of the journal. */
+        public long getRevision() {
+            return revision;
+        }
+
+        /** Returns true when client must discard all the permissions it knows. */
+        public boolean isReset() {
+            return reset;
+        }
+
+        /** Returns changed instances, the list is empty when reset is required. */
+        public List<InstanceChange> getInstanceChanges() {
+            return instanceChanges;
+        }
+    }
+
+    /** Identifies the instance of the domain permissions of which were changed. */
+    public static class InstanceChange {
+        private final long   revision;
+        private final String domainId;
+        private final String instanceId;
+
+        private InstanceChange(long revision, String domainId, String instanceId) {
+            this.revision = revision;
+            this.domainId = domainId;
+            this.instanceId = instanceId;
+        }
+
+        public String getDomainId() {
+            return domainId;
+        }
+
+        public String getInstanceId() {
+            return instanceId;
+        }
+    }
+}
@@ -239,28 +239,7 @@ public class PermissionsManager {
                                               String instanceId) throws ServerException,
                                                                         ConflictException,
                                                                         NotFoundException {
-        if (!permissionsStorage.exists(userId, instanceId, SET_PERMISSIONS)) {
-            return false;
-        }
-
-        Page<? extends AbstractPermissions> page = permissionsStorage.getByInstance(instanceId, 30, 0);
-        boolean hasForeignSetPermission;
-        while (!(hasForeignSetPermission = hasForeignSetPermission(page.getItems(), userId))
-               && page.hasNextPage()) {
-
-            final Page.PageRef nextPageRef = page.getNextPageRef();
-            page = permissionsStorage.getByInstance(instanceId, nextPageRef.getPageSize(), (int)nextPageRef.getItemsBefore());
-        }
-        return !hasForeignSetPermission;
-    }
-
-    private boolean hasForeignSetPermission(List<? extends AbstractPermissions> permissions, String userId) {
-        for (AbstractPermissions permission : permissions) {
-            if (!permission.getUserId().equals(userId)
-                && permission.getActions().contains(SET_PERMISSIONS)) {
-                return true;
-            }
-        }
-        return false;
+        return permissionsStorage.exists(userId, instanceId, SET_PERMISSIONS)
+               && !permissionsStorage.existsForOtherUsers(userId, instanceId, SET_PERMISSIONS);
     }
 }
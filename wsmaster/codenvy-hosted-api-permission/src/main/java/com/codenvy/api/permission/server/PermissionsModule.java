@@ -14,6 +14,7 @@
  */
 package com.codenvy.api.permission.server;
 
+import com.codenvy.api.permission.server.filter.GetPermissionsChangesFilter;
 import com.codenvy.api.permission.server.filter.GetPermissionsFilter;
 import com.codenvy.api.permission.server.filter.RemovePermissionsFilter;
 import com.codenvy.api.permission.server.filter.SetPermissionsFilter;
@@ -31,6 +32,7 @@ public class PermissionsModule extends AbstractModule {
         bind(SetPermissionsFilter.class);
         bind(RemovePermissionsFilter.class);
         bind(GetPermissionsFilter.class);
+        bind(GetPermissionsChangesFilter.class);
 
         //Creates empty multibinder to avoid error during container starting
         Multibinder.newSetBinder(binder(),
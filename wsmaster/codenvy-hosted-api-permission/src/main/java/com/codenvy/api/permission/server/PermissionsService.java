@@ -22,6 +22,7 @@ import io.swagger.annotations.ApiResponses;
 
 import com.codenvy.api.permission.server.model.impl.AbstractPermissions;
 import com.codenvy.api.permission.shared.dto.DomainDto;
+import com.codenvy.api.permission.shared.dto.PermissionsChangesDto;
 import com.codenvy.api.permission.shared.dto.PermissionsDto;
 import com.codenvy.api.permission.shared.model.Permissions;
 import com.codenvy.api.permission.shared.model.PermissionsDomain;
@@ -47,10 +48,12 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
@@ -64,11 +67,15 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 public class PermissionsService extends Service {
     private final PermissionsManager         permissionsManager;
     private final InstanceParameterValidator instanceValidator;
+    private final PermissionsChangesJournal  changesJournal;
 
     @Inject
-    public PermissionsService(PermissionsManager permissionsManager, InstanceParameterValidator instanceValidator) {
+    public PermissionsService(PermissionsManager permissionsManager,
+                              InstanceParameterValidator instanceValidator,
+                              PermissionsChangesJournal changesJournal) {
         this.permissionsManager = permissionsManager;
         this.instanceValidator = instanceValidator;
+        this.changesJournal = changesJournal;
     }
 
     @GET
@@ -136,6 +143,61 @@ public class PermissionsService extends Service {
         return toDto(permissionsManager.get(EnvironmentContext.getCurrent().getSubject().getUserId(), domain, instance));
     }
 
+    @GET
+    @Path("/{domain}/current")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get permissions of current user and permissions of any user('*') " +
+                          "which are related to specified domain and instance",
+                  response = PermissionsDto.class,
+                  responseContainer = "List")
+    @ApiResponses({@ApiResponse(code = 200, message = "The permissions successfully fetched"),
+                   @ApiResponse(code = 400, message = "Missed required parameters, parameters are not valid"),
+                   @ApiResponse(code = 404, message = "Specified domain is unsupported"),
+                   @ApiResponse(code = 409, message = "Given domain requires non nullable value for instance but it is null"),
+                   @ApiResponse(code = 500, message = "Internal server error occurred during permissions fetching")})
+    public List<PermissionsDto> getCurrentUsersEffectivePermissions(@ApiParam(value = "Domain id to retrieve user's permissions")
+                                                                    @PathParam("domain") String domain,
+                                                                    @ApiParam(value = "Instance id to retrieve user's permissions")
+                                                                    @QueryParam("instance") String instance)
+            throws BadRequestException, NotFoundException, ConflictException, ServerException {
+        instanceValidator.validate(domain, instance);
+        final List<PermissionsDto> result = new ArrayList<>(2);
+        for (String userId : asList(EnvironmentContext.getCurrent().getSubject().getUserId(), "*")) {
+            try {
+                result.add(toDto(permissionsManager.get(userId, domain, instance)));
+            } catch (NotFoundException ignored) {
+                // there are no permissions of such user
+            }
+        }
+        return result;
+    }
+
+    @GET
+    @Path("/changes")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get domains and instances permissions of which were changed after specified revision",
+                  response = PermissionsChangesDto.class)
+    @ApiResponses({@ApiResponse(code = 200, message = "The changes successfully fetched"),
+                   @ApiResponse(code = 400, message = "Missed required parameters, parameters are not valid")})
+    public PermissionsChangesDto getChanges(@ApiParam(value = "Id of the journal which specified revision belongs to")
+                                            @QueryParam("journal") String journalId,
+                                            @ApiParam(value = "The latest known revision")
+                                            @QueryParam("since") @DefaultValue("0") long sinceRevision) throws BadRequestException {
+        checkArgument(sinceRevision >= 0, "The revision can't be negative.");
+
+        final PermissionsChangesJournal.Changes changes = changesJournal.getChanges(journalId, sinceRevision);
+        return DtoFactory.newDto(PermissionsChangesDto.class)
+                         .withJournalId(changesJournal.getId())
+                         .withRevision(changes.getRevision())
+                         .withReset(changes.isReset())
+                         .withChanges(changes.getInstanceChanges()
+                                             .stream()
+                                             .map(change -> DtoFactory.newDto(PermissionsDto.class)
+                                                                      .withDomainId(change.getDomainId())
+                                                                      .withInstanceId(change.getInstanceId()))
+                                             .collect(Collectors.toList()));
+    }
+
     @GET
     @Path("/{domain}/all")
     @Produces(APPLICATION_JSON)
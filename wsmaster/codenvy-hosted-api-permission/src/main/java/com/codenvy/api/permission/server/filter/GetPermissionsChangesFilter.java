@@ -0,0 +1,48 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.permission.server.filter;
+
+import com.codenvy.api.permission.server.SystemDomain;
+
+import org.eclipse.che.api.core.ForbiddenException;
+import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.subject.Subject;
+import org.eclipse.che.everrest.CheMethodInvokerFilter;
+import org.everrest.core.Filter;
+import org.everrest.core.resource.GenericResourceMethod;
+
+import javax.ws.rs.Path;
+
+/**
+ * Restricts access to the permissions changes journal.
+ *
+ * <p>The journal exposes ids of all the instances permissions of which were changed,
+ * so it is available only for system managers. Other clients rely on expiration
+ * of their cached permissions.
+ */
+@Filter
+@Path("/permissions/changes")
+public class GetPermissionsChangesFilter extends CheMethodInvokerFilter {
+    @Override
+    public void filter(GenericResourceMethod genericResourceMethod, Object[] arguments) throws ForbiddenException {
+        final String methodName = genericResourceMethod.getMethod().getName();
+        if (methodName.equals("getChanges")) {
+            final Subject subject = EnvironmentContext.getCurrent().getSubject();
+            if (!subject.hasPermission(SystemDomain.DOMAIN_ID, null, SystemDomain.MANAGE_SYSTEM_ACTION)) {
+                throw new ForbiddenException("User is not authorized to perform this operation");
+            }
+        }
+    }
+}
@@ -15,9 +15,13 @@
 package com.codenvy.api.permission.server.jpa;
 
 import com.codenvy.api.permission.server.AbstractPermissionsDomain;
+import com.codenvy.api.permission.server.PermissionsChangesJournal;
 import com.codenvy.api.permission.server.model.impl.AbstractPermissions;
 import com.codenvy.api.permission.server.spi.PermissionsDao;
 import com.codenvy.api.permission.shared.model.Permissions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.persist.Transactional;
 
 import org.eclipse.che.api.core.NotFoundException;
@@ -25,26 +29,65 @@ import org.eclipse.che.api.core.Page;
 import org.eclipse.che.api.core.ServerException;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
+import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * Basic JPA DAO implementation for {@link Permissions} objects.
  *
+ * <p>Answers of {@link #exists(String, String, String)} are served from a near-cache
+ * which keeps actions of each (user, instance) pair as a bitset of domain actions.
+ * Cached entries are invalidated by {@link #store(AbstractPermissions)} and {@link #remove(String, String)}
+ * and once again after the modifying transaction is completed,
+ * subclasses which override write methods must call {@link #invalidate(String, String)}.
+ * Size and expiration time of the cache are configured with {@code permissions.actions_cache.size}
+ * and {@code permissions.actions_cache.expire_time_s} properties,
+ * 10000 entries and 60 seconds are used when properties are not set.
+ *
  * @author Max Shaposhnik
  */
 public abstract class AbstractJpaPermissionsDao<T extends AbstractPermissions> implements PermissionsDao<T> {
 
+    private static final long DEFAULT_ACTIONS_CACHE_SIZE          = 10_000;
+    private static final long DEFAULT_ACTIONS_CACHE_EXPIRE_TIME_S = 60;
+
     private final AbstractPermissionsDomain<T> supportedDomain;
+    private final Map<String, Integer>         actionIndexes;
+
+    private volatile Cache<ActionsKey, ActionsEntry> actionsCache;
 
     @Inject
     protected Provider<EntityManager> managerProvider;
 
+    @Inject
+    protected PermissionsChangesJournal changesJournal;
+
     public AbstractJpaPermissionsDao(AbstractPermissionsDomain<T> supportedDomain) {
         this.supportedDomain = supportedDomain;
+        final ImmutableMap.Builder<String, Integer> indexesBuilder = ImmutableMap.builder();
+        final List<String> allowedActions = supportedDomain.getAllowedActions();
+        for (int i = 0; i < allowedActions.size(); i++) {
+            indexesBuilder.put(allowedActions.get(i), i);
+        }
+        this.actionIndexes = indexesBuilder.build();
+        this.actionsCache = newActionsCache(DEFAULT_ACTIONS_CACHE_SIZE, DEFAULT_ACTIONS_CACHE_EXPIRE_TIME_S);
+    }
+
+    /** Overrides default size and expiration time of the actions cache when they are configured. */
+    @com.google.inject.Inject(optional = true)
+    protected void configureActionsCache(@Named("permissions.actions_cache.size") long cacheSize,
+                                         @Named("permissions.actions_cache.expire_time_s") long expireTimeS) {
+        this.actionsCache = newActionsCache(cacheSize, expireTimeS);
     }
 
     @Override
@@ -59,21 +102,36 @@ public abstract class AbstractJpaPermissionsDao<T extends AbstractPermissions> i
             doCreate(permissions);
         } catch (RuntimeException e) {
             throw new ServerException(e.getMessage(), e);
+        } finally {
+            invalidate(permissions.getUserId(), permissions.getInstanceId());
         }
     }
 
     @Override
-    @Transactional
     public boolean exists(String userId, String instanceId, String action) throws ServerException {
         requireNonNull(userId, "User identifier required");
         requireNonNull(action, "Action name required");
-        T permissions;
-        try {
-            permissions = get(userId, instanceId);
-        } catch (NotFoundException e) {
-            return false;
+        final Integer actionIndex = actionIndexes.get(action);
+        if (actionIndex == null) {
+            return loadActions(userId, instanceId).contains(action);
+        }
+        final ActionsEntry entry = actionsCache.asMap().computeIfAbsent(new ActionsKey(userId, instanceId),
+                                                                        key -> new ActionsEntry());
+        final long version;
+        synchronized (entry) {
+            if (entry.actions != null) {
+                return entry.actions.get(actionIndex);
+            }
+            version = entry.version;
+        }
+        final BitSet actions = toBitSet(loadActions(userId, instanceId));
+        synchronized (entry) {
+            // permissions may be changed while they are loaded, such value must not be cached
+            if (version == entry.version) {
+                entry.actions = actions;
+            }
         }
-        return permissions.getActions().contains(action);
+        return actions.get(actionIndex);
     }
 
     @Override
@@ -84,6 +142,8 @@ public abstract class AbstractJpaPermissionsDao<T extends AbstractPermissions> i
             doRemove(userId, instanceId);
         } catch (RuntimeException x) {
             throw new ServerException(x.getLocalizedMessage(), x);
+        } finally {
+            invalidate(userId, instanceId);
         }
     }
 
@@ -103,6 +163,60 @@ public abstract class AbstractJpaPermissionsDao<T extends AbstractPermissions> i
      */
     protected abstract T getEntity(String userId, String instanceId) throws NotFoundException;
 
+    /**
+     * Evicts cached actions of the given user in the given instance
+     * and records the change to the {@link PermissionsChangesJournal}
+     * when the current transaction is completed.
+     * Must be called after each modification of permissions which
+     * is not performed by {@link #store(AbstractPermissions)} or {@link #remove(String, String)}.
+     */
+    protected void invalidate(String userId, String instanceId) {
+        final ActionsKey key = new ActionsKey(userId, instanceId);
+        evict(key);
+        // actions loaded before the modification is committed are outdated as well,
+        // clients must not reload permissions before the change is visible to them
+        runAfterCompletion(() -> {
+            evict(key);
+            changesJournal.record(supportedDomain.getId(), instanceId);
+        });
+    }
+
+    /**
+     * Performs the given action after the current transaction is completed
+     * or immediately when there is no active transaction.
+     */
+    protected void runAfterCompletion(Runnable action) {
+        TransactionCompletionListener.runAfterCompletion(managerProvider.get(), action);
+    }
+
+    /** Returns actions of the given user in the given instance or empty list when there are no such permissions. */
+    @Transactional
+    protected List<String> loadActions(String userId, String instanceId) throws ServerException {
+        try {
+            return new ArrayList<>(get(userId, instanceId).getActions());
+        } catch (NotFoundException e) {
+            return emptyList();
+        }
+    }
+
+    private void evict(ActionsKey key) {
+        final ActionsEntry entry = actionsCache.asMap().remove(key);
+        if (entry != null) {
+            entry.invalidate();
+        }
+    }
+
+    private BitSet toBitSet(List<String> actions) {
+        final BitSet result = new BitSet(actionIndexes.size());
+        for (String action : actions) {
+            final Integer index = actionIndexes.get(action);
+            if (index != null) {
+                result.set(index);
+            }
+        }
+        return result;
+    }
+
     @Transactional
     protected void doCreate(T permissions) throws ServerException {
         EntityManager manager = managerProvider.get();
@@ -133,4 +247,54 @@ public abstract class AbstractJpaPermissionsDao<T extends AbstractPermissions> i
     public static String wildcardToNull(String userId) {
         return !"*".equals(userId) ? userId : null;
     }
+
+    private static Cache<ActionsKey, ActionsEntry> newActionsCache(long cacheSize, long expireTimeS) {
+        return CacheBuilder.newBuilder()
+                           .maximumSize(cacheSize)
+                           .expireAfterWrite(expireTimeS, SECONDS)
+                           .build();
+    }
+
+    /**
+     * Holds actions of a (user, instance) pair, the version is increased on each invalidation
+     * so the actions which are loaded concurrently with a modification are not cached.
+     */
+    private static final class ActionsEntry {
+        private long   version;
+        private BitSet actions;
+
+        private synchronized void invalidate() {
+            version++;
+            actions = null;
+        }
+    }
+
+    /** Identifies cached actions, '*' user wildcard and {@code null} user are treated as the same user. */
+    private static final class ActionsKey {
+        private final String userId;
+        private final String instanceId;
+
+        private ActionsKey(String userId, String instanceId) {
+            this.userId = wildcardToNull(userId);
+            this.instanceId = instanceId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ActionsKey)) {
+                return false;
+            }
+            final ActionsKey that = (ActionsKey)obj;
+            return Objects.equals(userId, that.userId)
+                   && Objects.equals(instanceId, that.instanceId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, instanceId);
+        }
+    }
 }
@@ -85,6 +85,23 @@ public class JpaSystemPermissionsDao extends AbstractJpaPermissionsDao<SystemPer
         }
     }
 
+    @Override
+    @Transactional
+    public boolean existsForOtherUsers(String userId, String instanceId, String action) throws ServerException {
+        requireNonNull(userId, "User identifier required");
+        requireNonNull(action, "Action name required");
+        // instanceId is ignored because system domain doesn't require it
+        try {
+            return managerProvider.get()
+                                  .createNamedQuery("SystemPermissions.getCountOfOtherUsersWithAction", Long.class)
+                                  .setParameter("action", action)
+                                  .setParameter("userId", userId)
+                                  .getSingleResult() > 0;
+        } catch (RuntimeException e) {
+            throw new ServerException(e.getLocalizedMessage(), e);
+        }
+    }
+
     @Override
     public List<SystemPermissionsImpl> getByUser(String userId) throws ServerException {
         requireNonNull(userId, "User identifier required");
@@ -121,6 +138,8 @@ public class JpaSystemPermissionsDao extends AbstractJpaPermissionsDao<SystemPer
             doRemove(userId, instanceId);
         } catch (RuntimeException x) {
             throw new ServerException(x.getLocalizedMessage(), x);
+        } finally {
+            invalidate(userId, instanceId);
         }
     }
 
@@ -0,0 +1,81 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.permission.server.jpa;
+
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs actions registered by {@link #runAfterCompletion(EntityManager, Runnable)}
+ * when the transaction of the current thread is committed or rolled back.
+ *
+ * <p>Listener must be registered with the {@code eclipselink.session-event-listener}
+ * persistence unit property, until it is registered actions are performed immediately.
+ */
+public class TransactionCompletionListener extends SessionEventAdapter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionCompletionListener.class);
+
+    private static final ThreadLocal<List<Runnable>> PENDING_ACTIONS = ThreadLocal.withInitial(ArrayList::new);
+
+    private static volatile boolean registered;
+
+    public TransactionCompletionListener() {
+        registered = true;
+    }
+
+    /**
+     * Performs the given action after the transaction of the given manager is completed,
+     * or immediately when there is no active transaction.
+     */
+    public static void runAfterCompletion(EntityManager manager, Runnable action) {
+        if (registered && manager.getTransaction().isActive()) {
+            PENDING_ACTIONS.get().add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    @Override
+    public void postCommitTransaction(SessionEvent event) {
+        runPendingActions();
+    }
+
+    @Override
+    public void postRollbackTransaction(SessionEvent event) {
+        runPendingActions();
+    }
+
+    private static void runPendingActions() {
+        final List<Runnable> actions = PENDING_ACTIONS.get();
+        if (actions.isEmpty()) {
+            return;
+        }
+        PENDING_ACTIONS.remove();
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException x) {
+                LOG.error(x.getLocalizedMessage(), x);
+            }
+        }
+    }
+}
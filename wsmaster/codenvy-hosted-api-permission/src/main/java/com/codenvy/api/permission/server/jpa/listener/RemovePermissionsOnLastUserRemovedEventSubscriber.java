@@ -17,8 +17,6 @@ package com.codenvy.api.permission.server.jpa.listener;
 import com.codenvy.api.permission.server.model.impl.AbstractPermissions;
 import com.codenvy.api.permission.server.spi.PermissionsDao;
 
-import org.eclipse.che.api.core.NotFoundException;
-import org.eclipse.che.api.core.Page;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.user.server.event.BeforeUserRemovedEvent;
@@ -28,7 +26,6 @@ import org.eclipse.che.core.db.cascade.CascadeEventSubscriber;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
-import java.util.List;
 
 import static com.codenvy.api.permission.server.AbstractPermissionsDomain.SET_PERMISSIONS;
 
@@ -74,31 +71,8 @@ public abstract class RemovePermissionsOnLastUserRemovedEventSubscriber<T extend
         }
     }
 
-    private boolean userHasLastSetPermissions(String userId,
-                                              String instanceId) throws ServerException {
-        try {
-            Page<? extends AbstractPermissions> page = storage.getByInstance(instanceId, 30, 0);
-            boolean hasSetPermission;
-            while (!(hasSetPermission = hasForeignSetPermission(page.getItems(), userId))
-                   && page.hasNextPage()) {
-
-                final Page.PageRef nextPageRef = page.getNextPageRef();
-                page = storage.getByInstance(instanceId, nextPageRef.getPageSize(), (int)nextPageRef.getItemsBefore());
-            }
-            return !hasSetPermission;
-        } catch (NotFoundException e) {
-            return true;
-        }
-    }
-
-    private boolean hasForeignSetPermission(List<? extends AbstractPermissions> permissions, String userId) {
-        for (AbstractPermissions permission : permissions) {
-            if (!permission.getUserId().equals(userId)
-                && permission.getActions().contains(SET_PERMISSIONS)) {
-                return true;
-            }
-        }
-        return false;
+    private boolean userHasLastSetPermissions(String userId, String instanceId) throws ServerException {
+        return !storage.existsForOtherUsers(userId, instanceId, SET_PERMISSIONS);
     }
 
     public abstract void remove(String instanceId) throws ServerException;
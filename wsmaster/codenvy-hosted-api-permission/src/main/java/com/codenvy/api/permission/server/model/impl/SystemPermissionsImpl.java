@@ -42,7 +42,12 @@ import java.util.List;
                                     "FROM SystemPermissions permissions "),
                 @NamedQuery(name = "SystemPermissions.getTotalCount",
                             query = "SELECT COUNT(permissions) " +
-                                    "FROM SystemPermissions permissions ")
+                                    "FROM SystemPermissions permissions "),
+                @NamedQuery(name = "SystemPermissions.getCountOfOtherUsersWithAction",
+                            query = "SELECT COUNT(permissions) " +
+                                    "FROM SystemPermissions permissions, IN(permissions.actions) permittedAction " +
+                                    "WHERE permittedAction = :action " +
+                                    "AND COALESCE(permissions.userId, '*') <> :userId ")
         }
 )
 @Table(name = "systempermissions")
@@ -107,6 +107,24 @@ public interface PermissionsDao<T extends AbstractPermissions> {
      */
     boolean exists(String userId, String instanceId, String action) throws ServerException;
 
+    /**
+     * Checks whether any user other than the given one has permission
+     * to perform the action on the instance.
+     * Note that permissions of any user('*') are considered as permissions of another user
+     * unless the given user identifier is '*'.
+     *
+     * @param userId
+     *         user id which permissions should not be taken into account
+     * @param instanceId
+     *         instance id
+     * @param action
+     *         action name
+     * @return true if any user other than the given one has the permission
+     * @throws ServerException
+     *         when any other error occurs during permission existence checking
+     */
+    boolean existsForOtherUsers(String userId, String instanceId, String action) throws ServerException;
+
     /**
      * Removes permissions of user related to the particular instance of specified domain
      *
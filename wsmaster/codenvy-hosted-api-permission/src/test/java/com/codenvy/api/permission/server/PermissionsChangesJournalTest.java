@@ -0,0 +1,99 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.permission.server;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link PermissionsChangesJournal}.
+ */
+public class PermissionsChangesJournalTest {
+
+    private PermissionsChangesJournal journal;
+
+    @BeforeMethod
+    public void setUp() {
+        journal = new PermissionsChangesJournal();
+    }
+
+    @Test
+    public void shouldReturnChangesRecordedAfterSpecifiedRevision() {
+        journal.record("workspace", "workspace1");
+        journal.record("workspace", "workspace2");
+        journal.record("stack", "stack1");
+
+        final PermissionsChangesJournal.Changes changes = journal.getChanges(journal.getId(), 1);
+
+        assertFalse(changes.isReset());
+        assertEquals(changes.getRevision(), 3);
+        assertEquals(changes.getInstanceChanges()
+                            .stream()
+                            .map(PermissionsChangesJournal.InstanceChange::getInstanceId)
+                            .sorted()
+                            .collect(toList()),
+                     asList("stack1", "workspace2"));
+    }
+
+    @Test
+    public void shouldReturnNoChangesWhenRevisionIsLatest() {
+        journal.record("workspace", "workspace1");
+
+        final PermissionsChangesJournal.Changes changes = journal.getChanges(journal.getId(), 1);
+
+        assertFalse(changes.isReset());
+        assertEquals(changes.getRevision(), 1);
+        assertTrue(changes.getInstanceChanges().isEmpty());
+    }
+
+    @Test
+    public void shouldRequireResetWhenJournalIsDifferent() {
+        journal.record("workspace", "workspace1");
+
+        final PermissionsChangesJournal.Changes changes = journal.getChanges("another", 0);
+
+        assertTrue(changes.isReset());
+        assertEquals(changes.getRevision(), 1);
+        assertTrue(changes.getInstanceChanges().isEmpty());
+    }
+
+    @Test
+    public void shouldRequireResetWhenJournalIsNotSpecified() {
+        assertTrue(journal.getChanges(null, 0).isReset());
+    }
+
+    @Test
+    public void shouldRequireResetWhenRevisionIsUnknown() {
+        journal.record("workspace", "workspace1");
+
+        assertTrue(journal.getChanges(journal.getId(), 2).isReset());
+    }
+
+    @Test
+    public void shouldRequireResetWhenChangesAreDiscarded() {
+        for (int i = 0; i < 10_001; i++) {
+            journal.record("workspace", "workspace" + i);
+        }
+
+        assertTrue(journal.getChanges(journal.getId(), 0).isReset());
+        assertFalse(journal.getChanges(journal.getId(), 1).isReset());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.permission.server.filter;
+
+import com.codenvy.api.permission.server.PermissionsService;
+import com.codenvy.api.permission.server.SystemDomain;
+import com.jayway.restassured.response.Response;
+
+import org.eclipse.che.api.core.rest.shared.dto.ServiceError;
+import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.subject.Subject;
+import org.eclipse.che.dto.server.DtoFactory;
+import org.everrest.assured.EverrestJetty;
+import org.everrest.core.Filter;
+import org.everrest.core.GenericContainerRequest;
+import org.everrest.core.RequestFilter;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import static com.jayway.restassured.RestAssured.given;
+import static org.everrest.assured.JettyHttpServer.ADMIN_USER_NAME;
+import static org.everrest.assured.JettyHttpServer.ADMIN_USER_PASSWORD;
+import static org.everrest.assured.JettyHttpServer.SECURE_PATH;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests for {@link GetPermissionsChangesFilter}
+ */
+@Listeners(value = {MockitoTestNGListener.class, EverrestJetty.class})
+public class GetPermissionsChangesFilterTest {
+    @SuppressWarnings("unused")
+    private static final EnvironmentFilter FILTER = new EnvironmentFilter();
+
+    @SuppressWarnings("unused")
+    private static final GetPermissionsChangesFilter CHANGES_FILTER = new GetPermissionsChangesFilter();
+
+    @Mock
+    private static Subject subject;
+
+    @Mock
+    private PermissionsService permissionsService;
+
+    @BeforeMethod
+    public void setUp() {
+        when(subject.getUserId()).thenReturn("user123");
+        when(subject.getToken()).thenReturn("user-token");
+    }
+
+    @Test
+    public void shouldRespond403IfUserIsNotSystemManager() throws Exception {
+        when(subject.hasPermission(SystemDomain.DOMAIN_ID, null, SystemDomain.MANAGE_SYSTEM_ACTION)).thenReturn(false);
+
+        final Response response = given().auth()
+                                         .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
+                                         .when()
+                                         .get(SECURE_PATH + "/permissions/changes?since=0");
+
+        assertEquals(response.getStatusCode(), 403);
+        assertEquals(unwrapError(response), "User is not authorized to perform this operation");
+        verifyZeroInteractions(permissionsService);
+    }
+
+    @Test
+    public void shouldDoChainIfUserIsSystemManager() throws Exception {
+        when(subject.hasPermission(SystemDomain.DOMAIN_ID, null, SystemDomain.MANAGE_SYSTEM_ACTION)).thenReturn(true);
+
+        final Response response = given().auth()
+                                         .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
+                                         .when()
+                                         .get(SECURE_PATH + "/permissions/changes?since=0");
+
+        assertEquals(response.getStatusCode(), 204);
+        verify(permissionsService).getChanges(anyString(), anyLong());
+    }
+
+    @Test
+    public void shouldRespond403IfRequestIsAuthenticatedWithMachineToken() throws Exception {
+        when(subject.getToken()).thenReturn("machineabc123");
+        when(subject.hasPermission(SystemDomain.DOMAIN_ID, null, SystemDomain.MANAGE_SYSTEM_ACTION)).thenReturn(false);
+
+        final Response response = given().auth()
+                                         .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
+                                         .when()
+                                         .get(SECURE_PATH + "/permissions/changes?since=0");
+
+        assertEquals(response.getStatusCode(), 403);
+        verifyZeroInteractions(permissionsService);
+    }
+
+    private static String unwrapError(Response response) {
+        return DtoFactory.getInstance().createDtoFromJson(response.body().print(), ServiceError.class).getMessage();
+    }
+
+    @Filter
+    public static class EnvironmentFilter implements RequestFilter {
+        public void doFilter(GenericContainerRequest request) {
+            EnvironmentContext.getCurrent().setSubject(subject);
+        }
+    }
+}
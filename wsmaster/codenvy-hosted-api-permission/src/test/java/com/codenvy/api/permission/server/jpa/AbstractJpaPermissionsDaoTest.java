@@ -0,0 +1,242 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.permission.server.jpa;
+
+import com.codenvy.api.permission.server.PermissionsChangesJournal;
+import com.codenvy.api.permission.server.SystemDomain;
+import com.codenvy.api.permission.server.model.impl.SystemPermissionsImpl;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.che.api.core.NotFoundException;
+import org.eclipse.che.api.core.Page;
+import org.eclipse.che.api.core.ServerException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for actions cache of {@link AbstractJpaPermissionsDao}.
+ */
+public class AbstractJpaPermissionsDaoTest {
+
+    private TestPermissionsDao dao;
+
+    @BeforeMethod
+    public void setUp() {
+        dao = new TestPermissionsDao();
+    }
+
+    @Test
+    public void shouldLoadActionsOnlyOnceForRepeatedChecks() throws Exception {
+        dao.permissions.put("user123", new SystemPermissionsImpl("user123", asList("read", "write")));
+
+        assertTrue(dao.exists("user123", null, "read"));
+        assertTrue(dao.exists("user123", null, "write"));
+        assertFalse(dao.exists("user123", null, SystemDomain.MANAGE_SYSTEM_ACTION));
+
+        assertEquals(dao.loads, 1);
+    }
+
+    @Test
+    public void shouldCacheAbsenceOfPermissions() throws Exception {
+        assertFalse(dao.exists("user123", null, "read"));
+        assertFalse(dao.exists("user123", null, "write"));
+
+        assertEquals(dao.loads, 1);
+    }
+
+    @Test
+    public void shouldNotCacheActionsWhichAreNotAllowedByDomain() throws Exception {
+        dao.permissions.put("user123", new SystemPermissionsImpl("user123", singletonList("read")));
+
+        assertFalse(dao.exists("user123", null, "fake"));
+        assertFalse(dao.exists("user123", null, "fake"));
+
+        assertEquals(dao.loads, 2);
+    }
+
+    @Test
+    public void shouldInvalidateCachedActionsOnStore() throws Exception {
+        assertFalse(dao.exists("user123", null, "read"));
+
+        dao.store(new SystemPermissionsImpl("user123", singletonList("read")));
+
+        assertTrue(dao.exists("user123", null, "read"));
+        assertEquals(dao.loads, 2);
+    }
+
+    @Test
+    public void shouldInvalidateCachedActionsOnRemove() throws Exception {
+        dao.permissions.put("user123", new SystemPermissionsImpl("user123", singletonList("read")));
+        assertTrue(dao.exists("user123", null, "read"));
+
+        dao.remove("user123", null);
+
+        assertFalse(dao.exists("user123", null, "read"));
+        assertEquals(dao.loads, 2);
+    }
+
+    @Test
+    public void shouldInvalidateCachedWildcardActions() throws Exception {
+        assertFalse(dao.exists("*", null, "read"));
+
+        dao.store(new SystemPermissionsImpl("*", singletonList("read")));
+
+        assertTrue(dao.exists("*", null, "read"));
+    }
+
+    @Test
+    public void shouldInvalidateActionsLoadedBeforeModificationIsCommitted() throws Exception {
+        dao.inTransaction = true;
+        dao.store(new SystemPermissionsImpl("user123", singletonList("read")));
+        assertTrue(dao.exists("user123", null, "read"));
+
+        dao.completeTransaction();
+
+        assertTrue(dao.exists("user123", null, "read"));
+        assertEquals(dao.loads, 2);
+    }
+
+    @Test
+    public void shouldNotCacheActionsWhichWereInvalidatedWhileLoading() throws Exception {
+        dao.permissions.put("user123", new SystemPermissionsImpl("user123", singletonList("read")));
+        dao.onLoad = () -> dao.invalidate("user123", null);
+
+        assertTrue(dao.exists("user123", null, "read"));
+        dao.onLoad = null;
+        assertTrue(dao.exists("user123", null, "read"));
+
+        assertEquals(dao.loads, 2);
+    }
+
+    @Test
+    public void shouldCacheActionsWhichWereLoadedWhileOtherUserActionsWereInvalidated() throws Exception {
+        dao.permissions.put("user123", new SystemPermissionsImpl("user123", singletonList("read")));
+        dao.onLoad = () -> dao.invalidate("user456", null);
+
+        assertTrue(dao.exists("user123", null, "read"));
+        dao.onLoad = null;
+        assertTrue(dao.exists("user123", null, "read"));
+
+        assertEquals(dao.loads, 1);
+    }
+
+    @Test
+    public void shouldRecordChangesToJournal() throws Exception {
+        final String journalId = dao.changesJournal.getId();
+
+        dao.store(new SystemPermissionsImpl("user123", singletonList("read")));
+        dao.remove("user123", null);
+
+        final PermissionsChangesJournal.Changes changes = dao.changesJournal.getChanges(journalId, 0);
+        assertFalse(changes.isReset());
+        assertEquals(changes.getRevision(), 2);
+        assertEquals(changes.getInstanceChanges().size(), 2);
+        assertEquals(changes.getInstanceChanges().get(0).getDomainId(), SystemDomain.DOMAIN_ID);
+    }
+
+    @Test
+    public void shouldRecordChangesToJournalAfterTransactionIsCompleted() throws Exception {
+        final String journalId = dao.changesJournal.getId();
+        dao.inTransaction = true;
+
+        dao.store(new SystemPermissionsImpl("user123", singletonList("read")));
+        assertEquals(dao.changesJournal.getChanges(journalId, 0).getRevision(), 0);
+
+        dao.completeTransaction();
+        assertEquals(dao.changesJournal.getChanges(journalId, 0).getRevision(), 1);
+    }
+
+    private static class TestPermissionsDao extends AbstractJpaPermissionsDao<SystemPermissionsImpl> {
+        private final Map<String, SystemPermissionsImpl> permissions = new HashMap<>();
+        private final List<Runnable>                     afterCompletion = new ArrayList<>();
+        private       int                                loads;
+        private       boolean                            inTransaction;
+        private       Runnable                           onLoad;
+
+        TestPermissionsDao() {
+            super(new SystemDomain(ImmutableSet.of("read", "write")));
+            changesJournal = new PermissionsChangesJournal();
+        }
+
+        @Override
+        public SystemPermissionsImpl get(String userId, String instanceId) throws ServerException, NotFoundException {
+            loads++;
+            if (onLoad != null) {
+                onLoad.run();
+            }
+            return new SystemPermissionsImpl(getEntity(wildcardToNull(userId), instanceId));
+        }
+
+        @Override
+        public List<SystemPermissionsImpl> getByUser(String userId) throws ServerException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Page<SystemPermissionsImpl> getByInstance(String instanceId, int maxItems, long skipCount) throws ServerException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean existsForOtherUsers(String userId, String instanceId, String action) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void runAfterCompletion(Runnable action) {
+            if (inTransaction) {
+                afterCompletion.add(action);
+            } else {
+                action.run();
+            }
+        }
+
+        void completeTransaction() {
+            inTransaction = false;
+            afterCompletion.forEach(Runnable::run);
+            afterCompletion.clear();
+        }
+
+        @Override
+        protected SystemPermissionsImpl getEntity(String userId, String instanceId) throws NotFoundException {
+            final SystemPermissionsImpl result = permissions.get(userId);
+            if (result == null) {
+                throw new NotFoundException("Permissions not found");
+            }
+            return result;
+        }
+
+        @Override
+        protected void doCreate(SystemPermissionsImpl permissions) {
+            this.permissions.put(wildcardToNull(permissions.getUserId()), permissions);
+        }
+
+        @Override
+        protected void doRemove(String userId, String instanceId) {
+            permissions.remove(wildcardToNull(userId));
+        }
+    }
+}
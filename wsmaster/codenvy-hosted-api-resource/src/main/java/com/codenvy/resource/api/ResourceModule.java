@@ -66,6 +66,8 @@ public class ResourceModule extends AbstractModule {
         Multibinder.newSetBinder(binder(), ResourcesPermissionsChecker.class)
                    .addBinding().to(UserResourcesPermissionsChecker.class);
 
+        Multibinder.newSetBinder(binder(), ResourceLockKeyProvider.class);
+
         Multibinder<ResourceUsageTracker> usageTrackersBinder = Multibinder.newSetBinder(binder(), ResourceUsageTracker.class);
         usageTrackersBinder.addBinding().to(RamResourceUsageTracker.class);
         usageTrackersBinder.addBinding().to(WorkspaceResourceUsageTracker.class);
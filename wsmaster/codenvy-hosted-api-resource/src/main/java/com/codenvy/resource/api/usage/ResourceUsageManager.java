@@ -21,54 +21,164 @@ import com.codenvy.resource.api.exception.NoEnoughResourcesException;
 import com.codenvy.resource.api.license.AccountLicenseManager;
 import com.codenvy.resource.model.Resource;
 import com.codenvy.resource.spi.impl.ResourceImpl;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import org.eclipse.che.account.api.AccountManager;
 import org.eclipse.che.account.shared.model.Account;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.model.workspace.Workspace;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.workspace.server.event.BeforeWorkspaceRemovedEvent;
+import org.eclipse.che.api.workspace.server.event.WorkspaceCreatedEvent;
+import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
+import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static java.util.Collections.unmodifiableList;
 import static java.util.stream.Collectors.toMap;
 
 /**
  * Facade for resources using related operations.
  *
+ * <p>Resources used by accounts are kept in the in-memory ledger, so checking of resources
+ * availability doesn't require to fetch all account's workspaces each time.
+ * Ledger entry of account is dropped when status of any account's workspace is changed
+ * or when {@link #invalidateUsedResources(String)} is called, and it is re-calculated by
+ * {@link ResourceUsageTracker trackers} on next access or after expiration time.
+ * Each entry is versioned, so invalidation of one account discards only
+ * the calculation of that account which is performed concurrently.
+ *
+ * <p>Accounts of workspaces are resolved by the in-memory index which is filled by created
+ * workspaces and by workspaces which are going to be started, see {@link #indexWorkspace(String, String)},
+ * so workspace status events are handled without loading workspaces.
+ *
  * @author Sergii Leschenko
  */
 @Singleton
-public class ResourceUsageManager {
+public class ResourceUsageManager implements EventSubscriber<WorkspaceStatusEvent> {
     private static final Logger LOG = LoggerFactory.getLogger(ResourceUsageManager.class);
 
-    private final ResourceAggregator                   resourceAggregator;
-    private final Set<ResourceUsageTracker>            usageTrackers;
-    private final AccountManager                       accountManager;
-    private final Map<String, ResourcesReserveTracker> accountTypeToReserveTracker;
-    private final AccountLicenseManager                accountLicenseManager;
+    private final ResourceAggregator                           resourceAggregator;
+    private final Set<ResourceUsageTracker>                    usageTrackers;
+    private final AccountManager                               accountManager;
+    private final Map<String, ResourcesReserveTracker>         accountTypeToReserveTracker;
+    private final AccountLicenseManager                        accountLicenseManager;
+    private final EventService                                 eventService;
+    private final Cache<String, LedgerEntry>                   usedResourcesLedger;
+    private final Map<String, String>                          workspaceToAccount;
+    private final EventSubscriber<WorkspaceCreatedEvent>       createdWorkspacesSubscriber;
+    private final EventSubscriber<BeforeWorkspaceRemovedEvent> removedWorkspacesSubscriber;
 
     @Inject
     public ResourceUsageManager(ResourceAggregator resourceAggregator,
                                 Set<ResourceUsageTracker> usageTrackers,
                                 Set<ResourcesReserveTracker> resourcesReserveTrackers,
                                 AccountManager accountManager,
-                                AccountLicenseManager accountLicenseManager) {
+                                AccountLicenseManager accountLicenseManager,
+                                EventService eventService,
+                                @Named("resource.usage.cache_size") long cacheSize,
+                                @Named("resource.usage.cache_expire_time_s") long cacheExpireTimeSec) {
         this.resourceAggregator = resourceAggregator;
         this.usageTrackers = usageTrackers;
         this.accountManager = accountManager;
         this.accountLicenseManager = accountLicenseManager;
+        this.eventService = eventService;
         this.accountTypeToReserveTracker = resourcesReserveTrackers.stream()
                                                                    .collect(toMap(ResourcesReserveTracker::getAccountType,
                                                                                   Function.identity()));
+        this.usedResourcesLedger = CacheBuilder.newBuilder()
+                                               .maximumSize(cacheSize)
+                                               .expireAfterWrite(cacheExpireTimeSec, TimeUnit.SECONDS)
+                                               .build();
+        this.workspaceToAccount = new ConcurrentHashMap<>();
+        this.createdWorkspacesSubscriber = event -> {
+            final Workspace workspace = event.getWorkspace();
+            if (workspace instanceof WorkspaceImpl && ((WorkspaceImpl)workspace).getAccount() != null) {
+                indexWorkspace(workspace.getId(), ((WorkspaceImpl)workspace).getAccount().getId());
+            }
+        };
+        this.removedWorkspacesSubscriber = event -> workspaceToAccount.remove(event.getWorkspace().getId());
+    }
+
+    @PostConstruct
+    @VisibleForTesting
+    void subscribe() {
+        eventService.subscribe(this);
+        eventService.subscribe(createdWorkspacesSubscriber, WorkspaceCreatedEvent.class);
+        eventService.subscribe(removedWorkspacesSubscriber, BeforeWorkspaceRemovedEvent.class);
+    }
+
+    @PreDestroy
+    @VisibleForTesting
+    void unsubscribe() {
+        eventService.unsubscribe(this);
+        eventService.unsubscribe(createdWorkspacesSubscriber, WorkspaceCreatedEvent.class);
+        eventService.unsubscribe(removedWorkspacesSubscriber, BeforeWorkspaceRemovedEvent.class);
+    }
+
+    @Override
+    public void onEvent(WorkspaceStatusEvent event) {
+        final String workspaceId = event.getWorkspaceId();
+        final String accountId = workspaceToAccount.get(workspaceId);
+        if (accountId == null) {
+            LOG.warn("Account of workspace '{}' is not indexed, its used resources are refreshed on ledger entry expiration",
+                     workspaceId);
+            return;
+        }
+        invalidateUsedResources(accountId);
+    }
+
+    /**
+     * Remembers the account of the workspace, so changes of the workspace status
+     * invalidate used resources of that account.
+     *
+     * <p>Created workspaces are indexed automatically, the workspace which was created
+     * before this component is started should be indexed before its start.
+     *
+     * @param workspaceId
+     *         id of workspace
+     * @param accountId
+     *         id of account which owns the workspace
+     */
+    public void indexWorkspace(String workspaceId, String accountId) {
+        workspaceToAccount.put(workspaceId, accountId);
+    }
+
+    /**
+     * Drops used resources of given account from the ledger,
+     * so they will be re-calculated by trackers on next access.
+     *
+     * <p>Should be called when account's resources usage is changed not by workspace status changing,
+     * e.g. when workspace is created or removed.
+     *
+     * @param accountId
+     *         id of account
+     */
+    public void invalidateUsedResources(String accountId) {
+        final LedgerEntry entry = usedResourcesLedger.getIfPresent(accountId);
+        if (entry != null) {
+            entry.invalidate();
+        }
     }
 
     /**
@@ -138,11 +248,20 @@ public class ResourceUsageManager {
      *         when some exception occurred while resources fetching
      */
     public List<? extends Resource> getUsedResources(String accountId) throws NotFoundException, ServerException {
-        List<ResourceImpl> usedResources = new ArrayList<>();
-        for (ResourceUsageTracker usageTracker : usageTrackers) {
-            Optional<ResourceImpl> usedResource = usageTracker.getUsedResource(accountId);
-            if (usedResource.isPresent()) {
-                usedResources.add(usedResource.get());
+        final LedgerEntry entry = usedResourcesLedger.asMap().computeIfAbsent(accountId, id -> new LedgerEntry());
+        final long version;
+        synchronized (entry) {
+            if (entry.usedResources != null) {
+                return entry.usedResources;
+            }
+            version = entry.version;
+        }
+
+        final List<ResourceImpl> usedResources = unmodifiableList(calculateUsedResources(accountId));
+        synchronized (entry) {
+            // usage might be changed while it was calculated
+            if (entry.version == version) {
+                entry.usedResources = usedResources;
             }
         }
         return usedResources;
@@ -170,6 +289,48 @@ public class ResourceUsageManager {
         resourceAggregator.deduct(availableResources, resources);
     }
 
+    /**
+     * Checks that specified resources can be used on top of already fetched available resources.
+     *
+     * <p>Allows to perform several checks against the same snapshot of available resources
+     * which is fetched once by {@link #getAvailableResources(String)}.
+     *
+     * @param availableResources
+     *         resources which are available for account
+     * @param resources
+     *         resources to check availability
+     * @throws NoEnoughResourcesException
+     *         when available resources don't contain specified resources
+     */
+    public void checkResourcesAvailability(List<? extends Resource> availableResources,
+                                           List<? extends Resource> resources) throws NoEnoughResourcesException {
+        resourceAggregator.deduct(availableResources, resources);
+    }
+
+    @VisibleForTesting
+    List<ResourceImpl> calculateUsedResources(String accountId) throws NotFoundException, ServerException {
+        List<ResourceImpl> usedResources = new ArrayList<>();
+        for (ResourceUsageTracker usageTracker : usageTrackers) {
+            Optional<ResourceImpl> usedResource = usageTracker.getUsedResource(accountId);
+            if (usedResource.isPresent()) {
+                usedResources.add(usedResource.get());
+            }
+        }
+        return usedResources;
+    }
+
+    /** Used resources of the account, the version is changed on each invalidation. */
+    private static class LedgerEntry {
+        // guarded by this
+        private long               version;
+        private List<ResourceImpl> usedResources;
+
+        synchronized void invalidate() {
+            version++;
+            usedResources = null;
+        }
+    }
+
     private List<? extends Resource> deductWithSkippingMissed(List<? extends Resource> totalResources,
                                                               List<? extends Resource> resourcesToDeduct,
                                                               List<? extends Resource> missedResources) throws NotFoundException,
@@ -14,48 +14,86 @@
  */
 package com.codenvy.resource.api.usage;
 
+import com.codahale.metrics.annotation.Gauge;
 import com.codenvy.resource.api.ResourceLockKeyProvider;
 
 import org.eclipse.che.account.api.AccountManager;
 import org.eclipse.che.account.shared.model.Account;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
-import org.eclipse.che.commons.lang.concurrent.StripedLocks;
 import org.eclipse.che.commons.lang.concurrent.Unlocker;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
+import java.util.function.IntToLongFunction;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
 /**
  * Helps to lock resources while performing operations related to them.
  *
  * <p>Resources will be locked not by account id but by key
  * which will be provided by {@link ResourceLockKeyProvider} for specified account's type
  *
- * <p>It based on {@link StripedLocks} so it can be used in try-with-resources construction.
+ * <p>Keys are mapped to a fixed number of fair stripes, so it can be used in try-with-resources construction.
+ * Resources of several accounts are locked by acquiring their stripes in ascending order,
+ * so concurrent multi-account acquisitions can't deadlock each other.
  *
  * <pre>
- * try (CloseableLock lock = resourceLocks.acquireLock("account123")) {
+ * try (Unlocker u = resourceLocks.acquireLock("organization123", "parentOrganization")) {
  *    // check resources availability and perform operation here
  * }
  * </pre>
  *
  * @author Sergii Leschenko
  */
+@Singleton
 public class ResourcesLocks {
 
     private final AccountManager                       accountManager;
     private final Map<String, ResourceLockKeyProvider> accountTypeToLockProvider;
-    private final StripedLocks                         stripedLocks;
+    private final ReentrantLock[]                      stripes;
+    private final long                                 timeoutMs;
+    private final AtomicLongArray                      contendedAcquisitions;
+    private final AtomicLongArray                      timedOutAcquisitions;
+    private final AtomicLongArray                      waitTimeNanos;
 
+    /**
+     * Creates resources locks.
+     *
+     * @param stripesCount
+     *         number of stripes which lock keys are mapped to
+     * @param timeoutMs
+     *         maximum time to wait for a lock in milliseconds, 0 means waiting without timeout
+     */
     @Inject
     public ResourcesLocks(Set<ResourceLockKeyProvider> resourceLockKeyProviders,
-                          AccountManager accountManager) {
+                          AccountManager accountManager,
+                          @Named("resource.locks.stripes") int stripesCount,
+                          @Named("resource.locks.timeout_ms") long timeoutMs) {
+        checkArgument(stripesCount > 0, "Number of resources lock stripes must be positive");
+        checkArgument(timeoutMs >= 0, "Resources lock timeout must not be negative");
         this.accountManager = accountManager;
-        this.stripedLocks = new StripedLocks(16);
+        this.timeoutMs = timeoutMs;
+        this.stripes = new ReentrantLock[stripesCount];
+        for (int i = 0; i < stripesCount; i++) {
+            stripes[i] = new ReentrantLock(true);
+        }
+        this.contendedAcquisitions = new AtomicLongArray(stripesCount);
+        this.timedOutAcquisitions = new AtomicLongArray(stripesCount);
+        this.waitTimeNanos = new AtomicLongArray(stripesCount);
         this.accountTypeToLockProvider = resourceLockKeyProviders.stream()
                                                                  .collect(Collectors.toMap(ResourceLockKeyProvider::getAccountType,
                                                                                            Function.identity()));
@@ -70,27 +108,160 @@ public class ResourcesLocks {
      * @throws NotFoundException
      *         when account with specified {@code account id} was not found
      * @throws ServerException
+     *         when lock wasn't acquired in configured timeout or waiting was interrupted
+     * @throws ServerException
      *         when any other error occurs
      */
     public Unlocker acquiresLock(String accountId) throws NotFoundException,
                                                           ServerException {
+        return acquireLock(accountId);
+    }
+
+    /**
+     * Acquire resources lock for all specified accounts at once.
+     *
+     * <p>It should be used when operation affects resources of several accounts,
+     * e.g. resources redistribution between organization and its suborganization.
+     *
+     * @param accountIds
+     *         ids of accounts to lock resources
+     * @return lock for unlocking resources of all the accounts when resources operation finishes
+     * @throws NullPointerException
+     *         when {@code accountIds} is null or contains null
+     * @throws IllegalArgumentException
+     *         when {@code accountIds} is empty
+     * @throws NotFoundException
+     *         when account with any of specified ids was not found
+     * @throws ServerException
+     *         when lock wasn't acquired in configured timeout or waiting was interrupted
+     * @throws ServerException
+     *         when any other error occurs
+     */
+    public Unlocker acquireLock(String... accountIds) throws NotFoundException,
+                                                             ServerException {
+        requireNonNull(accountIds, "Required non-null accounts ids");
+        checkArgument(accountIds.length > 0, "Required at least one account id to lock");
+
+        final SortedSet<Integer> stripesToLock = new TreeSet<>();
+        for (String accountId : accountIds) {
+            requireNonNull(accountId, "Required non-null account id");
+            stripesToLock.add(getStripe(getLockKey(accountId)));
+        }
+        final int[] orderedStripes = stripesToLock.stream()
+                                                  .mapToInt(Integer::intValue)
+                                                  .toArray();
+
+        int locked = 0;
+        try {
+            for (; locked < orderedStripes.length; locked++) {
+                lockStripe(orderedStripes[locked]);
+            }
+        } finally {
+            if (locked < orderedStripes.length) {
+                unlockStripes(orderedStripes, locked);
+            }
+        }
+        return () -> unlockStripes(orderedStripes, orderedStripes.length);
+    }
+
+    /** Returns the number of acquisitions which had to wait for a lock. */
+    @Gauge(name = "resource.locks.contended_acquisitions")
+    public long getContendedAcquisitions() {
+        return sum(contendedAcquisitions::get);
+    }
+
+    /** Returns the number of acquisitions which failed because of lock timeout. */
+    @Gauge(name = "resource.locks.timed_out_acquisitions")
+    public long getTimedOutAcquisitions() {
+        return sum(timedOutAcquisitions::get);
+    }
+
+    /** Returns the total time spent waiting for locks in milliseconds. */
+    @Gauge(name = "resource.locks.wait_time_ms")
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(sum(waitTimeNanos::get));
+    }
+
+    /** Returns the time spent waiting for the most contended stripe in milliseconds. */
+    @Gauge(name = "resource.locks.max_stripe_wait_time_ms")
+    public long getMaxStripeWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(max(waitTimeNanos::get));
+    }
+
+    /** Returns the number of threads which are waiting for locks. */
+    @Gauge(name = "resource.locks.queued_threads")
+    public long getQueuedThreads() {
+        return sum(stripe -> stripes[stripe].getQueueLength());
+    }
+
+    /** Returns the number of threads which are waiting for the most contended stripe. */
+    @Gauge(name = "resource.locks.max_stripe_queued_threads")
+    public long getMaxStripeQueuedThreads() {
+        return max(stripe -> stripes[stripe].getQueueLength());
+    }
+
+    private String getLockKey(String accountId) throws NotFoundException, ServerException {
         final Account account = accountManager.getById(accountId);
         final ResourceLockKeyProvider resourceLockKeyProvider = accountTypeToLockProvider.get(account.getType());
-        String lockKey;
         if (resourceLockKeyProvider == null) {
             // this account type doesn't have custom lock provider.
             // Lock resources by current account
-            lockKey = accountId;
-        } else {
-            lockKey = resourceLockKeyProvider.getLockKey(accountId);
+            return accountId;
+        }
+        return resourceLockKeyProvider.getLockKey(accountId);
+    }
+
+    private int getStripe(String lockKey) {
+        // spreads hash codes which differ only in upper bits
+        final int hash = lockKey.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    private void lockStripe(int stripe) throws ServerException {
+        final ReentrantLock lock = stripes[stripe];
+        try {
+            // timed try lock respects fairness unlike the untimed one
+            if (lock.tryLock(0, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+
+            contendedAcquisitions.incrementAndGet(stripe);
+            final long start = System.nanoTime();
+            try {
+                if (timeoutMs == 0) {
+                    lock.lockInterruptibly();
+                } else if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    timedOutAcquisitions.incrementAndGet(stripe);
+                    throw new ServerException(format("Resources lock wasn't acquired in %s ms. Try again later.", timeoutMs));
+                }
+            } finally {
+                waitTimeNanos.addAndGet(stripe, System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException("Interrupted while waiting for resources lock.", e);
+        }
+    }
+
+    private void unlockStripes(int[] orderedStripes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[orderedStripes[i]].unlock();
         }
+    }
 
-        return stripedLocks.writeLock(lockKey);
+    private long sum(IntToLongFunction valueOfStripe) {
+        long result = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            result += valueOfStripe.applyAsLong(i);
+        }
+        return result;
     }
 
-    public Unlocker acquireLock(String... accountIds) throws NotFoundException,
-                                                                  ServerException {
-        // TODO It should be implemented for making possible lock resources by two or more accounts in case of resources redistribution
-        throw new UnsupportedOperationException("Not implemented.");
+    private long max(IntToLongFunction valueOfStripe) {
+        long result = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            result = Math.max(result, valueOfStripe.applyAsLong(i));
+        }
+        return result;
     }
 }
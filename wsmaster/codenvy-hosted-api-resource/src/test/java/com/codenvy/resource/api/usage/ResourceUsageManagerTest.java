@@ -0,0 +1,202 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.resource.api.usage;
+
+import com.codenvy.resource.api.RamResourceType;
+import com.codenvy.resource.api.ResourceAggregator;
+import com.codenvy.resource.api.ResourceUsageTracker;
+import com.codenvy.resource.api.license.AccountLicenseManager;
+import com.codenvy.resource.model.Resource;
+import com.codenvy.resource.spi.impl.ResourceImpl;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.che.account.api.AccountManager;
+import org.eclipse.che.account.spi.AccountImpl;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.workspace.server.event.WorkspaceCreatedEvent;
+import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
+import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static org.eclipse.che.dto.server.DtoFactory.newDto;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests for {@link ResourceUsageManager}
+ */
+@Listeners(MockitoTestNGListener.class)
+public class ResourceUsageManagerTest {
+    private static final String ACCOUNT_ID   = "account123";
+    private static final String WORKSPACE_ID = "workspace123";
+
+    @Mock
+    private ResourceAggregator         resourceAggregator;
+    @Mock
+    private ResourceUsageTracker       usageTracker;
+    @Mock
+    private AccountManager             accountManager;
+    @Mock
+    private AccountLicenseManager      accountLicenseManager;
+    @Mock
+    private EventService               eventService;
+
+    private ResourceImpl usedRam;
+
+    private ResourceUsageManager resourceUsageManager;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        usedRam = new ResourceImpl(RamResourceType.ID, 1024, RamResourceType.UNIT);
+        when(usageTracker.getUsedResource(ACCOUNT_ID)).thenReturn(Optional.of(usedRam));
+
+        resourceUsageManager = new ResourceUsageManager(resourceAggregator,
+                                                        ImmutableSet.of(usageTracker),
+                                                        emptySet(),
+                                                        accountManager,
+                                                        accountLicenseManager,
+                                                        eventService,
+                                                        100,
+                                                        60);
+    }
+
+    @Test
+    public void shouldSubscribeOnWorkspaceStatusEvents() throws Exception {
+        resourceUsageManager.subscribe();
+
+        verify(eventService).subscribe(resourceUsageManager);
+    }
+
+    @Test
+    public void shouldRecalculateUsedResourcesOfCreatedWorkspaceAccountWhenWorkspaceStatusIsChanged() throws Exception {
+        resourceUsageManager.subscribe();
+        final ArgumentCaptor<EventSubscriber> createdCaptor = ArgumentCaptor.forClass(EventSubscriber.class);
+        verify(eventService).subscribe(createdCaptor.capture(), eq(WorkspaceCreatedEvent.class));
+        final WorkspaceImpl workspace = mock(WorkspaceImpl.class);
+        when(workspace.getId()).thenReturn(WORKSPACE_ID);
+        when(workspace.getAccount()).thenReturn(new AccountImpl(ACCOUNT_ID, "account", "test"));
+        @SuppressWarnings("unchecked")
+        final EventSubscriber<WorkspaceCreatedEvent> createdSubscriber = createdCaptor.getValue();
+        createdSubscriber.onEvent(new WorkspaceCreatedEvent(workspace));
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        resourceUsageManager.onEvent(newDto(WorkspaceStatusEvent.class).withWorkspaceId(WORKSPACE_ID)
+                                                                       .withEventType(WorkspaceStatusEvent.EventType.STARTING));
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        verify(usageTracker, times(2)).getUsedResource(ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldCalculateUsedResourcesOnlyOnceUntilTheyAreInvalidated() throws Exception {
+        final List<? extends Resource> first = resourceUsageManager.getUsedResources(ACCOUNT_ID);
+        final List<? extends Resource> second = resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        assertEquals(first, singletonList(usedRam));
+        assertEquals(second, singletonList(usedRam));
+        verify(usageTracker).getUsedResource(ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldRecalculateUsedResourcesAfterExplicitInvalidation() throws Exception {
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        resourceUsageManager.invalidateUsedResources(ACCOUNT_ID);
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        verify(usageTracker, times(2)).getUsedResource(ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldRecalculateUsedResourcesOfWorkspaceAccountWhenWorkspaceStatusIsChanged() throws Exception {
+        resourceUsageManager.indexWorkspace(WORKSPACE_ID, ACCOUNT_ID);
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        resourceUsageManager.onEvent(newDto(WorkspaceStatusEvent.class).withWorkspaceId(WORKSPACE_ID)
+                                                                       .withEventType(WorkspaceStatusEvent.EventType.STARTING));
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        verify(usageTracker, times(2)).getUsedResource(ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldNotRecalculateUsedResourcesOfOtherAccountsWhenWorkspaceStatusIsChanged() throws Exception {
+        when(usageTracker.getUsedResource("account234")).thenReturn(Optional.of(usedRam));
+        resourceUsageManager.indexWorkspace(WORKSPACE_ID, ACCOUNT_ID);
+        resourceUsageManager.getUsedResources("account234");
+
+        resourceUsageManager.onEvent(newDto(WorkspaceStatusEvent.class).withWorkspaceId(WORKSPACE_ID)
+                                                                       .withEventType(WorkspaceStatusEvent.EventType.RUNNING));
+        resourceUsageManager.onEvent(newDto(WorkspaceStatusEvent.class).withWorkspaceId("unknown")
+                                                                       .withEventType(WorkspaceStatusEvent.EventType.STOPPED));
+        resourceUsageManager.getUsedResources("account234");
+
+        verify(usageTracker).getUsedResource("account234");
+    }
+
+    @Test
+    public void shouldKeepUsedResourcesOfAccountWhichWereCalculatedWhileOtherAccountWasInvalidated() throws Exception {
+        doAnswer(invocation -> {
+            resourceUsageManager.invalidateUsedResources("account234");
+            return Optional.of(usedRam);
+        }).when(usageTracker).getUsedResource(ACCOUNT_ID);
+
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        verify(usageTracker).getUsedResource(ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldNotKeepUsedResourcesWhichWereInvalidatedWhileTheyWereCalculated() throws Exception {
+        doAnswer(invocation -> {
+            resourceUsageManager.invalidateUsedResources(ACCOUNT_ID);
+            return Optional.of(usedRam);
+        }).doReturn(Optional.of(usedRam))
+          .when(usageTracker).getUsedResource(ACCOUNT_ID);
+
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+        resourceUsageManager.getUsedResources(ACCOUNT_ID);
+
+        verify(usageTracker, times(2)).getUsedResource(ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldCheckResourcesAvailabilityAgainstSpecifiedAvailableResources() throws Exception {
+        final List<ResourceImpl> available = singletonList(new ResourceImpl(RamResourceType.ID, 2048, RamResourceType.UNIT));
+        final List<ResourceImpl> required = singletonList(usedRam);
+
+        resourceUsageManager.checkResourcesAvailability(available, required);
+
+        verify(resourceAggregator).deduct(available, required);
+    }
+}
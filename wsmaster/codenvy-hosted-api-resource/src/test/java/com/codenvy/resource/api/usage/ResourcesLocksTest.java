@@ -0,0 +1,175 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.resource.api.usage;
+
+import com.codenvy.resource.api.ResourceLockKeyProvider;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.che.account.api.AccountManager;
+import org.eclipse.che.account.shared.model.Account;
+import org.eclipse.che.api.core.NotFoundException;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.commons.lang.concurrent.Unlocker;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests for {@link ResourcesLocks}
+ */
+@Listeners(MockitoTestNGListener.class)
+public class ResourcesLocksTest {
+    private static final String CUSTOM_ACCOUNT_TYPE = "custom";
+
+    @Mock
+    private AccountManager          accountManager;
+    @Mock
+    private Account                 account;
+    @Mock
+    private Account                 customAccount;
+    @Mock
+    private ResourceLockKeyProvider lockKeyProvider;
+
+    private ExecutorService executor;
+    private ResourcesLocks  resourcesLocks;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        when(account.getType()).thenReturn("test");
+        when(customAccount.getType()).thenReturn(CUSTOM_ACCOUNT_TYPE);
+        when(accountManager.getById(anyString())).thenReturn(account);
+        when(accountManager.getById("customAccount")).thenReturn(customAccount);
+        when(lockKeyProvider.getAccountType()).thenReturn(CUSTOM_ACCOUNT_TYPE);
+        when(lockKeyProvider.getLockKey("customAccount")).thenReturn("account1");
+
+        executor = Executors.newFixedThreadPool(2);
+        resourcesLocks = new ResourcesLocks(ImmutableSet.of(lockKeyProvider), accountManager, 1024, 100);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldLockResourcesOfAllSpecifiedAccounts() throws Exception {
+        try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquireLock("account1", "account2")) {
+            assertLockTimesOut("account1");
+            assertLockTimesOut("account2");
+        }
+
+        assertEquals(resourcesLocks.getTimedOutAcquisitions(), 2L);
+        assertEquals(resourcesLocks.getContendedAcquisitions(), 2L);
+    }
+
+    @Test
+    public void shouldReleaseResourcesOfAllSpecifiedAccountsOnUnlocking() throws Exception {
+        resourcesLocks.acquireLock("account1", "account2").close();
+
+        executor.submit(() -> {
+            resourcesLocks.acquireLock("account2", "account1").close();
+            return null;
+        }).get(1, TimeUnit.SECONDS);
+
+        assertEquals(resourcesLocks.getContendedAcquisitions(), 0L);
+    }
+
+    @Test
+    public void shouldLockResourcesByKeyWhichIsProvidedForAccountType() throws Exception {
+        try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquiresLock("customAccount")) {
+            assertLockTimesOut("account1");
+        }
+
+        verify(lockKeyProvider).getLockKey("customAccount");
+    }
+
+    @Test
+    public void shouldAcquireLockOnceWhenAccountsHaveTheSameLockKey() throws Exception {
+        try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquireLock("account1", "customAccount")) {
+            assertLockTimesOut("account1");
+        }
+
+        executor.submit(() -> {
+            resourcesLocks.acquiresLock("account1").close();
+            return null;
+        }).get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldNotDeadlockWhenAccountsAreLockedInDifferentOrder() throws Exception {
+        resourcesLocks = new ResourcesLocks(ImmutableSet.of(lockKeyProvider), accountManager, 16, 0);
+        final List<Future<?>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> lockRepeatedly("account1", "account2")));
+        futures.add(executor.submit(() -> lockRepeatedly("account2", "account1")));
+
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(expectedExceptions = NotFoundException.class)
+    public void shouldThrowNotFoundExceptionWhenAnyOfAccountsDoesNotExist() throws Exception {
+        when(accountManager.getById("account2")).thenThrow(new NotFoundException("not found"));
+
+        resourcesLocks.acquireLock("account1", "account2");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldThrowIllegalArgumentExceptionWhenAccountsAreNotSpecified() throws Exception {
+        resourcesLocks.acquireLock();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldThrowIllegalArgumentExceptionWhenStripesCountIsNotPositive() throws Exception {
+        new ResourcesLocks(ImmutableSet.of(lockKeyProvider), accountManager, 0, 100);
+    }
+
+    private Void lockRepeatedly(String... accountIds) throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            resourcesLocks.acquireLock(accountIds).close();
+        }
+        return null;
+    }
+
+    private void assertLockTimesOut(String accountId) throws Exception {
+        try {
+            executor.submit(() -> {
+                resourcesLocks.acquiresLock(accountId).close();
+                return null;
+            }).get(1, TimeUnit.SECONDS);
+            fail("Resources of account '" + accountId + "' must be locked");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServerException);
+        }
+    }
+}
@@ -36,6 +36,7 @@ public class WorkspaceApiModule extends AbstractModule {
         bind(RecipeScriptDownloadPermissionFilter.class);
 
         bind(WorkspaceCreatorPermissionsProvider.class).asEagerSingleton();
+        bind(WorkspaceOwnershipIndex.class).asEagerSingleton();
         bind(StackCreatorPermissionsProvider.class).asEagerSingleton();
         bind(RecipeCreatorPermissionsProvider.class).asEagerSingleton();
     }
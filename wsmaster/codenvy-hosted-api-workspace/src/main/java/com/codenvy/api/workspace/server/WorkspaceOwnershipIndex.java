@@ -0,0 +1,149 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.workspace.server;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.eclipse.che.account.shared.model.Account;
+import org.eclipse.che.api.core.NotFoundException;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.model.workspace.Workspace;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.workspace.server.WorkspaceManager;
+import org.eclipse.che.api.workspace.server.event.BeforeWorkspaceRemovedEvent;
+import org.eclipse.che.api.workspace.server.event.WorkspaceCreatedEvent;
+import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Keeps owners of workspaces in memory, so permissions to workspaces
+ * can be checked without loading workspaces with their configurations and runtimes.
+ *
+ * <p>Account of a workspace is never changed, so the index is filled by created workspaces
+ * and workspaces loaded on demand, and entries are evicted only when workspaces are removed.
+ * Note that namespace is the name of the account at the moment when entry was indexed,
+ * so permissions should be checked by {@link WorkspaceOwnership#getAccountId() account id}.
+ */
+@Singleton
+public class WorkspaceOwnershipIndex {
+    private final WorkspaceManager                             workspaceManager;
+    private final EventService                                 eventService;
+    private final Cache<String, WorkspaceOwnership>            ownerships;
+    private final EventSubscriber<WorkspaceCreatedEvent>       createdWorkspacesSubscriber;
+    private final EventSubscriber<BeforeWorkspaceRemovedEvent> removedWorkspacesSubscriber;
+
+    @Inject
+    public WorkspaceOwnershipIndex(WorkspaceManager workspaceManager,
+                                   EventService eventService,
+                                   @Named("workspace.ownership_index.size") long indexSize) {
+        this.workspaceManager = workspaceManager;
+        this.eventService = eventService;
+        this.ownerships = CacheBuilder.newBuilder()
+                                      .maximumSize(indexSize)
+                                      .build();
+        this.createdWorkspacesSubscriber = event -> index(event.getWorkspace());
+        this.removedWorkspacesSubscriber = event -> ownerships.invalidate(event.getWorkspace().getId());
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        eventService.subscribe(createdWorkspacesSubscriber, WorkspaceCreatedEvent.class);
+        eventService.subscribe(removedWorkspacesSubscriber, BeforeWorkspaceRemovedEvent.class);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        eventService.unsubscribe(createdWorkspacesSubscriber, WorkspaceCreatedEvent.class);
+        eventService.unsubscribe(removedWorkspacesSubscriber, BeforeWorkspaceRemovedEvent.class);
+    }
+
+    /**
+     * Returns owner of the workspace with given key.
+     *
+     * <p>Workspace is loaded only when its owner is not indexed yet
+     * or when workspace is referenced by the composite key 'namespace:name'.
+     *
+     * @param key
+     *         workspace id or composite key 'namespace:name'
+     * @return owner of the workspace
+     * @throws NotFoundException
+     *         when workspace with given key doesn't exist
+     * @throws ServerException
+     *         when any other error occurs during workspace fetching
+     */
+    public WorkspaceOwnership get(String key) throws NotFoundException, ServerException {
+        final WorkspaceOwnership indexed = ownerships.getIfPresent(key);
+        if (indexed != null) {
+            return indexed;
+        }
+        final WorkspaceOwnership ownership = toOwnership(workspaceManager.getWorkspace(key));
+        ownerships.put(ownership.getWorkspaceId(), ownership);
+        return ownership;
+    }
+
+    private void index(Workspace workspace) {
+        if (workspace instanceof WorkspaceImpl && ((WorkspaceImpl)workspace).getAccount() != null) {
+            ownerships.put(workspace.getId(), toOwnership((WorkspaceImpl)workspace));
+        }
+    }
+
+    private static WorkspaceOwnership toOwnership(WorkspaceImpl workspace) {
+        final Account account = workspace.getAccount();
+        return new WorkspaceOwnership(workspace.getId(),
+                                      workspace.getNamespace(),
+                                      account.getId(),
+                                      account.getType());
+    }
+
+    /**
+     * Describes account which owns the workspace.
+     */
+    public static class WorkspaceOwnership {
+        private final String workspaceId;
+        private final String namespace;
+        private final String accountId;
+        private final String accountType;
+
+        public WorkspaceOwnership(String workspaceId, String namespace, String accountId, String accountType) {
+            this.workspaceId = workspaceId;
+            this.namespace = namespace;
+            this.accountId = accountId;
+            this.accountType = accountType;
+        }
+
+        public String getWorkspaceId() {
+            return workspaceId;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public String getAccountId() {
+            return accountId;
+        }
+
+        public String getAccountType() {
+            return accountType;
+        }
+    }
+}
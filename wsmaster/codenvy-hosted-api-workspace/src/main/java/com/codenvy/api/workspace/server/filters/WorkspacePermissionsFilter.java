@@ -15,6 +15,8 @@
 package com.codenvy.api.workspace.server.filters;
 
 import com.codenvy.api.permission.server.SystemDomain;
+import com.codenvy.api.workspace.server.WorkspaceOwnershipIndex;
+import com.codenvy.api.workspace.server.WorkspaceOwnershipIndex.WorkspaceOwnership;
 import com.codenvy.organization.api.permissions.OrganizationDomain;
 import com.google.api.client.repackaged.com.google.common.annotations.VisibleForTesting;
 
@@ -24,9 +26,7 @@ import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.user.server.model.impl.UserImpl;
-import org.eclipse.che.api.workspace.server.WorkspaceManager;
 import org.eclipse.che.api.workspace.server.WorkspaceService;
-import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
 import org.eclipse.che.commons.annotation.Nullable;
 import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.subject.Subject;
@@ -58,12 +58,12 @@ import static com.codenvy.organization.spi.impl.OrganizationImpl.ORGANIZATIONAL_
 @Filter
 @Path("/workspace{path:(/.*)?}")
 public class WorkspacePermissionsFilter extends CheMethodInvokerFilter {
-    private final WorkspaceManager workspaceManager;
-    private final AccountManager   accountManager;
+    private final WorkspaceOwnershipIndex ownershipIndex;
+    private final AccountManager          accountManager;
 
     @Inject
-    public WorkspacePermissionsFilter(WorkspaceManager workspaceManager, AccountManager accountManager) {
-        this.workspaceManager = workspaceManager;
+    public WorkspacePermissionsFilter(WorkspaceOwnershipIndex ownershipIndex, AccountManager accountManager) {
+        this.ownershipIndex = ownershipIndex;
         this.accountManager = accountManager;
     }
 
@@ -165,15 +165,15 @@ public class WorkspacePermissionsFilter extends CheMethodInvokerFilter {
                 throw new ForbiddenException("The user does not have permission to perform this operation");
         }
 
-        final WorkspaceImpl workspace = workspaceManager.getWorkspace(key);
+        final WorkspaceOwnership ownership = ownershipIndex.get(key);
         try {
-            checkManageNamespaceAccess(currentSubject, workspace.getNamespace());
+            checkAccountAccess(currentSubject, ownership.getAccountId(), ownership.getAccountType(), MANAGE_WORKSPACES);
             // user is authorized to perform any operation if workspace belongs to account where he has the corresponding permissions
         } catch (ForbiddenException e) {
             //check permissions on workspace level
-            if (!currentSubject.hasPermission(DOMAIN_ID, workspace.getId(), action)) {
+            if (!currentSubject.hasPermission(DOMAIN_ID, ownership.getWorkspaceId(), action)) {
                 throw new ForbiddenException(
-                        "The user does not have permission to " + action + " workspace with id '" + workspace.getId() + "'");
+                        "The user does not have permission to " + action + " workspace with id '" + ownership.getWorkspaceId() + "'");
             }
         }
     }
@@ -194,15 +194,20 @@ public class WorkspacePermissionsFilter extends CheMethodInvokerFilter {
         }
 
         final Account account = accountManager.getByName(namespace);
+        checkAccountAccess(currentSubject, account.getId(), account.getType(), actions);
+    }
 
-        if (UserImpl.PERSONAL_ACCOUNT.equals(account.getType())) {
-            if (!account.getName().equals(currentSubject.getUserName())) {
+    @VisibleForTesting
+    void checkAccountAccess(Subject currentSubject, String accountId, String accountType, String... actions) throws ForbiddenException {
+        if (UserImpl.PERSONAL_ACCOUNT.equals(accountType)) {
+            // personal account has the same id as its owner
+            if (!accountId.equals(currentSubject.getUserId())) {
                 throw new ForbiddenException("User is not authorized to use given namespace");
             }
-        } else if (ORGANIZATIONAL_ACCOUNT.equals(account.getType())) {
+        } else if (ORGANIZATIONAL_ACCOUNT.equals(accountType)) {
             boolean authorized = false;
             for (String action : actions) {
-                if (authorized = currentSubject.hasPermission(OrganizationDomain.DOMAIN_ID, account.getId(), action)) {
+                if (authorized = currentSubject.hasPermission(OrganizationDomain.DOMAIN_ID, accountId, action)) {
                     break;
                 }
             }
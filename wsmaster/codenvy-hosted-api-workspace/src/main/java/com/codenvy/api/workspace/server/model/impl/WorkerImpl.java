@@ -54,7 +54,13 @@ import java.util.List;
                             query = "SELECT worker " +
                                     "FROM Worker worker " +
                                     "WHERE worker.userId = :userId " +
-                                    "AND worker.workspaceId = :workspaceId ")
+                                    "AND worker.workspaceId = :workspaceId "),
+                @NamedQuery(name = "Worker.getCountOfOtherUsersWithAction",
+                            query = "SELECT COUNT(worker) " +
+                                    "FROM Worker worker, IN(worker.actions) permittedAction " +
+                                    "WHERE worker.workspaceId = :workspaceId " +
+                                    "AND permittedAction = :action " +
+                                    "AND COALESCE(worker.userId, '*') <> :userId ")
         }
 )
 @Table(name = "worker")
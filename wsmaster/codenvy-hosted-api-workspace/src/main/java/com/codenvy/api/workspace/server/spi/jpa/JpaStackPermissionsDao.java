@@ -100,6 +100,24 @@ public class JpaStackPermissionsDao extends AbstractJpaPermissionsDao<StackPermi
         }
     }
 
+    @Override
+    @Transactional
+    public boolean existsForOtherUsers(String userId, String instanceId, String action) throws ServerException {
+        requireNonNull(userId, "User identifier required");
+        requireNonNull(instanceId, "Stack identifier required");
+        requireNonNull(action, "Action name required");
+        try {
+            return managerProvider.get()
+                                  .createNamedQuery("StackPermissions.getCountOfOtherUsersWithAction", Long.class)
+                                  .setParameter("stackId", instanceId)
+                                  .setParameter("action", action)
+                                  .setParameter("userId", userId)
+                                  .getSingleResult() > 0;
+        } catch (RuntimeException e) {
+            throw new ServerException(e.getLocalizedMessage(), e);
+        }
+    }
+
     @Override
     protected StackPermissionsImpl getEntity(String userId, String instanceId) throws NotFoundException {
         try {
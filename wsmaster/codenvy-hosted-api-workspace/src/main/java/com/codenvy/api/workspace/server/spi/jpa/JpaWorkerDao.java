@@ -124,6 +124,24 @@ public class JpaWorkerDao extends AbstractJpaPermissionsDao<WorkerImpl> implemen
         }
     }
 
+    @Override
+    @Transactional
+    public boolean existsForOtherUsers(String userId, String instanceId, String action) throws ServerException {
+        requireNonNull(userId, "User identifier required");
+        requireNonNull(instanceId, "Workspace identifier required");
+        requireNonNull(action, "Action name required");
+        try {
+            return managerProvider.get()
+                                  .createNamedQuery("Worker.getCountOfOtherUsersWithAction", Long.class)
+                                  .setParameter("workspaceId", instanceId)
+                                  .setParameter("action", action)
+                                  .setParameter("userId", userId)
+                                  .getSingleResult() > 0;
+        } catch (RuntimeException e) {
+            throw new ServerException(e.getLocalizedMessage(), e);
+        }
+    }
+
     @Override
     protected WorkerImpl getEntity(String userId, String instanceId) throws NotFoundException {
         try {
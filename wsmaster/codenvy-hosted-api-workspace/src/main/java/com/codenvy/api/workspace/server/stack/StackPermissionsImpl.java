@@ -59,7 +59,13 @@ import java.util.List;
                             query = "SELECT stack " +
                                     "FROM StackPermissions stack " +
                                     "WHERE stack.stackId = :stackId " +
-                                    "AND stack.userId IS NULL ")
+                                    "AND stack.userId IS NULL "),
+                @NamedQuery(name = "StackPermissions.getCountOfOtherUsersWithAction",
+                            query = "SELECT COUNT(stack) " +
+                                    "FROM StackPermissions stack, IN(stack.actions) permittedAction " +
+                                    "WHERE stack.stackId = :stackId " +
+                                    "AND permittedAction = :action " +
+                                    "AND COALESCE(stack.userId, '*') <> :userId ")
         }
 )
 @Table(indexes = {@Index(columnList = "userId, stackId", unique = true),
@@ -0,0 +1,129 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.workspace.server;
+
+import com.codenvy.api.workspace.server.WorkspaceOwnershipIndex.WorkspaceOwnership;
+
+import org.eclipse.che.account.spi.AccountImpl;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.workspace.server.WorkspaceManager;
+import org.eclipse.che.api.workspace.server.event.BeforeWorkspaceRemovedEvent;
+import org.eclipse.che.api.workspace.server.event.WorkspaceCreatedEvent;
+import org.eclipse.che.api.workspace.server.model.impl.WorkspaceConfigImpl;
+import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import static com.codenvy.organization.spi.impl.OrganizationImpl.ORGANIZATIONAL_ACCOUNT;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests for {@link WorkspaceOwnershipIndex}.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class WorkspaceOwnershipIndexTest {
+    @Mock
+    private WorkspaceManager workspaceManager;
+    @Mock
+    private EventService     eventService;
+
+    @Captor
+    private ArgumentCaptor<EventSubscriber<WorkspaceCreatedEvent>>       createdSubscriberCaptor;
+    @Captor
+    private ArgumentCaptor<EventSubscriber<BeforeWorkspaceRemovedEvent>> removedSubscriberCaptor;
+
+    private WorkspaceImpl           workspace;
+    private WorkspaceOwnershipIndex ownershipIndex;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        workspace = new WorkspaceImpl("workspace123",
+                                      new AccountImpl("organization123", "org", ORGANIZATIONAL_ACCOUNT),
+                                      new WorkspaceConfigImpl("ws", "", "env", null, null, null));
+        when(workspaceManager.getWorkspace("workspace123")).thenReturn(workspace);
+        when(workspaceManager.getWorkspace("org:ws")).thenReturn(workspace);
+
+        ownershipIndex = new WorkspaceOwnershipIndex(workspaceManager, eventService, 100);
+        ownershipIndex.subscribe();
+        verify(eventService).subscribe(createdSubscriberCaptor.capture(), eq(WorkspaceCreatedEvent.class));
+        verify(eventService).subscribe(removedSubscriberCaptor.capture(), eq(BeforeWorkspaceRemovedEvent.class));
+    }
+
+    @Test
+    public void shouldLoadWorkspaceOnlyOnceWhenOwnershipIsNotIndexed() throws Exception {
+        ownershipIndex.get("workspace123");
+        final WorkspaceOwnership ownership = ownershipIndex.get("workspace123");
+
+        verify(workspaceManager).getWorkspace("workspace123");
+        assertOwnership(ownership);
+    }
+
+    @Test
+    public void shouldIndexOwnershipOfCreatedWorkspace() throws Exception {
+        createdSubscriberCaptor.getValue().onEvent(new WorkspaceCreatedEvent(workspace));
+
+        final WorkspaceOwnership ownership = ownershipIndex.get("workspace123");
+
+        verify(workspaceManager, never()).getWorkspace(anyString());
+        assertOwnership(ownership);
+    }
+
+    @Test
+    public void shouldIndexOwnershipByWorkspaceIdWhenWorkspaceIsFetchedByCompositeKey() throws Exception {
+        ownershipIndex.get("org:ws");
+        final WorkspaceOwnership ownership = ownershipIndex.get("workspace123");
+
+        verify(workspaceManager).getWorkspace("org:ws");
+        verify(workspaceManager, never()).getWorkspace("workspace123");
+        assertOwnership(ownership);
+    }
+
+    @Test
+    public void shouldEvictOwnershipOfRemovedWorkspace() throws Exception {
+        ownershipIndex.get("workspace123");
+
+        removedSubscriberCaptor.getValue().onEvent(new BeforeWorkspaceRemovedEvent(workspace));
+        ownershipIndex.get("workspace123");
+
+        verify(workspaceManager, times(2)).getWorkspace("workspace123");
+    }
+
+    @Test
+    public void shouldUnsubscribeFromWorkspaceEvents() throws Exception {
+        ownershipIndex.unsubscribe();
+
+        verify(eventService).unsubscribe(createdSubscriberCaptor.getValue(), WorkspaceCreatedEvent.class);
+        verify(eventService).unsubscribe(removedSubscriberCaptor.getValue(), BeforeWorkspaceRemovedEvent.class);
+    }
+
+    private static void assertOwnership(WorkspaceOwnership ownership) {
+        assertEquals(ownership.getWorkspaceId(), "workspace123");
+        assertEquals(ownership.getNamespace(), "org");
+        assertEquals(ownership.getAccountId(), "organization123");
+        assertEquals(ownership.getAccountType(), ORGANIZATIONAL_ACCOUNT);
+    }
+}
@@ -15,20 +15,19 @@
 package com.codenvy.api.workspace.server.filters;
 
 import com.codenvy.api.permission.server.SystemDomain;
+import com.codenvy.api.workspace.server.WorkspaceOwnershipIndex;
+import com.codenvy.api.workspace.server.WorkspaceOwnershipIndex.WorkspaceOwnership;
 import com.jayway.restassured.response.Response;
 import com.jayway.restassured.specification.RequestSpecification;
 
 import org.eclipse.che.account.api.AccountManager;
 import org.eclipse.che.account.spi.AccountImpl;
 import org.eclipse.che.api.core.ForbiddenException;
-import org.eclipse.che.api.core.model.user.User;
 import org.eclipse.che.api.core.rest.ApiExceptionMapper;
 import org.eclipse.che.api.core.rest.shared.dto.ServiceError;
 import org.eclipse.che.api.environment.server.MachineService;
 import org.eclipse.che.api.user.server.model.impl.UserImpl;
-import org.eclipse.che.api.workspace.server.WorkspaceManager;
 import org.eclipse.che.api.workspace.server.WorkspaceService;
-import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
 import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.subject.Subject;
 import org.eclipse.che.dto.server.DtoFactory;
@@ -54,6 +53,7 @@ import static com.codenvy.api.workspace.server.WorkspaceDomain.DOMAIN_ID;
 import static com.codenvy.api.workspace.server.WorkspaceDomain.READ;
 import static com.codenvy.api.workspace.server.WorkspaceDomain.RUN;
 import static com.codenvy.api.workspace.server.WorkspaceDomain.USE;
+import static com.codenvy.organization.spi.impl.OrganizationImpl.ORGANIZATIONAL_ACCOUNT;
 import static com.jayway.restassured.RestAssured.given;
 import static org.everrest.assured.JettyHttpServer.ADMIN_USER_NAME;
 import static org.everrest.assured.JettyHttpServer.ADMIN_USER_PASSWORD;
@@ -88,7 +88,7 @@ public class WorkspacePermissionsFilterTest {
     private static final EnvironmentFilter  FILTER   = new EnvironmentFilter();
 
     @Mock
-    WorkspaceManager workspaceManager;
+    WorkspaceOwnershipIndex ownershipIndex;
 
     @Mock
     AccountManager accountManager;
@@ -109,17 +109,17 @@ public class WorkspacePermissionsFilterTest {
     @Mock
     MachineService machineService;
 
-    @Mock
-    WorkspaceImpl workspace;
-
     @BeforeMethod
     public void setUp() throws Exception {
         doThrow(new ForbiddenException("")).when(permissionsFilter).checkNamespaceAccess(any(), any(), anyVararg());
+        doThrow(new ForbiddenException("")).when(permissionsFilter).checkAccountAccess(any(), any(), any(), anyVararg());
 
         when(subject.getUserName()).thenReturn(USERNAME);
-        when(workspaceManager.getWorkspace(any())).thenReturn(workspace);
-        when(workspace.getNamespace()).thenReturn("namespace");
-        when(workspace.getId()).thenReturn("workspace123");
+        when(subject.getUserId()).thenReturn("user123");
+        when(ownershipIndex.get(any())).thenReturn(new WorkspaceOwnership("workspace123",
+                                                                          "namespace",
+                                                                          "organization123",
+                                                                          ORGANIZATIONAL_ACCOUNT));
 
         when(accountManager.getByName(any())).thenReturn(account);
     }
@@ -467,12 +467,10 @@ public class WorkspacePermissionsFilterTest {
     @Test
     public void shouldCheckPermissionsOnGetWorkspaceByUserNameAndWorkspaceName() throws Exception {
         when(subject.hasPermission("workspace", "workspace123", "read")).thenReturn(true);
-        User storedUser = mock(User.class);
-        when(storedUser.getId()).thenReturn("user123");
-
-        WorkspaceImpl workspace = mock(WorkspaceImpl.class);
-        when(workspace.getId()).thenReturn("workspace123");
-        when(workspaceManager.getWorkspace("myWorkspace", "userok")).thenReturn(workspace);
+        when(ownershipIndex.get("userok:myWorkspace")).thenReturn(new WorkspaceOwnership("workspace123",
+                                                                                          "userok",
+                                                                                          "user123",
+                                                                                          UserImpl.PERSONAL_ACCOUNT));
 
         final Response response = given().auth()
                                          .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
@@ -639,7 +637,7 @@ public class WorkspacePermissionsFilterTest {
                                                                                                String method,
                                                                                                String action) throws Exception {
         when(subject.hasPermission(anyString(), anyString(), anyString())).thenReturn(false);
-        doThrow(new ForbiddenException("")).when(permissionsFilter).checkNamespaceAccess(any(), any(), anyVararg());
+        doThrow(new ForbiddenException("")).when(permissionsFilter).checkAccountAccess(any(), any(), any(), anyVararg());
 
         Response response = request(given().auth()
                                            .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
@@ -659,9 +657,12 @@ public class WorkspacePermissionsFilterTest {
     public void shouldNotCheckWorkspacePermissionsWhenWorkspaceBelongToHisPersonalAccount(String path,
                                                                                           String method,
                                                                                           String action) throws Exception {
-        doNothing().when(permissionsFilter).checkNamespaceAccess(any(), any(), anyVararg());
+        doCallRealMethod().when(permissionsFilter).checkAccountAccess(any(), any(), any(), anyVararg());
         when(subject.hasPermission(eq(SystemDomain.DOMAIN_ID), eq(null), eq(SystemDomain.MANAGE_SYSTEM_ACTION))).thenReturn(false);
-        when(workspace.getNamespace()).thenReturn(USERNAME);
+        when(ownershipIndex.get(any())).thenReturn(new WorkspaceOwnership("workspace123",
+                                                                          USERNAME,
+                                                                          "user123",
+                                                                          UserImpl.PERSONAL_ACCOUNT));
 
         Response response = request(given().auth()
                                            .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
@@ -683,6 +684,7 @@ public class WorkspacePermissionsFilterTest {
 
     @Test
     public void shouldNotThrowExceptionWhenNamespaceEqualsToPersonalAccountNameOfUserOnNamespaceAccessChecking() throws Exception {
+        when(account.getId()).thenReturn("user123");
         when(account.getName()).thenReturn(USERNAME);
         when(account.getType()).thenReturn(UserImpl.PERSONAL_ACCOUNT);
         doCallRealMethod().when(permissionsFilter).checkNamespaceAccess(any(), any());
@@ -226,6 +226,30 @@ public class StackPermissionsDaoTest {
         dao.exists("user", "instance", null);
     }
 
+    /* StackPermissionsDao.existsForOtherUsers() tests */
+    @Test
+    public void shouldReturnTrueWhenAnotherUserHasPermissionWithAction() throws Exception {
+        assertTrue(dao.existsForOtherUsers("user2", "stack1", "run"));
+    }
+
+    @Test
+    public void shouldReturnFalseWhenOnlyGivenUserHasPermissionWithAction() throws Exception {
+        assertFalse(dao.existsForOtherUsers("user1", "stack1", "run"));
+    }
+
+    @Test
+    public void shouldConsiderPermissionsOfAnyUserAsPermissionsOfAnotherUser() throws Exception {
+        dao.store(new StackPermissionsImpl("*", "stack1", singletonList("delete")));
+
+        assertTrue(dao.existsForOtherUsers("user1", "stack1", "delete"));
+        assertFalse(dao.existsForOtherUsers("*", "stack1", "delete"));
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void shouldThrowExceptionWhenPermissionsExistsForOtherUsersInstanceIdArgumentIsNull() throws Exception {
+        dao.existsForOtherUsers("user", null, "action");
+    }
+
     public static class TestDomain extends AbstractPermissionsDomain<StackPermissionsImpl> {
         public TestDomain() {
             super("stack", asList("read", "write", "use", "delete"));
@@ -14,74 +14,173 @@
  */
 package com.codenvy.api.permission.server;
 
+import com.codenvy.api.permission.shared.dto.PermissionsChangesDto;
 import com.codenvy.api.permission.shared.dto.PermissionsDto;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.inject.name.Named;
 
+import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.rest.HttpJsonRequestFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.ws.rs.core.UriBuilder;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implementation of {@link PermissionChecker} that load permissions by http requests to {@link PermissionsService}
  *
  * <p>It also caches permissions to avoid frequently requests to workspace master.
+ * Permissions of the user and permissions of any user('*') are loaded by the single request.
+ * Cached permissions expire after {@link #CACHE_EXPIRE_TIME_MINUTES}. When the current user
+ * is allowed to read the changes journal of workspace master, changed permissions are evicted earlier,
+ * changes are requested not more often than once per {@link #CHANGES_SYNC_PERIOD_MS}
+ * by the thread which checks permissions, so idle clients don't load workspace master.
  *
  * @author Sergii Leschenko
  */
 @Singleton
 public class HttpPermissionCheckerImpl implements PermissionChecker {
-    private final LoadingCache<Key, Set<String>> permissionsCache;
+    private static final Logger LOG = LoggerFactory.getLogger(HttpPermissionCheckerImpl.class);
+
+    private static final int  CACHE_SIZE                = 1000;
+    private static final long CACHE_EXPIRE_TIME_MINUTES = 1;
+    private static final long CHANGES_SYNC_PERIOD_MS    = 5_000;
+
+    private final Cache<Key, Set<String>> permissionsCache;
+    private final AtomicLong              invalidations;
+    private final ReentrantLock           syncLock;
+    private final HttpJsonRequestFactory  requestFactory;
+    private final String                  apiEndpoint;
+    private final String                  changesUrl;
+
+    private volatile long   lastSyncTime;
+    private          String journalId;
+    private          long   revision;
 
     @Inject
     public HttpPermissionCheckerImpl(@Named("che.api") String apiEndpoint,
                                      HttpJsonRequestFactory requestFactory) {
-        //TODO mb make configurable size of cache and expiration time
+        this.requestFactory = requestFactory;
+        this.apiEndpoint = apiEndpoint;
+        this.changesUrl = UriBuilder.fromUri(apiEndpoint)
+                                    .path(PermissionsService.class)
+                                    .path(PermissionsService.class, "getChanges")
+                                    .build()
+                                    .toString();
         this.permissionsCache = CacheBuilder.newBuilder()
-                                            .maximumSize(1000)
-                                            .expireAfterWrite(1, TimeUnit.MINUTES)
-                                            .build(new CacheLoader<Key, Set<String>>() {
-                                                @Override
-                                                public Set<String> load(Key key) throws Exception {
-                                                    UriBuilder currentUsersPermissions = UriBuilder.fromUri(apiEndpoint)
-                                                                                                   .path(PermissionsService.class)
-                                                                                                   .path(PermissionsService.class,
-                                                                                                         "getCurrentUsersPermissions");
-                                                    if (key.instance != null) {
-                                                        currentUsersPermissions.queryParam("instance", key.instance);
-                                                    }
-                                                    String userPermissionsUrl = currentUsersPermissions.build(key.domain).toString();
-                                                    try {
-                                                        PermissionsDto usersPermissions = requestFactory.fromUrl(userPermissionsUrl)
-                                                                                                        .useGetMethod()
-                                                                                                        .request().asDto(
-                                                                        PermissionsDto.class);
-                                                        return new HashSet<>(usersPermissions.getActions());
-                                                    } catch (NotFoundException e) {
-                                                        //user doesn't have permissions
-                                                        return new HashSet<>();
-                                                    }
-                                                }
-                                            });
+                                            .maximumSize(CACHE_SIZE)
+                                            .expireAfterWrite(CACHE_EXPIRE_TIME_MINUTES, TimeUnit.MINUTES)
+                                            .build();
+        this.invalidations = new AtomicLong();
+        this.syncLock = new ReentrantLock();
     }
 
     @Override
     public boolean hasPermission(String user, String domain, String instance, String action) throws ServerException {
+        syncChanges();
+        final Key key = new Key(user, domain, instance);
+        Set<String> actions = permissionsCache.getIfPresent(key);
+        if (actions == null) {
+            final long invalidationsBeforeLoad = invalidations.get();
+            try {
+                actions = loadActions(domain, instance);
+            } catch (Exception e) {
+                throw new ServerException(e.getMessage(), e);
+            }
+            // permissions may be changed while they are loaded, such value must not be cached
+            if (invalidationsBeforeLoad == invalidations.get()) {
+                permissionsCache.put(key, actions);
+            }
+        }
+        return actions.contains(action);
+    }
+
+    /** Loads actions which are permitted for current user or for any user('*') by the single request. */
+    private Set<String> loadActions(String domain, String instance) throws Exception {
+        final UriBuilder currentUsersPermissions = UriBuilder.fromUri(apiEndpoint)
+                                                             .path(PermissionsService.class)
+                                                             .path(PermissionsService.class,
+                                                                   "getCurrentUsersEffectivePermissions");
+        if (instance != null) {
+            currentUsersPermissions.queryParam("instance", instance);
+        }
+        final List<PermissionsDto> permissions;
         try {
-            return permissionsCache.get(new Key(user, domain, instance)).contains(action)
-                    || permissionsCache.get(new Key("*", domain, instance)).contains(action);
+            permissions = requestFactory.fromUrl(currentUsersPermissions.build(domain).toString())
+                                        .useGetMethod()
+                                        .request()
+                                        .asList(PermissionsDto.class);
+        } catch (NotFoundException e) {
+            //domain is not supported
+            return new HashSet<>();
+        }
+        final Set<String> actions = new HashSet<>();
+        for (PermissionsDto permission : permissions) {
+            actions.addAll(permission.getActions());
+        }
+        return actions;
+    }
+
+    /**
+     * Evicts cached permissions which were changed since the previous synchronization.
+     * Only one thread performs synchronization, others use cached permissions meanwhile.
+     * When changes can't be fetched all the cached permissions are evicted.
+     */
+    private void syncChanges() {
+        if (System.currentTimeMillis() - lastSyncTime < CHANGES_SYNC_PERIOD_MS || !syncLock.tryLock()) {
+            return;
+        }
+        try {
+            if (System.currentTimeMillis() - lastSyncTime < CHANGES_SYNC_PERIOD_MS) {
+                return;
+            }
+            final UriBuilder changesUriBuilder = UriBuilder.fromUri(changesUrl).queryParam("since", revision);
+            if (journalId != null) {
+                changesUriBuilder.queryParam("journal", journalId);
+            }
+            final PermissionsChangesDto changes = requestFactory.fromUrl(changesUriBuilder.build().toString())
+                                                                .useGetMethod()
+                                                                .request()
+                                                                .asDto(PermissionsChangesDto.class);
+            if (changes.isReset()) {
+                invalidations.incrementAndGet();
+                permissionsCache.invalidateAll();
+            } else if (!changes.getChanges().isEmpty()) {
+                invalidations.incrementAndGet();
+                final Set<Key> changed = new HashSet<>();
+                for (PermissionsDto change : changes.getChanges()) {
+                    changed.add(new Key(null, change.getDomainId(), change.getInstanceId()));
+                }
+                permissionsCache.asMap()
+                                .keySet()
+                                .removeIf(key -> changed.contains(new Key(null, key.domain, key.instance)));
+            }
+            journalId = changes.getJournalId();
+            revision = changes.getRevision();
+        } catch (ForbiddenException e) {
+            // the journal is available only for system managers, cached permissions just expire
+            LOG.debug("Changes of permissions are not available for current user. Cause: {}", e.getLocalizedMessage());
         } catch (Exception e) {
-            throw new ServerException(e.getMessage(), e);
+            LOG.warn("Failed to fetch changes of permissions, all the cached permissions are evicted. Cause: {}",
+                     e.getLocalizedMessage());
+            invalidations.incrementAndGet();
+            permissionsCache.invalidateAll();
+            journalId = null;
+        } finally {
+            lastSyncTime = System.currentTimeMillis();
+            syncLock.unlock();
         }
     }
 
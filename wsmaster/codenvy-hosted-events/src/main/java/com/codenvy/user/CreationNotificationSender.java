@@ -17,12 +17,12 @@ package com.codenvy.user;
 import com.codenvy.mail.Attachment;
 import com.codenvy.mail.EmailBean;
 import com.codenvy.mail.MailSender;
+import com.codenvy.mail.MailTemplateRegistry;
 import com.codenvy.service.password.RecoveryStorage;
 import com.google.api.client.repackaged.com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.Files;
 
 import org.eclipse.che.api.core.ApiException;
-import org.eclipse.che.commons.lang.Deserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,8 +38,6 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static javax.ws.rs.core.MediaType.TEXT_HTML;
-import static org.eclipse.che.commons.lang.IoUtil.getResource;
-import static org.eclipse.che.commons.lang.IoUtil.readAndCloseQuietly;
 
 /**
  * Sends email notification to users about their registration in Codenvy
@@ -68,6 +66,9 @@ public class CreationNotificationSender {
     @Inject
     private MailSender mailSender;
 
+    @Inject
+    private MailTemplateRegistry mailTemplates;
+
     @Inject
     private RecoveryStorage recoveryStorage;
 
@@ -97,7 +98,7 @@ public class CreationNotificationSender {
                 .withFileName("logo.png");
 
         EmailBean emailBean = new EmailBean()
-                .withBody(Deserializer.resolveVariables(readAndCloseQuietly(getResource("/" + template)), properties))
+                .withBody(mailTemplates.getResourceTemplate("/" + template).render(properties))
                 .withFrom(mailFrom)
                 .withTo(userEmail)
                 .withReplyTo(null)
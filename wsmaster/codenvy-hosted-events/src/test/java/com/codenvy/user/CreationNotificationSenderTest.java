@@ -15,6 +15,7 @@
 package com.codenvy.user;
 
 import com.codenvy.mail.MailSender;
+import com.codenvy.mail.MailTemplateRegistry;
 import com.codenvy.mail.EmailBean;
 import com.codenvy.service.password.RecoveryStorage;
 
@@ -22,6 +23,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.testng.MockitoTestNGListener;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
@@ -48,6 +50,9 @@ public class CreationNotificationSenderTest {
     @Mock
     private MailSender mailSender;
 
+    @Spy
+    private MailTemplateRegistry mailTemplates = new MailTemplateRegistry();
+
     @Mock
     private RecoveryStorage recoveryStorage;
 
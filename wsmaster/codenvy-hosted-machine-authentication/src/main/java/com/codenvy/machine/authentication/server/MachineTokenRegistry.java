@@ -14,33 +14,34 @@
  */
 package com.codenvy.machine.authentication.server;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
-
 import org.eclipse.che.api.core.NotFoundException;
 
 import javax.inject.Singleton;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.String.format;
 import static org.eclipse.che.commons.lang.NameGenerator.generate;
 
 /**
- * Table-based storage of machine security tokens.
- * Table rows is workspace id's, columns - user id's.
- * Table is synchronized externally as required by its javadoc.
+ * Concurrent storage of machine security tokens.
+ *
+ * <p>Keeps two indexes: workspace id -> (user id -> token) which is used
+ * for generation and invalidation of workspace tokens, and token -> (user id, workspace id)
+ * which allows to resolve user and workspace by token in constant time.
+ * Modifications of the tokens of a single workspace are performed atomically
+ * under the lock of the corresponding workspace entry, so operations
+ * on different workspaces never contend with each other, lookups are lock-free.
  *
  * @author Max Shaposhnik (mshaposhnik@codenvy.com)
- * @see HashBasedTable
  */
 @Singleton
 public class MachineTokenRegistry {
 
-    private final Table<String, String, String> tokens = HashBasedTable.create();
-    private final ReadWriteLock                 lock   = new ReentrantReadWriteLock();
+    private final ConcurrentHashMap<String, Map<String, String>> workspaceTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenOwner>          tokenOwners     = new ConcurrentHashMap<>();
 
     /**
      * Generates new machine security token for given user and workspace.
@@ -52,14 +53,15 @@ public class MachineTokenRegistry {
      * @return generated token value
      */
     public String generateToken(String userId, String workspaceId) {
-        lock.writeLock().lock();
-        try {
-            final String token = generate("machine", 128);
-            tokens.put(workspaceId, userId, token);
-            return token;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        final String token = generate("machine", 128);
+        workspaceTokens.compute(workspaceId, (wsId, userTokens) -> {
+            if (userTokens == null) {
+                userTokens = new ConcurrentHashMap<>();
+            }
+            putToken(userTokens, userId, wsId, token);
+            return userTokens;
+        });
+        return token;
     }
 
     /**
@@ -75,16 +77,18 @@ public class MachineTokenRegistry {
      *         when there is no running workspace with given id
      */
     public String getOrCreateToken(String userId, String workspaceId) throws NotFoundException {
-        lock.writeLock().lock();
-        try {
-            final Map<String, String> wsRow = tokens.row(workspaceId);
-            if (wsRow.isEmpty()) {
-                throw new NotFoundException(format("No running workspace found with id %s", workspaceId));
+        final Map<String, String> workspaceRow = workspaceTokens.computeIfPresent(workspaceId, (wsId, userTokens) -> {
+            if (!userTokens.containsKey(userId)) {
+                putToken(userTokens, userId, wsId, generate("machine", 128));
             }
-            return wsRow.get(userId) == null ? generateToken(userId, workspaceId) : wsRow.get(userId);
-        } finally {
-            lock.writeLock().unlock();
+            return userTokens;
+        });
+        // rows are concurrent maps, so the token may be read outside of the workspace entry lock
+        final String token = workspaceRow == null ? null : workspaceRow.get(userId);
+        if (token == null) {
+            throw new NotFoundException(format("No running workspace found with id %s", workspaceId));
         }
+        return token;
     }
 
     /**
@@ -95,17 +99,18 @@ public class MachineTokenRegistry {
      *         when no token exists for given user and workspace
      */
     public String getUserId(String token) throws NotFoundException {
-        lock.readLock().lock();
-        try {
-            for (Table.Cell<String, String, String> tokenCell : tokens.cellSet()) {
-                if (tokenCell.getValue().equals(token)) {
-                    return tokenCell.getColumnKey();
-                }
-            }
-            throw new NotFoundException("User not found for token " + token);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return getOwner(token).userId;
+    }
+
+    /**
+     * Gets workspaceId by machine token
+     *
+     * @return workspace identifier
+     * @throws NotFoundException
+     *         when no token exists for given user and workspace
+     */
+    public String getWorkspaceId(String token) throws NotFoundException {
+        return getOwner(token).workspaceId;
     }
 
     /**
@@ -117,13 +122,64 @@ public class MachineTokenRegistry {
      * is a map where key is user id and value is token
      */
     public Map<String, String> removeTokens(String workspaceId) {
-        lock.writeLock().lock();
-        try {
-            final Map<String, String> rowCopy = new HashMap<>(tokens.row(workspaceId));
-            tokens.row(workspaceId).clear();
-            return rowCopy;
-        } finally {
-            lock.writeLock().unlock();
+        final Map<String, String> removed = new HashMap<>();
+        workspaceTokens.computeIfPresent(workspaceId, (wsId, userTokens) -> {
+            removed.putAll(userTokens);
+            for (Map.Entry<String, String> userToken : userTokens.entrySet()) {
+                tokenOwners.remove(userToken.getValue(), new TokenOwner(userToken.getKey(), wsId));
+            }
+            return null;
+        });
+        return removed;
+    }
+
+    /**
+     * Puts the token into the given workspace row and into the reverse index,
+     * replacing the previous token of the user if any.
+     * Must be called under the lock of the workspace entry.
+     */
+    private void putToken(Map<String, String> userTokens, String userId, String workspaceId, String token) {
+        final String oldToken = userTokens.put(userId, token);
+        if (oldToken != null) {
+            tokenOwners.remove(oldToken);
+        }
+        tokenOwners.put(token, new TokenOwner(userId, workspaceId));
+    }
+
+    private TokenOwner getOwner(String token) throws NotFoundException {
+        final TokenOwner owner = tokenOwners.get(token);
+        if (owner == null) {
+            throw new NotFoundException("User not found for token " + token);
+        }
+        return owner;
+    }
+
+    /** Describes the user and the workspace the machine token is issued for. */
+    private static final class TokenOwner {
+        private final String userId;
+        private final String workspaceId;
+
+        private TokenOwner(String userId, String workspaceId) {
+            this.userId = userId;
+            this.workspaceId = workspaceId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TokenOwner)) {
+                return false;
+            }
+            final TokenOwner that = (TokenOwner)obj;
+            return Objects.equals(userId, that.userId)
+                   && Objects.equals(workspaceId, that.workspaceId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, workspaceId);
         }
     }
 }
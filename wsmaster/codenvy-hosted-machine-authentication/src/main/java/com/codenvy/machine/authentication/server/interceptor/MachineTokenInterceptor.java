@@ -28,11 +28,17 @@ import javax.inject.Singleton;
  * Intercepts calls to workspace start/stop methods and
  * creates machine authorization token in the registry.
  *
+ * <p>Token is not created when the start is only queued, i.e. the returned workspace
+ * has {@link #START_QUEUED_ATTRIBUTE}, such start creates the token itself when it is performed.
+ *
  * @author Max Shaposhnik (mshaposhnik@codenvy.com)
  */
 @Singleton
 public class MachineTokenInterceptor implements MethodInterceptor {
 
+    /** Attribute which marks workspace returned by the start which is queued. */
+    static final String START_QUEUED_ATTRIBUTE = "start_queued";
+
     @Inject
     MachineTokenRegistry tokenRegistry;
 
@@ -42,6 +48,9 @@ public class MachineTokenInterceptor implements MethodInterceptor {
 
         if (result instanceof Workspace) {
             final Workspace workspace = ((Workspace)result);
+            if (Boolean.parseBoolean(workspace.getAttributes().get(START_QUEUED_ATTRIBUTE))) {
+                return result;
+            }
             // generate machine token for user who start the workspace
             tokenRegistry.generateToken(EnvironmentContext.getCurrent().getSubject().getUserId(), workspace.getId());
         }
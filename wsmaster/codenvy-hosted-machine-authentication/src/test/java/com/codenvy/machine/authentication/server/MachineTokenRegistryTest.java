@@ -52,6 +52,61 @@ public class MachineTokenRegistryTest {
         assertFalse(exists(registry, "user3", "workspace123"));
     }
 
+    @Test
+    public void shouldFindUserByToken() throws Exception {
+        final MachineTokenRegistry registry = new MachineTokenRegistry();
+        final String token1 = registry.generateToken("user1", "workspace123");
+        final String token2 = registry.generateToken("user2", "workspace123");
+        final String token3 = registry.getOrCreateToken("user3", "workspace123");
+
+        assertEquals(registry.getUserId(token1), "user1");
+        assertEquals(registry.getUserId(token2), "user2");
+        assertEquals(registry.getUserId(token3), "user3");
+    }
+
+    @Test
+    public void shouldFindWorkspaceByToken() throws Exception {
+        final MachineTokenRegistry registry = new MachineTokenRegistry();
+        final String token1 = registry.generateToken("user1", "workspace123");
+        final String token2 = registry.generateToken("user1", "workspace234");
+        final String token3 = registry.getOrCreateToken("user2", "workspace234");
+
+        assertEquals(registry.getWorkspaceId(token1), "workspace123");
+        assertEquals(registry.getWorkspaceId(token2), "workspace234");
+        assertEquals(registry.getWorkspaceId(token3), "workspace234");
+    }
+
+    @Test
+    public void getOrCreateTokenShouldReturnExistingToken() throws Exception {
+        final MachineTokenRegistry registry = new MachineTokenRegistry();
+        final String token = registry.generateToken("user1", "workspace123");
+
+        assertEquals(registry.getOrCreateToken("user1", "workspace123"), token);
+    }
+
+    @Test(expectedExceptions = NotFoundException.class)
+    public void shouldNotFindUserByRegeneratedToken() throws Exception {
+        final MachineTokenRegistry registry = new MachineTokenRegistry();
+        final String oldToken = registry.generateToken("user1", "workspace123");
+        registry.generateToken("user1", "workspace123");
+
+        registry.getUserId(oldToken);
+    }
+
+    @Test(expectedExceptions = NotFoundException.class)
+    public void shouldNotFindUserByRemovedToken() throws Exception {
+        final MachineTokenRegistry registry = new MachineTokenRegistry();
+        final String token = registry.generateToken("user1", "workspace123");
+        registry.removeTokens("workspace123");
+
+        registry.getUserId(token);
+    }
+
+    @Test
+    public void removeTokensShouldReturnEmptyMapWhenNoTokensExist() throws Exception {
+        assertTrue(new MachineTokenRegistry().removeTokens("workspace123").isEmpty());
+    }
+
     private static boolean exists(MachineTokenRegistry registry, String user, String workspace) {
         try {
             registry.getOrCreateToken(user, workspace);
@@ -45,9 +45,12 @@ import org.testng.annotations.Test;
 import java.lang.reflect.Method;
 
 import static com.google.inject.matcher.Matchers.subclassesOf;
+import static java.util.Collections.singletonMap;
 import static org.eclipse.che.inject.Matchers.names;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -130,4 +133,15 @@ public class MachineTokenInterceptorTest {
 
         verify(tokenRegistry).generateToken(eq(USER_ID), eq(workspaceId));
     }
+
+    @Test
+    public void shouldNotGenerateTokenWhenWorkspaceStartIsQueued() throws Throwable {
+        final String workspaceId = "testWs123";
+        when(workspaceImpl.getId()).thenReturn(workspaceId);
+        when(workspaceImpl.getAttributes()).thenReturn(singletonMap(MachineTokenInterceptor.START_QUEUED_ATTRIBUTE, "true"));
+
+        workspaceManager.startWorkspace(workspaceId, null, null);
+
+        verify(tokenRegistry, never()).generateToken(anyString(), anyString());
+    }
 }
@@ -0,0 +1,386 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.mail;
+
+import com.codahale.metrics.annotation.Gauge;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.activation.DataHandler;
+import javax.activation.FileTypeMap;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.Part;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.util.ByteArrayDataSource;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Bounded in-memory queue of emails which decouples the callers of {@link MailSender} from SMTP latency.
+ *
+ * <p>Emails are delivered by the pool of {@code mail.delivery.workers} threads, each worker keeps its own
+ * SMTP connection open while there are emails to send and delivers up to {@code mail.delivery.batch_size}
+ * queued emails over it at once. The connection is closed when the worker doesn't get any email
+ * for {@link #IDLE_CONNECTION_TIMEOUT_MS}.
+ *
+ * <p>Email which failed to be sent is retried with growing delay over a new connection,
+ * after {@code mail.delivery.max_attempts} attempts it is dropped. Email which can't be built
+ * or is rejected by the server because of invalid addresses is dropped without retries.
+ *
+ * <p>On shutdown the queue waits for both queued emails and the emails already taken by workers
+ * to be sent. Emails which are still not sent when the shutdown timeout is exceeded are lost,
+ * they are counted as failed and logged.
+ */
+@Singleton
+public class MailDeliveryQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(MailDeliveryQueue.class);
+
+    private static final long IDLE_CONNECTION_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MIN_RETRY_DELAY_MS         = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_RETRY_DELAY_MS         = TimeUnit.SECONDS.toMillis(30);
+    private static final long SHUTDOWN_TIMEOUT_MS        = TimeUnit.SECONDS.toMillis(30);
+
+    private final Session                 session;
+    private final BlockingQueue<Delivery> queue;
+    private final int                     batchSize;
+    private final int                     maxAttempts;
+    private final ExecutorService         executor;
+    private final AtomicLong              sent;
+    private final AtomicLong              retried;
+    private final AtomicLong              failed;
+    private final AtomicLong              sendTimeNanos;
+    private final AtomicLong              deliveryTimeNanos;
+    private final AtomicInteger           pending;
+
+    private volatile boolean accepting;
+
+    @Inject
+    public MailDeliveryQueue(SessionHolder sessionHolder,
+                             @Named("mail.delivery.queue_size") int queueSize,
+                             @Named("mail.delivery.workers") int workers,
+                             @Named("mail.delivery.batch_size") int batchSize,
+                             @Named("mail.delivery.max_attempts") int maxAttempts) {
+        checkArgument(queueSize > 0, "Mail delivery queue size must be positive");
+        checkArgument(workers > 0, "Number of mail delivery workers must be positive");
+        checkArgument(batchSize > 0, "Mail delivery batch size must be positive");
+        checkArgument(maxAttempts > 0, "Number of mail delivery attempts must be positive");
+        this.session = sessionHolder.getMailSession();
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.sent = new AtomicLong();
+        this.retried = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.sendTimeNanos = new AtomicLong();
+        this.deliveryTimeNanos = new AtomicLong();
+        this.pending = new AtomicInteger();
+        this.accepting = true;
+        this.executor = Executors.newFixedThreadPool(workers,
+                                                     new ThreadFactoryBuilder().setNameFormat("MailDeliveryQueue-%d")
+                                                                               .setUncaughtExceptionHandler(
+                                                                                       LoggingUncaughtExceptionHandler.getInstance())
+                                                                               .setDaemon(true)
+                                                                               .build());
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::deliver);
+        }
+    }
+
+    /**
+     * Adds the email to the queue, returns without waiting for the email to be sent.
+     *
+     * @param emailBean
+     *         email to send
+     * @throws ServerException
+     *         when the queue is full or is shut down
+     */
+    public void enqueue(EmailBean emailBean) throws ServerException {
+        if (!accepting) {
+            throw new ServerException("Mail delivery is shut down");
+        }
+        pending.incrementAndGet();
+        if (!queue.offer(new Delivery(emailBean))) {
+            pending.decrementAndGet();
+            throw new ServerException(format("Mail delivery queue is full, email to %s is not sent", emailBean.getTo()));
+        }
+    }
+
+    /** Returns the number of emails which are waiting to be sent. */
+    @Gauge(name = "mail.delivery.queue_size")
+    public int size() {
+        return queue.size();
+    }
+
+    /** Returns the number of emails which are queued or being sent. */
+    @Gauge(name = "mail.delivery.pending")
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /** Returns the number of sent emails. */
+    @Gauge(name = "mail.delivery.sent")
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /** Returns the number of failed sending attempts which were retried. */
+    @Gauge(name = "mail.delivery.retried")
+    public long getRetriedCount() {
+        return retried.get();
+    }
+
+    /** Returns the number of emails which were dropped because they couldn't be sent. */
+    @Gauge(name = "mail.delivery.failed")
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /** Returns the average time of sending an email over established SMTP connection in milliseconds. */
+    @Gauge(name = "mail.delivery.send_time_ms")
+    public long getAverageSendTime() {
+        final long count = sent.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(sendTimeNanos.get() / count);
+    }
+
+    /** Returns the average time between email enqueuing and its sending in milliseconds. */
+    @Gauge(name = "mail.delivery.latency_ms")
+    public long getAverageLatency() {
+        final long count = sent.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(deliveryTimeNanos.get() / count);
+    }
+
+    /** Stops accepting emails and waits for the queued emails and emails which are being sent to be sent. */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shutdown(SHUTDOWN_TIMEOUT_MS);
+    }
+
+    @VisibleForTesting
+    void shutdown(long timeoutMs) throws InterruptedException {
+        accepting = false;
+        executor.shutdown();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        // interrupts the workers which are waiting for emails or for the next sending attempt,
+        // emails which are taken by the interrupted workers are dropped by the workers themselves
+        executor.shutdownNow();
+        if (!executor.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+            LOG.warn("Unable to terminate mail delivery in {} ms", timeoutMs);
+        }
+        final List<Delivery> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        drop(queued);
+    }
+
+    /** Worker loop, sends queued emails in batches over the connection which is kept open while there are emails to send. */
+    private void deliver() {
+        final Deque<Delivery> batch = new ArrayDeque<>(batchSize);
+        Transport transport = null;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Delivery first = queue.poll(IDLE_CONNECTION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    transport = close(transport);
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (transport != null && !transport.isConnected()) {
+                    // connection is dropped by the server
+                    transport = close(transport);
+                }
+                // delivery is removed from the batch only when it is completed,
+                // so the one interrupted while being sent is dropped along with the rest of the batch
+                for (Delivery delivery = batch.peek(); delivery != null; delivery = batch.peek()) {
+                    transport = send(transport, delivery);
+                    batch.poll();
+                    pending.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(transport);
+            drop(batch);
+        }
+    }
+
+    /** Counts the given not sent emails as failed and logs them. */
+    private void drop(Collection<Delivery> deliveries) {
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        pending.addAndGet(-deliveries.size());
+        failed.addAndGet(deliveries.size());
+        LOG.warn("{} emails are not sent because mail delivery is stopped", deliveries.size());
+        for (Delivery delivery : deliveries) {
+            final EmailBean emailBean = delivery.emailBean;
+            LOG.warn("Email from {} to {} with subject {} is not sent", emailBean.getFrom(), emailBean.getTo(), emailBean.getSubject());
+        }
+    }
+
+    /** Sends the email retrying failed attempts, returns the transport to use for the next email. */
+    private Transport send(Transport transport, Delivery delivery) throws InterruptedException {
+        final EmailBean emailBean = delivery.emailBean;
+        final MimeMessage message;
+        try {
+            message = createMessage(emailBean);
+        } catch (MessagingException | UnsupportedEncodingException | RuntimeException e) {
+            failed.incrementAndGet();
+            LOG.error(format("Unable to create email from %s to %s with subject %s: %s",
+                             emailBean.getFrom(), emailBean.getTo(), emailBean.getSubject(), e.getMessage()), e);
+            return transport;
+        }
+
+        LOG.info("Sending from {} to {} with subject {}", emailBean.getFrom(), emailBean.getTo(), emailBean.getSubject());
+        long retryDelay = MIN_RETRY_DELAY_MS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (transport == null) {
+                    transport = session.getTransport();
+                    transport.connect();
+                }
+                final long start = System.nanoTime();
+                transport.sendMessage(message, message.getAllRecipients());
+                final long end = System.nanoTime();
+                sendTimeNanos.addAndGet(end - start);
+                deliveryTimeNanos.addAndGet(end - delivery.enqueuedNanos);
+                sent.incrementAndGet();
+                LOG.debug("Mail send");
+                return transport;
+            } catch (SendFailedException e) {
+                // some of recipients are rejected by the server, so retry won't help
+                failed.incrementAndGet();
+                LOG.error(format("Unable to send email to %s: %s", emailBean.getTo(), e.getMessage()), e);
+                return transport;
+            } catch (MessagingException e) {
+                transport = close(transport);
+                if (attempt >= maxAttempts) {
+                    failed.incrementAndGet();
+                    LOG.error(format("Unable to send email to %s in %d attempts: %s", emailBean.getTo(), attempt, e.getMessage()), e);
+                    return null;
+                }
+                retried.incrementAndGet();
+                LOG.warn("Attempt {} to send email to {} failed, retrying in {} ms. Cause: {}",
+                         attempt, emailBean.getTo(), retryDelay, e.getMessage());
+                Thread.sleep(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    private MimeMessage createMessage(EmailBean emailBean) throws MessagingException, UnsupportedEncodingException {
+        MimeMessage message = new MimeMessage(session);
+        Multipart contentPart = new MimeMultipart();
+
+        MimeBodyPart bodyPart = new MimeBodyPart();
+        bodyPart.setText(emailBean.getBody(), "UTF-8", getSubType(emailBean.getMimeType()));
+        contentPart.addBodyPart(bodyPart);
+
+        if (emailBean.getAttachments() != null) {
+            for (Attachment attachment : emailBean.getAttachments()) {
+                final byte[] attachmentContent = Base64.getDecoder().decode(attachment.getContent());
+                final String contentType = FileTypeMap.getDefaultFileTypeMap().getContentType(attachment.getFileName());
+
+                MimeBodyPart attachmentPart = new MimeBodyPart();
+                attachmentPart.setDataHandler(new DataHandler(new ByteArrayDataSource(attachmentContent, contentType)));
+                attachmentPart.setDisposition(Part.ATTACHMENT);
+                attachmentPart.setFileName(attachment.getFileName());
+                attachmentPart.setContentID("<" + attachment.getContentId() + ">");
+                contentPart.addBodyPart(attachmentPart);
+            }
+        }
+
+        message.setContent(contentPart);
+        message.setSubject(emailBean.getSubject(), "UTF-8");
+        message.setFrom(new InternetAddress(emailBean.getFrom(), true));
+        message.addRecipients(Message.RecipientType.TO, InternetAddress.parse(emailBean.getTo()));
+
+        if (emailBean.getReplyTo() != null) {
+            message.setReplyTo(InternetAddress.parse(emailBean.getReplyTo()));
+        }
+        message.saveChanges();
+        return message;
+    }
+
+    /**
+     * Get the specified MIME subtype from given primary MIME type.
+     * <p/>
+     * It is needed for setText method in MimeBodyPar because it works only with text MimeTypes.
+     * setText method in MimeBodyPar already adds predefined "text/" to given subtype.
+     *
+     * @param mimeType
+     *         primary MIME type
+     * @return MIME subtype
+     */
+    private String getSubType(String mimeType) {
+        return mimeType.substring(mimeType.lastIndexOf("/") + 1);
+    }
+
+    private static Transport close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                LOG.debug("Unable to close SMTP connection: {}", e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static class Delivery {
+        private final EmailBean emailBean;
+        private final long      enqueuedNanos;
+
+        private Delivery(EmailBean emailBean) {
+            this.emailBean = emailBean;
+            this.enqueuedNanos = System.nanoTime();
+        }
+    }
+}
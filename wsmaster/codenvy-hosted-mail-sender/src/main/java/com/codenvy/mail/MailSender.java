@@ -14,41 +14,27 @@
  */
 package com.codenvy.mail;
 
-import com.google.common.io.Files;
-
-import org.apache.commons.io.FileUtils;
 import org.eclipse.che.api.core.ServerException;
-import org.eclipse.che.commons.lang.Deserializer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
-import javax.mail.Message;
-import javax.mail.MessagingException;
-import javax.mail.Multipart;
-import javax.mail.Transport;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeBodyPart;
-import javax.mail.internet.MimeMessage;
-import javax.mail.internet.MimeMultipart;
-import java.io.File;
-import java.io.IOException;
-import java.util.Base64;
 import java.util.Map;
 
 /**
  * Provides email sending capability
  *
+ * <p>Emails are sent asynchronously by {@link MailDeliveryQueue},
+ * so sending methods return as soon as the email is queued.
+ *
  * @author Alexander Garagatyi
  */
 public class MailSender {
-    private static final Logger LOG = LoggerFactory.getLogger(MailSender.class);
-
-    private SessionHolder sessionHolder;
+    private final MailDeliveryQueue    deliveryQueue;
+    private final MailTemplateRegistry templates;
 
     @Inject
-    public MailSender(SessionHolder sessionHolder) {
-        this.sessionHolder = sessionHolder;
+    public MailSender(MailDeliveryQueue deliveryQueue, MailTemplateRegistry templates) {
+        this.deliveryQueue = deliveryQueue;
+        this.templates = templates;
     }
 
     public void sendMail(String from, String to, String replyTo, String subject, String mimeType,
@@ -60,7 +46,7 @@ public class MailSender {
                          Map<String, String> templateProperties) throws ServerException {
         EmailBean emailBean = new EmailBean()
                 .withBody(templateProperties == null ? template
-                                                     : Deserializer.resolveVariables(template, templateProperties))
+                                                     : templates.getTemplate(template).render(templateProperties))
                 .withFrom(from)
                 .withTo(to)
                 .withReplyTo(replyTo)
@@ -70,69 +56,15 @@ public class MailSender {
         sendMail(emailBean);
     }
 
-    public void sendMail(EmailBean emailBean) throws ServerException {
-        File tempDir = null;
-        try {
-            MimeMessage message = new MimeMessage(sessionHolder.getMailSession());
-            Multipart contentPart = new MimeMultipart();
-
-            MimeBodyPart bodyPart = new MimeBodyPart();
-            bodyPart.setText(emailBean.getBody(), "UTF-8", getSubType(emailBean.getMimeType()));
-            contentPart.addBodyPart(bodyPart);
-
-            if (emailBean.getAttachments() != null) {
-                tempDir = Files.createTempDir();
-                for (Attachment attachment : emailBean.getAttachments()) {
-                    //Create attachment file in temporary directory
-                    byte[] attachmentContent = Base64.getDecoder().decode(attachment.getContent());
-                    File attachmentFile = new File(tempDir, attachment.getFileName());
-                    Files.write(attachmentContent, attachmentFile);
-
-                    //Attach the attachment file to email
-                    MimeBodyPart attachmentPart = new MimeBodyPart();
-                    attachmentPart.attachFile(attachmentFile);
-                    attachmentPart.setContentID("<" + attachment.getContentId() + ">");
-                    contentPart.addBodyPart(attachmentPart);
-                }
-            }
-
-            message.setContent(contentPart);
-            message.setSubject(emailBean.getSubject(), "UTF-8");
-            message.setFrom(new InternetAddress(emailBean.getFrom(), true));
-            message.addRecipients(Message.RecipientType.TO, InternetAddress.parse(emailBean.getTo()));
-
-            if (emailBean.getReplyTo() != null) {
-                message.setReplyTo(InternetAddress.parse(emailBean.getReplyTo()));
-            }
-            LOG.info("Sending from {} to {} with subject {}", emailBean.getFrom(), emailBean.getTo(),
-                     emailBean.getSubject());
-
-            Transport.send(message);
-            LOG.debug("Mail send");
-        } catch (MessagingException | IOException e) {
-            throw new ServerException(e);
-        } finally {
-            if (tempDir != null) {
-                try {
-                    FileUtils.deleteDirectory(tempDir);
-                } catch (IOException exception) {
-                    LOG.error(exception.getMessage());
-                }
-            }
-        }
-    }
-
     /**
-     * Get the specified MIME subtype from given primary MIME type.
-     * <p/>
-     * It is needed for setText method in MimeBodyPar because it works only with text MimeTypes.
-     * setText method in MimeBodyPar already adds predefined "text/" to given subtype.
+     * Queues the email for sending.
      *
-     * @param mimeType
-     *         primary MIME type
-     * @return MIME subtype
+     * @param emailBean
+     *         email to send
+     * @throws ServerException
+     *         when email can't be queued because the delivery queue is full
      */
-    private String getSubType(String mimeType) {
-        return mimeType.substring(mimeType.lastIndexOf("/") + 1);
+    public void sendMail(EmailBean emailBean) throws ServerException {
+        deliveryQueue.enqueue(emailBean);
     }
 }
@@ -0,0 +1,116 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Email template which is parsed once into the list of literal text segments
+ * separated by variables, so rendering doesn't need to search for variables again.
+ *
+ * <p>Variables are resolved the same way as {@link org.eclipse.che.commons.lang.Deserializer#resolveVariables(String, Map)}
+ * does it: {@code ${name}} is replaced with the value of given property or system property with such name,
+ * variables which can't be resolved are left as is.
+ *
+ * <p>Instances are immutable and can be shared between threads, see {@link MailTemplateRegistry}.
+ */
+public class MailTemplate {
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{[^\\}^\\$\\{]+\\}");
+
+    /** Rendered templates which are larger than this are not kept in the thread's buffer. */
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final String[] literals;
+    private final String[] variables;
+    private final String[] names;
+    private final int      literalsLength;
+
+    /**
+     * Parses given template.
+     *
+     * @param template
+     *         template text
+     * @return parsed template
+     * @throws NullPointerException
+     *         when {@code template} is null
+     */
+    public static MailTemplate compile(String template) {
+        requireNonNull(template, "Required non-null template");
+        final List<String> literals = new ArrayList<>();
+        final List<String> variables = new ArrayList<>();
+        final Matcher matcher = VARIABLE_PATTERN.matcher(template);
+        int start = 0;
+        while (matcher.find()) {
+            literals.add(template.substring(start, matcher.start()));
+            variables.add(matcher.group());
+            start = matcher.end();
+        }
+        literals.add(template.substring(start));
+        return new MailTemplate(literals.toArray(new String[literals.size()]),
+                                variables.toArray(new String[variables.size()]));
+    }
+
+    private MailTemplate(String[] literals, String[] variables) {
+        this.literals = literals;
+        this.variables = variables;
+        this.names = new String[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            names[i] = variables[i].substring(2, variables[i].length() - 1);
+        }
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalsLength = length;
+    }
+
+    /**
+     * Renders template replacing its variables with values of given properties.
+     *
+     * @param properties
+     *         values of the template variables, may be null
+     * @return rendered template
+     */
+    public String render(Map<String, String> properties) {
+        if (names.length == 0) {
+            return literals[0];
+        }
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.ensureCapacity(literalsLength);
+        buffer.append(literals[0]);
+        for (int i = 0; i < names.length; i++) {
+            String value = properties == null ? null : properties.get(names[i]);
+            if (value == null) {
+                value = System.getProperty(names[i]);
+            }
+            buffer.append(value == null ? variables[i] : value)
+                  .append(literals[i + 1]);
+        }
+        final String result = buffer.toString();
+        if (buffer.capacity() > MAX_BUFFER_SIZE) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+}
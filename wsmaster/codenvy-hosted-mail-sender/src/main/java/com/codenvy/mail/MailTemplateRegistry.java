@@ -0,0 +1,84 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.mail;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import static org.eclipse.che.commons.lang.IoUtil.getResource;
+import static org.eclipse.che.commons.lang.IoUtil.readAndCloseQuietly;
+
+/**
+ * Keeps parsed {@link MailTemplate templates}, so each template is parsed only once.
+ *
+ * <p>Templates given as text are cached by the text itself,
+ * templates loaded from resources are cached by the resource name.
+ */
+@Singleton
+public class MailTemplateRegistry {
+    private static final int MAX_TEMPLATES = 1000;
+
+    private final Cache<String, MailTemplate> templates;
+    private final Cache<String, MailTemplate> resourceTemplates;
+
+    public MailTemplateRegistry() {
+        this.templates = CacheBuilder.newBuilder()
+                                     .maximumSize(MAX_TEMPLATES)
+                                     .build();
+        this.resourceTemplates = CacheBuilder.newBuilder()
+                                             .maximumSize(MAX_TEMPLATES)
+                                             .build();
+    }
+
+    /**
+     * Returns parsed template for given template text.
+     *
+     * @param template
+     *         template text
+     * @return parsed template
+     */
+    public MailTemplate getTemplate(String template) {
+        MailTemplate compiled = templates.getIfPresent(template);
+        if (compiled == null) {
+            compiled = MailTemplate.compile(template);
+            templates.put(template, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns parsed template loaded from given resource.
+     *
+     * @param resource
+     *         name of the resource or path to the file which contains template
+     * @return parsed template
+     * @throws IOException
+     *         when template can't be loaded
+     */
+    public MailTemplate getResourceTemplate(String resource) throws IOException {
+        try {
+            return resourceTemplates.get(resource, () -> MailTemplate.compile(readAndCloseQuietly(getResource(resource))));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException(e.getCause().getLocalizedMessage(), e.getCause());
+        }
+    }
+}
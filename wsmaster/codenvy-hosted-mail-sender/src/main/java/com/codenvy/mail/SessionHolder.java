@@ -35,6 +35,13 @@ public class SessionHolder {
 
     private static final String CONFIGURATION_FILE = "mail.configuration.path";
 
+    /**
+     * Default timeouts in milliseconds applied when the configuration file doesn't set them,
+     * otherwise JavaMail waits for the SMTP server infinitely and blocks delivery workers.
+     */
+    private static final String DEFAULT_CONNECTION_TIMEOUT_MS = "30000";
+    private static final String DEFAULT_READ_TIMEOUT_MS       = "60000";
+
     private Session session;
 
     @Inject
@@ -62,6 +69,8 @@ public class SessionHolder {
 
             Properties props = new Properties();
             props.load(is);
+            props.putIfAbsent("mail.smtp.connectiontimeout", DEFAULT_CONNECTION_TIMEOUT_MS);
+            props.putIfAbsent("mail.smtp.timeout", DEFAULT_READ_TIMEOUT_MS);
 
             if (Boolean.parseBoolean(props.getProperty("mail.smtp.auth"))) {
                 final String username = props.getProperty("mail.smtp.auth.username");
@@ -0,0 +1,133 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.mail;
+
+import com.dumbster.smtp.SimpleSmtpServer;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+
+import org.eclipse.che.api.core.ServerException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+import static com.codenvy.mail.MailSenderTest.awaitEmails;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link MailDeliveryQueue}
+ */
+public class MailDeliveryQueueTest {
+    private SimpleSmtpServer  server;
+    private File              testConfig;
+    private MailDeliveryQueue deliveryQueue;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = SimpleSmtpServer.start(SimpleSmtpServer.AUTO_SMTP_PORT);
+        String testConfigContent =
+                Resources.toString(Resources.getResource("mail-configuration.properties"), Charset.defaultCharset())
+                         .replace("mail.smtp.port=9000", "mail.smtp.port=" + server.getPort());
+        testConfig = File.createTempFile("mail-config", "properties");
+        testConfig.deleteOnExit();
+        Files.append(testConfigContent, testConfig, Charset.defaultCharset());
+
+        deliveryQueue = new MailDeliveryQueue(new SessionHolder(testConfig.getAbsolutePath()), 100, 2, 10, 3);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        deliveryQueue.shutdown();
+        server.stop();
+        testConfig.delete();
+    }
+
+    @Test
+    public void shouldSendAllQueuedEmails() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            deliveryQueue.enqueue(createEmail("dev-test" + i + "@cloud-ide.com"));
+        }
+
+        awaitEmails(server, 50);
+
+        assertEquals(server.getReceivedEmails().size(), 50);
+        assertEquals(deliveryQueue.getSentCount(), 50);
+        assertEquals(deliveryQueue.getFailedCount(), 0);
+        assertEquals(deliveryQueue.size(), 0);
+    }
+
+    @Test
+    public void shouldDropEmailWhichCanNotBeCreatedAndContinueSending() throws Exception {
+        deliveryQueue.enqueue(createEmail("dev-test@cloud-ide.com").withFrom("noreply@cloud-ide.com>>"));
+        deliveryQueue.enqueue(createEmail("dev-test@cloud-ide.com"));
+
+        awaitEmails(server, 1);
+
+        assertEquals(server.getReceivedEmails().size(), 1);
+        assertEquals(deliveryQueue.getFailedCount(), 1);
+    }
+
+    @Test
+    public void shouldRetrySendingWhenServerIsUnavailable() throws Exception {
+        final int port = server.getPort();
+        server.stop();
+
+        deliveryQueue.enqueue(createEmail("dev-test@cloud-ide.com"));
+        Thread.sleep(500);
+        server = SimpleSmtpServer.start(port);
+
+        awaitEmails(server, 1);
+
+        assertEquals(server.getReceivedEmails().size(), 1);
+        assertTrue(deliveryQueue.getRetriedCount() > 0);
+        assertEquals(deliveryQueue.getFailedCount(), 0);
+    }
+
+    @Test
+    public void shouldDropEmailsWhichAreNotSentWhenShutdownTimeoutExceeded() throws Exception {
+        deliveryQueue.shutdown();
+        deliveryQueue = new MailDeliveryQueue(new SessionHolder(testConfig.getAbsolutePath()), 100, 1, 10, 100);
+        server.stop();
+        deliveryQueue.enqueue(createEmail("dev-test1@cloud-ide.com"));
+        deliveryQueue.enqueue(createEmail("dev-test2@cloud-ide.com"));
+        // let the worker take the batch and wait for the next attempt
+        Thread.sleep(500);
+
+        deliveryQueue.shutdown(200);
+
+        assertEquals(deliveryQueue.getPendingCount(), 0);
+        assertEquals(deliveryQueue.getFailedCount(), 2);
+        assertEquals(deliveryQueue.getSentCount(), 0);
+    }
+
+    @Test(expectedExceptions = ServerException.class)
+    public void shouldRejectEmailsAfterShutdown() throws Exception {
+        deliveryQueue.shutdown();
+
+        deliveryQueue.enqueue(createEmail("dev-test@cloud-ide.com"));
+    }
+
+    private EmailBean createEmail(String to) {
+        return new EmailBean().withFrom("noreply@cloud-ide.com")
+                              .withTo(to)
+                              .withSubject("Subject")
+                              .withMimeType("text/html")
+                              .withBody("hello user");
+    }
+}
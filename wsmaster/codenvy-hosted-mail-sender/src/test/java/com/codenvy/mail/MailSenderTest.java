@@ -43,13 +43,16 @@ import static org.testng.Assert.assertTrue;
 @Listeners(value = {EverrestJetty.class, MockitoTestNGListener.class})
 public class MailSenderTest {
     private final Random portRandomizer = new Random();
-    private Session          mailSession;
-    private MailSender       mailSender;
-    private File             testConfig;
-    private SimpleSmtpServer server;
+    private Session           mailSession;
+    private MailSender        mailSender;
+    private MailDeliveryQueue deliveryQueue;
+    private File              testConfig;
+    private SimpleSmtpServer  server;
 
     public static void assertMail(SimpleSmtpServer server, String from, String to, String replyTo, String subject,
-                                  String mimeType, String body, String attachmentContentID, String attachmentFileName) {
+                                  String mimeType, String body, String attachmentContentID, String attachmentFileName)
+            throws InterruptedException {
+        awaitEmails(server, 1);
         assertEquals(server.getReceivedEmails().size(), 1);
         SmtpMessage email = server.getReceivedEmails().iterator().next();
 
@@ -65,6 +68,14 @@ public class MailSenderTest {
         }
     }
 
+    /** Waits until the server receives given number of emails, as they are sent asynchronously. */
+    public static void awaitEmails(SimpleSmtpServer server, int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (server.getReceivedEmails().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
     @BeforeMethod
     public void setup(ITestContext context) throws IOException {
         //      mailSender = new MailSender("/mail-configuration.properties");
@@ -77,11 +88,13 @@ public class MailSenderTest {
         Files.append(testConfigContent, testConfig, Charset.defaultCharset());
 
 
-        mailSender = new MailSender(new SessionHolder(testConfig.getAbsolutePath()));
+        deliveryQueue = new MailDeliveryQueue(new SessionHolder(testConfig.getAbsolutePath()), 100, 1, 10, 3);
+        mailSender = new MailSender(deliveryQueue, new MailTemplateRegistry());
     }
 
     @AfterMethod
-    public void stop() {
+    public void stop() throws InterruptedException {
+        deliveryQueue.shutdown();
         server.stop();
         testConfig.delete();
     }
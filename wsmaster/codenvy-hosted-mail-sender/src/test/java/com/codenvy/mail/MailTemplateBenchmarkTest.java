@@ -0,0 +1,71 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.mail;
+
+import org.eclipse.che.commons.lang.Deserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static com.codenvy.mail.MailTemplateTest.INVITATION_TEMPLATE;
+import static com.codenvy.mail.MailTemplateTest.invitationProperties;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Compares rendering of a typical invitation email with 10 variables through
+ * the {@link MailTemplateRegistry} with resolving variables by {@link Deserializer} on each email.
+ *
+ * <p>It is excluded from the default build, run it with the {@code benchmark} profile.
+ */
+public class MailTemplateBenchmarkTest {
+    private static final Logger LOG = LoggerFactory.getLogger(MailTemplateBenchmarkTest.class);
+
+    private static final int WARMUP_RENDERINGS = 10_000;
+    private static final int RENDERINGS        = 100_000;
+
+    @Test
+    public void measureRenderingOfInvitationEmail() {
+        final MailTemplateRegistry registry = new MailTemplateRegistry();
+        final Map<String, String> properties = invitationProperties();
+
+        for (int i = 0; i < WARMUP_RENDERINGS; i++) {
+            Deserializer.resolveVariables(INVITATION_TEMPLATE, properties);
+            registry.getTemplate(INVITATION_TEMPLATE).render(properties);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RENDERINGS; i++) {
+            Deserializer.resolveVariables(INVITATION_TEMPLATE, properties);
+        }
+        final long resolvingTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < RENDERINGS; i++) {
+            registry.getTemplate(INVITATION_TEMPLATE).render(properties);
+        }
+        final long renderingTime = System.nanoTime() - start;
+
+        LOG.info("{} renderings of invitation email with {} variables: resolving {} ns/op, compiled template {} ns/op",
+                 RENDERINGS,
+                 properties.size(),
+                 resolvingTime / RENDERINGS,
+                 renderingTime / RENDERINGS);
+        LOG.info("Total time: resolving {} ms, compiled template {} ms",
+                 NANOSECONDS.toMillis(resolvingTime),
+                 NANOSECONDS.toMillis(renderingTime));
+    }
+}
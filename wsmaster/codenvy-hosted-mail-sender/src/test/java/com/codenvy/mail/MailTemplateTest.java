@@ -0,0 +1,141 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.mail;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.eclipse.che.commons.lang.Deserializer;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Tests for {@link MailTemplate} and {@link MailTemplateRegistry}.
+ */
+public class MailTemplateTest {
+    static final String INVITATION_TEMPLATE =
+            "<html><head><title>${invitation.subject}</title></head><body>" +
+            "<table width=\"100%\" cellpadding=\"0\" cellspacing=\"0\"><tr><td align=\"center\">" +
+            "<img src=\"cid:${logo.cid}\" alt=\"Codenvy\"/></td></tr>" +
+            "<tr><td><p>Hi ${invitee.email},</p>" +
+            "<p>${inviter.name} (${inviter.email}) has invited you to join the ${organization.name} organization " +
+            "with ${permissions} permissions.</p>" +
+            "<p>Accept the invitation by following the link below. The link expires in ${expiration.days} days.</p>" +
+            "<p><a href=\"${com.codenvy.masterhost.url}/site/accept-invite?token=${invitation.token}\">Join</a></p>" +
+            "<p>If the link doesn't work, copy and paste it into your browser:<br/>" +
+            "${com.codenvy.masterhost.url}/site/accept-invite?token=${invitation.token}</p>" +
+            "<p>Thanks,<br/>The Codenvy Team</p></td></tr></table></body></html>";
+
+    private static final Map<String, String> PROPERTIES = ImmutableMap.of("user.name", "John",
+                                                                          "team.name", "codenvy",
+                                                                          "empty", "");
+
+    @Test(dataProvider = "templates")
+    public void shouldRenderTemplateTheSameWayAsDeserializer(String template) {
+        assertEquals(MailTemplate.compile(template).render(PROPERTIES), Deserializer.resolveVariables(template, PROPERTIES));
+    }
+
+    @DataProvider
+    public Object[][] templates() {
+        return new Object[][] {
+                {""},
+                {"no variables"},
+                {"${user.name}"},
+                {"Hello ${user.name}, welcome to ${team.name}!"},
+                {"${user.name}${team.name}${empty}"},
+                {"Unknown ${unknown.variable} is left as is"},
+                {"Incomplete ${user.name"},
+                {"Nested ${${user.name}}"},
+                {"Dollar $user.name and braces {user.name}"}
+        };
+    }
+
+    @Test
+    public void shouldRenderInvitationEmailTheSameWayAsDeserializer() {
+        final Map<String, String> properties = invitationProperties();
+
+        assertEquals(new MailTemplateRegistry().getTemplate(INVITATION_TEMPLATE).render(properties),
+                     Deserializer.resolveVariables(INVITATION_TEMPLATE, properties));
+    }
+
+    @Test
+    public void shouldFallbackToSystemProperties() {
+        System.setProperty("mail.template.test.property", "value");
+        try {
+            assertEquals(MailTemplate.compile("${mail.template.test.property}").render(Collections.emptyMap()), "value");
+        } finally {
+            System.clearProperty("mail.template.test.property");
+        }
+    }
+
+    @Test
+    public void shouldLeaveVariablesWhenPropertiesAreNull() {
+        assertEquals(MailTemplate.compile("Hello ${unknown.variable}").render(null), "Hello ${unknown.variable}");
+    }
+
+    @Test
+    public void shouldRenderTemplateMultipleTimes() {
+        MailTemplate template = MailTemplate.compile("Hello ${user.name}");
+
+        assertEquals(template.render(ImmutableMap.of("user.name", "John")), "Hello John");
+        assertEquals(template.render(ImmutableMap.of("user.name", "Jane")), "Hello Jane");
+    }
+
+    @Test
+    public void shouldCacheCompiledTemplates() {
+        MailTemplateRegistry registry = new MailTemplateRegistry();
+        String template = "Hello ${user.name}";
+
+        assertSame(registry.getTemplate(template), registry.getTemplate(new String(template)));
+    }
+
+    @Test
+    public void shouldLoadAndCacheResourceTemplates() throws Exception {
+        MailTemplateRegistry registry = new MailTemplateRegistry();
+
+        MailTemplate template = registry.getResourceTemplate("/test-template.html");
+
+        assertSame(registry.getResourceTemplate("/test-template.html"), template);
+        assertEquals(template.render(ImmutableMap.of("user.name", "John", "com.codenvy.masterhost.url", "codenvy.io")),
+                     "<p>Hello John, welcome to codenvy.io</p>\n");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldThrowIOExceptionWhenResourceTemplateDoesNotExist() throws Exception {
+        new MailTemplateRegistry().getResourceTemplate("/not-existing-template.html");
+    }
+
+    static Map<String, String> invitationProperties() {
+        final Map<String, String> properties = new HashMap<>();
+        properties.put("invitation.subject", "You've been invited to Codenvy");
+        properties.put("logo.cid", "codenvyLogo");
+        properties.put("invitee.email", "invitee@codenvy.com");
+        properties.put("inviter.name", "John Doe");
+        properties.put("inviter.email", "john@codenvy.com");
+        properties.put("organization.name", "codenvy-team");
+        properties.put("permissions", "read, use, run");
+        properties.put("expiration.days", "7");
+        properties.put("com.codenvy.masterhost.url", "https://codenvy.io");
+        properties.put("invitation.token", "4d1c7a0e-5b5f-4a8e-9f3c-1b2d3e4f5a6b");
+        return properties;
+    }
+}
@@ -57,4 +57,13 @@ public interface TicketManager {
      * @return set of access tickets
      */
     Set<AccessTicket> getAccessTickets();
+
+    /**
+     * Remove access tickets which were created before the given time.
+     *
+     * @param time
+     *         time in milliseconds, tickets created before it are removed
+     * @return set of removed access tickets
+     */
+    Set<AccessTicket> removeTicketsCreatedBefore(long time);
 }
@@ -14,6 +14,8 @@
  */
 package com.codenvy.api.workspace;
 
+import com.codahale.metrics.annotation.Gauge;
+import com.codenvy.machine.authentication.server.MachineTokenRegistry;
 import com.codenvy.resource.api.RamResourceType;
 import com.codenvy.resource.api.RuntimeResourceType;
 import com.codenvy.resource.api.WorkspaceResourceType;
@@ -27,12 +29,14 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 
 import org.eclipse.che.account.api.AccountManager;
+import org.eclipse.che.api.core.ApiException;
 import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.model.workspace.Environment;
 import org.eclipse.che.api.core.model.workspace.Workspace;
 import org.eclipse.che.api.core.model.workspace.WorkspaceConfig;
+import org.eclipse.che.api.core.model.workspace.WorkspaceStatus;
 import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.machine.server.spi.SnapshotDao;
 import org.eclipse.che.api.workspace.server.WorkspaceManager;
@@ -40,9 +44,15 @@ import org.eclipse.che.api.workspace.server.WorkspaceRuntimes;
 import org.eclipse.che.api.workspace.server.WorkspaceSharedPool;
 import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
 import org.eclipse.che.api.workspace.server.spi.WorkspaceDao;
+import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
 import org.eclipse.che.commons.annotation.Nullable;
+import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.lang.Size;
 import org.eclipse.che.commons.lang.concurrent.Unlocker;
+import org.eclipse.che.commons.subject.Subject;
+import org.eclipse.che.dto.server.DtoFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -51,11 +61,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Semaphore;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static java.lang.String.format;
-import static java.lang.Thread.currentThread;
 import static java.util.Collections.singletonList;
 
 /**
@@ -67,17 +75,28 @@ import static java.util.Collections.singletonList;
  */
 @Singleton
 public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
+    private static final Logger LOG = LoggerFactory.getLogger(LimitsCheckingWorkspaceManager.class);
+
+    /**
+     * Attribute of the workspace returned by start which is queued, the actual status is propagated with events.
+     * Machine token for such workspace is generated by the queued start instead of {@code MachineTokenInterceptor}.
+     */
+    public static final String START_QUEUED_ATTRIBUTE         = "start_queued";
+    /** Attribute of the workspace returned by start which is queued, contains the number of queued starts. */
+    public static final String START_QUEUE_POSITION_ATTRIBUTE = "start_queue_position";
 
     private final SystemRamInfoProvider    systemRamInfoProvider;
     private final EnvironmentRamCalculator environmentRamCalculator;
     private final ResourceUsageManager     resourceUsageManager;
     private final ResourcesLocks           resourcesLocks;
     private final AccountManager           accountManager;
+    private final WorkspaceDao             workspaceDao;
+    private final WorkspaceStartQueue      startQueue;
+    private final MachineTokenRegistry     tokenRegistry;
 
     private final long maxRamPerEnvMB;
 
-    @VisibleForTesting
-    Semaphore startSemaphore;
+    private final EventService eventService;
 
     @Inject
     public LimitsCheckingWorkspaceManager(WorkspaceDao workspaceDao,
@@ -90,11 +109,12 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
                                           WorkspaceSharedPool sharedPool,
                                           //own injects
                                           @Named("limits.workspace.env.ram") String maxRamPerEnv,
-                                          @Named("limits.workspace.start.throughput") int maxSameTimeStartWSRequests,
+                                          WorkspaceStartQueue startQueue,
                                           SystemRamInfoProvider systemRamInfoProvider,
                                           EnvironmentRamCalculator environmentRamCalculator,
                                           ResourceUsageManager resourceUsageManager,
-                                          ResourcesLocks resourcesLocks) {
+                                          ResourcesLocks resourcesLocks,
+                                          MachineTokenRegistry tokenRegistry) {
         super(workspaceDao, runtimes, eventService, accountManager, defaultAutoSnapshot, defaultAutoRestore, snapshotDao, sharedPool);
         this.systemRamInfoProvider = systemRamInfoProvider;
         this.environmentRamCalculator = environmentRamCalculator;
@@ -102,10 +122,20 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
         this.resourceUsageManager = resourceUsageManager;
         this.resourcesLocks = resourcesLocks;
         this.accountManager = accountManager;
+        this.eventService = eventService;
+        this.workspaceDao = workspaceDao;
+        this.startQueue = startQueue;
+        this.tokenRegistry = tokenRegistry;
+    }
 
-        if (maxSameTimeStartWSRequests > 0) {
-            this.startSemaphore = new Semaphore(maxSameTimeStartWSRequests);
-        }
+    @Gauge(name = "workspace.start.queue_size")
+    public int getStartQueueSize() {
+        return startQueue.size();
+    }
+
+    @Gauge(name = "workspace.start.queue_longest_wait_time_ms")
+    public long getStartQueueLongestWaitTime() {
+        return startQueue.getLongestWaitTime();
     }
 
     @Override
@@ -116,9 +146,13 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
         checkMaxEnvironmentRam(config);
         String accountId = accountManager.getByName(namespace).getId();
         try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquiresLock(accountId)) {
-            checkWorkspaceResourceAvailability(accountId);
+            checkWorkspaceResourceAvailability(resourceUsageManager.getAvailableResources(accountId));
 
-            return super.createWorkspace(config, namespace);
+            try {
+                return super.createWorkspace(config, namespace);
+            } finally {
+                resourceUsageManager.invalidateUsedResources(accountId);
+            }
         }
     }
 
@@ -131,9 +165,13 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
         checkMaxEnvironmentRam(config);
         String accountId = accountManager.getByName(namespace).getId();
         try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquiresLock(accountId)) {
-            checkWorkspaceResourceAvailability(accountId);
+            checkWorkspaceResourceAvailability(resourceUsageManager.getAvailableResources(accountId));
 
-            return super.createWorkspace(config, namespace, attributes);
+            try {
+                return super.createWorkspace(config, namespace, attributes);
+            } finally {
+                resourceUsageManager.invalidateUsedResources(accountId);
+            }
         }
     }
 
@@ -145,13 +183,21 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
                                                                           ConflictException {
         WorkspaceImpl workspace = this.getWorkspace(workspaceId);
         String accountId = workspace.getAccount().getId();
+        // status events of the workspace invalidate used resources of its account
+        resourceUsageManager.indexWorkspace(workspaceId, accountId);
 
         try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquiresLock(accountId)) {
-            checkRuntimeResourceAvailability(accountId);
-            checkRamResourcesAvailability(accountId, workspace.getNamespace(), workspace.getConfig(), envName);
+            final List<? extends Resource> availableResources = resourceUsageManager.getAvailableResources(accountId);
+            checkRuntimeResourceAvailability(availableResources);
+            checkRamResourcesAvailability(accountId, workspace.getNamespace(), workspace.getConfig(), envName, availableResources);
 
-            return checkSystemRamLimitAndPropagateLimitedThroughputStart(() -> super.startWorkspace(workspaceId, envName, restore));
+            if (!startQueue.isEnabled()) {
+                return checkSystemRamLimitAndPropagateStart(() -> super.startWorkspace(workspaceId, envName, restore));
+            }
         }
+
+        // account lock is released, so waiting for the turn doesn't block other operations of the account
+        return enqueueStart(accountId, workspace, envName, restore);
     }
 
     @Override
@@ -163,12 +209,33 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
         checkMaxEnvironmentRam(config);
 
         String accountId = accountManager.getByName(namespace).getId();
+        WorkspaceImpl workspace;
         try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquiresLock(accountId)) {
-            checkWorkspaceResourceAvailability(accountId);
-            checkRuntimeResourceAvailability(accountId);
-            checkRamResourcesAvailability(accountId, namespace, config, null);
+            final List<? extends Resource> availableResources = resourceUsageManager.getAvailableResources(accountId);
+            checkWorkspaceResourceAvailability(availableResources);
+            checkRuntimeResourceAvailability(availableResources);
+            checkRamResourcesAvailability(accountId, namespace, config, null, availableResources);
 
-            return checkSystemRamLimitAndPropagateLimitedThroughputStart(() -> super.startWorkspace(config, namespace, isTemporary));
+            try {
+                if (!startQueue.isEnabled()) {
+                    return checkSystemRamLimitAndPropagateStart(() -> super.startWorkspace(config, namespace, isTemporary));
+                }
+                // workspace is created right away, so the caller gets its id while start waits for its turn
+                workspace = super.createWorkspace(config, namespace);
+                if (isTemporary) {
+                    workspace.setTemporary(true);
+                    workspace = workspaceDao.update(workspace);
+                }
+            } finally {
+                resourceUsageManager.invalidateUsedResources(accountId);
+            }
+        }
+
+        try {
+            return enqueueStart(accountId, workspace, null, false);
+        } catch (ConflictException | ServerException e) {
+            removeQuietly(workspace.getId());
+            throw e;
         }
     }
 
@@ -187,6 +254,16 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
         }
     }
 
+    @Override
+    public void removeWorkspace(String workspaceId) throws ConflictException, ServerException, NotFoundException {
+        final String accountId = this.getWorkspace(workspaceId).getAccount().getId();
+        try {
+            super.removeWorkspace(workspaceId);
+        } finally {
+            resourceUsageManager.invalidateUsedResources(accountId);
+        }
+    }
+
     /**
      * Defines callback which should be called when all necessary checks are performed.
      * Helps to propagate actions to the super class.
@@ -198,31 +275,94 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
     }
 
     /**
-     * One of the checks in {@link #checkSystemRamLimitAndPropagateStart(WorkspaceCallback)}
+     * Performs start of the workspace which waited for its turn in the {@link #startQueue}.
+     *
+     * <p>One of the checks in {@link #checkSystemRamLimitAndPropagateStart(WorkspaceCallback)}
      * is needed to deny starting workspace, if system RAM limit exceeded.
-     * This check may be slow because it is based on request to swarm for memory amount allocated on all nodes, but it
-     * can't be performed more than specified times at the same time, and the semaphore is used to control that.
-     * The semaphore is a trade off between speed and risk to exceed system RAM limit.
-     * In the worst case specified number of permits to start workspace can happen at the same time after the actually
-     * system limit allows to start only one workspace, all permits will be allowed to start workspace.
-     * If more than specified number of permits to start workspace happens, they will wait in a queue.
-     * limits.workspace.start.throughput property configures how many permits can be handled at the same time.
+     * This check may be slow because it is based on request to swarm for memory amount allocated on all nodes,
+     * so it is performed by the queue threads and can't be performed more than specified times at the same time.
+     * The limit is a trade off between speed and risk to exceed system RAM limit.
+     * In the worst case specified number of starts can happen at the same time after the actually
+     * system limit allows to start only one workspace, all of them will be allowed to start workspace.
+     * limits.workspace.start.throughput property configures how many starts can be handled at the same time.
+     *
+     * <p>Account resources are checked again, because they may be used by other workspaces while start was queued.
+     * As the caller has already received response, failure of start is propagated with {@link WorkspaceStatusEvent}.
+     * Temporary workspace is removed when its start fails, as it would never be removed otherwise.
+     *
+     * <p>Start is performed on behalf of the {@code subject} who requested it, and the machine token
+     * for that subject is generated once the start is propagated, as the call is not intercepted.
      */
     @VisibleForTesting
-    <T extends WorkspaceImpl> T checkSystemRamLimitAndPropagateLimitedThroughputStart(WorkspaceCallback<T> callback)
-            throws ServerException, NotFoundException, ConflictException {
-        if (startSemaphore == null) {
-            return checkSystemRamLimitAndPropagateStart(callback);
-        } else {
-            try {
-                startSemaphore.acquire();
-                return checkSystemRamLimitAndPropagateStart(callback);
-            } catch (InterruptedException e) {
-                currentThread().interrupt();
-                throw new ServerException(e.getMessage(), e);
-            } finally {
-                startSemaphore.release();
+    void startQueuedWorkspace(Subject subject, String workspaceId, @Nullable String envName, @Nullable Boolean restore) {
+        final EnvironmentContext context = new EnvironmentContext();
+        context.setSubject(subject);
+        EnvironmentContext.setCurrent(context);
+        try {
+            checkSystemRamLimitAndPropagateStart(() -> {
+                final WorkspaceImpl workspace = this.getWorkspace(workspaceId);
+                final String accountId = workspace.getAccount().getId();
+                try (@SuppressWarnings("unused") Unlocker u = resourcesLocks.acquiresLock(accountId)) {
+                    final List<? extends Resource> availableResources = resourceUsageManager.getAvailableResources(accountId);
+                    checkRuntimeResourceAvailability(availableResources);
+                    checkRamResourcesAvailability(accountId, workspace.getNamespace(), workspace.getConfig(), envName, availableResources);
+
+                    return super.startWorkspace(workspaceId, envName, restore);
+                }
+            });
+            tokenRegistry.generateToken(subject.getUserId(), workspaceId);
+        } catch (NotFoundException | ServerException | ConflictException e) {
+            // e.g. resources of account were used or workspace was removed while start was queued
+            LOG.warn("Queued start of workspace '{}' failed. Cause: {}", workspaceId, e.getLocalizedMessage());
+            removeTemporaryWorkspace(workspaceId);
+            eventService.publish(DtoFactory.newDto(WorkspaceStatusEvent.class)
+                                           .withWorkspaceId(workspaceId)
+                                           .withEventType(WorkspaceStatusEvent.EventType.ERROR)
+                                           .withError(e.getLocalizedMessage()));
+        } finally {
+            EnvironmentContext.reset();
+        }
+    }
+
+    /**
+     * Adds start of the workspace to the {@link #startQueue} and returns a copy of the workspace
+     * which is marked with {@link #START_QUEUED_ATTRIBUTE}, the status of the workspace is left unchanged.
+     */
+    private WorkspaceImpl enqueueStart(String accountId,
+                                       WorkspaceImpl workspace,
+                                       @Nullable String envName,
+                                       @Nullable Boolean restore) throws ConflictException, ServerException {
+        final String workspaceId = workspace.getId();
+        // queued start is performed by the queue thread, so the subject of the caller is passed along
+        final Subject subject = EnvironmentContext.getCurrent().getSubject();
+        final int position = startQueue.enqueue(accountId,
+                                                workspaceId,
+                                                () -> startQueuedWorkspace(subject, workspaceId, envName, restore));
+        final WorkspaceImpl queued = new WorkspaceImpl(workspace, workspace.getAccount());
+        queued.getAttributes().put(START_QUEUED_ATTRIBUTE, "true");
+        queued.getAttributes().put(START_QUEUE_POSITION_ATTRIBUTE, Integer.toString(position));
+        return queued;
+    }
+
+    @VisibleForTesting
+    void removeTemporaryWorkspace(String workspaceId) {
+        try {
+            final WorkspaceImpl workspace = this.getWorkspace(workspaceId);
+            if (workspace.isTemporary() && workspace.getStatus() == WorkspaceStatus.STOPPED) {
+                removeQuietly(workspaceId);
             }
+        } catch (NotFoundException ignored) {
+            // already removed
+        } catch (ServerException e) {
+            LOG.error(format("Couldn't remove temporary workspace '%s' which failed to start", workspaceId), e);
+        }
+    }
+
+    private void removeQuietly(String workspaceId) {
+        try {
+            removeWorkspace(workspaceId);
+        } catch (ApiException e) {
+            LOG.error(format("Couldn't remove workspace '%s'", workspaceId), e);
         }
     }
 
@@ -261,15 +401,20 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
     }
 
     @VisibleForTesting
-    void checkRamResourcesAvailability(String accountId, String namespace, WorkspaceConfig config, @Nullable String envName)
-            throws NotFoundException, ServerException, ConflictException {
+    void checkRamResourcesAvailability(String accountId,
+                                       String namespace,
+                                       WorkspaceConfig config,
+                                       @Nullable String envName,
+                                       List<? extends Resource> availableResources) throws NotFoundException,
+                                                                                           ServerException,
+                                                                                           ConflictException {
 
         final Environment environment = config.getEnvironments().get(firstNonNull(envName, config.getDefaultEnv()));
         final ResourceImpl ramToUse = new ResourceImpl(RamResourceType.ID,
                                                        environmentRamCalculator.calculate(environment),
                                                        RamResourceType.UNIT);
         try {
-            resourceUsageManager.checkResourcesAvailability(accountId, singletonList(ramToUse));
+            resourceUsageManager.checkResourcesAvailability(availableResources, singletonList(ramToUse));
         } catch (NoEnoughResourcesException e) {
             final Resource requiredRam = e.getRequiredResources().get(0);// starting of workspace requires only RAM resource
             final Resource availableRam = getRamResource(e.getAvailableResources());
@@ -286,9 +431,9 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
     }
 
     @VisibleForTesting
-    void checkWorkspaceResourceAvailability(String accountId) throws NotFoundException, ServerException {
+    void checkWorkspaceResourceAvailability(List<? extends Resource> availableResources) throws ServerException {
         try {
-            resourceUsageManager.checkResourcesAvailability(accountId,
+            resourceUsageManager.checkResourcesAvailability(availableResources,
                                                             Collections.singletonList(new ResourceImpl(WorkspaceResourceType.ID,
                                                                                                        1,
                                                                                                        WorkspaceResourceType.UNIT)));
@@ -302,9 +447,9 @@ public class LimitsCheckingWorkspaceManager extends WorkspaceManager {
     }
 
     @VisibleForTesting
-    void checkRuntimeResourceAvailability(String accountId) throws NotFoundException, ServerException {
+    void checkRuntimeResourceAvailability(List<? extends Resource> availableResources) throws ServerException {
         try {
-            resourceUsageManager.checkResourcesAvailability(accountId,
+            resourceUsageManager.checkResourcesAvailability(availableResources,
                                                             Collections.singletonList(new ResourceImpl(RuntimeResourceType.ID,
                                                                                                        1,
                                                                                                        RuntimeResourceType.UNIT)));
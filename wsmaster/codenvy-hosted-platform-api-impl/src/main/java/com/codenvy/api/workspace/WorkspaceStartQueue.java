@@ -0,0 +1,202 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.workspace;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.ConflictException;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.commons.annotation.Nullable;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Queue of workspace starts which limits the number of starts that are processed at the same time.
+ *
+ * <p>Starts are kept in per-account queues and accounts are served in round-robin order,
+ * so the account which requested a lot of starts at once doesn't delay starts of other accounts.
+ * Queued starts are performed by the pool of {@code throughput} threads, so the thread
+ * which adds start to the queue is never blocked while start is waiting for its turn.
+ *
+ * <p>Queue is disabled when {@code limits.workspace.start.throughput} is not positive,
+ * in this case starts are not limited and should be performed by the caller.
+ */
+@Singleton
+public class WorkspaceStartQueue {
+
+    private final ThreadPoolExecutor executor;
+    private final int                capacity;
+    private final Timer              waitTimer;
+
+    // all the fields below are guarded by this
+    private final Map<String, Deque<QueuedStart>> accountsStarts;
+    private final Deque<String>                   accountsOrder;
+    private final Set<String>                     queuedWorkspaces;
+    private       int                             size;
+
+    @Inject
+    public WorkspaceStartQueue(@Named("limits.workspace.start.throughput") int throughput,
+                               @Named("limits.workspace.start.queue_capacity") int capacity,
+                               MetricRegistry metrics) {
+        this.capacity = capacity;
+        this.waitTimer = metrics.timer("workspace.start.queue_wait_time");
+        this.accountsStarts = new HashMap<>();
+        this.accountsOrder = new ArrayDeque<>();
+        this.queuedWorkspaces = new HashSet<>();
+        if (throughput <= 0) {
+            this.executor = null;
+            return;
+        }
+        this.executor = new ThreadPoolExecutor(throughput,
+                                               throughput,
+                                               60L,
+                                               TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<>(),
+                                               new ThreadFactoryBuilder().setNameFormat("WorkspaceStartQueue-%d")
+                                                                         .setUncaughtExceptionHandler(
+                                                                                 LoggingUncaughtExceptionHandler.getInstance())
+                                                                         .setDaemon(true)
+                                                                         .build());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Returns true when starts should be performed through this queue. */
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Adds start to the queue of given account and returns immediately.
+     *
+     * @param accountId
+     *         id of account which owns the workspace
+     * @param workspaceId
+     *         id of workspace to start, or null when workspace doesn't exist yet
+     * @param start
+     *         action which performs start of the workspace
+     * @return number of starts in the queue including the added one
+     * @throws ConflictException
+     *         when start of the workspace with given id is already queued or queue is full
+     * @throws ServerException
+     *         when queue is disabled or shut down
+     */
+    public int enqueue(String accountId, @Nullable String workspaceId, Runnable start) throws ConflictException, ServerException {
+        if (executor == null) {
+            throw new ServerException("Workspace start queue is disabled");
+        }
+        final int position;
+        synchronized (this) {
+            if (size >= capacity) {
+                throw new ConflictException("Too many workspace starts are queued. Try again later.");
+            }
+            if (workspaceId != null && !queuedWorkspaces.add(workspaceId)) {
+                throw new ConflictException(format("Start of workspace '%s' is already queued", workspaceId));
+            }
+            Deque<QueuedStart> starts = accountsStarts.get(accountId);
+            if (starts == null) {
+                starts = new ArrayDeque<>();
+                accountsStarts.put(accountId, starts);
+                accountsOrder.add(accountId);
+            }
+            starts.add(new QueuedStart(workspaceId, start, System.currentTimeMillis(), System.nanoTime()));
+            position = ++size;
+        }
+        try {
+            // each queued start schedules exactly one processing of the queue,
+            // the start which is going to be processed is chosen in the moment of processing
+            executor.execute(this::startNext);
+        } catch (RejectedExecutionException e) {
+            throw new ServerException("Workspace start queue is shut down");
+        }
+        return position;
+    }
+
+    /** Returns number of starts which are waiting for their turn. */
+    synchronized int size() {
+        return size;
+    }
+
+    /** Returns time in milliseconds of the longest waiting start or 0 when queue is empty. */
+    synchronized long getLongestWaitTime() {
+        long oldest = Long.MAX_VALUE;
+        for (Deque<QueuedStart> starts : accountsStarts.values()) {
+            oldest = Math.min(oldest, starts.getFirst().queuedAt);
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    /** Stops processing of queued starts. */
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void startNext() {
+        final QueuedStart next;
+        synchronized (this) {
+            final String accountId = accountsOrder.poll();
+            if (accountId == null) {
+                return;
+            }
+            final Deque<QueuedStart> starts = accountsStarts.get(accountId);
+            next = starts.poll();
+            if (starts.isEmpty()) {
+                accountsStarts.remove(accountId);
+            } else {
+                accountsOrder.add(accountId);
+            }
+            if (next.workspaceId != null) {
+                queuedWorkspaces.remove(next.workspaceId);
+            }
+            size--;
+        }
+        waitTimer.update(System.nanoTime() - next.queuedAtNanos, TimeUnit.NANOSECONDS);
+        next.start.run();
+    }
+
+    private static class QueuedStart {
+        final String   workspaceId;
+        final Runnable start;
+        final long     queuedAt;
+        final long     queuedAtNanos;
+
+        QueuedStart(String workspaceId, Runnable start, long queuedAt, long queuedAtNanos) {
+            this.workspaceId = workspaceId;
+            this.start = start;
+            this.queuedAt = queuedAt;
+            this.queuedAtNanos = queuedAtNanos;
+        }
+    }
+}
@@ -14,37 +14,54 @@
  */
 package com.codenvy.api.workspace;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codenvy.api.workspace.LimitsCheckingWorkspaceManager.WorkspaceCallback;
+import com.codenvy.machine.authentication.server.MachineTokenRegistry;
 import com.codenvy.resource.api.RamResourceType;
 import com.codenvy.resource.api.RuntimeResourceType;
 import com.codenvy.resource.api.WorkspaceResourceType;
 import com.codenvy.resource.api.exception.NoEnoughResourcesException;
 import com.codenvy.resource.api.usage.ResourceUsageManager;
+import com.codenvy.resource.api.usage.ResourcesLocks;
+import com.codenvy.resource.model.Resource;
 import com.codenvy.resource.spi.impl.ResourceImpl;
 import com.codenvy.service.system.SystemRamInfo;
 import com.codenvy.service.system.SystemRamInfoProvider;
 
 import org.eclipse.che.account.shared.model.Account;
+import org.eclipse.che.account.spi.AccountImpl;
+import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.model.workspace.WorkspaceConfig;
+import org.eclipse.che.api.core.model.workspace.WorkspaceStatus;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
 import org.eclipse.che.api.workspace.server.spi.WorkspaceDao;
+import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
+import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.subject.Subject;
+import org.eclipse.che.commons.subject.SubjectImpl;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.codenvy.api.workspace.TestObjects.createConfig;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.eclipse.che.commons.lang.Size.parseSize;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -53,7 +70,8 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
 /**
  * Tests for {@link LimitsCheckingWorkspaceManager}.
@@ -67,6 +85,12 @@ import static org.testng.Assert.assertNull;
 public class LimitsCheckingWorkspaceManagerTest {
     public static final String NAMESPACE  = "namespace";
     public static final String ACCOUNT_ID = "accountId";
+
+    private static final Subject SUBJECT = new SubjectImpl("user", "user123", "token", false);
+
+    private static final List<ResourceImpl> AVAILABLE_RESOURCES = singletonList(new ResourceImpl(RamResourceType.ID,
+                                                                                                 200L,
+                                                                                                 RamResourceType.UNIT));
     @Mock
     private WorkspaceDao             workspaceDao;
     @Mock
@@ -77,6 +101,17 @@ public class LimitsCheckingWorkspaceManagerTest {
     private Account                  account;
     @Mock
     private ResourceUsageManager     resourceUsageManager;
+    @Mock
+    private EventService             eventService;
+    @Mock
+    private ResourcesLocks           resourcesLocks;
+    @Mock
+    private MachineTokenRegistry     tokenRegistry;
+
+    @AfterMethod
+    public void tearDown() {
+        EnvironmentContext.reset();
+    }
 
     @Test
     public void shouldUseRamOfSpecifiedEnvironmentOnCheckingAvailabilityOfRamResource() throws Exception {
@@ -91,13 +126,13 @@ public class LimitsCheckingWorkspaceManagerTest {
         String envToStart = config.getDefaultEnv();
 
         //when
-        manager.checkRamResourcesAvailability(ACCOUNT_ID, NAMESPACE, config, envToStart);
+        manager.checkRamResourcesAvailability(ACCOUNT_ID, NAMESPACE, config, envToStart, AVAILABLE_RESOURCES);
 
         //then
         verify(environmentRamCalculator).calculate(config.getEnvironments().get(envToStart));
-        verify(resourceUsageManager).checkResourcesAvailability(ACCOUNT_ID, singletonList(new ResourceImpl(RamResourceType.ID,
-                                                                                                           3000,
-                                                                                                           RamResourceType.UNIT)));
+        verify(resourceUsageManager).checkResourcesAvailability(AVAILABLE_RESOURCES, singletonList(new ResourceImpl(RamResourceType.ID,
+                                                                                                                    3000,
+                                                                                                                    RamResourceType.UNIT)));
     }
 
     @Test
@@ -112,13 +147,13 @@ public class LimitsCheckingWorkspaceManagerTest {
         WorkspaceConfig config = createConfig("3gb");
 
         //when
-        manager.checkRamResourcesAvailability(ACCOUNT_ID, NAMESPACE, config, null);
+        manager.checkRamResourcesAvailability(ACCOUNT_ID, NAMESPACE, config, null, AVAILABLE_RESOURCES);
 
         //then
         verify(environmentRamCalculator).calculate(config.getEnvironments().get(config.getDefaultEnv()));
-        verify(resourceUsageManager).checkResourcesAvailability(ACCOUNT_ID, singletonList(new ResourceImpl(RamResourceType.ID,
-                                                                                                           3000,
-                                                                                                           RamResourceType.UNIT)));
+        verify(resourceUsageManager).checkResourcesAvailability(AVAILABLE_RESOURCES, singletonList(new ResourceImpl(RamResourceType.ID,
+                                                                                                                    3000,
+                                                                                                                    RamResourceType.UNIT)));
     }
 
     @Test(expectedExceptions = LimitExceededException.class,
@@ -132,7 +167,7 @@ public class LimitsCheckingWorkspaceManagerTest {
                                                                               3000L,
                                                                               RamResourceType.UNIT)),
                                                emptyList()))
-                .when(resourceUsageManager).checkResourcesAvailability(any(), any());
+                .when(resourceUsageManager).checkResourcesAvailability(anyListOf(Resource.class), any());
         doReturn(singletonList(new ResourceImpl(RamResourceType.ID,
                                                 100L,
                                                 RamResourceType.UNIT)))
@@ -148,7 +183,7 @@ public class LimitsCheckingWorkspaceManagerTest {
         WorkspaceConfig config = createConfig("3gb");
 
         //when
-        manager.checkRamResourcesAvailability(ACCOUNT_ID, NAMESPACE, config, null);
+        manager.checkRamResourcesAvailability(ACCOUNT_ID, NAMESPACE, config, null, AVAILABLE_RESOURCES);
     }
 
     @Test
@@ -158,12 +193,12 @@ public class LimitsCheckingWorkspaceManagerTest {
                                                                  .build();
 
         //when
-        manager.checkWorkspaceResourceAvailability(ACCOUNT_ID);
+        manager.checkWorkspaceResourceAvailability(AVAILABLE_RESOURCES);
 
         //then
-        verify(resourceUsageManager).checkResourcesAvailability(ACCOUNT_ID, singletonList(new ResourceImpl(WorkspaceResourceType.ID,
-                                                                                                           1,
-                                                                                                           WorkspaceResourceType.UNIT)));
+        verify(resourceUsageManager).checkResourcesAvailability(AVAILABLE_RESOURCES, singletonList(new ResourceImpl(WorkspaceResourceType.ID,
+                                                                                                                    1,
+                                                                                                                    WorkspaceResourceType.UNIT)));
     }
 
     @Test(expectedExceptions = LimitExceededException.class,
@@ -175,12 +210,12 @@ public class LimitsCheckingWorkspaceManagerTest {
                                                                               WorkspaceResourceType.UNIT)),
                                                emptyList(),
                                                emptyList()))
-                .when(resourceUsageManager).checkResourcesAvailability(any(), any());
+                .when(resourceUsageManager).checkResourcesAvailability(anyListOf(Resource.class), any());
         LimitsCheckingWorkspaceManager manager = managerBuilder().setResourceUsageManager(resourceUsageManager)
                                                                  .build();
 
         //when
-        manager.checkWorkspaceResourceAvailability(ACCOUNT_ID);
+        manager.checkWorkspaceResourceAvailability(AVAILABLE_RESOURCES);
     }
 
     @Test
@@ -190,12 +225,12 @@ public class LimitsCheckingWorkspaceManagerTest {
                                                                  .build();
 
         //when
-        manager.checkRuntimeResourceAvailability(ACCOUNT_ID);
+        manager.checkRuntimeResourceAvailability(AVAILABLE_RESOURCES);
 
         //then
-        verify(resourceUsageManager).checkResourcesAvailability(ACCOUNT_ID, singletonList(new ResourceImpl(RuntimeResourceType.ID,
-                                                                                                           1,
-                                                                                                           RuntimeResourceType.UNIT)));
+        verify(resourceUsageManager).checkResourcesAvailability(AVAILABLE_RESOURCES, singletonList(new ResourceImpl(RuntimeResourceType.ID,
+                                                                                                                    1,
+                                                                                                                    RuntimeResourceType.UNIT)));
     }
 
     @Test(expectedExceptions = LimitExceededException.class,
@@ -207,12 +242,12 @@ public class LimitsCheckingWorkspaceManagerTest {
                                                                               RuntimeResourceType.UNIT)),
                                                emptyList(),
                                                emptyList()))
-                .when(resourceUsageManager).checkResourcesAvailability(any(), any());
+                .when(resourceUsageManager).checkResourcesAvailability(anyListOf(Resource.class), any());
         LimitsCheckingWorkspaceManager manager = managerBuilder().setResourceUsageManager(resourceUsageManager)
                                                                  .build();
 
         //when
-        manager.checkRuntimeResourceAvailability(ACCOUNT_ID);
+        manager.checkRuntimeResourceAvailability(AVAILABLE_RESOURCES);
     }
 
     @Test(expectedExceptions = LimitExceededException.class,
@@ -259,92 +294,89 @@ public class LimitsCheckingWorkspaceManagerTest {
     }
 
     @Test
-    public void shouldAcquireAndReleaseSemaphoreIfThroughputPropertyIsMoreThanZero() throws Exception {
-        final LimitsCheckingWorkspaceManager manager = managerBuilder().build();
-        Semaphore semaphore = mock(Semaphore.class);
-        WorkspaceCallback callback = mock(WorkspaceCallback.class);
-        manager.startSemaphore = semaphore;
-
-        manager.checkSystemRamLimitAndPropagateLimitedThroughputStart(callback);
-
-        verify(semaphore).acquire();
-        verify(semaphore).release();
-    }
-
-    @Test(expectedExceptions = Exception.class)
-    public void shouldAcquireAndReleaseSemaphoreIfThroughputPropertyIsMoreThanZeroAndExceptionHappened() throws Exception {
-        final LimitsCheckingWorkspaceManager manager = managerBuilder().build();
-        Semaphore semaphore = mock(Semaphore.class);
-        WorkspaceCallback callback = mock(WorkspaceCallback.class);
-        manager.startSemaphore = semaphore;
-        doThrow(new Exception()).when(manager).checkSystemRamLimitAndPropagateStart(anyObject());
-
-        manager.checkSystemRamLimitAndPropagateLimitedThroughputStart(callback);
-
-        verify(semaphore).acquire();
-        verify(semaphore).release();
+    public void shouldReturnWorkspaceWithActualStatusMarkedAsQueuedWhenStartIsQueued() throws Exception {
+        final LimitsCheckingWorkspaceManager manager = managerBuilder().setMaxSameTimeStartWSRequests(1)
+                                                                       .setResourceUsageManager(resourceUsageManager)
+                                                                       .setEnvironmentRamCalculator(environmentRamCalculator)
+                                                                       .setResourcesLocks(resourcesLocks)
+                                                                       .build();
+        final WorkspaceImpl workspace = new WorkspaceImpl("workspace123",
+                                                          new AccountImpl(ACCOUNT_ID, NAMESPACE, "test"),
+                                                          createConfig("1gb"));
+        workspace.setStatus(WorkspaceStatus.STOPPED);
+        doReturn(workspace).when(manager).getWorkspace("workspace123");
+        doNothing().when(manager).startQueuedWorkspace(any(), any(), any(), any());
+
+        final WorkspaceImpl result = manager.startWorkspace("workspace123", null, null);
+
+        assertEquals(result.getStatus(), WorkspaceStatus.STOPPED);
+        assertEquals(result.getAttributes().get(LimitsCheckingWorkspaceManager.START_QUEUED_ATTRIBUTE), "true");
+        assertEquals(result.getAttributes().get(LimitsCheckingWorkspaceManager.START_QUEUE_POSITION_ATTRIBUTE), "1");
+        assertFalse(workspace.getAttributes().containsKey(LimitsCheckingWorkspaceManager.START_QUEUED_ATTRIBUTE));
     }
 
     @Test
-    public void shouldSetSemaphoreToNullIfThroughputPropertyIsZero() throws Exception {
-        final LimitsCheckingWorkspaceManager manager = managerBuilder().setMaxSameTimeStartWSRequests(0)
+    public void shouldStartQueuedWorkspaceOnBehalfOfSubjectWhichRequestedStart() throws Exception {
+        final LimitsCheckingWorkspaceManager manager = managerBuilder().setMaxSameTimeStartWSRequests(1)
+                                                                       .setResourceUsageManager(resourceUsageManager)
+                                                                       .setEnvironmentRamCalculator(environmentRamCalculator)
+                                                                       .setResourcesLocks(resourcesLocks)
+                                                                       .setTokenRegistry(tokenRegistry)
                                                                        .build();
-        WorkspaceCallback callback = mock(WorkspaceCallback.class);
+        final WorkspaceImpl workspace = new WorkspaceImpl("workspace123",
+                                                          new AccountImpl(ACCOUNT_ID, NAMESPACE, "test"),
+                                                          createConfig("1gb"));
+        workspace.setStatus(WorkspaceStatus.STOPPED);
+        doReturn(workspace).when(manager).getWorkspace("workspace123");
+        final Subject owner = new SubjectImpl("owner", "owner123", "token", false);
+        EnvironmentContext.getCurrent().setSubject(owner);
+        final CompletableFuture<Subject> startSubject = new CompletableFuture<>();
+        doAnswer(invocation -> {
+            startSubject.complete(EnvironmentContext.getCurrent().getSubject());
+            return workspace;
+        }).when(manager).checkSystemRamLimitAndPropagateStart(anyObject());
 
-        manager.checkSystemRamLimitAndPropagateLimitedThroughputStart(callback);
+        manager.startWorkspace("workspace123", null, null);
 
-        assertNull(manager.startSemaphore);
+        assertEquals(startSubject.get(1, TimeUnit.SECONDS), owner);
+        verify(tokenRegistry, timeout(1000)).generateToken("owner123", "workspace123");
     }
 
     @Test
-    public void shouldSetSemaphoreToNullIfThroughputPropertyIsLessThenZero() throws Exception {
-        final LimitsCheckingWorkspaceManager manager = managerBuilder().setMaxSameTimeStartWSRequests(-1).build();
-        WorkspaceCallback callback = mock(WorkspaceCallback.class);
+    public void shouldPublishErrorEventWhenQueuedStartFails() throws Exception {
+        final LimitsCheckingWorkspaceManager manager = managerBuilder().setEventService(eventService)
+                                                                       .setTokenRegistry(tokenRegistry)
+                                                                       .build();
+        doThrow(new LimitExceededException("Low RAM")).when(manager).checkSystemRamLimitAndPropagateStart(anyObject());
+        doNothing().when(manager).removeTemporaryWorkspace(any());
+
+        manager.startQueuedWorkspace(SUBJECT, "workspace123", null, null);
 
-        manager.checkSystemRamLimitAndPropagateLimitedThroughputStart(callback);
+        verify(tokenRegistry, never()).generateToken(anyString(), anyString());
 
-        assertNull(manager.startSemaphore);
+        final ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(eventService).publish(eventCaptor.capture());
+        final WorkspaceStatusEvent event = (WorkspaceStatusEvent)eventCaptor.getValue();
+        assertEquals(event.getWorkspaceId(), "workspace123");
+        assertEquals(event.getEventType(), WorkspaceStatusEvent.EventType.ERROR);
+        assertEquals(event.getError(), "Low RAM");
     }
 
-    @Test(timeOut = 3000)
-    public void shouldPermitToCheckRamOnlyForFiveThreadsAtTheSameTime() throws Exception {
-        final LimitsCheckingWorkspaceManager manager = managerBuilder().setMaxSameTimeStartWSRequests(5).build();
-        /*
-          The count-down latch is needed to reach the throughput limit by acquiring RAM check permits.
-          The lath is configured to 6 invocations: 5 (number of allowed same time requests) + 1 for main thread
-          to be able to release the throughput limit.
-         */
-        final CountDownLatch invokeProcessLatch = new CountDownLatch(6);
-        //Pause 5 threads after they will acquire all permits to check RAM.
-        doAnswer(invocationOnMock -> {
-            invokeProcessLatch.countDown();
-            invokeProcessLatch.await();
-            return null;
-        }).when(manager).checkSystemRamLimitAndPropagateStart(anyObject());
-        Runnable runnable = () -> {
-            try {
-                final WorkspaceCallback callback = mock(WorkspaceCallback.class);
-                manager.checkSystemRamLimitAndPropagateLimitedThroughputStart(callback);
-            } catch (Exception ignored) {
-            }
-        };
-        //Run 7 threads (more than number of allowed same time requests) that want to request RAM check at the same time.
-        ExecutorService executor = Executors.newFixedThreadPool(7);
-        executor.submit(runnable);
-        executor.submit(runnable);
-        executor.submit(runnable);
-        executor.submit(runnable);
-        executor.submit(runnable);
-        executor.submit(runnable);
-        executor.submit(runnable);
-
-        //Wait for throughput limit will be reached and check that RAM check was performed only in allowed number of threads.
-        verify(manager, timeout(300).times(5)).checkSystemRamLimitAndPropagateStart(anyObject());
-
-        //Execute paused threads to release the throughput limit for other threads.
-        invokeProcessLatch.countDown();
-        //Wait for throughput limit will be released and check that RAM check was performed in other threads.
-        verify(manager, timeout(300).times(7)).checkSystemRamLimitAndPropagateStart(anyObject());
+    @Test
+    public void shouldPublishErrorEventAndRemoveTemporaryWorkspaceWhenQueuedStartConflicts() throws Exception {
+        final LimitsCheckingWorkspaceManager manager = managerBuilder().setEventService(eventService).build();
+        doThrow(new ConflictException("Not enough RAM")).when(manager).checkSystemRamLimitAndPropagateStart(anyObject());
+        doNothing().when(manager).removeTemporaryWorkspace(any());
+
+        manager.startQueuedWorkspace(SUBJECT, "workspace123", null, null);
+
+        verify(manager).removeTemporaryWorkspace("workspace123");
+        final ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(eventService).publish(eventCaptor.capture());
+        final WorkspaceStatusEvent event = (WorkspaceStatusEvent)eventCaptor.getValue();
+        assertEquals(event.getWorkspaceId(), "workspace123");
+        assertEquals(event.getEventType(), WorkspaceStatusEvent.EventType.ERROR);
+        assertEquals(event.getError(), "Not enough RAM");
     }
 
     private static ManagerBuilder managerBuilder() throws ServerException {
@@ -358,6 +390,9 @@ public class LimitsCheckingWorkspaceManagerTest {
         private SystemRamInfoProvider    systemRamInfoProvider;
         private EnvironmentRamCalculator environmentRamCalculator;
         private ResourceUsageManager     resourceUsageManager;
+        private EventService             eventService;
+        private ResourcesLocks           resourcesLocks;
+        private MachineTokenRegistry     tokenRegistry;
 
         ManagerBuilder() throws ServerException {
             maxRamPerEnv = "1gb";
@@ -370,18 +405,19 @@ public class LimitsCheckingWorkspaceManagerTest {
         public LimitsCheckingWorkspaceManager build() {
             return spy(new LimitsCheckingWorkspaceManager(null,
                                                           null,
-                                                          null,
+                                                          eventService,
                                                           null,
                                                           false,
                                                           false,
                                                           null,
                                                           null,
                                                           maxRamPerEnv,
-                                                          maxSameTimeStartWSRequests,
+                                                          new WorkspaceStartQueue(maxSameTimeStartWSRequests, 100, new MetricRegistry()),
                                                           systemRamInfoProvider,
                                                           environmentRamCalculator,
                                                           resourceUsageManager,
-                                                          null));
+                                                          resourcesLocks,
+                                                          tokenRegistry));
         }
 
         ManagerBuilder setMaxRamPerEnv(String maxRamPerEnv) {
@@ -408,5 +444,20 @@ public class LimitsCheckingWorkspaceManagerTest {
             this.resourceUsageManager = resourceUsageManager;
             return this;
         }
+
+        ManagerBuilder setEventService(EventService eventService) {
+            this.eventService = eventService;
+            return this;
+        }
+
+        ManagerBuilder setResourcesLocks(ResourcesLocks resourcesLocks) {
+            this.resourcesLocks = resourcesLocks;
+            return this;
+        }
+
+        ManagerBuilder setTokenRegistry(MachineTokenRegistry tokenRegistry) {
+            this.tokenRegistry = tokenRegistry;
+            return this;
+        }
     }
 }
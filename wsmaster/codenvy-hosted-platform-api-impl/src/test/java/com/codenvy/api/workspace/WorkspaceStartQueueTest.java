@@ -0,0 +1,202 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.api.workspace;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.che.api.core.ConflictException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.synchronizedList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link WorkspaceStartQueue}.
+ */
+public class WorkspaceStartQueueTest {
+
+    private WorkspaceStartQueue queue;
+
+    @AfterMethod
+    public void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test(timeOut = 3000)
+    public void shouldPerformQueuedStartAsynchronously() throws Exception {
+        queue = new WorkspaceStartQueue(1, 100, new MetricRegistry());
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch startedLatch = new CountDownLatch(1);
+
+        queue.enqueue("account1", "workspace1", () -> {
+            awaitQuietly(startLatch);
+            startedLatch.countDown();
+        });
+
+        // caller is not blocked while start is performed
+        assertEquals(startedLatch.getCount(), 1);
+        startLatch.countDown();
+        assertTrue(startedLatch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test(timeOut = 3000)
+    public void shouldNotPerformMoreStartsAtTheSameTimeThanThroughputAllows() throws Exception {
+        queue = new WorkspaceStartQueue(5, 100, new MetricRegistry());
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final CountDownLatch finishedLatch = new CountDownLatch(7);
+        final AtomicInteger inProgress = new AtomicInteger();
+        final AtomicInteger maxInProgress = new AtomicInteger();
+
+        for (int i = 0; i < 7; i++) {
+            queue.enqueue("account" + i, "workspace" + i, () -> {
+                maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+                awaitQuietly(releaseLatch);
+                inProgress.decrementAndGet();
+                finishedLatch.countDown();
+            });
+        }
+
+        while (inProgress.get() < 5) {
+            Thread.sleep(10);
+        }
+        assertEquals(queue.size(), 2);
+        releaseLatch.countDown();
+
+        assertTrue(finishedLatch.await(1, TimeUnit.SECONDS));
+        assertEquals(maxInProgress.get(), 5);
+        assertEquals(queue.size(), 0);
+    }
+
+    @Test(timeOut = 3000)
+    public void shouldServeAccountsInRoundRobinOrder() throws Exception {
+        queue = new WorkspaceStartQueue(1, 100, new MetricRegistry());
+        final CountDownLatch blockerLatch = new CountDownLatch(1);
+        final CountDownLatch finishedLatch = new CountDownLatch(4);
+        final List<String> started = synchronizedList(new ArrayList<>());
+        queue.enqueue("blocker", "blocker-workspace", () -> awaitQuietly(blockerLatch));
+
+        for (String workspace : asList("a1", "a2", "a3")) {
+            queue.enqueue("accountA", workspace, () -> {
+                started.add(workspace);
+                finishedLatch.countDown();
+            });
+        }
+        queue.enqueue("accountB", "b1", () -> {
+            started.add("b1");
+            finishedLatch.countDown();
+        });
+        blockerLatch.countDown();
+
+        assertTrue(finishedLatch.await(1, TimeUnit.SECONDS));
+        assertEquals(started, asList("a1", "b1", "a2", "a3"));
+    }
+
+    @Test(timeOut = 3000,
+          expectedExceptions = ConflictException.class,
+          expectedExceptionsMessageRegExp = "Start of workspace 'workspace1' is already queued")
+    public void shouldNotQueueStartOfTheSameWorkspaceTwice() throws Exception {
+        queue = new WorkspaceStartQueue(1, 100, new MetricRegistry());
+        final CountDownLatch blockerLatch = new CountDownLatch(1);
+        queue.enqueue("account1", "blocker-workspace", () -> awaitQuietly(blockerLatch));
+
+        try {
+            queue.enqueue("account1", "workspace1", () -> {});
+            queue.enqueue("account1", "workspace1", () -> {});
+        } finally {
+            blockerLatch.countDown();
+        }
+    }
+
+    @Test(timeOut = 3000)
+    public void shouldReturnWaitTimeOfTheLongestWaitingStart() throws Exception {
+        queue = new WorkspaceStartQueue(1, 100, new MetricRegistry());
+        final CountDownLatch blockerLatch = new CountDownLatch(1);
+        queue.enqueue("account1", "blocker-workspace", () -> awaitQuietly(blockerLatch));
+        while (queue.size() != 0) {
+            Thread.sleep(10);
+        }
+        assertEquals(queue.getLongestWaitTime(), 0);
+
+        queue.enqueue("account1", "workspace1", () -> {});
+        Thread.sleep(50);
+
+        assertTrue(queue.getLongestWaitTime() >= 50);
+        blockerLatch.countDown();
+    }
+
+    @Test(timeOut = 3000,
+          expectedExceptions = ConflictException.class,
+          expectedExceptionsMessageRegExp = "Too many workspace starts are queued. Try again later.")
+    public void shouldRejectStartWhenQueueIsFull() throws Exception {
+        queue = new WorkspaceStartQueue(1, 2, new MetricRegistry());
+        final CountDownLatch blockerLatch = new CountDownLatch(1);
+        queue.enqueue("account1", "blocker-workspace", () -> awaitQuietly(blockerLatch));
+        while (queue.size() != 0) {
+            Thread.sleep(10);
+        }
+
+        try {
+            assertEquals(queue.enqueue("account1", "workspace1", () -> {}), 1);
+            assertEquals(queue.enqueue("account2", "workspace2", () -> {}), 2);
+            queue.enqueue("account3", "workspace3", () -> {});
+        } finally {
+            blockerLatch.countDown();
+        }
+    }
+
+    @Test(timeOut = 3000)
+    public void shouldRecordTimeWhichStartSpentInQueue() throws Exception {
+        final MetricRegistry metrics = new MetricRegistry();
+        queue = new WorkspaceStartQueue(1, 100, metrics);
+        final CountDownLatch blockerLatch = new CountDownLatch(1);
+        final CountDownLatch finishedLatch = new CountDownLatch(1);
+        queue.enqueue("account1", "blocker-workspace", () -> awaitQuietly(blockerLatch));
+        queue.enqueue("account1", "workspace1", finishedLatch::countDown);
+
+        Thread.sleep(50);
+        blockerLatch.countDown();
+
+        assertTrue(finishedLatch.await(1, TimeUnit.SECONDS));
+        assertEquals(metrics.timer("workspace.start.queue_wait_time").getCount(), 2);
+        assertTrue(metrics.timer("workspace.start.queue_wait_time").getSnapshot().getMax() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void shouldBeDisabledWhenThroughputIsNotPositive() throws Exception {
+        queue = new WorkspaceStartQueue(0, 100, new MetricRegistry());
+
+        assertFalse(queue.isEnabled());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.codenvy.service.password;
 import com.codenvy.mail.Attachment;
 import com.codenvy.mail.EmailBean;
 import com.codenvy.mail.MailSender;
+import com.codenvy.mail.MailTemplateRegistry;
 import com.google.common.io.Files;
 
 import org.eclipse.che.api.core.ApiException;
@@ -28,7 +29,6 @@ import org.eclipse.che.api.core.model.user.Profile;
 import org.eclipse.che.api.user.server.ProfileManager;
 import org.eclipse.che.api.user.server.UserManager;
 import org.eclipse.che.api.user.server.model.impl.UserImpl;
-import org.eclipse.che.commons.lang.Deserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,8 +51,6 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static javax.ws.rs.core.MediaType.TEXT_HTML;
-import static org.eclipse.che.commons.lang.IoUtil.getResource;
-import static org.eclipse.che.commons.lang.IoUtil.readAndCloseQuietly;
 
 /**
  * Services for password features
@@ -67,19 +65,21 @@ public class PasswordService {
     private static final String LOGO          = "/email-templates/header.png";
     private static final String LOGO_CID      = "codenvyLogo";
 
-    private final MailSender      mailService;
-    private final UserManager     userDao;
-    private final ProfileManager  profileManager;
-    private final RecoveryStorage recoveryStorage;
-    private final String          mailFrom;
-    private final String          recoverMailSubject;
-    private final long            validationMaxAge;
+    private final MailSender           mailService;
+    private final MailTemplateRegistry templates;
+    private final UserManager          userDao;
+    private final ProfileManager       profileManager;
+    private final RecoveryStorage      recoveryStorage;
+    private final String               mailFrom;
+    private final String               recoverMailSubject;
+    private final long                 validationMaxAge;
 
     @Context
     private UriInfo uriInfo;
 
     @Inject
     public PasswordService(MailSender mailSender,
+                           MailTemplateRegistry templates,
                            UserManager userManager,
                            RecoveryStorage recoveryStorage,
                            ProfileManager profileManager,
@@ -88,6 +88,7 @@ public class PasswordService {
                            @Named("password.recovery.expiration_timeout_hours") long validationMaxAge) {
         this.recoveryStorage = recoveryStorage;
         this.mailService = mailSender;
+        this.templates = templates;
         this.userDao = userManager;
         this.profileManager = profileManager;
         this.mailFrom = mailFrom;
@@ -143,7 +144,7 @@ public class PasswordService {
                     .withFileName("logo.png");
 
             EmailBean emailBean = new EmailBean()
-                    .withBody(Deserializer.resolveVariables(readAndCloseQuietly(getResource(MAIL_TEMPLATE)), props))
+                    .withBody(templates.getResourceTemplate(MAIL_TEMPLATE).render(props))
                     .withFrom(mailFrom)
                     .withTo(mail)
                     .withReplyTo(null)
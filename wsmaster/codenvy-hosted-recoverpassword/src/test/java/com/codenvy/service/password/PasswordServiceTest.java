@@ -33,6 +33,7 @@ package com.codenvy.service.password;
 
 import com.codenvy.mail.EmailBean;
 import com.codenvy.mail.MailSender;
+import com.codenvy.mail.MailTemplateRegistry;
 import com.jayway.restassured.response.Response;
 
 import org.eclipse.che.api.core.NotFoundException;
@@ -106,6 +107,7 @@ public class PasswordServiceTest {
     @BeforeMethod
     public void setup() throws Exception {
         passService = new PasswordService(mailSender,
+                                          new MailTemplateRegistry(),
                                           userManager,
                                           recoveryStorage,
                                           profileManager,
@@ -25,6 +25,7 @@ import com.codenvy.auth.sso.server.organization.UserCreator;
 import com.codenvy.mail.Attachment;
 import com.codenvy.mail.EmailBean;
 import com.codenvy.mail.MailSender;
+import com.codenvy.mail.MailTemplateRegistry;
 import com.google.common.io.Files;
 
 import org.eclipse.che.api.auth.AuthenticationException;
@@ -33,7 +34,6 @@ import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.model.user.User;
 import org.eclipse.che.api.user.server.UserValidator;
-import org.eclipse.che.commons.lang.Deserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,8 +59,6 @@ import java.util.Map;
 import static com.codenvy.api.license.server.SystemLicenseManager.FAIR_SOURCE_LICENSE_IS_NOT_ACCEPTED_MESSAGE;
 import static com.codenvy.api.license.server.SystemLicenseManager.UNABLE_TO_ADD_ACCOUNT_BECAUSE_OF_LICENSE;
 import static javax.ws.rs.core.MediaType.TEXT_HTML;
-import static org.eclipse.che.commons.lang.IoUtil.getResource;
-import static org.eclipse.che.commons.lang.IoUtil.readAndCloseQuietly;
 
 /**
  * Service to authenticate users using bearer tokens.
@@ -85,6 +83,8 @@ public class BearerTokenAuthenticationService {
     @Inject
     protected MailSender                       mailSender;
     @Inject
+    protected MailTemplateRegistry             mailTemplates;
+    @Inject
     protected InputDataValidator               inputDataValidator;
     @Inject
     protected CookieBuilder                    cookieBuilder;
@@ -212,7 +212,7 @@ public class BearerTokenAuthenticationService {
                 .withFileName("logo.png");
 
         EmailBean emailBean = new EmailBean()
-                .withBody(Deserializer.resolveVariables(readAndCloseQuietly(getResource("/" + MAIL_TEMPLATE)), props))
+                .withBody(mailTemplates.getResourceTemplate("/" + MAIL_TEMPLATE).render(props))
                 .withFrom(mailFrom)
                 .withTo(email)
                 .withReplyTo(null)
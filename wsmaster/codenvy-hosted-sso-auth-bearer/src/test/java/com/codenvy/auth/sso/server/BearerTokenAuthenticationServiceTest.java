@@ -21,6 +21,7 @@ import com.codenvy.auth.sso.server.handler.BearerTokenAuthenticationHandler;
 import com.codenvy.auth.sso.server.organization.UserCreationValidator;
 import com.codenvy.auth.sso.server.organization.UserCreator;
 import com.codenvy.mail.MailSender;
+import com.codenvy.mail.MailTemplateRegistry;
 import com.codenvy.mail.EmailBean;
 import com.jayway.restassured.http.ContentType;
 import com.jayway.restassured.response.Response;
@@ -32,6 +33,7 @@ import org.everrest.assured.EverrestJetty;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.testng.MockitoTestNGListener;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
@@ -57,6 +59,8 @@ public class BearerTokenAuthenticationServiceTest {
     private BearerTokenAuthenticationHandler handler;
     @Mock
     private MailSender                       mailSender;
+    @Spy
+    private MailTemplateRegistry             mailTemplates = new MailTemplateRegistry();
     @Mock
     private InputDataValidator               inputDataValidator;
     @Mock
@@ -53,11 +53,9 @@ public class AccessTicketInvalidator extends TimerTask {
     @Override
     public void run() {
 
-        for (AccessTicket accessTicket : ticketManager.getAccessTickets()) {
-            if (System.currentTimeMillis() > accessTicket.getCreationTime() + ticketLifeTimeSeconds * 1000) {
-                LOG.info("Initiate user {} sso logout by timeout", accessTicket.getUserId());
-                ticketManager.removeTicket(accessTicket.getAccessToken());
-            }
+        final long expirationTime = System.currentTimeMillis() - ticketLifeTimeSeconds * 1000L;
+        for (AccessTicket accessTicket : ticketManager.removeTicketsCreatedBefore(expirationTime)) {
+            LOG.info("Initiate user {} sso logout by timeout", accessTicket.getUserId());
         }
     }
 
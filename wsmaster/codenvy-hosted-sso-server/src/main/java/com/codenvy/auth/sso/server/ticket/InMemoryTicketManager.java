@@ -20,30 +20,37 @@ import com.codenvy.api.dao.authentication.AccessTicket;
 import com.codenvy.api.dao.authentication.TicketManager;
 import com.google.inject.Singleton;
 
-import org.eclipse.che.commons.lang.IoUtil;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.util.HashMap;
+import javax.inject.Inject;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.Iterator;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
-/** Simple implementation of <code>TicketManager</code> */
+/**
+ * In-memory implementation of <code>TicketManager</code>.
+ *
+ * <p>Tickets are stored in the concurrent map, so lookups are lock-free.
+ * Additionally tickets are indexed by creation time, so the removal
+ * of the outdated tickets touches only the tickets which are removed.
+ */
 @Singleton
 public class InMemoryTicketManager implements TicketManager {
-    private static final Logger                    LOG           = LoggerFactory.getLogger(InMemoryTicketManager.class);
-    private final        Map<String, AccessTicket> accessTickets = new HashMap<>();
-    private final        ReadWriteLock             readWriteLock = new ReentrantReadWriteLock();
+    private static final Comparator<AccessTicket> CREATION_TIME_COMPARATOR =
+            Comparator.comparingLong(AccessTicket::getCreationTime).thenComparing(AccessTicket::getAccessToken);
+
+    private final ConcurrentMap<String, AccessTicket> accessTickets;
+    private final ConcurrentSkipListSet<AccessTicket> ticketsByCreationTime;
+    private final SsoClientLogoutNotifier             logoutNotifier;
+
+    @Inject
+    public InMemoryTicketManager(SsoClientLogoutNotifier logoutNotifier) {
+        this.logoutNotifier = logoutNotifier;
+        this.accessTickets = new ConcurrentHashMap<>();
+        this.ticketsByCreationTime = new ConcurrentSkipListSet<>(CREATION_TIME_COMPARATOR);
+    }
 
 
     /** @see TicketManager#putAccessTicket(com.codenvy.api.dao.authentication.AccessTicket) */
@@ -52,12 +59,13 @@ public class InMemoryTicketManager implements TicketManager {
         if (accessTicket.getUserId() == null) {
             throw new IllegalArgumentException("Access ticket has no principal or username in principal");
         }
-        readWriteLock.writeLock().lock();
-        try {
-            accessTickets.put(accessTicket.getAccessToken(), accessTicket);
-        } finally {
-            readWriteLock.writeLock().unlock();
-        }
+        accessTickets.compute(accessTicket.getAccessToken(), (token, oldTicket) -> {
+            if (oldTicket != null) {
+                ticketsByCreationTime.remove(oldTicket);
+            }
+            ticketsByCreationTime.add(accessTicket);
+            return accessTicket;
+        });
     }
 
     /** @see TicketManager#getAccessTicket(java.lang.String) */
@@ -66,72 +74,27 @@ public class InMemoryTicketManager implements TicketManager {
         if (accessToken == null) {
             return null;
         }
-
-        readWriteLock.readLock().lock();
-        try {
-            return accessTickets.get(accessToken);
-        } finally {
-            readWriteLock.readLock().unlock();
-        }
+        return accessTickets.get(accessToken);
     }
 
-    /** @see TicketManager#removeTicket(java.lang.String) */
+    /**
+     * Removes the ticket and schedules logout notifications for the clients
+     * registered for this ticket, notifications are sent asynchronously.
+     *
+     * @see TicketManager#removeTicket(java.lang.String)
+     */
     @Override
     public AccessTicket removeTicket(String accessToken) {
         if (accessToken == null) {
             return null;
         }
 
-        readWriteLock.writeLock().lock();
-        try {
-
-            AccessTicket ticket = accessTickets.remove(accessToken);
-            if (ticket == null)
-                return null;
-            for (String ssoClient : ticket.getRegisteredClients()) {
-                // NOTE : must send as many logout request as possible.
-                HttpURLConnection conn = null;
-                try {
-                    conn = (HttpURLConnection)new URL(ssoClient + "/_sso/client/logout").openConnection();
-                    conn.setRequestMethod("POST");
-                    conn.setDoOutput(true);
-                    conn.setInstanceFollowRedirects(false);
-                    conn.setConnectTimeout(5 * 1000);
-                    conn.setReadTimeout(5 * 1000);
-                    conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-                    OutputStream out = conn.getOutputStream();
-                    out.write(("authToken=" + URLEncoder.encode(ticket.getAccessToken(), "UTF-8")).getBytes());
-
-                    int responseCode = conn.getResponseCode();
-                    LOG.debug("Sent logout request to {} response {}", conn.getURL(), responseCode);
-                    if (responseCode / 100 != 2) {
-                        if (responseCode == HttpServletResponse.SC_BAD_GATEWAY) {
-                            LOG.warn("Tenant {} is unavailable. Logout request not executed", ssoClient);
-                        } else if (responseCode == HttpServletResponse.SC_MOVED_TEMPORARILY) {
-                            LOG.warn("Logout request for tenant {} was redirected to {}. Logout was omitted",
-                                     ssoClient, conn.getHeaderField("Location"));
-                        } else {
-                            InputStream errorStream = conn.getErrorStream();
-                            String message = errorStream != null ? IoUtil.readAndCloseQuietly(errorStream) : "";
-                            throw new IOException(
-                                    "Unexpected response code '" + responseCode + "' for SSO logout request to" +
-                                    " '" + conn.getURL() + "'. " + message);
-                        }
-                    }
-
-                } catch (IOException e) {
-                    LOG.warn("{}. Not able to send logout request to {}", e.getLocalizedMessage(), ssoClient);
-                } finally {
-                    if (conn != null) {
-                        conn.disconnect();
-                    }
-
-                }
-            }
-            return ticket;
-        } finally {
-            readWriteLock.writeLock().unlock();
+        final AccessTicket ticket = accessTickets.remove(accessToken);
+        if (ticket != null) {
+            ticketsByCreationTime.remove(ticket);
+            logoutNotifier.notifyLogout(ticket);
         }
+        return ticket;
     }
 
     /** @return number of access tickets. */
@@ -142,11 +105,29 @@ public class InMemoryTicketManager implements TicketManager {
 
     @Override
     public Set<AccessTicket> getAccessTickets() {
-        readWriteLock.readLock().lock();
-        try {
-            return new HashSet<>(accessTickets.values());
-        } finally {
-            readWriteLock.readLock().unlock();
+        return new HashSet<>(accessTickets.values());
+    }
+
+    /**
+     * Removes the tickets and schedules logout notifications for the clients
+     * registered for them, only the removed tickets are traversed.
+     *
+     * @see TicketManager#removeTicketsCreatedBefore(long)
+     */
+    @Override
+    public Set<AccessTicket> removeTicketsCreatedBefore(long time) {
+        final Set<AccessTicket> removed = new HashSet<>();
+        for (Iterator<AccessTicket> it = ticketsByCreationTime.iterator(); it.hasNext(); ) {
+            final AccessTicket ticket = it.next();
+            if (ticket.getCreationTime() >= time) {
+                break;
+            }
+            it.remove();
+            if (accessTickets.remove(ticket.getAccessToken(), ticket)) {
+                logoutNotifier.notifyLogout(ticket);
+                removed.add(ticket);
+            }
         }
+        return removed;
     }
 }
@@ -0,0 +1,167 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.auth.sso.server.ticket;
+
+import com.codahale.metrics.annotation.Gauge;
+import com.codahale.metrics.annotation.Timed;
+import com.codenvy.api.dao.authentication.AccessTicket;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Asynchronously notifies SSO clients registered for the access ticket about logout.
+ *
+ * <p>Notifications are sent by a bounded pool of threads, so the logout of the ticket
+ * does not wait for the clients. Failed notifications are retried with exponential backoff.
+ * Connections are not explicitly disconnected, so they can be reused
+ * by the keep-alive cache of {@link HttpURLConnection}.
+ */
+@Singleton
+public class SsoClientLogoutNotifier {
+    private static final Logger LOG = LoggerFactory.getLogger(SsoClientLogoutNotifier.class);
+
+    private static final int  TIMEOUT_MS             = 5 * 1000;
+    private static final long INITIAL_RETRY_DELAY_MS = 1000;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final int                         maxAttempts;
+    private final AtomicInteger               pendingNotifications;
+
+    @Inject
+    public SsoClientLogoutNotifier(@Named("auth.sso.logout_notification.pool_size") int poolSize,
+                                   @Named("auth.sso.logout_notification.max_attempts") int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        this.pendingNotifications = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(poolSize,
+                                                        new ThreadFactoryBuilder().setNameFormat("SsoClientLogoutNotifier-%d")
+                                                                                  .setUncaughtExceptionHandler(
+                                                                                          LoggingUncaughtExceptionHandler.getInstance())
+                                                                                  .setDaemon(true)
+                                                                                  .build());
+    }
+
+    /**
+     * Schedules logout notifications for all the clients registered for the given ticket.
+     *
+     * @param ticket
+     *         removed access ticket
+     */
+    public void notifyLogout(AccessTicket ticket) {
+        final String accessToken = ticket.getAccessToken();
+        for (String ssoClient : ticket.getRegisteredClients()) {
+            pendingNotifications.incrementAndGet();
+            executor.execute(() -> tryNotify(ssoClient, accessToken, 1));
+        }
+    }
+
+    /** Returns the number of logout notifications which are not sent yet. */
+    @Gauge(name = "auth.sso.pending_logout_notifications")
+    public int getPendingNotificationsCount() {
+        return pendingNotifications.get();
+    }
+
+    /**
+     * Sends the logout request to the sso client.
+     *
+     * @throws IOException
+     *         when request failed and may be retried
+     */
+    @Timed(name = "auth.sso.client_logout_time")
+    protected void sendLogout(String ssoClient, String accessToken) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection)new URL(ssoClient + "/_sso/client/logout").openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setInstanceFollowRedirects(false);
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(("authToken=" + URLEncoder.encode(accessToken, "UTF-8")).getBytes());
+        }
+
+        final int responseCode = conn.getResponseCode();
+        LOG.debug("Sent logout request to {} response {}", conn.getURL(), responseCode);
+        if (responseCode / 100 == 2) {
+            // response must be fully read to let the connection be reused
+            readQuietly(conn.getInputStream());
+            return;
+        }
+        final InputStream errorStream = conn.getErrorStream();
+        final String message = errorStream != null ? IoUtil.readAndCloseQuietly(errorStream) : "";
+        if (responseCode == HttpServletResponse.SC_BAD_GATEWAY) {
+            LOG.warn("Tenant {} is unavailable. Logout request not executed", ssoClient);
+        } else if (responseCode == HttpServletResponse.SC_MOVED_TEMPORARILY) {
+            LOG.warn("Logout request for tenant {} was redirected to {}. Logout was omitted",
+                     ssoClient, conn.getHeaderField("Location"));
+        } else {
+            throw new IOException("Unexpected response code '" + responseCode + "' for SSO logout request to" +
+                                  " '" + conn.getURL() + "'. " + message);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void tryNotify(String ssoClient, String accessToken, int attempt) {
+        try {
+            sendLogout(ssoClient, accessToken);
+            pendingNotifications.decrementAndGet();
+        } catch (IOException e) {
+            if (attempt < maxAttempts && !executor.isShutdown()) {
+                final long retryDelay = INITIAL_RETRY_DELAY_MS << (attempt - 1);
+                LOG.debug("{}. Logout request to {} will be retried in {}ms", e.getLocalizedMessage(), ssoClient, retryDelay);
+                executor.schedule(() -> tryNotify(ssoClient, accessToken, attempt + 1), retryDelay, MILLISECONDS);
+            } else {
+                pendingNotifications.decrementAndGet();
+                LOG.warn("{}. Not able to send logout request to {}", e.getLocalizedMessage(), ssoClient);
+            }
+        } catch (RuntimeException e) {
+            pendingNotifications.decrementAndGet();
+            LOG.error(e.getLocalizedMessage(), e);
+        }
+    }
+
+    private static void readQuietly(InputStream in) {
+        try (InputStream toClose = in) {
+            final byte[] buf = new byte[1024];
+            while (toClose.read(buf) != -1) {
+                // skip response body
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -18,21 +18,44 @@ package com.codenvy.auth.sso.server.ticket;
 import com.codenvy.api.dao.authentication.AccessTicket;
 import com.codenvy.api.dao.authentication.TicketManager;
 
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
-
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
+@Listeners(MockitoTestNGListener.class)
 public class InMemoryTicketManagerTest {
     private final static String TOKEN = "123456789";
     String userId = "sdfsd345345";
 
+    @Mock
+    SsoClientLogoutNotifier logoutNotifier;
+
 
     @Test
     public void shouldBeAbleToPutAndGetTicket() {
-        TicketManager ticketManager = new InMemoryTicketManager();
+        TicketManager ticketManager = new InMemoryTicketManager(logoutNotifier);
 
         assertNull(ticketManager.getAccessTicket(TOKEN));
 
@@ -47,7 +70,7 @@ public class InMemoryTicketManagerTest {
 
     @Test
     public void shouldBeAbleToGetTickets() {
-        TicketManager ticketManager = new InMemoryTicketManager();
+        TicketManager ticketManager = new InMemoryTicketManager(logoutNotifier);
 
         assertEquals(ticketManager.getAccessTickets().size(), 0);
 
@@ -61,7 +84,7 @@ public class InMemoryTicketManagerTest {
     @Test
     public void shouldBeAbleToRemoveTickets() {
 
-        TicketManager ticketManager = new InMemoryTicketManager();
+        TicketManager ticketManager = new InMemoryTicketManager(logoutNotifier);
 
         ticketManager.putAccessTicket(new AccessTicket(TOKEN, userId, "default"));
 
@@ -71,4 +94,91 @@ public class InMemoryTicketManagerTest {
 
         assertEquals(ticketManager.getAccessTickets().size(), 0);
     }
+
+    @Test
+    public void shouldNotifyClientsAboutLogoutWhenTicketIsRemoved() {
+        TicketManager ticketManager = new InMemoryTicketManager(logoutNotifier);
+        AccessTicket ticket = new AccessTicket(TOKEN, userId, "default");
+        ticketManager.putAccessTicket(ticket);
+
+        ticketManager.removeTicket(TOKEN);
+
+        verify(logoutNotifier).notifyLogout(ticket);
+    }
+
+    @Test
+    public void shouldNotNotifyClientsWhenTicketDoesNotExist() {
+        TicketManager ticketManager = new InMemoryTicketManager(logoutNotifier);
+
+        ticketManager.removeTicket(TOKEN);
+
+        verify(logoutNotifier, never()).notifyLogout(any(AccessTicket.class));
+    }
+
+    @Test
+    public void shouldRemoveTicketsCreatedBeforeGivenTime() {
+        TicketManager ticketManager = new InMemoryTicketManager(logoutNotifier);
+        AccessTicket expired1 = new AccessTicket("token1", userId, "default", 1000);
+        AccessTicket expired2 = new AccessTicket("token2", userId, "default", 2000);
+        AccessTicket alive = new AccessTicket("token3", userId, "default", 3000);
+        ticketManager.putAccessTicket(alive);
+        ticketManager.putAccessTicket(expired2);
+        ticketManager.putAccessTicket(expired1);
+
+        Set<AccessTicket> removed = ticketManager.removeTicketsCreatedBefore(3000);
+
+        assertEquals(removed, new HashSet<>(asList(expired1, expired2)));
+        assertEquals(ticketManager.getAccessTickets(), Collections.singleton(alive));
+        verify(logoutNotifier).notifyLogout(expired1);
+        verify(logoutNotifier).notifyLogout(expired2);
+    }
+
+    @Test
+    public void shouldNotRemoveExpiredTicketTwice() {
+        TicketManager ticketManager = new InMemoryTicketManager(logoutNotifier);
+        AccessTicket expired = new AccessTicket(TOKEN, userId, "default", 1000);
+        ticketManager.putAccessTicket(expired);
+        ticketManager.removeTicket(TOKEN);
+
+        assertTrue(ticketManager.removeTicketsCreatedBefore(2000).isEmpty());
+        verify(logoutNotifier).notifyLogout(expired);
+    }
+
+    @Test
+    public void shouldKeepTicketsConsistentUnderConcurrentModification() throws Exception {
+        final TicketManager ticketManager = new InMemoryTicketManager(logoutNotifier);
+        final int threads = 4;
+        final int ticketsPerThread = 100;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ticketsPerThread; i++) {
+                    final String token = thread + "-" + i;
+                    ticketManager.putAccessTicket(new AccessTicket(token, userId, "default", i));
+                    assertNotNull(ticketManager.getAccessTicket(token));
+                    if (i % 2 == 0) {
+                        ticketManager.removeTicket(token);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(ticketManager.getAccessTickets().size(), threads * ticketsPerThread / 2);
+        assertEquals(ticketManager.removeTicketsCreatedBefore(ticketsPerThread).size(), threads * ticketsPerThread / 2);
+        assertTrue(ticketManager.getAccessTickets().isEmpty());
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.auth.sso.server.ticket;
+
+import com.codenvy.api.dao.authentication.AccessTicket;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link SsoClientLogoutNotifier}.
+ */
+public class SsoClientLogoutNotifierTest {
+
+    private SsoClientLogoutNotifier notifier;
+
+    @AfterMethod
+    public void tearDown() {
+        notifier.shutdown();
+    }
+
+    @Test
+    public void shouldNotifyAllRegisteredClients() throws Exception {
+        final Set<String> notifiedClients = ConcurrentHashMap.newKeySet();
+        final CountDownLatch latch = new CountDownLatch(2);
+        notifier = new SsoClientLogoutNotifier(2, 1) {
+            @Override
+            protected void sendLogout(String ssoClient, String accessToken) throws IOException {
+                notifiedClients.add(ssoClient);
+                latch.countDown();
+            }
+        };
+        final AccessTicket ticket = new AccessTicket("token", "user123", "default");
+        ticket.registerClientUrl("http://client1");
+        ticket.registerClientUrl("http://client2");
+
+        notifier.notifyLogout(ticket);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(notifiedClients, new HashSet<>(asList("http://client1", "http://client2")));
+    }
+
+    @Test
+    public void shouldRetryFailedNotification() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(2);
+        notifier = new SsoClientLogoutNotifier(1, 3) {
+            @Override
+            protected void sendLogout(String ssoClient, String accessToken) throws IOException {
+                latch.countDown();
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IOException("Connection refused");
+                }
+            }
+        };
+        final AccessTicket ticket = new AccessTicket("token", "user123", "default");
+        ticket.registerClientUrl("http://client1");
+
+        notifier.notifyLogout(ticket);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(attempts.get(), 2);
+    }
+}
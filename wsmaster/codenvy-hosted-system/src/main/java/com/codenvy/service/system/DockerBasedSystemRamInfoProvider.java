@@ -32,6 +32,9 @@ import static org.eclipse.che.commons.lang.Size.parseSize;
 /**
  * Implementation of {@link SystemRamInfoProvider} based on docker.
  *
+ * <p>Docker connector may return the same system info instance until it is changed
+ * (e.g. swarm connector caches it), in this case RAM values are parsed only once.
+ *
  * @author Igor Vinokur
  */
 public class DockerBasedSystemRamInfoProvider implements SystemRamInfoProvider {
@@ -42,6 +45,8 @@ public class DockerBasedSystemRamInfoProvider implements SystemRamInfoProvider {
 
     private final DockerConnector dockerConnector;
 
+    private volatile ParsedSystemRamInfo lastParsed;
+
     @Inject
     public DockerBasedSystemRamInfoProvider(DockerConnectorProvider dockerConnectorProvider) {
         this.dockerConnector = dockerConnectorProvider.get();
@@ -56,6 +61,16 @@ public class DockerBasedSystemRamInfoProvider implements SystemRamInfoProvider {
             LOG.error("Failed to retrieve system information from docker.", e);
             throw new ServerException(SYSTEM_RAM_INFO_ERROR, e);
         }
+        final ParsedSystemRamInfo parsed = lastParsed;
+        if (parsed != null && parsed.systemInfo == systemInfo) {
+            return parsed.systemRamInfo;
+        }
+        final SystemRamInfo systemRamInfo = parseSystemRamInfo(systemInfo);
+        lastParsed = new ParsedSystemRamInfo(systemInfo, systemRamInfo);
+        return systemRamInfo;
+    }
+
+    private SystemRamInfo parseSystemRamInfo(SystemInfo systemInfo) throws ServerException {
         String[][] driverStatus = systemInfo.getDriverStatus();
         String[][] systemStatus = systemInfo.getSystemStatus();
         String[][] statusOutput = driverStatus == null ? systemStatus : driverStatus;
@@ -120,4 +135,14 @@ public class DockerBasedSystemRamInfoProvider implements SystemRamInfoProvider {
 
         return new SystemRamInfo(systemRamUsed, systemRamTotal);
     }
+
+    private static class ParsedSystemRamInfo {
+        final SystemInfo    systemInfo;
+        final SystemRamInfo systemRamInfo;
+
+        ParsedSystemRamInfo(SystemInfo systemInfo, SystemRamInfo systemRamInfo) {
+            this.systemInfo = systemInfo;
+            this.systemRamInfo = systemRamInfo;
+        }
+    }
 }
@@ -24,9 +24,12 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -80,6 +83,30 @@ public class DockerBasedSystemRamInfoProviderTest {
         assertEquals(systemRamInfo.getSystemRamTotal(), 3L * 1024 * 1024 * 1024 );
     }
 
+    @Test
+    public void shouldNotParseTheSameSystemInfoTwice() throws Exception {
+        when(systemInfo.getDriverStatus()).thenReturn(new String[][] {{" └ Reserved Memory", "1 GiB / 3 GiB"}});
+
+        SystemRamInfo first = systemRamInfoProvider.getSystemRamInfo();
+        SystemRamInfo second = systemRamInfoProvider.getSystemRamInfo();
+
+        assertSame(first, second);
+        verify(systemInfo).getDriverStatus();
+    }
+
+    @Test
+    public void shouldParseNewSystemInfo() throws Exception {
+        when(systemInfo.getDriverStatus()).thenReturn(new String[][] {{" └ Reserved Memory", "1 GiB / 3 GiB"}});
+        SystemInfo newSystemInfo = mock(SystemInfo.class);
+        when(newSystemInfo.getDriverStatus()).thenReturn(new String[][] {{" └ Reserved Memory", "2 GiB / 3 GiB"}});
+        systemRamInfoProvider.getSystemRamInfo();
+        when(dockerConnector.getSystemInfo()).thenReturn(newSystemInfo);
+
+        SystemRamInfo systemRamInfo = systemRamInfoProvider.getSystemRamInfo();
+
+        assertEquals(systemRamInfo.getSystemRamUsed(), 2L * 1024 * 1024 * 1024);
+    }
+
     @Test(expectedExceptions = ServerException.class,
           expectedExceptionsMessageRegExp = "An error occurred while getting system RAM info.")
     public void shouldThrowExceptionIfFailedToRecognizeDockerSystemInfo() throws Exception {
@@ -14,6 +14,9 @@
  */
 package com.codenvy.activity.server;
 
+import com.codenvy.api.workspace.server.model.impl.WorkerImpl;
+import com.codenvy.api.workspace.server.spi.WorkerDao;
+
 import org.eclipse.che.api.core.ApiException;
 import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.commons.env.EnvironmentContext;
@@ -22,7 +25,11 @@ import org.eclipse.che.everrest.CheMethodInvokerFilter;
 import org.everrest.core.Filter;
 import org.everrest.core.resource.GenericResourceMethod;
 
+import javax.inject.Inject;
 import javax.ws.rs.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static com.codenvy.api.workspace.server.WorkspaceDomain.DOMAIN_ID;
 import static com.codenvy.api.workspace.server.WorkspaceDomain.USE;
@@ -36,6 +43,13 @@ import static com.codenvy.api.workspace.server.WorkspaceDomain.USE;
 @Path("/activity{path:(/.*)?}")
 public class ActivityPermissionsFilter extends CheMethodInvokerFilter {
 
+    private final WorkerDao workerDao;
+
+    @Inject
+    public ActivityPermissionsFilter(WorkerDao workerDao) {
+        this.workerDao = workerDao;
+    }
+
     @Override
     protected void filter(GenericResourceMethod genericResourceMethod, Object[] arguments) throws ApiException {
         final String methodName = genericResourceMethod.getMethod().getName();
@@ -50,9 +64,37 @@ public class ActivityPermissionsFilter extends CheMethodInvokerFilter {
                 action = USE;
                 break;
             }
+            case "activeBatch": {
+                @SuppressWarnings("unchecked")
+                final Map<String, Long> activities = (Map<String, Long>)arguments[0];
+                if (activities != null) {
+                    checkUsePermissions(currentSubject, activities.keySet());
+                }
+                return;
+            }
             default:
                 throw new ForbiddenException("The user does not have permission to perform this operation");
         }
         currentSubject.checkPermission(DOMAIN_ID, workspaceId, action);
     }
+
+    /**
+     * Checks that subject is allowed to use all the given workspaces.
+     *
+     * <p>Workers of the user are loaded by a single request, only the workspaces
+     * which are not covered by them (e.g. shared with all users) are checked one by one.
+     */
+    private void checkUsePermissions(Subject subject, Set<String> workspaceIds) throws ApiException {
+        final Set<String> unchecked = new HashSet<>(workspaceIds);
+        if (unchecked.size() > 1) {
+            for (WorkerImpl worker : workerDao.getWorkersByUser(subject.getUserId())) {
+                if (worker.getActions().contains(USE)) {
+                    unchecked.remove(worker.getWorkspaceId());
+                }
+            }
+        }
+        for (String workspaceId : unchecked) {
+            subject.checkPermission(DOMAIN_ID, workspaceId, USE);
+        }
+    }
 }
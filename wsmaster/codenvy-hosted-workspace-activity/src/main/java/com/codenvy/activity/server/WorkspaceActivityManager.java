@@ -14,7 +14,10 @@
  */
 package com.codenvy.activity.server;
 
+import com.codahale.metrics.annotation.Gauge;
+import com.codahale.metrics.annotation.Timed;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 
 import org.eclipse.che.api.core.ConflictException;
@@ -24,6 +27,7 @@ import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.workspace.server.WorkspaceManager;
 import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
 import org.eclipse.che.commons.schedule.ScheduleRate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,8 +36,17 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static com.codenvy.activity.shared.Constants.ACTIVITY_CHECKER;
 import static org.eclipse.che.api.workspace.shared.Constants.WORKSPACE_STOPPED_BY;
@@ -44,6 +57,10 @@ import static org.eclipse.che.api.workspace.shared.Constants.WORKSPACE_STOPPED_B
  * <p>Note that the workspace is not stopped immediately, scheduler will stop the workspaces with one minute rate.
  * If workspace expiry period is negative, then workspace would not be stopped automatically.
  *
+ * <p>Expirations are kept ordered by time, so each scheduler run touches only
+ * the workspaces which are due. Expired workspaces are stopped asynchronously
+ * by a bounded pool, a workspace which is being stopped is not submitted for stop again.
+ *
  * @author Anton Korneta
  */
 @Singleton
@@ -51,20 +68,38 @@ public class WorkspaceActivityManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(WorkspaceActivityManager.class);
 
-    private final long               expirePeriod;
-    private final Map<String, Long>  activeWorkspaces;
-    private final WorkspaceManager   workspaceManager;
-    private final EventService       eventService;
-    private final EventSubscriber<?> workspaceEventsSubscriber;
+    private final long                              expirePeriod;
+    private final ConcurrentMap<String, Long>       activeWorkspaces;
+    private final ConcurrentSkipListSet<Expiration> expirations;
+    private final Set<String>                       stoppingWorkspaces;
+    private final ExecutorService                   stopExecutor;
+    private final WorkspaceManager                  workspaceManager;
+    private final EventService                      eventService;
+    private final EventSubscriber<?>                workspaceEventsSubscriber;
 
     @Inject
     public WorkspaceActivityManager(@Named("machine.ws_agent.inactive_stop_timeout_ms") long expirePeriod,
+                                    @Named("stop.workspace.pool_size") int stopPoolSize,
                                     WorkspaceManager workspaceManager,
                                     EventService eventService) {
         this.expirePeriod = expirePeriod;
         this.workspaceManager = workspaceManager;
         this.eventService = eventService;
         this.activeWorkspaces = new ConcurrentHashMap<>();
+        this.expirations = new ConcurrentSkipListSet<>();
+        this.stoppingWorkspaces = ConcurrentHashMap.newKeySet();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(stopPoolSize,
+                                                                   stopPoolSize,
+                                                                   60L,
+                                                                   TimeUnit.SECONDS,
+                                                                   new LinkedBlockingQueue<>(),
+                                                                   new ThreadFactoryBuilder().setNameFormat("InactiveWorkspaceStopper-%d")
+                                                                                             .setUncaughtExceptionHandler(
+                                                                                                     LoggingUncaughtExceptionHandler.getInstance())
+                                                                                             .setDaemon(true)
+                                                                                             .build());
+        executor.allowCoreThreadTimeOut(true);
+        this.stopExecutor = executor;
         this.workspaceEventsSubscriber = new EventSubscriber<WorkspaceStatusEvent>() {
             @Override
             public void onEvent(WorkspaceStatusEvent event) {
@@ -81,7 +116,7 @@ public class WorkspaceActivityManager {
                         update(event.getWorkspaceId(), System.currentTimeMillis());
                         break;
                     case STOPPED:
-                        activeWorkspaces.remove(event.getWorkspaceId());
+                        remove(event.getWorkspaceId());
                         break;
                     default:
                         //do nothing
@@ -100,39 +135,112 @@ public class WorkspaceActivityManager {
      */
     public void update(String wsId, long activityTime) {
         if (expirePeriod > 0) {
-            activeWorkspaces.put(wsId, activityTime + expirePeriod);
+            final long expireTime = activityTime + expirePeriod;
+            activeWorkspaces.compute(wsId, (id, oldExpireTime) -> {
+                if (oldExpireTime != null) {
+                    expirations.remove(new Expiration(id, oldExpireTime));
+                }
+                expirations.add(new Expiration(id, expireTime));
+                return expireTime;
+            });
         }
     }
 
-    @ScheduleRate(periodParameterName = "stop.workspace.scheduler.period")
-    private void invalidate() {
+    /**
+     * Prolongs the expiry period of the active workspaces in one pass.
+     *
+     * <p>Only the workspaces which are already tracked, i.e. running ones, are updated,
+     * activities of other workspaces are ignored. Activity times from the future are
+     * treated as current time, expiry period of the workspace is never shortened.
+     *
+     * @param activities
+     *         workspace identifier to the moment in which the last activity occurred
+     */
+    public void update(Map<String, Long> activities) {
         if (expirePeriod <= 0) {
             return;
         }
         final long currentTime = System.currentTimeMillis();
-        for (Map.Entry<String, Long> workspaceExpireEntry : activeWorkspaces.entrySet()) {
-            if (workspaceExpireEntry.getValue() <= currentTime) {
-                try {
-                    String workspaceId = workspaceExpireEntry.getKey();
-
-                    Workspace workspace = workspaceManager.getWorkspace(workspaceId);
-                    workspace.getAttributes().put(WORKSPACE_STOPPED_BY, ACTIVITY_CHECKER);
-                    workspaceManager.updateWorkspace(workspaceId, workspace);
-                    workspaceManager.stopWorkspace(workspaceId);
-                } catch (NotFoundException e) {
-                    LOG.info("Workspace already stopped");
-                } catch (ConflictException e) {
-                    LOG.warn(e.getLocalizedMessage());
-                } catch (Exception ex) {
-                    LOG.error(ex.getLocalizedMessage());
-                    LOG.debug(ex.getLocalizedMessage(), ex);
-                } finally {
-                    activeWorkspaces.remove(workspaceExpireEntry.getKey());
+        for (Map.Entry<String, Long> activity : activities.entrySet()) {
+            if (activity.getKey() == null || activity.getValue() == null) {
+                continue;
+            }
+            final long expireTime = Math.min(activity.getValue(), currentTime) + expirePeriod;
+            activeWorkspaces.computeIfPresent(activity.getKey(), (id, oldExpireTime) -> {
+                if (expireTime <= oldExpireTime) {
+                    return oldExpireTime;
                 }
+                expirations.remove(new Expiration(id, oldExpireTime));
+                expirations.add(new Expiration(id, expireTime));
+                return expireTime;
+            });
+        }
+    }
+
+    /** Returns the number of workspaces which are waiting for the expiration. */
+    @Gauge(name = "workspace.activity.pending_expirations")
+    public int getPendingExpirationsCount() {
+        return activeWorkspaces.size();
+    }
+
+    /** Returns the number of expired workspaces which are waiting for the stop or being stopped. */
+    @Gauge(name = "workspace.activity.stopping_workspaces")
+    public int getStoppingWorkspacesCount() {
+        return stoppingWorkspaces.size();
+    }
+
+    @VisibleForTesting
+    @ScheduleRate(periodParameterName = "stop.workspace.scheduler.period")
+    void invalidate() {
+        if (expirePeriod <= 0) {
+            return;
+        }
+        final long currentTime = System.currentTimeMillis();
+        for (Iterator<Expiration> it = expirations.iterator(); it.hasNext(); ) {
+            final Expiration expiration = it.next();
+            if (expiration.time > currentTime) {
+                break;
+            }
+            it.remove();
+            // the expiration may be already replaced by the concurrent update
+            if (activeWorkspaces.remove(expiration.workspaceId, expiration.time)
+                && stoppingWorkspaces.add(expiration.workspaceId)) {
+                stopExecutor.execute(() -> {
+                    try {
+                        stopExpired(expiration.workspaceId);
+                    } finally {
+                        stoppingWorkspaces.remove(expiration.workspaceId);
+                    }
+                });
             }
         }
     }
 
+    /** Stops the expired workspace, is not private in order to be timed. */
+    @Timed(name = "workspace.activity.stop_time")
+    protected void stopExpired(String workspaceId) {
+        try {
+            Workspace workspace = workspaceManager.getWorkspace(workspaceId);
+            workspace.getAttributes().put(WORKSPACE_STOPPED_BY, ACTIVITY_CHECKER);
+            workspaceManager.updateWorkspace(workspaceId, workspace);
+            workspaceManager.stopWorkspace(workspaceId);
+        } catch (NotFoundException e) {
+            LOG.info("Workspace already stopped");
+        } catch (ConflictException e) {
+            LOG.warn(e.getLocalizedMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getLocalizedMessage());
+            LOG.debug(ex.getLocalizedMessage(), ex);
+        }
+    }
+
+    private void remove(String wsId) {
+        activeWorkspaces.computeIfPresent(wsId, (id, expireTime) -> {
+            expirations.remove(new Expiration(id, expireTime));
+            return null;
+        });
+    }
+
     @VisibleForTesting
     @PostConstruct
     void subscribe() {
@@ -144,5 +252,43 @@ public class WorkspaceActivityManager {
     @PreDestroy
     private void unsubscribe() {
         eventService.unsubscribe(workspaceEventsSubscriber);
+        stopExecutor.shutdownNow();
+    }
+
+    /** Moment of the workspace expiration, ordered by time. */
+    private static final class Expiration implements Comparable<Expiration> {
+        private final String workspaceId;
+        private final long   time;
+
+        private Expiration(String workspaceId, long time) {
+            this.workspaceId = workspaceId;
+            this.time = time;
+        }
+
+        @Override
+        public int compareTo(Expiration other) {
+            final int result = Long.compare(time, other.time);
+            return result != 0 ? result : workspaceId.compareTo(other.workspaceId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Expiration)) {
+                return false;
+            }
+            final Expiration other = (Expiration)obj;
+            return time == other.time && Objects.equals(workspaceId, other.workspaceId);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = hash * 31 + Objects.hashCode(workspaceId);
+            hash = hash * 31 + Long.hashCode(time);
+            return hash;
+        }
     }
 }
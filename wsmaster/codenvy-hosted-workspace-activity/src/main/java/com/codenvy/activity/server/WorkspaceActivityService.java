@@ -19,6 +19,7 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
+import org.eclipse.che.api.core.BadRequestException;
 import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
@@ -30,10 +31,14 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import java.util.Map;
 
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static org.eclipse.che.api.core.model.workspace.WorkspaceStatus.RUNNING;
 
 /**
@@ -69,4 +74,21 @@ public class WorkspaceActivityService extends Service {
             LOG.debug("Updated activity on workspace {}", wsId);
         }
     }
+
+    @POST
+    @Consumes(APPLICATION_JSON)
+    @ApiOperation(value = "Notifies activity of multiple workspaces",
+                  notes = "Notifies activity of the running workspaces to prevent their stop by timeout. " +
+                          "Request body is a map where key is workspace id and value is the time of the last " +
+                          "activity in milliseconds. Activities of the workspaces which are not running are ignored.")
+    @ApiResponses({@ApiResponse(code = 204, message = "Activities counted"),
+                   @ApiResponse(code = 400, message = "Activities are not provided")})
+    public void activeBatch(@ApiParam(value = "Workspace id to the time of last activity", required = true)
+                            Map<String, Long> activities) throws BadRequestException {
+        if (activities == null) {
+            throw new BadRequestException("Workspace activities required");
+        }
+        workspaceActivityManager.update(activities);
+        LOG.debug("Updated activity on {} workspaces", activities.size());
+    }
 }
@@ -14,6 +14,8 @@
  */
 package com.codenvy.activity.server;
 
+import com.codenvy.api.workspace.server.model.impl.WorkerImpl;
+import com.codenvy.api.workspace.server.spi.WorkerDao;
 import com.jayway.restassured.response.Response;
 
 import org.eclipse.che.api.core.ForbiddenException;
@@ -35,13 +37,17 @@ import org.testng.annotations.Test;
 import static com.codenvy.api.workspace.server.WorkspaceDomain.DOMAIN_ID;
 import static com.codenvy.api.workspace.server.WorkspaceDomain.USE;
 import static com.jayway.restassured.RestAssured.given;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.everrest.assured.JettyHttpServer.ADMIN_USER_NAME;
 import static org.everrest.assured.JettyHttpServer.ADMIN_USER_PASSWORD;
 import static org.everrest.assured.JettyHttpServer.SECURE_PATH;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 
@@ -66,6 +72,9 @@ public class ActivityPermissionsFilterTest {
     @Mock
     WorkspaceActivityService service;
 
+    @Mock
+    WorkerDao workerDao;
+
     @Test
     public void shouldCheckPermissionsOnGettingMachineById() throws Exception {
 
@@ -96,6 +105,54 @@ public class ActivityPermissionsFilterTest {
         assertEquals(response.getStatusCode(), 403);
     }
 
+    @Test
+    public void shouldCheckPermissionsOfEachWorkspaceOnBatchUpdate() throws Exception {
+        final Response response = given().auth()
+                                         .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
+                                         .contentType("application/json")
+                                         .body("{\"workspace123\":1000,\"workspace234\":2000}")
+                                         .when()
+                                         .post(SECURE_PATH + "/activity");
+
+        assertEquals(response.getStatusCode(), 204);
+        verify(subject).checkPermission(DOMAIN_ID, "workspace123", USE);
+        verify(subject).checkPermission(DOMAIN_ID, "workspace234", USE);
+    }
+
+    @Test
+    public void shouldNotCheckPermissionsOneByOneForWorkspacesWhereUserIsWorker() throws Exception {
+        when(subject.getUserId()).thenReturn("user123");
+        when(workerDao.getWorkersByUser("user123")).thenReturn(asList(new WorkerImpl("workspace123", "user123", singletonList(USE)),
+                                                                      new WorkerImpl("workspace234", "user123", singletonList("read"))));
+
+        final Response response = given().auth()
+                                         .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
+                                         .contentType("application/json")
+                                         .body("{\"workspace123\":1000,\"workspace234\":2000}")
+                                         .when()
+                                         .post(SECURE_PATH + "/activity");
+
+        assertEquals(response.getStatusCode(), 204);
+        verify(subject, never()).checkPermission(DOMAIN_ID, "workspace123", USE);
+        verify(subject).checkPermission(DOMAIN_ID, "workspace234", USE);
+    }
+
+    @Test
+    public void shouldNotUpdateActivitiesWhenUserHasNoPermissionsForOneOfWorkspaces() throws Exception {
+        doThrow(new ForbiddenException("The user does not have permission to " + USE + " workspace with id 'workspace234'"))
+                .when(subject).checkPermission(DOMAIN_ID, "workspace234", USE);
+
+        final Response response = given().auth()
+                                         .basic(ADMIN_USER_NAME, ADMIN_USER_PASSWORD)
+                                         .contentType("application/json")
+                                         .body("{\"workspace123\":1000,\"workspace234\":2000}")
+                                         .when()
+                                         .post(SECURE_PATH + "/activity");
+
+        assertEquals(response.getStatusCode(), 403);
+        verifyZeroInteractions(service);
+    }
+
     @Test(expectedExceptions = ForbiddenException.class)
     public void shouldThrowExceptionWhenCallingUnlistedMethod() throws Exception {
 
@@ -14,9 +14,11 @@
  */
 package com.codenvy.activity.server;
 
+import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.workspace.server.WorkspaceManager;
+import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
 import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
 import org.eclipse.che.dto.server.DtoFactory;
 import org.mockito.ArgumentCaptor;
@@ -28,9 +30,16 @@ import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
 import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.Map;
 
+import static java.util.Collections.singletonMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -52,7 +61,7 @@ public class WorkspaceActivityManagerTest {
 
     @BeforeMethod
     private void setUp() {
-        activityManager = new WorkspaceActivityManager(EXPIRE_PERIOD, workspaceManager, eventService);
+        activityManager = new WorkspaceActivityManager(EXPIRE_PERIOD, 2, workspaceManager, eventService);
     }
 
     @Test
@@ -120,6 +129,71 @@ public class WorkspaceActivityManagerTest {
         assertTrue(activeWorkspaces.isEmpty());
     }
 
+    @Test
+    public void shouldStopExpiredWorkspace() throws Exception {
+        final String wsId = "testWsId";
+        final WorkspaceImpl workspace = mock(WorkspaceImpl.class);
+        when(workspace.getAttributes()).thenReturn(new HashMap<>());
+        when(workspaceManager.getWorkspace(wsId)).thenReturn(workspace);
+        activityManager.update(wsId, System.currentTimeMillis() - EXPIRE_PERIOD);
+
+        activityManager.invalidate();
+
+        verify(workspaceManager, timeout(1000)).stopWorkspace(wsId);
+        assertTrue(getActiveWorkspaces(activityManager).isEmpty());
+    }
+
+    @Test
+    public void shouldNotStopWorkspaceWhichIsNotExpired() throws Exception {
+        final String wsId = "testWsId";
+        activityManager.update(wsId, System.currentTimeMillis() - EXPIRE_PERIOD);
+        activityManager.update(wsId, System.currentTimeMillis() + 60_000);
+
+        activityManager.invalidate();
+
+        verify(workspaceManager, never()).getWorkspace(anyString());
+        assertTrue(getActiveWorkspaces(activityManager).containsKey(wsId));
+    }
+
+    @Test
+    public void shouldContinueStoppingExpiredWorkspacesWhenStopOfOneFails() throws Exception {
+        final WorkspaceImpl workspace = mock(WorkspaceImpl.class);
+        when(workspace.getAttributes()).thenReturn(new HashMap<>());
+        when(workspaceManager.getWorkspace("ws1")).thenThrow(new NotFoundException("not found"));
+        when(workspaceManager.getWorkspace("ws2")).thenReturn(workspace);
+        activityManager.update("ws1", System.currentTimeMillis() - EXPIRE_PERIOD * 2);
+        activityManager.update("ws2", System.currentTimeMillis() - EXPIRE_PERIOD);
+
+        activityManager.invalidate();
+
+        verify(workspaceManager, timeout(1000)).stopWorkspace("ws2");
+        assertTrue(getActiveWorkspaces(activityManager).isEmpty());
+    }
+
+    @Test
+    public void shouldUpdateOnlyActiveWorkspacesOnBatchUpdate() throws Exception {
+        final Map<String, Long> activeWorkspaces = getActiveWorkspaces(activityManager);
+        activityManager.update("ws1", 1000L);
+        final Map<String, Long> activities = new HashMap<>();
+        activities.put("ws1", 2000L);
+        activities.put("ws2", 2000L);
+
+        activityManager.update(activities);
+
+        assertEquals(activeWorkspaces.size(), 1);
+        assertEquals((long)activeWorkspaces.get("ws1"), 2000L + EXPIRE_PERIOD);
+    }
+
+    @Test
+    public void shouldNotShortenExpirationOnBatchUpdate() throws Exception {
+        final Map<String, Long> activeWorkspaces = getActiveWorkspaces(activityManager);
+        activityManager.update("ws1", 2000L);
+
+        activityManager.update(singletonMap("ws1", 1000L));
+
+        assertEquals((long)activeWorkspaces.get("ws1"), 2000L + EXPIRE_PERIOD);
+    }
+
     @SuppressWarnings("unchecked")
     private Map<String, Long> getActiveWorkspaces(WorkspaceActivityManager workspaceActivityManager) throws Exception {
         for (Field field : workspaceActivityManager.getClass().getDeclaredFields()) {
@@ -39,6 +39,7 @@ import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
 import static com.jayway.restassured.RestAssured.given;
+import static java.util.Collections.singletonMap;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
@@ -100,6 +101,18 @@ public class WorkspaceActivityServiceTest {
         verifyZeroInteractions(workspaceActivityManager);
     }
 
+    @Test
+    public void shouldUpdateActivityOfMultipleWorkspaces() throws Exception {
+        final Response response = given().contentType("application/json")
+                                         .body("{\"" + WORKSPACE_ID + "\":1000}")
+                                         .when()
+                                         .post(SERVICE_PATH);
+
+        assertEquals(response.getStatusCode(), 204);
+        verify(workspaceActivityManager).update(singletonMap(WORKSPACE_ID, 1000L));
+        verifyZeroInteractions(workspaceManager);
+    }
+
     @DataProvider(name = "wsStatus")
     public Object[][] getWorkspaceStatus() {
         return new Object[][]{ {WorkspaceStatus.STARTING}, {WorkspaceStatus.STOPPED}, {WorkspaceStatus.STOPPING} };
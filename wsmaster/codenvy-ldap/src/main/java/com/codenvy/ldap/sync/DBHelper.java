@@ -20,7 +20,9 @@ import com.google.inject.persist.Transactional;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Helps to make db requests.
@@ -46,4 +48,22 @@ public class DBHelper {
                          .createNativeQuery(nativeQuery)
                          .getResultList();
     }
+
+    /**
+     * Executes JPQL query and returns execution result.
+     *
+     * @param query
+     *         query to execute
+     * @param resultClass
+     *         the type of the query result
+     * @param hints
+     *         query hints e.g. batch fetching of entity collections
+     * @return execution result
+     */
+    @Transactional
+    public <T> List<T> executeQuery(String query, Class<T> resultClass, Map<String, Object> hints) {
+        final TypedQuery<T> typedQuery = emProvider.get().createQuery(query, resultClass);
+        hints.forEach(typedQuery::setHint);
+        return typedQuery.getResultList();
+    }
 }
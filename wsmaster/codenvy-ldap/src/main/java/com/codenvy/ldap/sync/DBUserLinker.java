@@ -17,11 +17,17 @@ package com.codenvy.ldap.sync;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.model.user.User;
+import org.eclipse.che.api.user.server.model.impl.ProfileImpl;
+import org.eclipse.che.api.user.server.model.impl.UserImpl;
 import org.eclipse.che.api.user.server.spi.UserDao;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
+import static java.util.Collections.singletonMap;
+
 /**
  * Links db users with ldap users by either id, email or name.
  *
@@ -29,6 +35,9 @@ import java.util.Set;
  */
 public abstract class DBUserLinker {
 
+    /** Loads entities collections with a single query instead of a query per entity. */
+    private static final String BATCH_FETCH_HINT = "eclipselink.batch";
+
     /** Creates a new user finder based on his identifier. */
     public static DBUserLinker newIdLinker(UserDao userDao, DBHelper dbHelper) {
         return new IdLinker(userDao, dbHelper);
@@ -77,6 +86,36 @@ public abstract class DBUserLinker {
     /** Returns linking attribute values for those users who exist in persistence layer. */
     public abstract Set<String> findIds();
 
+    /**
+     * Fetches all the users from persistence layer at once.
+     *
+     * @return users mapped by the values returned from {@link #extractId(User)}
+     */
+    public Map<String, User> findUsers() {
+        final Map<String, User> users = new HashMap<>();
+        for (UserImpl user : dbHelper.executeQuery("SELECT u FROM Usr u",
+                                                   UserImpl.class,
+                                                   singletonMap(BATCH_FETCH_HINT, "u.aliases"))) {
+            users.put(extractId(user), user);
+        }
+        return users;
+    }
+
+    /**
+     * Fetches profiles of all the users from persistence layer at once.
+     *
+     * @return profiles mapped by their user identifiers
+     */
+    public Map<String, ProfileImpl> findProfiles() {
+        final Map<String, ProfileImpl> profiles = new HashMap<>();
+        for (ProfileImpl profile : dbHelper.executeQuery("SELECT p FROM Profile p",
+                                                         ProfileImpl.class,
+                                                         singletonMap(BATCH_FETCH_HINT, "p.attributes"))) {
+            profiles.put(profile.getUserId(), profile);
+        }
+        return profiles;
+    }
+
     /** Retrieves user by his id. */
     private static class IdLinker extends DBUserLinker {
 
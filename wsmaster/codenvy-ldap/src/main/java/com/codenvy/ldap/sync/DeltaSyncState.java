@@ -0,0 +1,210 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.ldap.sync;
+
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.SearchFilter;
+import org.ldaptive.ad.GlobalIdentifier;
+import org.ldaptive.ad.handler.ObjectGuidHandler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+
+/**
+ * The state of incremental synchronization which is kept between synchronizations.
+ *
+ * <p>The high-water mark is the greatest value of change tracking attributes
+ * (e.g. <i>modifyTimestamp</i> or <i>uSNChanged</i>) among the synchronized entries,
+ * the next incremental synchronization selects only those entries whose
+ * change tracking attributes values are greater or equal to the mark.
+ *
+ * <p>The mark is advanced even if some of the entries failed to be synchronized,
+ * identifiers of such entries are kept in the state and the next incremental
+ * synchronization selects them again regardless of their change tracking attributes.
+ */
+class DeltaSyncState {
+
+    private static final String ATTRIBUTES_PROPERTY     = "attributes";
+    private static final String MARK_PROPERTY           = "mark";
+    private static final String LAST_FULL_SYNC_PROPERTY = "last_full_sync";
+    private static final String RETRY_IDS_PROPERTY      = "retry_ids";
+    private static final String RETRY_IDS_SEPARATOR     = "\n";
+    private static final String OBJECT_GUID_ATTRIBUTE   = "objectGUID";
+
+    /**
+     * Loads the state from the given file.
+     *
+     * @return the state or null if there is no state stored yet
+     * @throws IOException
+     *         when any error occurs during state reading
+     */
+    static DeltaSyncState load(Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, UTF_8)) {
+            properties.load(reader);
+        } catch (NoSuchFileException x) {
+            return null;
+        }
+        final String mark = properties.getProperty(MARK_PROPERTY);
+        if (mark == null) {
+            return null;
+        }
+        final String retryIds = properties.getProperty(RETRY_IDS_PROPERTY, "");
+        return new DeltaSyncState(properties.getProperty(ATTRIBUTES_PROPERTY, ""),
+                                  mark,
+                                  retryIds.isEmpty() ? emptySet() : new LinkedHashSet<>(asList(retryIds.split(RETRY_IDS_SEPARATOR))),
+                                  Long.parseLong(properties.getProperty(LAST_FULL_SYNC_PROPERTY, "0")));
+    }
+
+    /** Returns the greatest of two marks, any of marks may be null. */
+    static String max(String mark1, String mark2) {
+        if (mark1 == null) {
+            return mark2;
+        }
+        if (mark2 == null) {
+            return mark1;
+        }
+        return compare(mark1, mark2) >= 0 ? mark1 : mark2;
+    }
+
+    /** Returns the greatest value of the given attributes in the given entry, or the given mark if it is greater. */
+    static String max(String mark, LdapEntry entry, List<String> attributes) {
+        for (String attribute : attributes) {
+            final LdapAttribute attr = entry.getAttribute(attribute);
+            if (attr != null) {
+                mark = max(mark, attr.getStringValue());
+            }
+        }
+        return mark;
+    }
+
+    /**
+     * Generalized time values are compared lexicographically,
+     * update sequence numbers are compared numerically.
+     */
+    private static int compare(String mark1, String mark2) {
+        if (isNumber(mark1) && isNumber(mark2) && mark1.length() != mark2.length()) {
+            return Integer.compare(mark1.length(), mark2.length());
+        }
+        return mark1.compareTo(mark2);
+    }
+
+    private static boolean isNumber(String value) {
+        return !value.isEmpty() && value.chars().allMatch(Character::isDigit);
+    }
+
+    private final String attributes;
+    private final String      mark;
+    private final Set<String> retryIds;
+    private final long        lastFullSyncTime;
+
+    DeltaSyncState(String attributes, String mark, long lastFullSyncTime) {
+        this(attributes, mark, emptySet(), lastFullSyncTime);
+    }
+
+    DeltaSyncState(String attributes, String mark, Set<String> retryIds, long lastFullSyncTime) {
+        this.attributes = attributes;
+        this.mark = mark;
+        this.retryIds = retryIds;
+        this.lastFullSyncTime = lastFullSyncTime;
+    }
+
+    /** Returns comma separated names of change tracking attributes the mark was calculated for. */
+    String getAttributes() {
+        return attributes;
+    }
+
+    /** Returns the high-water mark. */
+    String getMark() {
+        return mark;
+    }
+
+    /** Returns identifiers of the entries which failed to be synchronized by the previous synchronization. */
+    Set<String> getRetryIds() {
+        return retryIds;
+    }
+
+    /** Returns the time in milliseconds of the last full synchronization. */
+    long getLastFullSyncTime() {
+        return lastFullSyncTime;
+    }
+
+    /**
+     * Returns the filter matching the entries changed after the mark and the entries
+     * which should be retried, e.g. <i>(|(modifyTimestamp>=X)(createTimestamp>=X)(uid=user123))</i>.
+     */
+    String getChangesFilter(List<String> attributes, String idAttribute) {
+        final StringBuilder sb = new StringBuilder("(|");
+        final String value = SearchFilter.encodeValue(mark);
+        for (String attribute : attributes) {
+            sb.append('(').append(attribute).append(">=").append(value).append(')');
+        }
+        for (String id : retryIds) {
+            sb.append('(').append(idAttribute).append('=').append(encodeId(idAttribute, id)).append(')');
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Encodes the identifier for the filter. Binary <i>objectGUID</i> values are converted
+     * to strings by {@link ObjectGuidHandler} when entries are selected, such identifiers
+     * are converted back to bytes and each byte is escaped e.g. <i>\0f\a1...</i>.
+     */
+    private static String encodeId(String idAttribute, String id) {
+        if (!OBJECT_GUID_ATTRIBUTE.equalsIgnoreCase(idAttribute)) {
+            return SearchFilter.encodeValue(id);
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (byte b : GlobalIdentifier.toBytes(id)) {
+            sb.append(format("\\%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    /** Atomically replaces the content of the given file with this state. */
+    void store(Path file) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(ATTRIBUTES_PROPERTY, attributes);
+        properties.setProperty(MARK_PROPERTY, mark);
+        properties.setProperty(LAST_FULL_SYNC_PROPERTY, Long.toString(lastFullSyncTime));
+        if (!retryIds.isEmpty()) {
+            properties.setProperty(RETRY_IDS_PROPERTY, String.join(RETRY_IDS_SEPARATOR, retryIds));
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+}
@@ -39,4 +39,21 @@ public interface LdapEntrySelector {
      *         when any error occurs during selection, or during iteration
      */
     Iterable<LdapEntry> select(Connection connection) throws SyncException;
+
+    /**
+     * Selects only those of ldap entries which match given changes filter,
+     * used by incremental synchronization for selecting the entries
+     * changed after the previous synchronization.
+     *
+     * @param connection
+     *         the connection which should be used for selection,
+     *         it is already opened and shouldn't be closed
+     * @param changesFilter
+     *         the filter combined with the selector's own filter
+     *         e.g. <i>(modifyTimestamp>=20170101000000Z)</i>
+     * @return an iterable describing the result iterator
+     * @throws SyncException
+     *         when any error occurs during selection, or during iteration
+     */
+    Iterable<LdapEntry> selectChanged(Connection connection, String changesFilter) throws SyncException;
 }
@@ -19,6 +19,7 @@ import com.google.inject.Provider;
 
 import org.eclipse.che.commons.annotation.Nullable;
 import org.eclipse.che.commons.lang.Pair;
+import org.ldaptive.ConnectionFactory;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -30,6 +31,11 @@ import static java.lang.String.format;
 /**
  * Chooses a strategy of ldap entries selection based on configuration properties.
  *
+ * <p>Group members are requested in batches only if <i>ldap.sync.group.members.batch_size</i>
+ * is configured to be > 1, otherwise each member is requested by its own search.
+ * Batches are requested concurrently only if <i>ldap.sync.group.members.parallelism</i>
+ * is configured to be > 1.
+ *
  * @author Yevhenii Voevodin
  */
 @Singleton
@@ -38,7 +44,33 @@ public class LdapEntrySelectorProvider implements Provider<LdapEntrySelector> {
     private static final int  DEFAULT_PAGE_SIZE         = 1000;
     private static final long DEFAULT_PAGE_READ_TIMEOUT = 30_000L;
 
-    private final LdapEntrySelector selector;
+    private final String                 usersBaseDn;
+    private final String                 usersFilter;
+    private final String                 groupsBaseDn;
+    private final String                 groupFilter;
+    private final String                 membersAttrName;
+    private final ConnectionFactory      connFactory;
+    private final int                    pageSize;
+    private final long                   pageReadTimeoutMs;
+    private final Pair<String, String>[] profileAttributes;
+    private final String                 userIdAttr;
+    private final String                 userNameAttr;
+    private final String                 userEmailAttr;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("ldap.sync.group.members.batch_size")
+    private int membersBatchSize;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("ldap.sync.group.members.parallelism")
+    private int membersParallelism;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("ldap.sync.delta.attrs")
+    @Nullable
+    private String deltaAttributes;
+
+    private LdapEntrySelector selector;
 
     @Inject
     public LdapEntrySelectorProvider(@Named("ldap.base_dn") String baseDn,
@@ -47,6 +79,7 @@ public class LdapEntrySelectorProvider implements Provider<LdapEntrySelector> {
                                      @Named("ldap.sync.group.filter") @Nullable String groupFilter,
                                      @Named("ldap.sync.group.additional_dn") @Nullable String additionalGroupDn,
                                      @Named("ldap.sync.group.attr.members") @Nullable String membersAttrName,
+                                     ConnectionFactory connFactory,
                                      @Named("ldap.sync.page.size") int pageSize,
                                      @Named("ldap.sync.page.read_timeout_ms") long pageReadTimeoutMs,
                                      @Named("ldap.sync.profile.attrs") @Nullable Pair<String, String>[] profileAttributes,
@@ -58,7 +91,30 @@ public class LdapEntrySelectorProvider implements Provider<LdapEntrySelector> {
                                                   "is enabled that also requires 'ldap.group.attr.members' to be set",
                                                   groupFilter));
         }
+        this.usersBaseDn = normalizeDn(additionalUserDn, baseDn);
+        this.usersFilter = usersFilter;
+        this.groupsBaseDn = normalizeDn(additionalGroupDn, baseDn);
+        this.groupFilter = groupFilter;
+        this.membersAttrName = membersAttrName;
+        this.connFactory = connFactory;
+        this.pageSize = pageSize;
+        this.pageReadTimeoutMs = pageReadTimeoutMs;
+        this.profileAttributes = profileAttributes;
+        this.userIdAttr = userIdAttr;
+        this.userNameAttr = userNameAttr;
+        this.userEmailAttr = userEmailAttr;
+    }
 
+    @Override
+    public synchronized LdapEntrySelector get() {
+        // selector is created lazily as optional properties are injected after construction
+        if (selector == null) {
+            selector = createSelector();
+        }
+        return selector;
+    }
+
+    private LdapEntrySelector createSelector() {
         // getting attribute names which should be synchronized
         final ArrayList<String> attrsList = new ArrayList<>();
         attrsList.add(userIdAttr);
@@ -69,26 +125,31 @@ public class LdapEntrySelectorProvider implements Provider<LdapEntrySelector> {
                 attrsList.add(profileAttribute.second);
             }
         }
+        // change tracking attributes are required for calculating the high-water mark
+        if (deltaAttributes != null) {
+            for (String deltaAttribute : deltaAttributes.split(",")) {
+                if (!deltaAttribute.trim().isEmpty()) {
+                    attrsList.add(deltaAttribute.trim());
+                }
+            }
+        }
         final String[] syncAttributes = attrsList.toArray(new String[attrsList.size()]);
 
         if (groupFilter == null) {
-            selector = new LookupSelector(pageSize <= 0 ? DEFAULT_PAGE_SIZE : pageSize,
-                                          pageReadTimeoutMs <= 0 ? DEFAULT_PAGE_READ_TIMEOUT : pageReadTimeoutMs,
-                                          normalizeDn(additionalUserDn, baseDn),
-                                          usersFilter,
-                                          syncAttributes);
-        } else {
-            selector = new MembershipSelector(normalizeDn(additionalGroupDn, baseDn),
-                                              groupFilter,
-                                              usersFilter,
-                                              membersAttrName,
-                                              syncAttributes);
+            return new LookupSelector(pageSize <= 0 ? DEFAULT_PAGE_SIZE : pageSize,
+                                      pageReadTimeoutMs <= 0 ? DEFAULT_PAGE_READ_TIMEOUT : pageReadTimeoutMs,
+                                      usersBaseDn,
+                                      usersFilter,
+                                      syncAttributes);
         }
-    }
-
-    @Override
-    public LdapEntrySelector get() {
-        return selector;
+        return new MembershipSelector(groupsBaseDn,
+                                      groupFilter,
+                                      usersFilter,
+                                      membersAttrName,
+                                      membersBatchSize,
+                                      membersParallelism,
+                                      connFactory,
+                                      syncAttributes);
     }
 
     private static String normalizeDn(String additionalDn, String baseDn) {
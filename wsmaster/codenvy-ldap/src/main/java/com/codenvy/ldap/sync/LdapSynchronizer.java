@@ -14,10 +14,13 @@
  */
 package com.codenvy.ldap.sync;
 
+import com.codahale.metrics.annotation.Gauge;
 import com.codenvy.ldap.LdapUserIdNormalizer;
+import com.google.common.base.Splitter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.persist.Transactional;
 
+import org.eclipse.che.api.core.ApiException;
 import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
@@ -33,6 +36,7 @@ import org.eclipse.che.commons.lang.Pair;
 import org.eclipse.che.core.db.DBInitializer;
 import org.ldaptive.Connection;
 import org.ldaptive.ConnectionFactory;
+import org.ldaptive.LdapAttribute;
 import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
 import org.slf4j.Logger;
@@ -43,14 +47,36 @@ import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
 
 /**
  * Periodically synchronizes ldap users with a provided database.
@@ -67,6 +93,19 @@ import static java.lang.String.format;
  *
  * <p>Ldap entries selection strategy is picked by {@link LdapEntrySelectorProvider}.
  *
+ * <p>If the number of pipeline workers is configured to be > 0
+ * (see {@link #setPipelineWorkers(int)}), then
+ * the synchronization is pipelined: database users and profiles are fetched at once,
+ * ldap entries are compared with them by the pool of workers while the next entries
+ * are being fetched from ldap storage, and the changes are written in batches,
+ * one transaction per batch. Otherwise entries are synchronized one by one.
+ *
+ * <p>If change tracking attributes are configured (see {@link #setDeltaSync(String, String)}),
+ * then scheduled synchronizations are incremental: only those entries which were changed
+ * since the previous synchronization are selected, see {@link #syncChanges()}.
+ * As incremental synchronization can't detect removed entries the full synchronization
+ * is still performed once per configured full synchronization period.
+ *
  * <p>It is thread-safe.
  *
  * @author Yevhenii Voevodin
@@ -77,11 +116,17 @@ public class LdapSynchronizer {
 
     private static final Logger LOG                                   = LoggerFactory.getLogger(LdapSynchronizer.class);
     private static final int    EACH_ENTRIES_COUNT_CHECK_INTERRUPTION = 200;
+    private static final int    MAX_RETRY_IDS                         = 1000;
+    private static final int    DEFAULT_BATCH_SIZE                    = 500;
+    private static final long   DEFAULT_FULL_SYNC_PERIOD_MS           = TimeUnit.DAYS.toMillis(1);
 
     private static final String USER_ID_ATTRIBUTE_NAME    = "ldap.sync.user.attr.id";
     private static final String USER_NAME_ATTRIBUTE_NAME  = "ldap.sync.user.attr.name";
     private static final String USER_EMAIL_ATTRIBUTE_NAME = "ldap.sync.user.attr.email";
 
+    /** Passed to the writer after all the mapped chunks. */
+    private static final MappedChunk END_OF_ENTRIES = new MappedChunk(0);
+
     private final long                             syncPeriodMs;
     private final long                             initDelayMs;
     private final boolean                          updateIfExists;
@@ -96,6 +141,15 @@ public class LdapSynchronizer {
     private final AtomicBoolean                    isSyncing;
     private final LdapUserIdNormalizer             idNormalizer;
     private final DBUserLinker                     linker;
+    private final String                           userIdAttr;
+
+    private List<String> deltaAttributes  = emptyList();
+    private Path         deltaStateFile;
+    private int          pipelineWorkers;
+    private int          batchSize        = DEFAULT_BATCH_SIZE;
+    private long         fullSyncPeriodMs = DEFAULT_FULL_SYNC_PERIOD_MS;
+
+    private volatile PipelineStats pipelineStats;
 
     /**
      * Creates an instance of synchronizer.
@@ -171,6 +225,7 @@ public class LdapSynchronizer {
         this.updateIfExists = updateIfExists;
         this.removeIfMissing = removeIfMissing;
         this.linker = userLinker;
+        this.userIdAttr = userIdAttr;
         this.scheduler = Executors.newScheduledThreadPool(1,
                                                           new ThreadFactoryBuilder().setNameFormat("LdapSynchronizer-%d")
                                                                                     .setUncaughtExceptionHandler(
@@ -179,6 +234,71 @@ public class LdapSynchronizer {
                                                                                     .build());
     }
 
+    /**
+     * Enables pipelined synchronization, by default entries are synchronized one by one.
+     *
+     * @param pipelineWorkers
+     *         how many threads map ldap entries and compare them with database users,
+     *         if it is <= 0 then entries are synchronized one by one by a single thread
+     */
+    @com.google.inject.Inject(optional = true)
+    void setPipelineWorkers(@Named("ldap.sync.pipeline.workers") int pipelineWorkers) {
+        this.pipelineWorkers = pipelineWorkers;
+    }
+
+    /**
+     * Overrides the default size of pipelined synchronization batch which is 500.
+     *
+     * @param batchSize
+     *         how many users are created or updated within a single transaction,
+     *         it is used only if pipeline workers are specified to be > 0
+     */
+    @com.google.inject.Inject(optional = true)
+    void setPipelineBatchSize(@Named("ldap.sync.pipeline.batch_size") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("'ldap.sync.pipeline.batch_size' must be > 0, the actual value is " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Overrides the default period of full synchronization which is one day.
+     *
+     * @param fullSyncPeriodMs
+     *         how often the full synchronization is performed instead of incremental one,
+     *         if it is <= 0 then the full synchronization is performed only if there
+     *         is no stored incremental synchronization state or when it is forced
+     */
+    @com.google.inject.Inject(optional = true)
+    void setFullSyncPeriodMs(@Named("ldap.sync.delta.full_sync_period_ms") long fullSyncPeriodMs) {
+        this.fullSyncPeriodMs = fullSyncPeriodMs;
+    }
+
+    /**
+     * Enables incremental synchronization, by default each synchronization is the full one.
+     *
+     * @param deltaAttributes
+     *         comma separated change tracking attributes which values grow with each
+     *         entry modification e.g. <i>modifyTimestamp,createTimestamp</i> or <i>uSNChanged</i>,
+     *         if it is not set then each synchronization is the full one
+     * @param deltaStateFile
+     *         the file where the state of incremental synchronization is stored,
+     *         it is required if {@code deltaAttributes} are set
+     */
+    @com.google.inject.Inject(optional = true)
+    void setDeltaSync(@Named("ldap.sync.delta.attrs") @Nullable String deltaAttributes,
+                      @Named("ldap.sync.delta.state_file") @Nullable String deltaStateFile) {
+        if (!isNullOrEmpty(deltaAttributes) && isNullOrEmpty(deltaStateFile)) {
+            throw new IllegalArgumentException("'ldap.sync.delta.state_file' must be set when 'ldap.sync.delta.attrs' is set");
+        }
+        this.deltaAttributes = isNullOrEmpty(deltaAttributes) ? emptyList()
+                                                              : Splitter.on(',')
+                                                                        .trimResults()
+                                                                        .omitEmptyStrings()
+                                                                        .splitToList(deltaAttributes);
+        this.deltaStateFile = isNullOrEmpty(deltaStateFile) ? null : Paths.get(deltaStateFile);
+    }
+
     /**
      * Performs asynchronous synchronization only if is it is
      * not executing right now.
@@ -190,7 +310,7 @@ public class LdapSynchronizer {
         if (!isSyncing.compareAndSet(false, true)) {
             throw new SyncException("Couldn't start synchronization as it is executing right now");
         }
-        scheduler.execute(this::syncSilentlyAndUnsetFlag);
+        scheduler.execute(() -> syncSilentlyAndUnsetFlag(false));
     }
 
     /**
@@ -203,6 +323,63 @@ public class LdapSynchronizer {
      *         when any error occurs during synchronization
      */
     public SyncResult syncAll() throws LdapException, SyncException {
+        return sync(null);
+    }
+
+    /**
+     * Does the incremental synchronization, selecting only those entries whose change
+     * tracking attributes values are greater or equal to the high-water mark stored
+     * by the previous synchronization. Missing users are not removed, as incremental
+     * synchronization can't detect them.
+     *
+     * <p>The full synchronization is performed instead if change tracking attributes are
+     * not configured, there is no stored high-water mark or the full synchronization is due.
+     *
+     * @return the result of synchronization
+     * @throws LdapException
+     *         when any error occurs during connection opening or closing
+     * @throws SyncException
+     *         when any error occurs during synchronization
+     */
+    public SyncResult syncChanges() throws LdapException, SyncException {
+        final DeltaSyncState state = loadDeltaState();
+        if (state == null) {
+            return sync(null);
+        }
+        if (fullSyncPeriodMs > 0 && System.currentTimeMillis() - state.getLastFullSyncTime() >= fullSyncPeriodMs) {
+            LOG.info("Full synchronization is due, the last one was performed at '{}'", state.getLastFullSyncTime());
+            return sync(null);
+        }
+        return sync(state);
+    }
+
+    /**
+     * Does the full synchronization if the given state is null,
+     * otherwise synchronizes the changes since the state's mark.
+     */
+    private SyncResult sync(@Nullable DeltaSyncState state) throws LdapException, SyncException {
+        final long startTime = System.currentTimeMillis();
+        final String changesFilter = state == null ? null : state.getChangesFilter(deltaAttributes, userIdAttr);
+        final AtomicReference<String> mark = new AtomicReference<>();
+        if (changesFilter != null) {
+            LOG.info("Synchronizing users/profiles changed since '{}' and '{}' users/profiles which failed to be synchronized before",
+                     state.getMark(),
+                     state.getRetryIds().size());
+        }
+        final SyncResult syncResult;
+        if (pipelineWorkers > 0) {
+            syncResult = syncAllPipelined(changesFilter, mark);
+        } else {
+            syncResult = syncAllSequentially(changesFilter, mark);
+        }
+        if (!deltaAttributes.isEmpty()) {
+            storeDeltaState(state, mark.get(), syncResult, startTime);
+        }
+        return syncResult;
+    }
+
+    private SyncResult syncAllSequentially(@Nullable String changesFilter,
+                                           AtomicReference<String> mark) throws LdapException, SyncException {
         LOG.info("Preparing synchronization environment");
         final SyncResult syncResult = new SyncResult();
         final Set<String> linkingIds = linker.findIds();
@@ -210,8 +387,9 @@ public class LdapSynchronizer {
         LOG.info("Starting synchronization of users/profiles");
         try (Connection connection = connFactory.getConnection()) {
             connection.open();
-            for (LdapEntry entry : selector.select(connection)) {
+            for (LdapEntry entry : select(connection, changesFilter)) {
                 syncResult.fetched++;
+                mark.set(DeltaSyncState.max(mark.get(), entry, deltaAttributes));
 
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("Synchronizing entry: {}", entry);
@@ -232,7 +410,9 @@ public class LdapSynchronizer {
             }
         }
 
-        if (removeIfMissing && !linkingIds.isEmpty()) {
+        if (changesFilter != null) {
+            syncResult.unchanged = linkingIds.size();
+        } else if (removeIfMissing && !linkingIds.isEmpty()) {
             LOG.info("Removing users missing from ldap storage, users to remove '{}'", linkingIds.size());
             for (String linkingId : linkingIds) {
                 try {
@@ -253,11 +433,12 @@ public class LdapSynchronizer {
 
     /** Validates and tries to persist fetched ldap entry. */
     private void syncFetched(LdapEntry entry, Set<String> linkingIds, SyncResult syncResult) {
+        final String entryId = getEntryId(entry);
         idNormalizer.normalize(entry);
 
         final UserImpl ldapUser = userMapper.apply(entry);
         if (!isValid(ldapUser)) {
-            syncResult.failed++;
+            syncResult.fail(entryId);
             return;
         }
 
@@ -302,8 +483,374 @@ public class LdapSynchronizer {
                      ldapUser.getId(),
                      entry,
                      x.getMessage());
-            syncResult.failed++;
+            syncResult.fail(entryId);
+        }
+    }
+
+    /**
+     * Synchronizes users in three concurrent stages: the caller thread fetches entries
+     * from ldap storage, the workers map them and compare with prefetched database users,
+     * and the writer persists the changes in batches.
+     */
+    private SyncResult syncAllPipelined(@Nullable String changesFilter,
+                                        AtomicReference<String> mark) throws LdapException, SyncException {
+        LOG.info("Preparing synchronization environment");
+        final long prefetchStart = System.currentTimeMillis();
+        final Map<String, User> dbUsers = new ConcurrentHashMap<>(linker.findUsers());
+        final Map<String, ProfileImpl> dbProfiles = updateIfExists ? linker.findProfiles() : emptyMap();
+        LOG.info("Fetched '{}' users from database in {}ms", dbUsers.size(), System.currentTimeMillis() - prefetchStart);
+        LOG.debug("Using selector {} for synchronization", selector);
+        LOG.info("Starting synchronization of users/profiles, workers '{}', batch size '{}'", pipelineWorkers, batchSize);
+
+        final PipelineStats stats = pipelineStats = new PipelineStats();
+        final BlockingQueue<MappedChunk> writeQueue = new ArrayBlockingQueue<>(pipelineWorkers * 2);
+        final ExecutorService writer = Executors.newSingleThreadExecutor(newThreadFactory("LdapSynchronizerWriter-%d"));
+        // when all the workers are busy the caller thread maps entries itself,
+        // so fetching never gets too far ahead of mapping
+        final ThreadPoolExecutor mappers = new ThreadPoolExecutor(pipelineWorkers,
+                                                                  pipelineWorkers,
+                                                                  0L,
+                                                                  TimeUnit.MILLISECONDS,
+                                                                  new ArrayBlockingQueue<>(pipelineWorkers * 2),
+                                                                  newThreadFactory("LdapSynchronizerMapper-%d"),
+                                                                  new ThreadPoolExecutor.CallerRunsPolicy());
+        final Future<SyncResult> writeResult = writer.submit(() -> writeAll(writeQueue, stats));
+        final SyncResult syncResult;
+        boolean interrupted = false;
+        try {
+            try (Connection connection = connFactory.getConnection()) {
+                connection.open();
+                List<LdapEntry> chunk = new ArrayList<>(batchSize);
+                for (LdapEntry entry : select(connection, changesFilter)) {
+                    // the entry is modified by mappers, so the mark is calculated before it is passed to them
+                    mark.set(DeltaSyncState.max(mark.get(), entry, deltaAttributes));
+                    chunk.add(entry);
+                    if (chunk.size() == batchSize) {
+                        submitMapping(mappers, chunk, dbUsers, dbProfiles, writeQueue, stats);
+                        chunk = new ArrayList<>(batchSize);
+                    }
+
+                    // Each EACH_ENTRIES_COUNT_CHECK_INTERRUPTION fetched entries check whether thread wasn't interrupted
+                    // if it was - stop fetching, the entries which are already fetched are synchronized,
+                    // all the others will be synchronized with the next synchronization
+                    if (stats.fetched.incrementAndGet() % EACH_ENTRIES_COUNT_CHECK_INTERRUPTION == 0
+                        && Thread.interrupted()) {
+                        interrupted = true;
+                        break;
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    submitMapping(mappers, chunk, dbUsers, dbProfiles, writeQueue, stats);
+                }
+            }
+            mappers.shutdown();
+            while (!mappers.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.debug("Waiting for '{}' ldap entries to be mapped", stats.getMappingLag());
+            }
+            writeQueue.put(END_OF_ENTRIES);
+            syncResult = writeResult.get();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Synchronization was interrupted while waiting for users to be written");
+        } catch (ExecutionException x) {
+            throw new SyncException("Couldn't write synchronized users", x.getCause());
+        } finally {
+            mappers.shutdownNow();
+            writer.shutdownNow();
+            stats.finish();
+        }
+        syncResult.fetched = stats.fetched.get();
+        LOG.info("Synchronization stages: {}", stats);
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            LOG.warn("User/Profile synchronization was interrupted");
+            LOG.info("Synchronization result: {}", syncResult);
+            return syncResult;
+        }
+
+        if (changesFilter != null) {
+            syncResult.unchanged = dbUsers.size();
+        } else if (removeIfMissing && !dbUsers.isEmpty()) {
+            LOG.info("Removing users missing from ldap storage, users to remove '{}'", dbUsers.size());
+            for (User user : dbUsers.values()) {
+                try {
+                    userDao.remove(user.getId());
+                    syncResult.removed++;
+                    LOG.debug("Removed user '{}'", user.getId());
+                } catch (ServerException x) {
+                    LOG.info(format("Couldn't remove user '%s' due to occurred error", user.getId()), x);
+                    syncResult.failed++;
+                }
+            }
+        }
+
+        LOG.info("Synchronization result: {}", syncResult);
+        return syncResult;
+    }
+
+    private Iterable<LdapEntry> select(Connection connection, @Nullable String changesFilter) {
+        return changesFilter == null ? selector.select(connection) : selector.selectChanged(connection, changesFilter);
+    }
+
+    /**
+     * Loads the state of incremental synchronization.
+     *
+     * @return the stored state, or null if incremental synchronization is not configured,
+     * there is no state stored yet, or the state was stored for different change tracking attributes
+     */
+    private DeltaSyncState loadDeltaState() {
+        if (deltaAttributes.isEmpty()) {
+            return null;
+        }
+        try {
+            final DeltaSyncState state = DeltaSyncState.load(deltaStateFile);
+            if (state != null && !state.getAttributes().equals(String.join(",", deltaAttributes))) {
+                LOG.info("Change tracking attributes changed from '{}' to '{}', the full synchronization is required",
+                         state.getAttributes(),
+                         deltaAttributes);
+                return null;
+            }
+            return state;
+        } catch (IOException | RuntimeException x) {
+            LOG.error(format("Couldn't load incremental synchronization state from '%s'", deltaStateFile), x);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the new high-water mark along with the identifiers of the entries which failed
+     * to be synchronized, so the next synchronization selects them again while the mark is advanced.
+     * The state is not updated if the synchronization was interrupted, or if there are too many
+     * failed entries to select them by identifiers.
+     */
+    private void storeDeltaState(@Nullable DeltaSyncState previous, @Nullable String mark, SyncResult syncResult, long startTime) {
+        if (Thread.currentThread().isInterrupted()) {
+            LOG.info("Incremental synchronization state is not updated as the synchronization is not complete");
+            return;
+        }
+        if (syncResult.failedIds.size() > MAX_RETRY_IDS) {
+            LOG.warn("Incremental synchronization state is not updated as '{}' entries failed to be synchronized, " +
+                     "which is more than '{}' entries that can be retried",
+                     syncResult.failedIds.size(),
+                     MAX_RETRY_IDS);
+            return;
         }
+        final String newMark = DeltaSyncState.max(previous == null ? null : previous.getMark(), mark);
+        if (newMark == null) {
+            LOG.warn("None of the synchronized entries has attributes '{}', incremental synchronization is not possible",
+                     deltaAttributes);
+            return;
+        }
+        if (!syncResult.failedIds.isEmpty()) {
+            LOG.info("'{}' entries failed to be synchronized, they will be retried by the next synchronization",
+                     syncResult.failedIds.size());
+        }
+        final long lastFullSyncTime = previous == null ? startTime : previous.getLastFullSyncTime();
+        try {
+            new DeltaSyncState(String.join(",", deltaAttributes),
+                               newMark,
+                               new TreeSet<>(syncResult.failedIds),
+                               lastFullSyncTime).store(deltaStateFile);
+        } catch (IOException x) {
+            LOG.error(format("Couldn't store incremental synchronization state to '%s'", deltaStateFile), x);
+        }
+    }
+
+    /** Returns not normalized identifier of the entry, as it is used in the ldap filters. */
+    @Nullable
+    private String getEntryId(LdapEntry entry) {
+        final LdapAttribute idAttr = entry.getAttribute(userIdAttr);
+        return idAttr == null ? null : idAttr.getStringValue();
+    }
+
+    private void submitMapping(ThreadPoolExecutor mappers,
+                               List<LdapEntry> entries,
+                               Map<String, User> dbUsers,
+                               Map<String, ProfileImpl> dbProfiles,
+                               BlockingQueue<MappedChunk> writeQueue,
+                               PipelineStats stats) {
+        mappers.execute(() -> {
+            final MappedChunk mapped = map(entries, dbUsers, dbProfiles);
+            stats.mapped.addAndGet(entries.size());
+            stats.pendingWrites.addAndGet(mapped.operations.size());
+            try {
+                writeQueue.put(mapped);
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Maps ldap entries and compares them with prefetched database users,
+     * the users which are found are removed from the given {@code dbUsers}.
+     */
+    private MappedChunk map(List<LdapEntry> entries, Map<String, User> dbUsers, Map<String, ProfileImpl> dbProfiles) {
+        final MappedChunk chunk = new MappedChunk(entries.size());
+        for (LdapEntry entry : entries) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Synchronizing entry: {}", entry);
+            }
+
+            final String entryId = getEntryId(entry);
+            idNormalizer.normalize(entry);
+
+            final UserImpl ldapUser = userMapper.apply(entry);
+            if (!isValid(ldapUser)) {
+                chunk.result.fail(entryId);
+                continue;
+            }
+
+            final ProfileImpl ldapProfile = profileMapper.apply(entry);
+            try {
+                final User dbUser = dbUsers.remove(linker.extractId(ldapUser));
+                if (dbUser == null) {
+                    chunk.operations.add(new SyncOperation(entryId, ldapUser, ldapProfile, true, true, true));
+                    continue;
+                }
+
+                if (!updateIfExists) {
+                    chunk.result.skipped++;
+                    LOG.debug("User & profile '{}' are skipped", ldapUser.getId());
+                    continue;
+                }
+
+                final ProfileImpl dbProfile = dbProfiles.get(dbUser.getId());
+                if (dbProfile == null) {
+                    throw new NotFoundException(format("Profile for user '%s' doesn't exist", dbUser.getId()));
+                }
+                // always use db id for user, see syncFetched
+                ldapUser.setId(dbUser.getId());
+                final boolean updateUser = !dbUser.equals(ldapUser);
+                final boolean updateProfile = !dbProfile.equals(ldapProfile);
+                if (updateUser || updateProfile) {
+                    chunk.operations.add(new SyncOperation(entryId, ldapUser, ldapProfile, false, updateUser, updateProfile));
+                } else {
+                    chunk.result.upToDate++;
+                    LOG.debug("User & profile '{}' are up-to-date", ldapUser.getId());
+                }
+            } catch (RuntimeException | NotFoundException x) {
+                LOG.info("Couldn't synchronize(update/create) user or his profile '{}' " +
+                         "due to occurred error, original ldap entry '{}'. Error: {}",
+                         ldapUser.getId(),
+                         entry,
+                         x.getMessage());
+                chunk.result.fail(entryId);
+            }
+        }
+        return chunk;
+    }
+
+    /** Writes mapped changes in batches until the end of entries is reached. */
+    private SyncResult writeAll(BlockingQueue<MappedChunk> writeQueue, PipelineStats stats) throws InterruptedException {
+        final SyncResult result = new SyncResult();
+        final List<SyncOperation> batch = new ArrayList<>(batchSize);
+        for (MappedChunk chunk = writeQueue.take(); chunk != END_OF_ENTRIES; chunk = writeQueue.take()) {
+            result.add(chunk.result);
+            for (SyncOperation operation : chunk.operations) {
+                batch.add(operation);
+                if (batch.size() == batchSize) {
+                    write(batch, result, stats);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, result, stats);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the batch within a single transaction, if it fails then
+     * the operations of the batch are retried one by one, so the only
+     * failed users are the ones which can't be written separately.
+     */
+    private void write(List<SyncOperation> batch, SyncResult result, PipelineStats stats) {
+        try {
+            writeBatch(batch);
+            batch.forEach(operation -> countWritten(operation, result));
+        } catch (RuntimeException | ApiException x) {
+            LOG.debug("Couldn't write batch of '{}' users within a single transaction, writing them one by one. Error: {}",
+                      batch.size(),
+                      x.getMessage());
+            for (SyncOperation operation : batch) {
+                try {
+                    writeBatch(singletonList(operation));
+                    countWritten(operation, result);
+                } catch (RuntimeException | ApiException ex) {
+                    LOG.info("Couldn't synchronize(update/create) user or his profile '{}' due to occurred error. Error: {}",
+                             operation.user.getId(),
+                             ex.getMessage());
+                    result.fail(operation.entryId);
+                }
+            }
+        }
+        stats.written.addAndGet(batch.size());
+        stats.pendingWrites.addAndGet(-batch.size());
+    }
+
+    private static void countWritten(SyncOperation operation, SyncResult result) {
+        if (operation.create) {
+            result.created++;
+            LOG.debug("Created user & profile '{}'", operation.user.getId());
+        } else {
+            result.updated++;
+            LOG.debug("Updated user & profile '{}'", operation.user.getId());
+        }
+    }
+
+    @Transactional(rollbackOn = {RuntimeException.class, ApiException.class})
+    protected void writeBatch(List<SyncOperation> batch) throws ConflictException, NotFoundException, ServerException {
+        for (SyncOperation operation : batch) {
+            if (operation.create) {
+                userDao.create(operation.user);
+                profileDao.create(operation.profile);
+            } else {
+                if (operation.updateUser) {
+                    userDao.update(operation.user);
+                }
+                if (operation.updateProfile) {
+                    profileDao.update(operation.profile);
+                }
+            }
+        }
+    }
+
+    /** Returns how many ldap entries per second are fetched by the current or the last synchronization. */
+    @Gauge(name = "ldap.sync.fetch.throughput")
+    public double getFetchThroughput() {
+        final PipelineStats stats = pipelineStats;
+        return stats == null ? 0 : stats.throughput(stats.fetched);
+    }
+
+    /** Returns how many ldap entries per second are mapped by the current or the last synchronization. */
+    @Gauge(name = "ldap.sync.map.throughput")
+    public double getMapThroughput() {
+        final PipelineStats stats = pipelineStats;
+        return stats == null ? 0 : stats.throughput(stats.mapped);
+    }
+
+    /** Returns how many changes per second are written by the current or the last synchronization. */
+    @Gauge(name = "ldap.sync.write.throughput")
+    public double getWriteThroughput() {
+        final PipelineStats stats = pipelineStats;
+        return stats == null ? 0 : stats.throughput(stats.written);
+    }
+
+    /** Returns the number of fetched ldap entries which are waiting to be mapped. */
+    @Gauge(name = "ldap.sync.map.lag")
+    public long getMapLag() {
+        final PipelineStats stats = pipelineStats;
+        return stats == null ? 0 : stats.getMappingLag();
+    }
+
+    /** Returns the number of mapped changes which are waiting to be written. */
+    @Gauge(name = "ldap.sync.write.lag")
+    public long getWriteLag() {
+        final PipelineStats stats = pipelineStats;
+        return stats == null ? 0 : stats.pendingWrites.get();
     }
 
     @Transactional
@@ -331,9 +878,13 @@ public class LdapSynchronizer {
         return updated;
     }
 
-    private void syncSilentlyAndUnsetFlag() {
+    private void syncSilentlyAndUnsetFlag(boolean changesOnly) {
         try {
-            syncAll();
+            if (changesOnly) {
+                syncChanges();
+            } else {
+                syncAll();
+            }
         } catch (Exception x) {
             LOG.error("Couldn't finish users synchronization due to occurred error, " +
                       "the database may be partly synchronized", x);
@@ -375,6 +926,13 @@ public class LdapSynchronizer {
         }
     }
 
+    private static ThreadFactory newThreadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder().setNameFormat(nameFormat)
+                                         .setUncaughtExceptionHandler(LoggingUncaughtExceptionHandler.getInstance())
+                                         .setDaemon(true)
+                                         .build();
+    }
+
     private boolean isValid(UserImpl user) {
         if (user.getId() == null) {
             LOG.warn(format("Cannot find out user's id. Please, check configuration `%s` parameter correctness.",
@@ -404,6 +962,10 @@ public class LdapSynchronizer {
         private long upToDate;
         private long skipped;
         private long fetched;
+        private long unchanged;
+
+        /** Not normalized identifiers of the ldap entries which couldn't be created or updated. */
+        private final Set<String> failedIds = new HashSet<>();
 
         /** How many users where removed. */
         public long getRemoved() {
@@ -445,6 +1007,14 @@ public class LdapSynchronizer {
             return fetched;
         }
 
+        /**
+         * How many database users were not synchronized by incremental
+         * synchronization as their ldap entries haven't changed.
+         */
+        public long getUnchanged() {
+            return unchanged;
+        }
+
         /**
          * How many synchronization attempts were performed
          * or how many ldap users were processed.
@@ -453,6 +1023,26 @@ public class LdapSynchronizer {
             return created + updated + upToDate + failed + skipped;
         }
 
+        private void add(SyncResult other) {
+            created += other.created;
+            updated += other.updated;
+            removed += other.removed;
+            failed += other.failed;
+            upToDate += other.upToDate;
+            skipped += other.skipped;
+            fetched += other.fetched;
+            unchanged += other.unchanged;
+            failedIds.addAll(other.failedIds);
+        }
+
+        /** Counts the failure of the entry with the given identifier, which is null if the entry has no identifier. */
+        private void fail(@Nullable String entryId) {
+            failed++;
+            if (entryId != null) {
+                failedIds.add(entryId);
+            }
+        }
+
         @Override
         public String toString() {
             return format("processed = '%d', " +
@@ -462,7 +1052,8 @@ public class LdapSynchronizer {
                           "failed = '%d', " +
                           "up-to-date = '%d', " +
                           "skipped = '%d', " +
-                          "fetched = '%d'",
+                          "fetched = '%d', " +
+                          "unchanged = '%d'",
                           getProcessed(),
                           created,
                           updated,
@@ -470,7 +1061,73 @@ public class LdapSynchronizer {
                           failed,
                           upToDate,
                           skipped,
-                          fetched);
+                          fetched,
+                          unchanged);
+        }
+    }
+
+    /** Changes of a single user which are written by the last stage of pipeline. */
+    private static class SyncOperation {
+        final String      entryId;
+        final UserImpl    user;
+        final ProfileImpl profile;
+        final boolean     create;
+        final boolean     updateUser;
+        final boolean     updateProfile;
+
+        SyncOperation(String entryId, UserImpl user, ProfileImpl profile, boolean create, boolean updateUser, boolean updateProfile) {
+            this.entryId = entryId;
+            this.user = user;
+            this.profile = profile;
+            this.create = create;
+            this.updateUser = updateUser;
+            this.updateProfile = updateProfile;
+        }
+    }
+
+    /** The result of mapping of a chunk of ldap entries, passed from mappers to writer. */
+    private static class MappedChunk {
+        final SyncResult          result;
+        final List<SyncOperation> operations;
+
+        MappedChunk(int size) {
+            this.result = new SyncResult();
+            this.operations = new ArrayList<>(size);
+        }
+    }
+
+    /** Counters of entries passed through each of the pipeline stages. */
+    private static class PipelineStats {
+        final AtomicLong fetched       = new AtomicLong();
+        final AtomicLong mapped        = new AtomicLong();
+        final AtomicLong written       = new AtomicLong();
+        final AtomicLong pendingWrites = new AtomicLong();
+        final long       startNanos    = System.nanoTime();
+
+        volatile long endNanos;
+
+        void finish() {
+            endNanos = System.nanoTime();
+        }
+
+        long getMappingLag() {
+            return fetched.get() - mapped.get();
+        }
+
+        double throughput(AtomicLong counter) {
+            final long elapsedNanos = (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+            return elapsedNanos <= 0 ? 0 : counter.get() * (double)TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return format("fetched = '%d' (%.1f/s), mapped = '%d' (%.1f/s), written = '%d' (%.1f/s)",
+                          fetched.get(),
+                          throughput(fetched),
+                          mapped.get(),
+                          throughput(mapped),
+                          written.get(),
+                          throughput(written));
         }
     }
 
@@ -478,7 +1135,7 @@ public class LdapSynchronizer {
         @Override
         public void run() {
             if (isSyncing.compareAndSet(false, true)) {
-                syncSilentlyAndUnsetFlag();
+                syncSilentlyAndUnsetFlag(true);
             }
         }
     }
@@ -61,6 +61,15 @@ public class LookupSelector implements LdapEntrySelector {
 
     @Override
     public Iterable<LdapEntry> select(Connection connection) {
+        return select(connection, filter);
+    }
+
+    @Override
+    public Iterable<LdapEntry> selectChanged(Connection connection, String changesFilter) {
+        return select(connection, "(&" + wrap(filter) + wrap(changesFilter) + ')');
+    }
+
+    private Iterable<LdapEntry> select(Connection connection, String filter) {
         final SearchRequest req = new SearchRequest();
         req.setBaseDn(baseDn);
         req.setSearchFilter(new SearchFilter(filter));
@@ -82,6 +91,10 @@ public class LookupSelector implements LdapEntrySelector {
                '}';
     }
 
+    private static String wrap(String filter) {
+        return filter.startsWith("(") ? filter : '(' + filter + ')';
+    }
+
     private static class PagedIterable implements Iterable<LdapEntry> {
 
         private final SearchRequest      request;
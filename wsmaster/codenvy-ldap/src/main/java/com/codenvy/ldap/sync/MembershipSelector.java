@@ -14,7 +14,12 @@
  */
 package com.codenvy.ldap.sync;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.commons.annotation.Nullable;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
 import org.ldaptive.Connection;
+import org.ldaptive.ConnectionFactory;
 import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
 import org.ldaptive.Response;
@@ -22,47 +27,134 @@ import org.ldaptive.SearchFilter;
 import org.ldaptive.SearchOperation;
 import org.ldaptive.SearchRequest;
 import org.ldaptive.SearchResult;
+import org.ldaptive.SearchScope;
 import org.ldaptive.ad.handler.ObjectGuidHandler;
 import org.ldaptive.ad.handler.RangeEntryHandler;
 
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toSet;
 import static org.ldaptive.ResultCode.SUCCESS;
 import static org.ldaptive.SearchScope.OBJECT;
+import static org.ldaptive.SearchScope.ONELEVEL;
 import static org.ldaptive.SearchScope.SUBTREE;
 
 /**
- * Queries all the group members and returns and
- * iterable requesting each of them when {@link Iterator#next()} is called.
+ * Queries all the group members and returns an iterable
+ * which lazily requests them in batches while being iterated.
+ *
+ * <p>Members are grouped by their parent entry and the attribute of their
+ * relative distinguished name, each group is split into batches of configured size
+ * and each batch is requested with a single one level search
+ * e.g. <i>(&(usersFilter)(|(uid=user1)(uid=user2)))</i> in <i>ou=people,dc=codenvy,dc=com</i>.
+ * Members which distinguished names can't be batched (e.g. multi-valued RDN)
+ * and all the members if batch size is not greater than 1
+ * are requested one by one with object searches.
+ *
+ * <p>If the connection factory is provided and parallelism is greater than 1
+ * then up to {@code parallelism} batches are requested ahead concurrently,
+ * each one using its own connection from the factory, otherwise batches are
+ * requested one by one using the connection given to {@link #select(Connection)}.
  *
  * @author Yevhenii Voevodin
  */
 public class MembershipSelector implements LdapEntrySelector {
 
-    private final String   baseDn;
-    private final String   groupsFilter;
-    private final String   usersFilter;
-    private final String   membersAttr;
-    private final String[] returnAttrs;
+    /** The number of members requested by a single search if the batch size is not specified. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final String            baseDn;
+    private final String            groupsFilter;
+    private final String            usersFilter;
+    private final String            membersAttr;
+    private final String[]          returnAttrs;
+    private final int               batchSize;
+    private final int               parallelism;
+    private final ConnectionFactory connFactory;
 
     public MembershipSelector(String baseDn,
                               String groupsFilter,
                               String usersFilter,
                               String membersAttr,
                               String... returnAttrs) {
+        this(baseDn, groupsFilter, usersFilter, membersAttr, DEFAULT_BATCH_SIZE, 1, null, returnAttrs);
+    }
+
+    /**
+     * Creates a new selector.
+     *
+     * @param baseDn
+     *         the base distinguished name of groups search
+     * @param groupsFilter
+     *         the filter of groups search
+     * @param usersFilter
+     *         the filter which all the selected members must match
+     * @param membersAttr
+     *         the attribute of group containing distinguished names of its members
+     * @param batchSize
+     *         how many members are requested by a single search,
+     *         if it is <= 1 then each member is requested by its own object search
+     * @param parallelism
+     *         how many searches may be performed concurrently, used only if {@code connFactory} is provided
+     * @param connFactory
+     *         the factory used for getting connections for concurrent searches
+     * @param returnAttrs
+     *         the attributes of members to select
+     */
+    public MembershipSelector(String baseDn,
+                              String groupsFilter,
+                              String usersFilter,
+                              String membersAttr,
+                              int batchSize,
+                              int parallelism,
+                              @Nullable ConnectionFactory connFactory,
+                              String... returnAttrs) {
         this.baseDn = baseDn;
         this.groupsFilter = groupsFilter;
         this.usersFilter = usersFilter;
         this.membersAttr = membersAttr;
         this.returnAttrs = returnAttrs;
+        this.batchSize = Math.max(batchSize, 1);
+        this.parallelism = connFactory == null ? 1 : Math.max(parallelism, 1);
+        this.connFactory = connFactory;
     }
 
     @Override
     public Iterable<LdapEntry> select(Connection connection) {
+        return select(connection, wrap(usersFilter));
+    }
+
+    /**
+     * Changes filter is applied to the members only, so the users who were
+     * added to the groups without being modified are selected by the full synchronization.
+     */
+    @Override
+    public Iterable<LdapEntry> selectChanged(Connection connection, String changesFilter) {
+        return select(connection, "(&" + wrap(usersFilter) + wrap(changesFilter) + ')');
+    }
+
+    private Iterable<LdapEntry> select(Connection connection, String membersFilter) {
         final SearchRequest groupsSearch = new SearchRequest();
         groupsSearch.setBaseDn(baseDn);
         groupsSearch.setSearchFilter(new SearchFilter(groupsFilter));
@@ -74,16 +166,15 @@ public class MembershipSelector implements LdapEntrySelector {
             if (response.getResultCode() != SUCCESS) {
                 throw new SyncException("Couldn't get groups, result code is " + response.getResultCode());
             }
-            return new RequestEachEntryIterable(response.getResult()
-                                                        .getEntries()
-                                                        .stream()
-                                                        .flatMap(entry -> entry.getAttribute(membersAttr)
-                                                                               .getStringValues()
-                                                                               .stream())
-                                                        .collect(toSet()),
-                                                connection,
-                                                usersFilter,
-                                                returnAttrs);
+            final List<MembersBatch> batches = createBatches(response.getResult()
+                                                                     .getEntries()
+                                                                     .stream()
+                                                                     .flatMap(entry -> entry.getAttribute(membersAttr)
+                                                                                            .getStringValues()
+                                                                                            .stream())
+                                                                     .collect(toSet()),
+                                                             membersFilter);
+            return () -> new BatchedMembersIterator(batches.iterator(), connection);
         } catch (LdapException x) {
             throw new SyncException(x.getLocalizedMessage(), x);
         }
@@ -97,71 +188,222 @@ public class MembershipSelector implements LdapEntrySelector {
                ", usersFilter='" + usersFilter + '\'' +
                ", membersAttr='" + membersAttr + '\'' +
                ", returnAttrs=" + Arrays.toString(returnAttrs) +
+               ", batchSize=" + batchSize +
+               ", parallelism=" + parallelism +
                '}';
     }
 
-    private static class RequestEachEntryIterable implements Iterable<LdapEntry> {
-        private final Set<String>  dns;
-        private final Connection   connection;
-        private final SearchFilter usersFilter;
+    /** Groups members by parent dn and rdn attribute and splits the groups into batches. */
+    private List<MembersBatch> createBatches(Collection<String> dns, String membersFilter) {
+        final List<MembersBatch> batches = new ArrayList<>();
+        final Map<List<String>, MembersBatch> openBatches = new LinkedHashMap<>();
+        for (String dn : dns) {
+            final LdapName name;
+            try {
+                name = new LdapName(dn);
+            } catch (InvalidNameException x) {
+                throw new SyncException(format("Couldn't parse member dn '%s'", dn), x);
+            }
+            final Rdn rdn = name.size() == 0 ? null : name.getRdn(name.size() - 1);
+            if (batchSize == 1 || rdn == null || rdn.size() != 1 || !(rdn.getValue() instanceof String)) {
+                batches.add(new MembersBatch(dn, OBJECT, new SearchFilter(membersFilter), null));
+                continue;
+            }
+            final String parentDn = name.getPrefix(name.size() - 1).toString();
+            final List<String> key = Arrays.asList(parentDn, rdn.getType().toLowerCase());
+            MembersBatch batch = openBatches.get(key);
+            if (batch == null) {
+                openBatches.put(key, batch = new MembersBatch(parentDn, ONELEVEL, null, new HashSet<>()));
+            }
+            batch.add(rdn.getType(), (String)rdn.getValue(), name);
+            if (batch.dns.size() == batchSize) {
+                batches.add(batch.build(membersFilter));
+                openBatches.remove(key);
+            }
+        }
+        for (MembersBatch batch : openBatches.values()) {
+            batches.add(batch.build(membersFilter));
+        }
+        return batches;
+    }
+
+    /** Performs the batch search and returns the members found. */
+    private List<LdapEntry> search(MembersBatch batch, Connection connection) {
+        final SearchRequest request = new SearchRequest();
+        request.setBaseDn(batch.baseDn);
+        request.setSearchFilter(batch.filter);
+        request.setSearchScope(batch.scope);
+        request.setReturnAttributes(returnAttrs);
+        request.setSearchEntryHandlers(new ObjectGuidHandler());
+        try {
+            final Response<SearchResult> response = new SearchOperation(connection).execute(request);
+            if (response.getResultCode() != SUCCESS) {
+                throw new SyncException(format("Couldn't get entries from '%s', result code is '%s'",
+                                               batch.baseDn,
+                                               response.getResultCode()));
+            }
+            final List<LdapEntry> entries = new ArrayList<>();
+            for (LdapEntry entry : response.getResult().getEntries()) {
+                if (batch.contains(entry.getDn())) {
+                    entries.add(entry);
+                }
+            }
+            return entries;
+        } catch (LdapException x) {
+            throw new SyncException(x.getLocalizedMessage(), x);
+        }
+    }
+
+    /** Performs the batch search using a separate connection from the factory. */
+    private List<LdapEntry> searchWithNewConnection(MembersBatch batch) {
+        try (Connection connection = connFactory.getConnection()) {
+            connection.open();
+            return search(batch, connection);
+        } catch (LdapException x) {
+            throw new SyncException(x.getLocalizedMessage(), x);
+        }
+    }
+
+    private static String wrap(String filter) {
+        return filter.startsWith("(") ? filter : '(' + filter + ')';
+    }
+
+    /** Describes a single search request of members. */
+    private static class MembersBatch {
+        final String        baseDn;
+        final SearchScope   scope;
+        final Set<LdapName> dns;
+        final List<String>  filterParts;
 
-        private RequestEachEntryIterable(Set<String> dns,
-                                         Connection connection,
-                                         String usersFilter,
-                                         String[] returnAttrs) {
+        SearchFilter filter;
+
+        MembersBatch(String baseDn, SearchScope scope, SearchFilter filter, Set<LdapName> dns) {
+            this.baseDn = baseDn;
+            this.scope = scope;
+            this.filter = filter;
             this.dns = dns;
-            this.connection = connection;
-            this.usersFilter = new SearchFilter(usersFilter);
-            this.returnAttrs = returnAttrs;
+            this.filterParts = new ArrayList<>();
         }
 
-        private final String[] returnAttrs;
+        void add(String rdnType, String rdnValue, LdapName dn) {
+            dns.add(dn);
+            filterParts.add('(' + rdnType + '=' + SearchFilter.encodeValue(rdnValue) + ')');
+        }
 
-        @Override
-        public Iterator<LdapEntry> iterator() {
-            return new RequestEachEntryIterator(dns.iterator(), connection, usersFilter, returnAttrs);
+        MembersBatch build(String membersFilter) {
+            final StringBuilder sb = new StringBuilder("(&");
+            sb.append(membersFilter);
+            sb.append("(|");
+            filterParts.forEach(sb::append);
+            sb.append("))");
+            filter = new SearchFilter(sb.toString());
+            filterParts.clear();
+            return this;
+        }
+
+        /**
+         * The attribute of relative name may also be present in the other
+         * entries of the same parent, so only the requested entries are selected.
+         */
+        boolean contains(String dn) {
+            if (dns == null) {
+                return true;
+            }
+            try {
+                return dns.contains(new LdapName(dn));
+            } catch (InvalidNameException x) {
+                return false;
+            }
         }
     }
 
-    private static class RequestEachEntryIterator implements Iterator<LdapEntry> {
-
-        private final Iterator<String> dnsIterator;
-        private final SearchFilter     usersFilter;
-        private final String[]         returnAttrs;
-        private final SearchOperation  searchOp;
-
-        private RequestEachEntryIterator(Iterator<String> dns,
-                                         Connection connection,
-                                         SearchFilter usersFilter,
-                                         String[] returnAttrs) {
-            this.dnsIterator = dns;
-            this.usersFilter = usersFilter;
-            this.returnAttrs = returnAttrs;
-            this.searchOp = new SearchOperation(connection);
+    /**
+     * Streams the members of the batches, the next batches are
+     * requested ahead while the entries of the current one are consumed.
+     */
+    private class BatchedMembersIterator implements Iterator<LdapEntry> {
+
+        private final Iterator<MembersBatch>                    batches;
+        private final Connection                                connection;
+        private final Deque<CompletableFuture<List<LdapEntry>>> requested;
+        private final ThreadPoolExecutor                        executor;
+
+        private Iterator<LdapEntry> current;
+
+        private BatchedMembersIterator(Iterator<MembersBatch> batches, Connection connection) {
+            this.batches = batches;
+            this.connection = connection;
+            this.requested = new ArrayDeque<>(parallelism);
+            this.current = Collections.emptyIterator();
+            if (parallelism > 1) {
+                executor = new ThreadPoolExecutor(parallelism,
+                                                  parallelism,
+                                                  30,
+                                                  TimeUnit.SECONDS,
+                                                  new LinkedBlockingQueue<>(),
+                                                  new ThreadFactoryBuilder().setNameFormat("MembershipSelector-%d")
+                                                                            .setUncaughtExceptionHandler(
+                                                                                    LoggingUncaughtExceptionHandler.getInstance())
+                                                                            .setDaemon(true)
+                                                                            .build());
+                // threads are released even if the iteration is abandoned
+                executor.allowCoreThreadTimeOut(true);
+            } else {
+                executor = null;
+            }
         }
 
         @Override
         public boolean hasNext() {
-            return dnsIterator.hasNext();
+            while (!current.hasNext()) {
+                requestAhead();
+                if (requested.isEmpty()) {
+                    if (executor != null) {
+                        executor.shutdown();
+                    }
+                    return false;
+                }
+                current = await(requested.poll()).iterator();
+            }
+            return true;
         }
 
         @Override
         public LdapEntry next() {
-            final String dn = dnsIterator.next();
-            final SearchRequest request = new SearchRequest();
-            request.setBaseDn(dn);
-            request.setSearchFilter(usersFilter);
-            request.setSearchScope(OBJECT);
-            request.setReturnAttributes(returnAttrs);
-            request.setSearchEntryHandlers(new ObjectGuidHandler());
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private void requestAhead() {
+            while (requested.size() < parallelism && batches.hasNext()) {
+                final MembersBatch batch = batches.next();
+                if (executor == null) {
+                    requested.add(CompletableFuture.completedFuture(search(batch, connection)));
+                } else {
+                    requested.add(CompletableFuture.supplyAsync(() -> searchWithNewConnection(batch), executor));
+                }
+            }
+        }
+
+        private List<LdapEntry> await(CompletableFuture<List<LdapEntry>> future) {
+            if (executor == null) {
+                // searches are performed synchronously
+                return future.getNow(null);
+            }
             try {
-                final Response<SearchResult> response = searchOp.execute(request);
-                if (response.getResultCode() != SUCCESS) {
-                    throw new SyncException(format("Couldn't get entry dn '%s', result code is '%s'", dn, response.getResultCode()));
+                return future.get();
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                throw new SyncException("Interrupted while waiting for group members", x);
+            } catch (ExecutionException x) {
+                executor.shutdownNow();
+                if (x.getCause() instanceof SyncException) {
+                    throw (SyncException)x.getCause();
                 }
-                return response.getResult().getEntry();
-            } catch (LdapException x) {
-                throw new SyncException(x.getLocalizedMessage(), x);
+                throw new SyncException(x.getCause().getLocalizedMessage(), x.getCause());
             }
         }
     }
@@ -0,0 +1,53 @@
+/*
+ *  [2012] - [2017] Codenvy, S.A.
+ *  All Rights Reserved.
+ *
+ * NOTICE:  All information contained herein is, and remains
+ * the property of Codenvy S.A. and its suppliers,
+ * if any.  The intellectual and technical concepts contained
+ * herein are proprietary to Codenvy S.A.
+ * and its suppliers and may be covered by U.S. and Foreign Patents,
+ * patents in process, and are protected by trade secret or copyright law.
+ * Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained
+ * from Codenvy S.A..
+ */
+package com.codenvy.ldap.sync;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.ldaptive.ad.GlobalIdentifier;
+import org.testng.annotations.Test;
+
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests {@link DeltaSyncState}.
+ */
+public class DeltaSyncStateTest {
+
+    @Test
+    public void buildsFilterOfChangedAndRetriedEntries() throws Exception {
+        final DeltaSyncState state = new DeltaSyncState("modifyTimestamp",
+                                                        "20170101000000Z",
+                                                        ImmutableSet.of("user(1)"),
+                                                        0);
+
+        assertEquals(state.getChangesFilter(singletonList("modifyTimestamp"), "uid"),
+                     "(|(modifyTimestamp>=20170101000000Z)(uid=user\\281\\29))");
+    }
+
+    @Test
+    public void buildsFilterOfRetriedEntriesIdentifiedByBinaryObjectGuid() throws Exception {
+        final byte[] guid = new byte[] {0x0f, (byte)0xa1, 0x00, 0x2a, 0x28, 0x29, 0x2a, 0x5c,
+                                        (byte)0xff, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07};
+        // objectGUID values are converted to strings while entries are selected
+        final String id = GlobalIdentifier.toString(guid);
+        final DeltaSyncState state = new DeltaSyncState("uSNChanged", "12345", ImmutableSet.of(id), 0);
+
+        assertEquals(state.getChangesFilter(singletonList("uSNChanged"), "objectGUID"),
+                     "(|(uSNChanged>=12345)" +
+                     "(objectGUID=\\0f\\a1\\00\\2a\\28\\29\\2a\\5c\\ff\\01\\02\\03\\04\\05\\06\\07))");
+    }
+}
@@ -225,8 +225,15 @@ public class LdapSynchronizationFlowTest {
             bindConstant().annotatedWith(Names.named("ldap.sync.user.attr.name")).to("cn");
             bindConstant().annotatedWith(Names.named("ldap.sync.page.size")).to(10);
             bindConstant().annotatedWith(Names.named("ldap.sync.page.read_timeout_ms")).to(30_000L);
+            bindConstant().annotatedWith(Names.named("ldap.sync.group.members.batch_size")).to(100);
+            bindConstant().annotatedWith(Names.named("ldap.sync.group.members.parallelism")).to(2);
             bindConstant().annotatedWith(Names.named("ldap.sync.remove_if_missing")).to(true);
             bindConstant().annotatedWith(Names.named("ldap.sync.update_if_exists")).to(true);
+            bindConstant().annotatedWith(Names.named("ldap.sync.pipeline.workers")).to(2);
+            bindConstant().annotatedWith(Names.named("ldap.sync.pipeline.batch_size")).to(2);
+            bindConstant().annotatedWith(Names.named("ldap.sync.delta.full_sync_period_ms")).to(0L);
+            bind(String.class).annotatedWith(Names.named("ldap.sync.delta.attrs")).toProvider(Providers.of(null));
+            bind(String.class).annotatedWith(Names.named("ldap.sync.delta.state_file")).toProvider(Providers.of(null));
             bindConstant().annotatedWith(Names.named("ldap.base_dn")).to(server.getBaseDn());
             bindConstant().annotatedWith(Names.named("ldap.sync.user.filter")).to("(objectClass=inetOrgPerson)");
             bind(String.class).annotatedWith(Names.named("ldap.sync.group.additional_dn")).toProvider(Providers.of(null));
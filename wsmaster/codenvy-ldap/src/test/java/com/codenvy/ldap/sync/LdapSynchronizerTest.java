@@ -18,6 +18,7 @@ import com.codenvy.ldap.LdapUserIdNormalizer;
 import com.codenvy.ldap.sync.LdapSynchronizer.SyncResult;
 import com.google.common.collect.ImmutableMap;
 
+import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.model.user.User;
 import org.eclipse.che.api.user.server.model.impl.ProfileImpl;
@@ -37,6 +38,8 @@ import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
 import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -45,15 +48,21 @@ import java.util.Map;
 import java.util.Set;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Tests {@link LdapSynchronizer}.
@@ -325,6 +334,198 @@ public class LdapSynchronizerTest {
         assertEquals(user.getEmail(), existingUser.getEmail(), "linking attribute must be the same");
     }
 
+    @Test
+    public void pipelinedSynchronizationCreatesUpdatesAndRemovesUsers() throws Exception {
+        final Map<String, LdapEntry> users = new HashMap<>();
+        for (String id : asList("user123", "user234", "user345", "user456", "user567")) {
+            users.put(id, createUserEntry(id));
+        }
+        when(entrySelector.select(anyObject())).thenReturn(users.values());
+
+        final UserMapper mapper = new UserMapper("uid", "cn", "mail");
+        final Map<String, User> dbUsers = new HashMap<>();
+        dbUsers.put("user234", mapper.apply(users.get("user234")));
+        dbUsers.put("user345", mapper.apply(users.get("user345")));
+        dbUsers.put("missed-in-selection", new UserImpl("missed-in-selection", "email", "name"));
+        when(userFinder.findUsers()).thenReturn(dbUsers);
+        final Map<String, ProfileImpl> dbProfiles = new HashMap<>();
+        dbProfiles.put("user234", new ProfileImpl("user234", ImmutableMap.of("firstName", "firstName-user234")));
+        dbProfiles.put("user345", new ProfileImpl("user345", ImmutableMap.of("firstName", "old-firstName")));
+        when(userFinder.findProfiles()).thenReturn(dbProfiles);
+
+        final SyncResult syncResult = newPipelinedSynchronizer().syncAll();
+
+        assertEquals(syncResult.getProcessed(), 5);
+        assertEquals(syncResult.getCreated(), 3);
+        assertEquals(syncResult.getUpdated(), 1);
+        assertEquals(syncResult.getUpToDate(), 1);
+        assertEquals(syncResult.getRemoved(), 1);
+        assertEquals(syncResult.getFailed(), 0);
+        assertEquals(syncResult.getSkipped(), 0);
+        assertEquals(syncResult.getFetched(), 5);
+        verify(userDao, times(3)).create(anyObject());
+        verify(profileDao, times(3)).create(anyObject());
+        verify(userDao, never()).update(anyObject());
+        verify(profileDao).update(anyObject());
+        verify(userDao).remove("missed-in-selection");
+        verify(userFinder, never()).findUser(anyString());
+        verify(profileDao, never()).getById(anyString());
+    }
+
+    @Test
+    public void pipelinedSynchronizationWritesUsersOneByOneWhenBatchFails() throws Exception {
+        when(entrySelector.select(anyObject())).thenReturn(asList(createUserEntry("user123"),
+                                                                  createUserEntry("user234"),
+                                                                  createUserEntry("user345")));
+        doAnswer(inv -> {
+            if ("user234".equals(((User)inv.getArguments()[0]).getId())) {
+                throw new ConflictException("User with such name already exists");
+            }
+            return null;
+        }).when(userDao).create(any());
+
+        final SyncResult syncResult = newPipelinedSynchronizer().syncAll();
+
+        assertEquals(syncResult.getProcessed(), 3);
+        assertEquals(syncResult.getCreated(), 2);
+        assertEquals(syncResult.getFailed(), 1);
+        assertEquals(syncResult.getFetched(), 3);
+    }
+
+    @Test
+    public void incrementalSynchronizationSelectsOnlyChangedEntries() throws Exception {
+        final Path stateFile = Files.createTempDirectory("ldap-sync").resolve("state.properties");
+        final LdapSynchronizer synchronizer = newIncrementalSynchronizer(stateFile, 0);
+
+        // the first synchronization is the full one, as there is no high-water mark yet
+        when(entrySelector.select(anyObject())).thenReturn(asList(createUserEntry("user123", "20170101000000Z"),
+                                                                  createUserEntry("user234", "20170102000000Z")));
+        SyncResult syncResult = synchronizer.syncChanges();
+        assertEquals(syncResult.getCreated(), 2);
+        assertEquals(DeltaSyncState.load(stateFile).getMark(), "20170102000000Z");
+
+        // the next one selects only the entries changed since the mark
+        existingIds.add("user123");
+        existingIds.add("user234");
+        when(entrySelector.selectChanged(anyObject(), eq("(|(modifyTimestamp>=20170102000000Z))")))
+                .thenReturn(singletonList(createUserEntry("user345", "20170103000000Z")));
+        syncResult = synchronizer.syncChanges();
+
+        assertEquals(syncResult.getCreated(), 1);
+        assertEquals(syncResult.getUnchanged(), 2);
+        assertEquals(syncResult.getRemoved(), 0);
+        assertEquals(syncResult.getFetched(), 1);
+        verify(entrySelector).select(anyObject());
+        verify(userDao, never()).remove(anyString());
+        assertEquals(DeltaSyncState.load(stateFile).getMark(), "20170103000000Z");
+    }
+
+    @Test
+    public void performsFullSynchronizationWhenItIsDue() throws Exception {
+        final Path stateFile = Files.createTempDirectory("ldap-sync").resolve("state.properties");
+        new DeltaSyncState("modifyTimestamp", "20170102000000Z", System.currentTimeMillis() - 2000).store(stateFile);
+        when(entrySelector.select(anyObject())).thenReturn(singletonList(createUserEntry("user123", "20170101000000Z")));
+        existingIds.add("missed-in-selection");
+        when(userFinder.findUser("missed-in-selection")).thenReturn(new UserImpl("missed-in-selection", "email", "name"));
+
+        final SyncResult syncResult = newIncrementalSynchronizer(stateFile, 1000).syncChanges();
+
+        assertEquals(syncResult.getCreated(), 1);
+        assertEquals(syncResult.getRemoved(), 1);
+        verify(entrySelector, never()).selectChanged(anyObject(), anyString());
+        final DeltaSyncState state = DeltaSyncState.load(stateFile);
+        assertEquals(state.getMark(), "20170101000000Z");
+        assertTrue(System.currentTimeMillis() - state.getLastFullSyncTime() < 2000);
+    }
+
+    @Test
+    public void highWaterMarkIsAdvancedAndFailedEntriesAreRetriedWhenSynchronizationPartiallyFails() throws Exception {
+        final Path stateFile = Files.createTempDirectory("ldap-sync").resolve("state.properties");
+        new DeltaSyncState("modifyTimestamp", "20170102000000Z", System.currentTimeMillis()).store(stateFile);
+        final LdapSynchronizer synchronizer = newIncrementalSynchronizer(stateFile, 0);
+        when(entrySelector.selectChanged(anyObject(), eq("(|(modifyTimestamp>=20170102000000Z))")))
+                .thenReturn(asList(createUserEntry("user123", "20170103000000Z"),
+                                   createUserEntry("user234", "20170104000000Z")));
+        doAnswer(inv -> {
+            if ("user234".equals(((User)inv.getArguments()[0]).getId())) {
+                throw new ConflictException("User with such name already exists");
+            }
+            return null;
+        }).when(userDao).create(any());
+
+        SyncResult syncResult = synchronizer.syncChanges();
+
+        assertEquals(syncResult.getCreated(), 1);
+        assertEquals(syncResult.getFailed(), 1);
+        DeltaSyncState state = DeltaSyncState.load(stateFile);
+        assertEquals(state.getMark(), "20170104000000Z");
+        assertEquals(state.getRetryIds(), singleton("user234"));
+
+        // the next synchronization selects the failed entry again even though it hasn't changed
+        existingIds.add("user123");
+        doNothing().when(userDao).create(any());
+        when(entrySelector.selectChanged(anyObject(), eq("(|(modifyTimestamp>=20170104000000Z)(uid=user234))")))
+                .thenReturn(singletonList(createUserEntry("user234", "20170104000000Z")));
+
+        syncResult = synchronizer.syncChanges();
+
+        assertEquals(syncResult.getCreated(), 1);
+        assertEquals(syncResult.getFailed(), 0);
+        state = DeltaSyncState.load(stateFile);
+        assertEquals(state.getMark(), "20170104000000Z");
+        assertTrue(state.getRetryIds().isEmpty());
+    }
+
+    @SuppressWarnings("unchecked") // synchronizer generic array of string pairs
+    private LdapSynchronizer newIncrementalSynchronizer(Path stateFile, long fullSyncPeriodMs) {
+        final LdapSynchronizer synchronizer = new LdapSynchronizer(connFactory,
+                                                                   entrySelector,
+                                                                   userDao,
+                                                                   profileDao,
+                                                                   idNormalizer,
+                                                                   null,
+                                                                   0,
+                                                                   0,
+                                                                   "uid",
+                                                                   "cn",
+                                                                   "mail",
+                                                                   new Pair[] {Pair.of("firstName", "givenName")},
+                                                                   true,
+                                                                   true,
+                                                                   userFinder);
+        synchronizer.setDeltaSync("modifyTimestamp", stateFile.toString());
+        synchronizer.setFullSyncPeriodMs(fullSyncPeriodMs);
+        return synchronizer;
+    }
+
+    @SuppressWarnings("unchecked") // synchronizer generic array of string pairs
+    private LdapSynchronizer newPipelinedSynchronizer() {
+        final LdapSynchronizer synchronizer = new LdapSynchronizer(connFactory,
+                                                                   entrySelector,
+                                                                   userDao,
+                                                                   profileDao,
+                                                                   idNormalizer,
+                                                                   null,
+                                                                   0,
+                                                                   0,
+                                                                   "uid",
+                                                                   "cn",
+                                                                   "mail",
+                                                                   new Pair[] {Pair.of("firstName", "givenName")},
+                                                                   true,
+                                                                   true,
+                                                                   userFinder);
+        synchronizer.setPipelineWorkers(2);
+        synchronizer.setPipelineBatchSize(2);
+        return synchronizer;
+    }
+
+    private static LdapEntry createUserEntry(String id, String modifyTimestamp) {
+        final LdapEntry entry = createUserEntry(id);
+        entry.addAttribute(new LdapAttribute("modifyTimestamp", modifyTimestamp));
+        return entry;
+    }
+
     private static LdapEntry createUserEntry(String id) {
         return createUserEntry(id, "name-" + id, "email" + id, "firstName-" + id);
     }
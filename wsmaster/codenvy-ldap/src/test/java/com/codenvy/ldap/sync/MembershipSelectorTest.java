@@ -26,6 +26,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.StreamSupport;
@@ -43,6 +44,7 @@ public class MembershipSelectorTest {
 
     private EmbeddedLdapServer server;
     private ConnectionFactory  connFactory;
+    private Set<String>        memberIds;
 
     @BeforeClass
     public void setUpServer() throws Exception {
@@ -59,8 +61,10 @@ public class MembershipSelectorTest {
         // next 200 users are members of group1/group2
         final List<String> group1Members = new ArrayList<>(100);
         final List<String> group2Members = new ArrayList<>(100);
+        memberIds = new HashSet<>();
         for (int i = 100; i < 300; i++) {
             final ServerEntry entry = server.addDefaultLdapUser(i, Pair.of("givenName", "gn-" + i));
+            memberIds.add(entry.get("uid").get(0).toString());
             if (i % 2 == 0) {
                 group1Members.add(entry.getDn().toString());
             } else {
@@ -97,4 +101,46 @@ public class MembershipSelectorTest {
             }
         }
     }
+
+    @Test
+    public void testMembershipSelectionWithoutBatches() throws Exception {
+        final MembershipSelector selector =
+                new MembershipSelector(server.getBaseDn(),
+                                       "(objectClass=groupOfNames)",
+                                       "(objectClass=inetOrgPerson)",
+                                       "member",
+                                       0,
+                                       0,
+                                       null,
+                                       "uid",
+                                       "givenName");
+        try (Connection conn = connFactory.getConnection()) {
+            conn.open();
+            final Set<String> selection = StreamSupport.stream(selector.select(conn).spliterator(), false)
+                                                       .map(entry -> entry.getAttribute("uid").getStringValue())
+                                                       .collect(toSet());
+            assertEquals(selection, memberIds);
+        }
+    }
+
+    @Test
+    public void testMembershipSelectionWithConcurrentBatches() throws Exception {
+        final MembershipSelector selector =
+                new MembershipSelector(server.getBaseDn(),
+                                       "(objectClass=groupOfNames)",
+                                       "(objectClass=inetOrgPerson)",
+                                       "member",
+                                       7,
+                                       3,
+                                       connFactory,
+                                       "uid",
+                                       "givenName");
+        try (Connection conn = connFactory.getConnection()) {
+            conn.open();
+            final Set<String> selection = StreamSupport.stream(selector.select(conn).spliterator(), false)
+                                                       .map(entry -> entry.getAttribute("uid").getStringValue())
+                                                       .collect(toSet());
+            assertEquals(selection, memberIds);
+        }
+    }
 }
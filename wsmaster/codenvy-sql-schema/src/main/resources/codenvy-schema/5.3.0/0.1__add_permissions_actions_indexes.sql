@@ -0,0 +1,21 @@
+--
+--  [2012] - [2017] Codenvy, S.A.
+--  All Rights Reserved.
+--
+-- NOTICE:  All information contained herein is, and remains
+-- the property of Codenvy S.A. and its suppliers,
+-- if any.  The intellectual and technical concepts contained
+-- herein are proprietary to Codenvy S.A.
+-- and its suppliers and may be covered by U.S. and Foreign Patents,
+-- patents in process, and are protected by trade secret or copyright law.
+-- Dissemination of this information or reproduction of this material
+-- is strictly forbidden unless prior written permission is obtained
+-- from Codenvy S.A..
+--
+
+-- Allows checking whether permissions contain some action without scanning all the permissions with such action
+CREATE INDEX index_systempermissions_actions_systempermissions_id_actions ON systempermissions_actions (systempermissions_id, actions);
+CREATE INDEX index_worker_actions_worker_id_actions ON worker_actions (worker_id, actions);
+CREATE INDEX index_stackpermissions_actions_stackpermissions_id_actions ON stackpermissions_actions (stackpermissions_id, actions);
+CREATE INDEX index_recipepermissions_actions_recipepermissions_id_actions ON recipepermissions_actions (recipepermissions_id, actions);
+CREATE INDEX index_member_actions_member_id_actions ON member_actions (member_id, actions);